@@ -0,0 +1,172 @@
+package name.fis.hrdina.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.Digraphs;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.Trigrams;
+import name.fis.hrdina.Util;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.WordTreeException;
+import name.fis.hrdina.dictionary.ResourceDictionarySource;
+import name.fis.hrdina.generators.ConditionalProbBoard;
+
+/**
+ * Dictionary data and fixed inputs shared by the benchmarks. The data files
+ * are read from the directory given by the <code>hrdina.data</code> system
+ * property (set by build.xml). Everything random is seeded with fixed seeds,
+ * so every run of the benchmarks works on the same words and boards.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BenchmarkData
+{
+	/** Seed of all random number generators of the benchmarks */
+	public static final long SEED = 20130101L;
+
+	private final byte[] m_AlphabetBytes;
+	private final byte[] m_WordTreeBytes;
+	private final byte[] m_DigraphBytes;
+	private final byte[] m_TrigramBytes;
+	private final Alphabet m_Alphabet;
+	private final WordTree m_Tree;
+	private final Digraphs m_Digraphs;
+	private final Trigrams m_Trigrams;
+
+	/**
+	 * Loads the data files
+	 * @throws IOException if a file can't be read
+	 * @throws WordTreeException if the data is invalid
+	 */
+	public BenchmarkData() throws IOException, WordTreeException
+	{
+		String dir = System.getProperty("hrdina.data");
+		if (dir == null)
+			throw new IllegalStateException("System property hrdina.data must point to the data files");
+		m_AlphabetBytes = ReadFile(new File(dir, ResourceDictionarySource.ALPHABET_FILE_NAME));
+		m_WordTreeBytes = ReadFile(new File(dir, ResourceDictionarySource.WORDTREE_FILE_NAME));
+		m_DigraphBytes = ReadFile(new File(dir, ResourceDictionarySource.DIGRAPH_FILE_NAME));
+		// Required, so that the trigram generator doesn't silently count the trigrams from the tree
+		m_TrigramBytes = ReadFile(new File(dir, ResourceDictionarySource.TRIGRAM_FILE_NAME));
+
+		m_Alphabet = NewAlphabet();
+		m_Tree = new WordTree();
+		m_Tree.Load(new ByteArrayInputStream(m_WordTreeBytes), m_Alphabet);
+		m_Digraphs = new Digraphs();
+		m_Digraphs.Load(new ByteArrayInputStream(m_DigraphBytes), m_Alphabet);
+		m_Trigrams = new Trigrams();
+		if (!m_Trigrams.Load(new ByteArrayInputStream(m_TrigramBytes), m_Alphabet))
+			throw new WordTreeException("Invalid trigram file");
+	}
+
+	private static byte[] ReadFile(File file) throws IOException
+	{
+		try (InputStream str = new FileInputStream(file))
+		{
+			return Util.ReadAll(str);
+		}
+	}
+
+	/**
+	 * @param count Number of words
+	 * @return Words picked from the dictionary at random, always the same ones
+	 */
+	public List<String> SampleWords(int count)
+	{
+		List<String> all = new ArrayList<>();
+		for (String word: m_Tree.Words())
+			all.add(word);
+		Collections.shuffle(all, new Random(SEED));
+		return new ArrayList<>(all.subList(0, Math.min(count, all.size())));
+	}
+
+	/**
+	 * @param count Number of boards
+	 * @return Boards generated by the conditional probability generator, always the same ones
+	 */
+	public List<GameBoard> GenerateBoards(int count)
+	{
+		ConditionalProbBoard generator = new ConditionalProbBoard(NewAlphabet(), m_Digraphs);
+		List<GameBoard> boards = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			GameBoard board = new GameBoard();
+			board.Init(m_Alphabet, m_Tree, generator);
+			boards.add(board);
+		}
+		return boards;
+	}
+
+	/**
+	 * @return A new instance of the alphabet with its own random number
+	 *         generator seeded with the fixed seed
+	 */
+	public Alphabet NewAlphabet()
+	{
+		Alphabet alphabet = new Alphabet(new Random(SEED));
+		try
+		{
+			alphabet.Load(new ByteArrayInputStream(m_AlphabetBytes));
+		}
+		catch (IOException | WordTreeException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		return alphabet;
+	}
+
+	/** @return Contents of alphabet.bin */
+	public byte[] GetAlphabetBytes()
+	{
+		return m_AlphabetBytes;
+	}
+
+	/** @return Contents of wordtree.bin */
+	public byte[] GetWordTreeBytes()
+	{
+		return m_WordTreeBytes;
+	}
+
+	/** @return Contents of digraph.bin */
+	public byte[] GetDigraphBytes()
+	{
+		return m_DigraphBytes;
+	}
+
+	/** @return Contents of trigram.bin */
+	public byte[] GetTrigramBytes()
+	{
+		return m_TrigramBytes;
+	}
+
+	/** @return The loaded alphabet */
+	public Alphabet GetAlphabet()
+	{
+		return m_Alphabet;
+	}
+
+	/** @return The loaded word tree */
+	public WordTree GetWordTree()
+	{
+		return m_Tree;
+	}
+
+	/** @return The loaded digraphs */
+	public Digraphs GetDigraphs()
+	{
+		return m_Digraphs;
+	}
+
+	/** @return The loaded trigrams */
+	public Trigrams GetTrigrams()
+	{
+		return m_Trigrams;
+	}
+}
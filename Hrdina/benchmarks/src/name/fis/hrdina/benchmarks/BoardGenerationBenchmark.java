@@ -0,0 +1,80 @@
+package name.fis.hrdina.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.WordTreeException;
+import name.fis.hrdina.generators.ConditionalProbBoard;
+import name.fis.hrdina.generators.EqualProbBoard;
+import name.fis.hrdina.generators.IBoardGenerator;
+import name.fis.hrdina.generators.TrigramBoard;
+import name.fis.hrdina.generators.WeightedProbBoard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <code>GenerateBoard</code> of every board generator. The alphabet (and its
+ * random number generator) is created again with the fixed seed for every
+ * iteration, so every iteration generates the same sequence of boards.
+ * @author Filip Simek <filip@fis.name>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardGenerationBenchmark
+{
+	@Param({"EqualProb", "WeightedProb", "ConditionalProb", "Trigram"})
+	public String Generator;
+
+	@Param({"4"})
+	public int EdgeSize;
+
+	private BenchmarkData m_Data;
+	private IBoardGenerator m_Generator;
+
+	@Setup(Level.Trial)
+	public void LoadData() throws IOException, WordTreeException
+	{
+		m_Data = new BenchmarkData();
+	}
+
+	@Setup(Level.Iteration)
+	public void CreateGenerator()
+	{
+		Alphabet alphabet = m_Data.NewAlphabet();
+		switch (Generator)
+		{
+			case "EqualProb":
+				m_Generator = new EqualProbBoard(alphabet);
+				break;
+			case "WeightedProb":
+				m_Generator = new WeightedProbBoard(alphabet);
+				break;
+			case "Trigram":
+				m_Generator = new TrigramBoard(alphabet, m_Data.GetTrigrams());
+				break;
+			default:
+				m_Generator = new ConditionalProbBoard(alphabet, m_Data.GetDigraphs());
+				break;
+		}
+	}
+
+	@Benchmark
+	public char[] GenerateBoard()
+	{
+		return m_Generator.GenerateBoard(EdgeSize);
+	}
+}
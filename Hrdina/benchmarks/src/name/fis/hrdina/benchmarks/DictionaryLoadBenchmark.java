@@ -0,0 +1,75 @@
+package name.fis.hrdina.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.Digraphs;
+import name.fis.hrdina.Trigrams;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.WordTreeException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading of the four data files. The files are read into memory once, so
+ * only the decoding is measured, not the disk.
+ * @author Filip Simek <filip@fis.name>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryLoadBenchmark
+{
+	private BenchmarkData m_Data;
+
+	@Setup
+	public void Setup() throws IOException, WordTreeException
+	{
+		m_Data = new BenchmarkData();
+	}
+
+	@Benchmark
+	public Alphabet LoadAlphabet() throws IOException, WordTreeException
+	{
+		Alphabet alphabet = new Alphabet(new Random(BenchmarkData.SEED));
+		alphabet.Load(new ByteArrayInputStream(m_Data.GetAlphabetBytes()));
+		return alphabet;
+	}
+
+	@Benchmark
+	public WordTree LoadWordTree() throws IOException
+	{
+		WordTree tree = new WordTree();
+		tree.Load(new ByteArrayInputStream(m_Data.GetWordTreeBytes()), m_Data.GetAlphabet());
+		return tree;
+	}
+
+	@Benchmark
+	public Digraphs LoadDigraphs() throws IOException
+	{
+		Digraphs digraphs = new Digraphs();
+		digraphs.Load(new ByteArrayInputStream(m_Data.GetDigraphBytes()), m_Data.GetAlphabet());
+		return digraphs;
+	}
+
+	@Benchmark
+	public Trigrams LoadTrigrams() throws IOException
+	{
+		Trigrams trigrams = new Trigrams();
+		trigrams.Load(new ByteArrayInputStream(m_Data.GetTrigramBytes()), m_Data.GetAlphabet());
+		return trigrams;
+	}
+}
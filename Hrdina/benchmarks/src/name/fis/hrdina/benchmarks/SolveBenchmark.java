@@ -0,0 +1,122 @@
+package name.fis.hrdina.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.BatchSolver;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.PathTableSolver;
+import name.fis.hrdina.TopWordsSolver;
+import name.fis.hrdina.WordIdSolver;
+import name.fis.hrdina.WordTreeException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Solving of boards and scoring of words. Every invocation works on the next
+ * board (or word) of a fixed sample.
+ * @author Filip Simek <filip@fis.name>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolveBenchmark
+{
+	/** Number of boards of the sample */
+	private static final int BOARD_COUNT = 256;
+	/** Number of words of the sample */
+	private static final int WORD_COUNT = 4096;
+
+	private GameBoard[] m_Boards;
+	private int m_NextBoard = 0;
+	private String[] m_Words;
+	private int m_NextWord = 0;
+	private Alphabet m_Alphabet;
+	private TopWordsSolver m_TopSolver;
+	private WordIdSolver m_IdSolver;
+	/** Letters of all boards of the sample, for the batch solver */
+	private List<char[]> m_BoardLetters;
+	private BatchSolver m_BatchSolver;
+	private PathTableSolver m_PathSolver;
+
+	@Setup
+	public void Setup() throws IOException, WordTreeException
+	{
+		BenchmarkData data = new BenchmarkData();
+		List<GameBoard> boards = data.GenerateBoards(BOARD_COUNT);
+		m_Boards = boards.toArray(new GameBoard[boards.size()]);
+		List<String> words = data.SampleWords(WORD_COUNT);
+		m_Words = words.toArray(new String[words.size()]);
+		m_Alphabet = data.GetAlphabet();
+		m_TopSolver = new TopWordsSolver(data.GetWordTree());
+		m_IdSolver = new WordIdSolver(data.GetWordTree());
+		m_BoardLetters = new ArrayList<>();
+		for (GameBoard board: m_Boards)
+			m_BoardLetters.add(board.GetLetters());
+		m_BatchSolver = new BatchSolver(data.GetWordTree());
+		m_PathSolver = new PathTableSolver(data.GetWordTree(), m_Boards[0].GetEdgeSize());
+	}
+
+	private GameBoard NextBoard()
+	{
+		GameBoard board = m_Boards[m_NextBoard];
+		m_NextBoard = m_NextBoard + 1 == m_Boards.length? 0: m_NextBoard + 1;
+		return board;
+	}
+
+	@Benchmark
+	public List<String> SolveBoard()
+	{
+		return NextBoard().SolveBoard();
+	}
+
+	@Benchmark
+	public int[] SolveWordIds()
+	{
+		return m_IdSolver.Solve(NextBoard());
+	}
+
+	/** Solves the whole sample at once; the time is per board, comparable to SolveWordIds */
+	@Benchmark
+	@OperationsPerInvocation(BOARD_COUNT)
+	public int[][] SolveWordIdsBatch()
+	{
+		return m_BatchSolver.Solve(m_BoardLetters, m_Boards[0].GetEdgeSize());
+	}
+
+	@Benchmark
+	public int[] SolveWordIdsPathTable()
+	{
+		return m_PathSolver.Solve(NextBoard());
+	}
+
+	@Benchmark
+	public List<String> SolveTop10()
+	{
+		return m_TopSolver.Solve(NextBoard(), 10);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public void GetWordValue(Blackhole bh)
+	{
+		String word = m_Words[m_NextWord];
+		m_NextWord = m_NextWord + 1 == m_Words.length? 0: m_NextWord + 1;
+		bh.consume(m_Alphabet.GetWordValue(word));
+	}
+}
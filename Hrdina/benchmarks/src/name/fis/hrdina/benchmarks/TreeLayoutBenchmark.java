@@ -0,0 +1,104 @@
+package name.fis.hrdina.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.WordIdSolver;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.WordTreeException;
+import name.fis.hrdina.WordTreeLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Solving and lookups over the same words with different node layouts of the
+ * word tree (see <code>WordTreeLayout</code>): the numbering of wordtree.bin
+ * (file), all levels breadth-first (bfs) and the locality layout measured on
+ * other boards than the ones solved here (locality). The cache misses per
+ * solve can be compared with <code>-Djmh.args="TreeLayout -prof perfnorm"</code>
+ * (Linux perf is needed).
+ * @author Filip Simek <filip@fis.name>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeLayoutBenchmark
+{
+	/** Number of boards solved by the benchmark, and of the boards the layout is measured on */
+	private static final int BOARD_COUNT = 256;
+	/** Number of words of the lookup sample */
+	private static final int WORD_COUNT = 4096;
+
+	@Param({"FILE", "BFS", "LOCALITY"})
+	public String Layout;
+
+	private char[][] m_Boards;
+	private int m_NextBoard = 0;
+	private String[] m_Words;
+	private int m_NextWord = 0;
+	private WordTree m_Tree;
+	private WordIdSolver m_Solver;
+
+	@Setup
+	public void Setup() throws IOException, WordTreeException
+	{
+		BenchmarkData data = new BenchmarkData();
+		List<GameBoard> boards = data.GenerateBoards(2 * BOARD_COUNT);
+		List<char[]> training = new ArrayList<>();
+		m_Boards = new char[BOARD_COUNT][];
+		for (int i = 0; i < BOARD_COUNT; i++)
+		{
+			training.add(boards.get(i).GetLetters());
+			m_Boards[i] = boards.get(BOARD_COUNT + i).GetLetters();
+		}
+		List<String> words = data.SampleWords(WORD_COUNT);
+		m_Words = words.toArray(new String[words.size()]);
+
+		WordTree original = data.GetWordTree();
+		switch (Layout)
+		{
+			case "FILE":
+				m_Tree = original;
+				break;
+			case "BFS":
+				m_Tree = new WordTree();
+				m_Tree.LoadImage(WordTreeLayout.Relayout(original, Integer.MAX_VALUE, null), original.GetAlphabet());
+				break;
+			default:
+				m_Tree = WordTreeLayout.Optimize(original, training, 4);
+				break;
+		}
+		m_Solver = new WordIdSolver(m_Tree);
+	}
+
+	@Benchmark
+	public int[] SolveWordIds()
+	{
+		char[] board = m_Boards[m_NextBoard];
+		m_NextBoard = m_NextBoard + 1 == m_Boards.length? 0: m_NextBoard + 1;
+		return m_Solver.Solve(board, 4);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public boolean CheckWord()
+	{
+		String word = m_Words[m_NextWord];
+		m_NextWord = m_NextWord + 1 == m_Words.length? 0: m_NextWord + 1;
+		return m_Tree.CheckWord(word).IsValidWord;
+	}
+}
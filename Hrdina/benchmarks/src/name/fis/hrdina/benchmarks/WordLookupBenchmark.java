@@ -0,0 +1,103 @@
+package name.fis.hrdina.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.WordTreeException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <code>WordTree.CheckWord</code> on three workloads: whole words (hit),
+ * proper prefixes of words that are not words themselves (prefix) and strings
+ * that are neither (miss). Each invocation checks the next string of a fixed
+ * sample, so the branch predictor can't learn a single path.
+ * @author Filip Simek <filip@fis.name>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordLookupBenchmark
+{
+	/** Number of strings of each sample */
+	private static final int SAMPLE_SIZE = 4096;
+
+	@Param({"HIT", "PREFIX", "MISS"})
+	public String Workload;
+
+	private WordTree m_Tree;
+	private String[] m_Strings;
+	private int m_Next = 0;
+
+	@Setup
+	public void Setup() throws IOException, WordTreeException
+	{
+		BenchmarkData data = new BenchmarkData();
+		m_Tree = data.GetWordTree();
+		Alphabet alphabet = data.GetAlphabet();
+		Random rand = new Random(BenchmarkData.SEED);
+		List<String> strings = new ArrayList<>(SAMPLE_SIZE);
+		for (String word: data.SampleWords(4 * SAMPLE_SIZE))
+		{
+			if (strings.size() == SAMPLE_SIZE)
+				break;
+			String s;
+			switch (Workload)
+			{
+				case "HIT":
+					s = word;
+					break;
+				case "PREFIX":
+					s = word.substring(0, 1 + rand.nextInt(word.length()));
+					break;
+				default:
+					// Replace one letter; checked below to be neither a word nor a prefix
+					char[] letters = word.toCharArray();
+					letters[rand.nextInt(letters.length)] = alphabet.GetLetterByIndex(rand.nextInt(alphabet.GetSize()));
+					s = new String(letters);
+					break;
+			}
+			WordTree.WordSearchResult r = m_Tree.CheckWord(s);
+			boolean matches;
+			switch (Workload)
+			{
+				case "HIT":
+					matches = r.IsValidWord;
+					break;
+				case "PREFIX":
+					matches = r.IsPerspectivePrefix && !r.IsValidWord;
+					break;
+				default:
+					matches = !r.IsPerspectivePrefix && !r.IsValidWord;
+					break;
+			}
+			if (matches)
+				strings.add(s);
+		}
+		m_Strings = strings.toArray(new String[strings.size()]);
+	}
+
+	@Benchmark
+	public WordTree.WordSearchResult CheckWord()
+	{
+		String s = m_Strings[m_Next];
+		m_Next = m_Next + 1 == m_Strings.length? 0: m_Next + 1;
+		return m_Tree.CheckWord(s);
+	}
+}
@@ -5,10 +5,16 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.TreeMap;
+import name.fis.hrdina.metrics.Metrics;
 
 /**
  * Manages the alphabet used by the game. The alphabet is loaded from a resource
@@ -21,19 +27,38 @@ public class Alphabet {
 	  * If the random number falls between two adjacent limits in this map then
 	  * the respective letter is returned. */
 	private TreeMap<Integer, Character> m_Roulette;
-	/** Point value of each letter, based on the frequency */
-	private Map<Character, Integer> m_Values;
+	/** Point value of each letter by letter index, based on the frequency */
+	private int[] m_Values;
 	/** Maps letter index as used in the data files to the actual character */
-	private TreeMap<Integer, Character> m_IndexMap;
+	private char[] m_Letters;
+	/** Maps a character to its letter index + 1 (0 means the character is not
+	  * a letter of the alphabet). Indexed by the character itself, so it is only
+	  * as long as the highest character of the alphabet. A char holds the index
+	  * of any letter, unlike a byte, which overflows at 128 letters. */
+	private char[] m_IndexTable;
+	/** Sum of the roulette intervals of all letters */
+	private int m_SelectionLimit;
 	/** Number of letters in all words in the word tree in total
 	  * (Used to calculate relative frequency of each letter) */
-	private int m_SelectionLimit;
+	private int m_TotalLetters;
+	/** Number of occurrences of each letter, by letter index */
+	private int[] m_Frequencies;
+	/** Text of the multi-letter tiles (such as 'ch') by the character that
+	  * represents them in the alphabet, the word tree and on the board */
+	private Map<Character, String> m_Tiles;
+	/** Multi-letter tiles sorted from the longest, for tokenization */
+	private List<Map.Entry<Character, String>> m_TilesByLength;
+	/** Split patterns: pieces of words with SPLIT_MARK where the letters of a
+	  * multi-letter tile belong to different parts of the word (e.g. tisíc|h) */
+	private List<String> m_Splits;
 	private final Random m_Rand;
 	
 	/** Value returned by GetLetterIndex for a nonexistant letter */
 	public final static int NO_LETTER_INDEX = -1;
 	/** Placeholder for a nonexistant letter */
 	public final static char NO_LETTER = ' ';
+	/** Marks the split in a split pattern */
+	public final static char SPLIT_MARK = '|';
 
 	/**
 	 * Default constructor, using the Random class as random number generator
@@ -52,6 +77,36 @@ public class Alphabet {
 		m_Rand = rand;
 	}
 
+	/**
+	 * Creates a copy of a loaded alphabet that picks random letters with the
+	 * given random number generator. The tables are shared; they are never
+	 * modified after loading. Useful for generating boards on several threads
+	 * without sharing one generator, or reproducibly from a seed.
+	 * @param rand Random number generator of the copy
+	 * @return The copy
+	 */
+	public Alphabet WithRandom(Random rand)
+	{
+		Alphabet copy = new Alphabet(rand);
+		copy.m_Roulette = m_Roulette;
+		copy.m_Values = m_Values;
+		copy.m_Letters = m_Letters;
+		copy.m_IndexTable = m_IndexTable;
+		copy.m_SelectionLimit = m_SelectionLimit;
+		copy.m_TotalLetters = m_TotalLetters;
+		copy.m_Frequencies = m_Frequencies;
+		copy.m_Tiles = m_Tiles;
+		copy.m_TilesByLength = m_TilesByLength;
+		copy.m_Splits = m_Splits;
+		return copy;
+	}
+
+	/** @return The random number generator the letters are picked with */
+	public Random GetRandom()
+	{
+		return m_Rand;
+	}
+
 	/**
 	 * Initializes the alphabet instance with data from the given input stream
 	 * @param alphabetStr Stream to load alphabet data from
@@ -61,9 +116,10 @@ public class Alphabet {
 	 */
 	public boolean Load(InputStream alphabetStr) throws IOException, WordTreeException
 	{
-		// Check header
+		// Check header. Version 2 adds the table of multi-letter tiles, version 3
+		// the split patterns
 		int version = Util.ReadLEInt(alphabetStr);
-		if (version > 1) {
+		if (version > 3) {
 			throw new WordTreeException(String.format("Unsupported wordtree version %d", version));
 		}
 
@@ -88,10 +144,82 @@ public class Alphabet {
 		}
 		
 		InitValues(totalLetters, letterFreq, letters);
+		m_Frequencies = frequencies;
+
+		// Multi-letter tiles
+		Map<Character, String> tiles = new TreeMap<>();
+		List<String> splits = new ArrayList<>();
+		if (version >= 2)
+		{
+			int numTiles = Util.ReadLEInt(alphabetStr);
+			for (int i = 0; i < numTiles; i++)
+			{
+				char code = (char)Util.ReadLEInt(alphabetStr);
+				tiles.put(code, ReadText(alphabetStr, charset));
+			}
+		}
+		if (version >= 3)
+		{
+			int numSplits = Util.ReadLEInt(alphabetStr);
+			for (int i = 0; i < numSplits; i++)
+				splits.add(ReadText(alphabetStr, charset));
+		}
+		InitTiles(tiles, splits);
 
 		return true;
 	}
 
+	/**
+	 * Reads a text stored as its length followed by UTF-32 characters
+	 * @param str Stream to read from
+	 * @param charset The UTF-32LE charset
+	 * @return The text
+	 */
+	private static String ReadText(InputStream str, Charset charset) throws IOException
+	{
+		int length = Util.ReadLEInt(str);
+		byte[] data = new byte[length * 4];
+		str.read(data);
+		return charset.decode(ByteBuffer.wrap(data)).toString();
+	}
+
+	/**
+	 * Initializes the alphabet instance with statistics that were computed
+	 * rather than loaded (e.g. for a derived alphabet)
+	 * @param totalLetters Total number of all letters in all words
+	 * @param letters Maps letter index to the actual letter
+	 * @param frequencies Number of occurrences of each letter, by letter index
+	 * @param tiles Text of each multi-letter tile by the character that represents it
+	 * @param splits Split patterns, see <code>GetSplits</code>
+	 */
+	void Init(int totalLetters, char[] letters, int[] frequencies, Map<Character, String> tiles, List<String> splits)
+	{
+		Map<Character, Integer> letterFreq = new TreeMap<>();
+		for (int i = 0; i < letters.length; i++)
+			letterFreq.put(letters[i], frequencies[i]);
+		InitValues(totalLetters, letterFreq, letters);
+		m_Frequencies = Arrays.copyOf(frequencies, letters.length);
+		InitTiles(tiles, splits);
+	}
+
+	/**
+	 * Sets up the table of multi-letter tiles
+	 * @param tiles Text of each multi-letter tile by the character that represents it
+	 * @param splits Split patterns, see <code>GetSplits</code>
+	 */
+	private void InitTiles(Map<Character, String> tiles, List<String> splits)
+	{
+		m_Splits = new ArrayList<>(splits);
+		m_Tiles = new TreeMap<>(tiles);
+		m_TilesByLength = new ArrayList<>(m_Tiles.entrySet());
+		Collections.sort(m_TilesByLength, new Comparator<Map.Entry<Character, String>>() {
+			@Override
+			public int compare(Map.Entry<Character, String> a, Map.Entry<Character, String> b) {
+				return b.getValue().length() - a.getValue().length();
+			}
+		});
+	}
+
 	/**
 	 * Calculates private members from the data loaded from the input stream
 	 * @param totalLetters Total number of all letters in all words
@@ -100,16 +228,17 @@ public class Alphabet {
 	 */
 	private void InitValues(int totalLetters, Map<Character, Integer> letterFrequency, char[] letterOrder)
 	{
-		m_Values = new TreeMap<>();
+		m_TotalLetters = totalLetters;
 		m_Roulette = new TreeMap<>();
-		m_IndexMap = new TreeMap<>();
+		m_Letters = Arrays.copyOf(letterOrder, letterFrequency.size());
 		
-		int letterIndex = 0;
-		for (char c: letterOrder)
-		{
-			m_IndexMap.put(letterIndex, c);
-			letterIndex++;
-		}
+		char maxLetter = 0;
+		for (char c: m_Letters)
+			maxLetter = (char)Math.max(maxLetter, c);
+		m_IndexTable = new char[maxLetter + 1];
+		for (int i = 0; i < m_Letters.length; i++)
+			m_IndexTable[m_Letters[i]] = (char)(i + 1);
+		m_Values = new int[m_Letters.length];
 		
 		int runningLimit = 0;
 		
@@ -134,7 +263,7 @@ public class Alphabet {
 				points = 7;
 			if (relFreq < 0.0004)
 				points = 8;
-			m_Values.put(c, points);
+			m_Values[GetIndexOfLetter(c)] = points;
 			
 			// Make more frequent letters more popular
 			if (points < 3)
@@ -151,7 +280,152 @@ public class Alphabet {
 	 */
 	public int GetSize()
 	{
-		return m_IndexMap.size();
+		return m_Letters.length;
+	}
+
+	// <editor-fold desc="Multi-letter tiles">
+	/** @return Text of each multi-letter tile by the character that represents it */
+	public Map<Character, String> GetTiles()
+	{
+		return Collections.unmodifiableMap(m_Tiles);
+	}
+
+	/**
+	 * @return Split patterns: pieces of words with SPLIT_MARK where the letters
+	 *         of a multi-letter tile belong to different parts of the word, so
+	 *         <code>Tokenize</code> keeps them separate letters (e.g. tisíc|h
+	 *         in tisíchlavý). A pattern applies anywhere in a word.
+	 */
+	public List<String> GetSplits()
+	{
+		return Collections.unmodifiableList(m_Splits);
+	}
+
+	/**
+	 * @param letter A letter of the alphabet
+	 * @return The text of the letter; differs from the letter itself only for
+	 *         multi-letter tiles, e.g. 'ch'
+	 */
+	public String GetLetterText(char letter)
+	{
+		String tile = m_Tiles.get(letter);
+		return tile == null? String.valueOf(letter): tile;
+	}
+
+	/**
+	 * Converts a word as stored in the word tree to human readable text by
+	 * expanding the multi-letter tiles
+	 * @param word Word consisting of letters of the alphabet
+	 * @return Text of the word
+	 */
+	public String Detokenize(String word)
+	{
+		if (m_Tiles.isEmpty())
+			return word;
+		StringBuilder sb = new StringBuilder(word.length() + 4);
+		for (int i = 0; i < word.length(); i++)
+			sb.append(GetLetterText(word.charAt(i)));
+		return sb.toString();
+	}
+
+	/**
+	 * Converts human readable text to letters of the alphabet, replacing every
+	 * occurrence of a multi-letter tile (the longest one at each position) by
+	 * the character representing the tile, except across the split of a split
+	 * pattern. This is the form in which words are looked up in the word tree;
+	 * tree_builder.py tokenizes the words of the tree the same way.
+	 * @param text Text of a word
+	 * @return The word as a sequence of letters of the alphabet
+	 */
+	public String Tokenize(String text)
+	{
+		if (m_Tiles.isEmpty())
+			return text;
+		boolean[] noJoin = SplitPositions(text);
+		StringBuilder sb = new StringBuilder(text.length());
+		int i = 0;
+		while (i < text.length())
+		{
+			boolean matched = false;
+			for (Map.Entry<Character, String> tile: m_TilesByLength)
+			{
+				int length = tile.getValue().length();
+				if (text.startsWith(tile.getValue(), i) && !AnySplit(noJoin, i + 1, i + length))
+				{
+					sb.append(tile.getKey());
+					i += length;
+					matched = true;
+					break;
+				}
+			}
+			if (!matched)
+			{
+				sb.append(text.charAt(i));
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param text Text of a word
+	 * @return For each position in the text, true if a split pattern splits
+	 *         the text before the character at the position; null if there is none
+	 */
+	private boolean[] SplitPositions(String text)
+	{
+		boolean[] result = null;
+		for (String pattern: m_Splits)
+		{
+			String plain = pattern.replace(String.valueOf(SPLIT_MARK), "");
+			for (int start = text.indexOf(plain); start >= 0; start = text.indexOf(plain, start + 1))
+			{
+				int offset = 0;
+				for (int i = 0; i < pattern.length(); i++)
+				{
+					if (pattern.charAt(i) != SPLIT_MARK)
+						offset++;
+					else
+					{
+						if (result == null)
+							result = new boolean[text.length() + 1];
+						result[start + offset] = true;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/** @return true if there is a split at any position from from to to (exclusive) */
+	private static boolean AnySplit(boolean[] splits, int from, int to)
+	{
+		if (splits == null)
+			return false;
+		for (int i = from; i < to; i++)
+		{
+			if (splits[i])
+				return true;
+		}
+		return false;
+	}
+	// </editor-fold>
+
+	/** @return Number of letters in all words of the word list in total */
+	public int GetTotalLetters()
+	{
+		return m_TotalLetters;
+	}
+
+	/**
+	 * @param index Letter index
+	 * @return Number of occurrences of the letter in all words of the word list
+	 */
+	public int GetLetterFrequency(int index)
+	{
+		if (index < 0 || index >= m_Frequencies.length)
+			return 0;
+		return m_Frequencies[index];
 	}
 
 	// <editor-fold desc="Letter getters">
@@ -161,31 +435,27 @@ public class Alphabet {
 	 */
 	public char GetLetterByIndex(int index)
 	{
-		if (!m_IndexMap.containsKey(index))
+		if (index < 0 || index >= m_Letters.length)
 			return NO_LETTER;
-		return m_IndexMap.get(index);
+		return m_Letters[index];
 	}
 	
 	/**
 	 * Maps a letter back to its index used in the input stream.
-	 * Not optimized, performs a linear scan of the alphabet.
 	 * @param letter The letter to convert to its index
 	 * @return Index of the given letter or <code>NO_LETTER_INDEX</code> if not found
 	 */
 	public int GetIndexOfLetter(char letter)
 	{
-		for (Entry<Integer, Character> entry: m_IndexMap.entrySet())
-		{
-			if (entry.getValue() == letter)
-				return entry.getKey();
-		}
-		return NO_LETTER_INDEX;
+		if (letter >= m_IndexTable.length)
+			return NO_LETTER_INDEX;
+		return m_IndexTable[letter] - 1;
 	}
 	
 	/** @return one letter with uniform distribution of all letters */
 	public char GetRandomLetterUniform()
 	{
-		int pick = m_Rand.nextInt(m_IndexMap.size());
+		int pick = m_Rand.nextInt(m_Letters.length);
 		return GetLetterByIndex(pick);
 	}
 	
@@ -205,6 +475,8 @@ public class Alphabet {
 	 */
 	public char GetRandomLetterConditional(TreeMap<Character, Integer> probMap)
 	{
+		if (Metrics.ENABLED)
+			Metrics.CONDITIONAL_LETTERS.Increment();
 		TreeMap<Integer, Character> roulette = new TreeMap<>();
 		int accumulator = 0;
 		for (Entry<Character, Integer> e: probMap.entrySet())
@@ -246,9 +518,16 @@ public class Alphabet {
 	 * @return point value of the given letter */
 	public int GetLetterValue(char letter)
 	{
-		if (!m_Values.containsKey(letter))
-			return 0;
-		return m_Values.get(letter);
+		int index = GetIndexOfLetter(letter);
+		return index == NO_LETTER_INDEX? 0: m_Values[index];
+	}
+
+	/**
+	 * @param index Index of a letter
+	 * @return point value of the letter */
+	public int GetLetterValueByIndex(int index)
+	{
+		return m_Values[index];
 	}
 	
 	/**
@@ -259,9 +538,9 @@ public class Alphabet {
 	public int GetWordValue(String word)
 	{
 		int value = 0;
-		for (char c: word.toCharArray())
+		for (int i = 0; i < word.length(); i++)
 		{
-			value += GetLetterValue(c);
+			value += GetLetterValue(word.charAt(i));
 		}
 		return value;
 	}
@@ -269,9 +548,9 @@ public class Alphabet {
 	/* For testing only */
 	public void Dump()
 	{
-		for (char c: m_Values.keySet())
+		for (int i = 0; i < m_Letters.length; i++)
 		{
-			System.out.println(String.format("%c: %d", c, m_Values.get(c)));
+			System.out.println(String.format("%s: %d", GetLetterText(m_Letters[i]), m_Values[i]));
 		}
 	}
 }
@@ -0,0 +1,325 @@
+package name.fis.hrdina;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Solves many boards at once into sets of word IDs, with the same results as
+ * <code>WordIdSolver</code>.
+ *
+ * Instead of searching the boards one after another, the search walks the
+ * word tree once and carries the paths of all boards along: a node is visited
+ * with the paths of every board that reach it, its links are decoded into a
+ * table by letter once, and every path is extended through the table. The
+ * extended paths are sorted by their letter into one range per child, so the
+ * paths that continue in the same node are processed together and the top
+ * levels of the tree, which every board passes, are read once per batch.
+ *
+ * The paths waiting in a node are kept in flat arrays (board, position, cells
+ * of the path as bits), so boards are limited to MAX_BOARD_SIZE positions.
+ * Not thread safe; use one instance per thread.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BatchSolver
+{
+	/** Maximal number of positions of a board; the cells of a path are kept as bits of a long */
+	public static final int MAX_BOARD_SIZE = 64;
+	/** Nodes reached by fewer paths are searched path by path; sorting a few
+	  * paths by letter costs more than looking up the children one by one */
+	private static final int MIN_SORTED_PATHS = 16;
+
+	private final WordTree m_Tree;
+	private final Alphabet m_Alphabet;
+
+	// <editor-fold desc="State of the current batch">
+	private int m_BoardSize;
+	private int[][] m_Neighbors;
+	/** Letter indices of all boards, board after board */
+	private int[] m_Letters;
+	/** IDs of the words found on each board, with duplicates */
+	private int[][] m_Found;
+	private int[] m_FoundCounts;
+
+	/** Paths waiting to be extended: board, last position and the positions as bits */
+	private int[] m_PathBoards = new int[4096];
+	private int[] m_PathPositions = new int[4096];
+	private long[] m_PathCells = new long[4096];
+	/** End of the used part of the path arrays */
+	private int m_Top;
+
+	/** For each depth, the child of the node being extended by letter index; NO_NODE if none */
+	private int[][] m_Children;
+	/** For each depth, the word ID of each child by letter index */
+	private int[][] m_WordIds;
+	/** For each depth, where the paths extended by each letter start and, after placing, end */
+	private int[][] m_Ranges;
+	// </editor-fold>
+
+	/**
+	 * @param tree The word tree to check words with
+	 */
+	public BatchSolver(WordTree tree)
+	{
+		m_Tree = tree;
+		m_Alphabet = tree.GetAlphabet();
+	}
+
+	/**
+	 * Finds all words of the given boards
+	 * @param boards Letters of square boards of the same size, row by row
+	 * @param edgeSize Size of the edge of the boards
+	 * @return For each board, sorted IDs of all its unique words
+	 * @throws IllegalArgumentException if the boards have more than MAX_BOARD_SIZE positions
+	 */
+	public int[][] Solve(List<char[]> boards, int edgeSize)
+	{
+		int size = edgeSize * edgeSize;
+		if (size > MAX_BOARD_SIZE)
+			throw new IllegalArgumentException(String.format("Board of %d positions is too large", size));
+		int count = boards.size();
+		int letterCount = m_Alphabet.GetSize();
+		if (size != m_BoardSize || m_Children == null || m_Children[0].length != letterCount)
+		{
+			m_BoardSize = size;
+			m_Neighbors = GameBoard.GetNeighborTable(edgeSize);
+			// A path has at most as many letters as the board has positions
+			m_Children = new int[size + 1][letterCount];
+			m_WordIds = new int[size + 1][letterCount];
+			m_Ranges = new int[size + 1][letterCount + 1];
+			for (int[] children: m_Children)
+				Arrays.fill(children, WordTree.NO_NODE);
+		}
+		m_Letters = new int[count * size];
+		m_Found = new int[count][];
+		m_FoundCounts = new int[count];
+		for (int b = 0; b < count; b++)
+		{
+			char[] board = boards.get(b);
+			for (int i = 0; i < size; i++)
+				m_Letters[b * size + i] = m_Alphabet.GetIndexOfLetter(board[i]);
+			m_Found[b] = new int[64];
+		}
+		m_Top = 0;
+
+		if (m_Tree.GetNodeCount() > 0 && count > 0)
+			ExtendRoot(count);
+
+		// Sort and drop the words found along several paths
+		int[][] result = new int[count][];
+		for (int b = 0; b < count; b++)
+		{
+			int[] found = m_Found[b];
+			Arrays.sort(found, 0, m_FoundCounts[b]);
+			int unique = 0;
+			for (int i = 0; i < m_FoundCounts[b]; i++)
+			{
+				if (unique == 0 || found[unique - 1] != found[i])
+					found[unique++] = found[i];
+			}
+			result[b] = Arrays.copyOf(found, unique);
+		}
+		m_Letters = null;
+		m_Found = null;
+		return result;
+	}
+
+	/**
+	 * Starts a path at every position of every board
+	 * @param boardCount Number of boards
+	 */
+	private void ExtendRoot(int boardCount)
+	{
+		int root = m_Tree.GetRoot();
+		int[] ranges = Decode(root, 0);
+		int[] children = m_Children[0];
+		for (int i = 0; i < m_Letters.length; i++)
+		{
+			int letter = m_Letters[i];
+			if (letter != Alphabet.NO_LETTER_INDEX && children[letter] != WordTree.NO_NODE)
+				ranges[letter + 1]++;
+		}
+		int total = Place(ranges);
+		for (int b = 0; b < boardCount; b++)
+		{
+			for (int position = 0; position < m_BoardSize; position++)
+			{
+				int letter = m_Letters[b * m_BoardSize + position];
+				if (letter == Alphabet.NO_LETTER_INDEX || children[letter] == WordTree.NO_NODE)
+					continue;
+				Push(ranges, letter, b, position, 1L << position);
+			}
+		}
+		Descend(root, 0, total);
+	}
+
+	/**
+	 * Extends the paths that reached a node by one letter and continues with the children
+	 * @param node The node
+	 * @param depth Number of letters of the paths
+	 * @param from First path of the node
+	 * @param to End of the paths of the node
+	 */
+	private void Extend(int node, int depth, int from, int to)
+	{
+		if (to - from < MIN_SORTED_PATHS)
+		{
+			for (int p = from; p < to; p++)
+				Follow(node, m_PathBoards[p], m_PathPositions[p], m_PathCells[p]);
+			return;
+		}
+		int[] ranges = Decode(node, depth);
+		int[] children = m_Children[depth];
+		// Count the extensions by letter first, so that they can be placed in one range per letter
+		for (int p = from; p < to; p++)
+		{
+			int offset = m_PathBoards[p] * m_BoardSize;
+			long cells = m_PathCells[p];
+			for (int neighbor: m_Neighbors[m_PathPositions[p]])
+			{
+				int letter = m_Letters[offset + neighbor];
+				if ((cells & (1L << neighbor)) == 0 && letter != Alphabet.NO_LETTER_INDEX
+					&& children[letter] != WordTree.NO_NODE)
+					ranges[letter + 1]++;
+			}
+		}
+		int total = Place(ranges);
+		for (int p = from; p < to; p++)
+		{
+			int board = m_PathBoards[p];
+			int offset = board * m_BoardSize;
+			long cells = m_PathCells[p];
+			for (int neighbor: m_Neighbors[m_PathPositions[p]])
+			{
+				int letter = m_Letters[offset + neighbor];
+				if ((cells & (1L << neighbor)) == 0 && letter != Alphabet.NO_LETTER_INDEX
+					&& children[letter] != WordTree.NO_NODE)
+					Push(ranges, letter, board, neighbor, cells | (1L << neighbor));
+			}
+		}
+		Descend(node, depth, total);
+	}
+
+	/**
+	 * Records the words of the children of a node and extends their paths further
+	 * @param node The node
+	 * @param depth Depth of the node
+	 * @param total Number of the paths placed for the children
+	 */
+	private void Descend(int node, int depth, int total)
+	{
+		int[] ranges = m_Ranges[depth];
+		int[] children = m_Children[depth];
+		int[] wordIds = m_WordIds[depth];
+		int top = m_Top;
+		m_Top += total;
+		for (int i = 0; i < m_Tree.GetChildCount(node); i++)
+		{
+			int letter = m_Tree.GetChildLetter(node, i);
+			// After placing, the range of a letter ends where the next one starts
+			int from = top + ranges[letter];
+			int to = top + ranges[letter + 1];
+			if (from == to)
+				continue;
+			int child = children[letter];
+			if (wordIds[letter] != WordTree.NO_WORD_ID)
+			{
+				for (int p = from; p < to; p++)
+					AddFound(m_PathBoards[p], wordIds[letter]);
+			}
+			if (m_Tree.HasChildren(child))
+				Extend(child, depth + 1, from, to);
+		}
+		m_Top = top;
+		for (int i = 0; i < m_Tree.GetChildCount(node); i++)
+			children[m_Tree.GetChildLetter(node, i)] = WordTree.NO_NODE;
+	}
+
+	/**
+	 * Extends a single path depth first, like <code>WordIdSolver</code>
+	 * @param node Word tree node of the path
+	 * @param board Board of the path
+	 * @param position Last position of the path
+	 * @param cells Positions of the path, as bits
+	 */
+	private void Follow(int node, int board, int position, long cells)
+	{
+		int offset = board * m_BoardSize;
+		for (int neighbor: m_Neighbors[position])
+		{
+			int letter = m_Letters[offset + neighbor];
+			if ((cells & (1L << neighbor)) != 0 || letter == Alphabet.NO_LETTER_INDEX)
+				continue;
+			int child = m_Tree.GetChild(node, letter);
+			if (child == WordTree.NO_NODE)
+				continue;
+			if (m_Tree.IsWord(child))
+				AddFound(board, m_Tree.GetChildWordId(node, letter));
+			if (m_Tree.HasChildren(child))
+				Follow(child, board, neighbor, cells | (1L << neighbor));
+		}
+	}
+
+	/**
+	 * Decodes the links of a node into the tables of the depth
+	 * @param node The node
+	 * @param depth Depth of the node
+	 * @return The ranges of the depth, cleared for counting
+	 */
+	private int[] Decode(int node, int depth)
+	{
+		int[] children = m_Children[depth];
+		int[] wordIds = m_WordIds[depth];
+		for (int i = 0; i < m_Tree.GetChildCount(node); i++)
+		{
+			int letter = m_Tree.GetChildLetter(node, i);
+			children[letter] = m_Tree.GetChildNode(node, i);
+			wordIds[letter] = m_Tree.GetChildWordId(node, letter);
+		}
+		int[] ranges = m_Ranges[depth];
+		Arrays.fill(ranges, 0);
+		return ranges;
+	}
+
+	/**
+	 * Turns the counts of the extensions by letter (at index letter + 1) into
+	 * the starts of their ranges (at index letter) after m_Top, and makes room for them
+	 * @param ranges The counts
+	 * @return Number of all extensions
+	 */
+	private int Place(int[] ranges)
+	{
+		for (int i = 1; i < ranges.length; i++)
+			ranges[i] += ranges[i - 1];
+		int total = ranges[ranges.length - 1];
+		// Shift by one: ranges[letter] is where the next path of the letter goes
+		System.arraycopy(ranges, 0, ranges, 1, ranges.length - 1);
+		ranges[0] = 0;
+		int needed = m_Top + total;
+		if (needed > m_PathBoards.length)
+		{
+			int capacity = Math.max(needed, m_PathBoards.length * 2);
+			m_PathBoards = Arrays.copyOf(m_PathBoards, capacity);
+			m_PathPositions = Arrays.copyOf(m_PathPositions, capacity);
+			m_PathCells = Arrays.copyOf(m_PathCells, capacity);
+		}
+		return total;
+	}
+
+	/** Places a path into the range of its letter; once all are placed, ranges[letter + 1] is the end of the range */
+	private void Push(int[] ranges, int letter, int board, int position, long cells)
+	{
+		int p = m_Top + ranges[letter + 1]++;
+		m_PathBoards[p] = board;
+		m_PathPositions[p] = position;
+		m_PathCells[p] = cells;
+	}
+
+	private void AddFound(int board, int id)
+	{
+		int count = m_FoundCounts[board];
+		if (count == m_Found[board].length)
+			m_Found[board] = Arrays.copyOf(m_Found[board], count * 2);
+		m_Found[board][count] = id;
+		m_FoundCounts[board] = count + 1;
+	}
+}
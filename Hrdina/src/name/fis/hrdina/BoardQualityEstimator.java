@@ -0,0 +1,380 @@
+package name.fis.hrdina;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Estimates the number of words and the score of a board without solving it.
+ *
+ * The estimate is Knuth's random probe of a search tree: a probe walks one
+ * random path of the solver's search (every step picks one of the neighbors
+ * that continue a prefix in the word tree, uniformly) and weighs every word it
+ * meets by the product of the numbers of choices along the way. Each probe is
+ * an unbiased estimate of the number of word paths of the board, and the mean
+ * of a number of probes comes with a standard error. A probe takes at most one
+ * step per letter of the longest word from each position, and the choices of
+ * the first two steps are kept between the probes of a board, so a probe costs
+ * a small fraction of a full solve.
+ *
+ * The number of word paths counts a word once per path that forms it, so it is
+ * an upper bound of the number of distinct words. A board whose path count is
+ * clearly too low certainly doesn't have enough words, which is what
+ * <code>IsClearlyBelow</code> is for; accepted boards still need the solver.
+ * The estimates of boards with many words are spread widely, since the probes
+ * rarely reach their long words.
+ *
+ * Not thread safe; use one instance per thread.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BoardQualityEstimator
+{
+	/** Number of probes between the checks of <code>IsClearlyBelow</code> */
+	private static final int ROUND_SIZE = 2;
+	/** Number of probes before <code>IsClearlyBelow</code> may reject a board;
+	  * the standard error of fewer probes is too unreliable */
+	private static final int MIN_REJECT_PROBES = 4;
+	/** Default maximal number of probes of <code>IsClearlyBelow</code> */
+	public static final int DEFAULT_MAX_PROBES = 8;
+	/** Default number of standard errors the estimate must be below the limit to reject a board */
+	public static final double DEFAULT_CONFIDENCE = 3.0;
+
+	/** Result of an estimate */
+	public static class Estimate
+	{
+		private final double m_WordCount;
+		private final double m_WordCountError;
+		private final double m_Score;
+		private final double m_ScoreError;
+		private final int m_Probes;
+
+		Estimate(double wordCount, double wordCountError, double score, double scoreError, int probes)
+		{
+			m_WordCount = wordCount;
+			m_WordCountError = wordCountError;
+			m_Score = score;
+			m_ScoreError = scoreError;
+			m_Probes = probes;
+		}
+
+		/** @return Estimated number of word paths; an upper bound of the number of distinct words */
+		public double GetWordCount()
+		{
+			return m_WordCount;
+		}
+
+		/** @return Standard error of <code>GetWordCount</code> */
+		public double GetWordCountError()
+		{
+			return m_WordCountError;
+		}
+
+		/** @return Estimated sum of the values of the word paths */
+		public double GetScore()
+		{
+			return m_Score;
+		}
+
+		/** @return Standard error of <code>GetScore</code> */
+		public double GetScoreError()
+		{
+			return m_ScoreError;
+		}
+
+		/** @return Number of probes the estimate is based on */
+		public int GetProbes()
+		{
+			return m_Probes;
+		}
+	}
+
+	private final WordTree m_Tree;
+	private final Alphabet m_Alphabet;
+	private final Random m_Rand;
+	private final int m_MaxProbes;
+	private final double m_Confidence;
+
+	// <editor-fold desc="State of the current board">
+	private int m_EdgeSize;
+	private int[][] m_Neighbors;
+	private int[] m_LetterIndices;
+	private int[] m_LetterValues;
+	private boolean[] m_Visited;
+	/** Word tree node of the letter of each position; NO_NODE if no word starts with it */
+	private int[] m_StartNodes;
+	/** Positions of the current path */
+	private int[] m_Path;
+	/** Index of the choice taken by the first step of the current path */
+	private int m_FirstChoice;
+	/** Choices of the first step from each position, followed by the choices
+	  * of the second step for each first choice; a count of -1 means not known yet */
+	private int[][] m_CachedPositions;
+	private int[][] m_CachedNodes;
+	private int[] m_CachedCounts;
+	/** Positions and nodes of the choices of the current step */
+	private int[] m_ChoicePositions;
+	private int[] m_ChoiceNodes;
+	/** Children of the current node by letter index; valid where the stamp is the current one */
+	private final int[] m_ChildByLetter;
+	private final int[] m_LetterStamps;
+	private int m_Stamp = 0;
+	/** State of the generator of the choices */
+	private long m_RandState;
+	/** Sums of the probes so far, and of their squares */
+	private double m_WordSum, m_WordSquares, m_ScoreSum, m_ScoreSquares;
+	private int m_Probes;
+	// </editor-fold>
+
+	/**
+	 * Creates an estimator with the default number of probes and confidence
+	 * @param tree The word tree to check words with
+	 * @param rand Random number generator of the probes
+	 */
+	public BoardQualityEstimator(WordTree tree, Random rand)
+	{
+		this(tree, rand, DEFAULT_MAX_PROBES, DEFAULT_CONFIDENCE);
+	}
+
+	/**
+	 * @param tree The word tree to check words with
+	 * @param rand Random number generator of the probes
+	 * @param maxProbes Maximal number of probes of <code>IsClearlyBelow</code>
+	 * @param confidence Number of standard errors the estimate must be below
+	 *        the limit for <code>IsClearlyBelow</code> to reject a board
+	 */
+	public BoardQualityEstimator(WordTree tree, Random rand, int maxProbes, double confidence)
+	{
+		m_Tree = tree;
+		m_Alphabet = tree.GetAlphabet();
+		m_Rand = rand;
+		m_MaxProbes = maxProbes;
+		m_Confidence = confidence;
+		m_ChildByLetter = new int[128];
+		m_LetterStamps = new int[128];
+	}
+
+	/**
+	 * Estimates the words of a board from a fixed number of probes
+	 * @param board Letters of a square board, row by row
+	 * @param edgeSize Size of the edge of the board
+	 * @param probes Number of probes
+	 * @return The estimate
+	 */
+	public Estimate Estimate(char[] board, int edgeSize, int probes)
+	{
+		Prepare(board, edgeSize);
+		for (int i = 0; i < probes; i++)
+			Probe();
+		return GetEstimate();
+	}
+
+	/**
+	 * Decides whether a board has fewer than the given number of words, probing
+	 * in rounds until the estimate is clearly below or clearly above the limit,
+	 * or the maximal number of probes is reached
+	 * @param board Letters of a square board, row by row
+	 * @param edgeSize Size of the edge of the board
+	 * @param minWords Wanted number of words
+	 * @return true if the board most likely has fewer words; false if it
+	 *         likely has enough or it is not clear (the board needs to be solved)
+	 */
+	public boolean IsClearlyBelow(char[] board, int edgeSize, int minWords)
+	{
+		Prepare(board, edgeSize);
+		while (m_Probes < m_MaxProbes)
+		{
+			for (int i = 0; i < ROUND_SIZE; i++)
+				Probe();
+			double mean = m_WordSum / m_Probes;
+			double error = StandardError(m_WordSum, m_WordSquares);
+			if (m_Probes >= MIN_REJECT_PROBES && mean + m_Confidence * error < minWords)
+				return true;
+			if (mean - m_Confidence * error >= minWords)
+				return false;
+		}
+		return false;
+	}
+
+	/** @return Estimate from the probes so far */
+	private Estimate GetEstimate()
+	{
+		if (m_Probes == 0)
+			return new Estimate(0, 0, 0, 0, 0);
+		return new Estimate(m_WordSum / m_Probes, StandardError(m_WordSum, m_WordSquares),
+			m_ScoreSum / m_Probes, StandardError(m_ScoreSum, m_ScoreSquares), m_Probes);
+	}
+
+	/**
+	 * @param sum Sum of the probes
+	 * @param squares Sum of the squares of the probes
+	 * @return Standard error of the mean of the probes
+	 */
+	private double StandardError(double sum, double squares)
+	{
+		if (m_Probes < 2)
+			return Double.POSITIVE_INFINITY;
+		double mean = sum / m_Probes;
+		double variance = Math.max(0, (squares - m_Probes * mean * mean) / (m_Probes - 1));
+		return Math.sqrt(variance / m_Probes);
+	}
+
+	/**
+	 * Sets up the state for probing a board
+	 * @param board Letters of the board
+	 * @param edgeSize Size of the edge of the board
+	 */
+	private void Prepare(char[] board, int edgeSize)
+	{
+		int size = edgeSize * edgeSize;
+		if (edgeSize != m_EdgeSize)
+		{
+			m_EdgeSize = edgeSize;
+			m_Neighbors = GameBoard.GetNeighborTable(edgeSize);
+			m_LetterIndices = new int[size];
+			m_LetterValues = new int[size];
+			m_Visited = new boolean[size];
+			m_ChoicePositions = new int[size];
+			m_ChoiceNodes = new int[size];
+			m_Path = new int[size];
+			m_StartNodes = new int[size];
+			int maxNeighbors = 0;
+			for (int[] neighbors: m_Neighbors)
+				maxNeighbors = Math.max(maxNeighbors, neighbors.length);
+			int cached = size * (1 + maxNeighbors);
+			m_CachedPositions = new int[cached][maxNeighbors];
+			m_CachedNodes = new int[cached][maxNeighbors];
+			m_CachedCounts = new int[cached];
+		}
+		Arrays.fill(m_CachedCounts, -1);
+		for (int i = 0; i < size; i++)
+		{
+			m_LetterIndices[i] = m_Alphabet.GetIndexOfLetter(board[i]);
+			m_LetterValues[i] = m_Alphabet.GetLetterValue(board[i]);
+			m_StartNodes[i] = m_LetterIndices[i] == Alphabet.NO_LETTER_INDEX || m_Tree.GetNodeCount() == 0?
+				WordTree.NO_NODE: m_Tree.GetChild(m_Tree.GetRoot(), m_LetterIndices[i]);
+		}
+		// Xorshift must not start at 0
+		m_RandState = m_Rand.nextLong() | 1;
+		m_WordSum = m_WordSquares = m_ScoreSum = m_ScoreSquares = 0;
+		m_Probes = 0;
+	}
+
+	/**
+	 * Walks one random path of the search from every position of the board and
+	 * adds the sum of their estimates to the sums
+	 */
+	private void Probe()
+	{
+		double words = 0;
+		double score = 0;
+		for (int start = 0; start < m_StartNodes.length; start++)
+		{
+			int node = m_StartNodes[start];
+			if (node == WordTree.NO_NODE)
+				continue;
+			double weight = 1;
+			int position = start;
+			int pathValue = m_LetterValues[start];
+			int depth = 0;
+			m_Path[depth++] = start;
+			m_Visited[start] = true;
+			if (m_Tree.IsWord(node))
+			{
+				words += weight;
+				score += weight * pathValue;
+			}
+			while (m_Tree.HasChildren(node))
+			{
+				// The first two steps from a position are the same in every
+				// probe, so their choices are kept
+				int cache = depth == 1? start: depth == 2? m_StartNodes.length * (1 + m_FirstChoice) + start: -1;
+				int choices;
+				int[] positions, nodes;
+				if (cache >= 0)
+				{
+					positions = m_CachedPositions[cache];
+					nodes = m_CachedNodes[cache];
+					if (m_CachedCounts[cache] < 0)
+						m_CachedCounts[cache] = FindChoices(node, position, positions, nodes);
+					choices = m_CachedCounts[cache];
+				}
+				else
+				{
+					positions = m_ChoicePositions;
+					nodes = m_ChoiceNodes;
+					choices = FindChoices(node, position, positions, nodes);
+				}
+				if (choices == 0)
+					break;
+				int pick = choices == 1? 0: NextInt(choices);
+				if (depth == 1)
+					m_FirstChoice = pick;
+				weight *= choices;
+				position = positions[pick];
+				node = nodes[pick];
+				m_Path[depth++] = position;
+				m_Visited[position] = true;
+				pathValue += m_LetterValues[position];
+				if (m_Tree.IsWord(node))
+				{
+					words += weight;
+					score += weight * pathValue;
+				}
+			}
+			for (int i = 0; i < depth; i++)
+				m_Visited[m_Path[i]] = false;
+		}
+
+		m_WordSum += words;
+		m_WordSquares += words * words;
+		m_ScoreSum += score;
+		m_ScoreSquares += score * score;
+		m_Probes++;
+	}
+
+	/**
+	 * Lists the neighbors of a position that continue the path in the word tree
+	 * @param node Word tree node of the path
+	 * @param position The last position of the path
+	 * @param positions Receives the positions of the choices
+	 * @param nodes Receives the word tree nodes of the choices
+	 * @return Number of the choices
+	 */
+	private int FindChoices(int node, int position, int[] positions, int[] nodes)
+	{
+		// The links of the node are scanned once into a table by letter
+		m_Stamp++;
+		int childCount = m_Tree.GetChildCount(node);
+		for (int i = 0; i < childCount; i++)
+		{
+			int letter = m_Tree.GetChildLetter(node, i);
+			m_ChildByLetter[letter] = m_Tree.GetChildNode(node, i);
+			m_LetterStamps[letter] = m_Stamp;
+		}
+		int choices = 0;
+		for (int neighbor: m_Neighbors[position])
+		{
+			int letter = m_LetterIndices[neighbor];
+			if (m_Visited[neighbor] || letter == Alphabet.NO_LETTER_INDEX || m_LetterStamps[letter] != m_Stamp)
+				continue;
+			positions[choices] = neighbor;
+			nodes[choices] = m_ChildByLetter[letter];
+			choices++;
+		}
+		return choices;
+	}
+
+	/**
+	 * Xorshift generator; much cheaper than Random, and good enough for picking paths
+	 * @param bound Upper bound (exclusive)
+	 * @return A random number between 0 and bound - 1
+	 */
+	private int NextInt(int bound)
+	{
+		long x = m_RandState;
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		m_RandState = x;
+		return (int)(((x >>> 33) * bound) >>> 31);
+	}
+}
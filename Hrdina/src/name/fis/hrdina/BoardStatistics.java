@@ -0,0 +1,256 @@
+package name.fis.hrdina;
+
+import java.util.Arrays;
+import name.fis.hrdina.metrics.Metrics;
+
+/**
+ * Grades boards in a single search: the number of unique words, their total
+ * and maximal score, how many words there are of each length and how many
+ * words every cell of the board is part of. Nothing is collected into strings
+ * or lists; the values of the letters are summed along the paths, and every
+ * word is counted only once by stamping its ID (see
+ * <code>WordTree.GetWordId</code>) with the number of the board.
+ *
+ * All tables are kept between the boards, so once an instance has graded a
+ * board of the size, grading another one allocates nothing.
+ * Not thread safe; use one instance per thread.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BoardStatistics
+{
+	/** Maximal number of positions of a board; the cells of a word are kept as bits of a long */
+	public static final int MAX_BOARD_SIZE = 64;
+
+	private final WordTree m_Tree;
+	private final Alphabet m_Alphabet;
+	/** Number of the last board each word was found on, by word ID */
+	private final int[] m_WordStamps;
+	/** Index of each word into m_WordCells; valid where the stamp is the current one */
+	private final int[] m_WordSlots;
+	/** Number of the current board */
+	private int m_Stamp = 0;
+
+	// <editor-fold desc="State of the current board">
+	private int m_EdgeSize;
+	private int[][] m_Neighbors;
+	private int[] m_LetterIndices;
+	/** Point value of the letter of each position */
+	private int[] m_CellValues;
+	private boolean[] m_Visited;
+	/** Cells of all paths of each found word, as bits */
+	private long[] m_WordCells = new long[256];
+	/** Number of visited nodes; counted only if the metrics are enabled */
+	private long m_VisitedNodes;
+	// </editor-fold>
+
+	// <editor-fold desc="Results">
+	private int m_WordCount;
+	private int m_TotalScore;
+	private int m_MaxScore;
+	/** Number of words of each length */
+	private int[] m_Lengths;
+	/** Number of words each position is part of */
+	private int[] m_Coverage;
+	// </editor-fold>
+
+	/**
+	 * @param tree The word tree to check words with
+	 */
+	public BoardStatistics(WordTree tree)
+	{
+		m_Tree = tree;
+		m_Alphabet = tree.GetAlphabet();
+		m_WordStamps = new int[tree.GetWordCount()];
+		m_WordSlots = new int[tree.GetWordCount()];
+	}
+
+	/** @return The word tree the boards are graded with */
+	public WordTree GetWordTree()
+	{
+		return m_Tree;
+	}
+
+	/**
+	 * Grades a board; the results are available until the next board is graded
+	 * @param board The board
+	 */
+	public void Grade(GameBoard board)
+	{
+		Grade(board.GetLetters(), board.GetEdgeSize());
+	}
+
+	/**
+	 * Grades a board; the results are available until the next board is graded
+	 * @param board Letters of a square board, row by row
+	 * @param edgeSize Size of the edge of the board
+	 * @throws IllegalArgumentException if the board has more than MAX_BOARD_SIZE positions
+	 */
+	public void Grade(char[] board, int edgeSize)
+	{
+		long start = Metrics.ENABLED? System.nanoTime(): 0;
+		int size = edgeSize * edgeSize;
+		if (size > MAX_BOARD_SIZE)
+			throw new IllegalArgumentException(String.format("Board of %d positions is too large", size));
+		if (edgeSize != m_EdgeSize)
+		{
+			m_EdgeSize = edgeSize;
+			m_Neighbors = GameBoard.GetNeighborTable(edgeSize);
+			m_LetterIndices = new int[size];
+			m_CellValues = new int[size];
+			m_Visited = new boolean[size];
+			// A path never has more letters than the board has positions
+			m_Lengths = new int[size + 1];
+			m_Coverage = new int[size];
+		}
+		if (m_Stamp == Integer.MAX_VALUE)
+		{
+			Arrays.fill(m_WordStamps, 0);
+			m_Stamp = 0;
+		}
+		m_Stamp++;
+		m_WordCount = 0;
+		m_TotalScore = 0;
+		m_MaxScore = 0;
+		m_VisitedNodes = 0;
+		Arrays.fill(m_Lengths, 0);
+		Arrays.fill(m_Coverage, 0);
+
+		for (int i = 0; i < size; i++)
+		{
+			m_LetterIndices[i] = m_Alphabet.GetIndexOfLetter(board[i]);
+			m_CellValues[i] = m_LetterIndices[i] == Alphabet.NO_LETTER_INDEX? 0:
+				m_Alphabet.GetLetterValueByIndex(m_LetterIndices[i]);
+		}
+
+		if (m_Tree.GetNodeCount() > 0)
+		{
+			for (int i = 0; i < size; i++)
+			{
+				if (m_LetterIndices[i] == Alphabet.NO_LETTER_INDEX)
+					continue;
+				m_Visited[i] = true;
+				Visit(m_Tree.GetRoot(), i, 0, 0, 0);
+				m_Visited[i] = false;
+			}
+		}
+
+		for (int slot = 0; slot < m_WordCount; slot++)
+		{
+			for (long cells = m_WordCells[slot]; cells != 0; cells &= cells - 1)
+				m_Coverage[Long.numberOfTrailingZeros(cells)]++;
+		}
+		if (Metrics.ENABLED)
+		{
+			Metrics.SOLVE_MICROS.Record(Metrics.MicrosSince(start));
+			Metrics.SOLVE_NODES.Record(m_VisitedNodes);
+			Metrics.BOARD_WORDS.Record(m_WordCount);
+		}
+	}
+
+	/**
+	 * Recursive step of the search: follows the link of the letter at the given
+	 * position from the node of the path so far
+	 * @param parent Word tree node of the path without the letter at the position
+	 * @param position Position of the next letter of the path
+	 * @param length Number of letters of the path so far
+	 * @param value Point value of the path so far
+	 * @param cells Positions of the path so far, as bits
+	 */
+	private void Visit(int parent, int position, int length, int value, long cells)
+	{
+		if (Metrics.ENABLED)
+			m_VisitedNodes++;
+		int letterIndex = m_LetterIndices[position];
+		int node = m_Tree.GetChild(parent, letterIndex);
+		if (node == WordTree.NO_NODE)
+			return;
+		length++;
+		value += m_CellValues[position];
+		cells |= 1L << position;
+		if (m_Tree.IsWord(node))
+			Found(m_Tree.GetChildWordId(parent, letterIndex), length, value, cells);
+		if (!m_Tree.HasChildren(node))
+			return;
+
+		for (int neighbor: m_Neighbors[position])
+		{
+			if (m_Visited[neighbor] || m_LetterIndices[neighbor] == Alphabet.NO_LETTER_INDEX)
+				continue;
+			m_Visited[neighbor] = true;
+			Visit(node, neighbor, length, value, cells);
+			m_Visited[neighbor] = false;
+		}
+	}
+
+	/**
+	 * Counts a word found along a path, unless it was found before
+	 * @param id ID of the word
+	 * @param length Number of letters of the word
+	 * @param value Point value of the word
+	 * @param cells Positions of the path, as bits
+	 */
+	private void Found(int id, int length, int value, long cells)
+	{
+		if (m_WordStamps[id] == m_Stamp)
+		{
+			m_WordCells[m_WordSlots[id]] |= cells;
+			return;
+		}
+		m_WordStamps[id] = m_Stamp;
+		if (m_WordCount == m_WordCells.length)
+			m_WordCells = Arrays.copyOf(m_WordCells, m_WordCount * 2);
+		m_WordSlots[id] = m_WordCount;
+		m_WordCells[m_WordCount++] = cells;
+		m_TotalScore += value;
+		m_MaxScore = Math.max(m_MaxScore, value);
+		m_Lengths[length]++;
+	}
+
+	/** @return Number of unique words of the board */
+	public int GetWordCount()
+	{
+		return m_WordCount;
+	}
+
+	/** @return Sum of the values of all unique words of the board */
+	public int GetTotalScore()
+	{
+		return m_TotalScore;
+	}
+
+	/** @return Value of the most valuable word of the board; 0 if there are no words */
+	public int GetMaxScore()
+	{
+		return m_MaxScore;
+	}
+
+	/**
+	 * @param length Number of letters (tiles count as one letter)
+	 * @return Number of unique words of the length
+	 */
+	public int GetLengthCount(int length)
+	{
+		return length >= 0 && length < m_Lengths.length? m_Lengths[length]: 0;
+	}
+
+	/**
+	 * @param position A position of the board
+	 * @return Number of unique words that can be formed by a path through the position
+	 */
+	public int GetCoverage(int position)
+	{
+		return m_Coverage[position];
+	}
+
+	/** @return Number of positions of the board that are part of at least one word */
+	public int GetCoveredCells()
+	{
+		int covered = 0;
+		for (int c: m_Coverage)
+		{
+			if (c > 0)
+				covered++;
+		}
+		return covered;
+	}
+}
@@ -60,6 +60,29 @@ public class Digraphs {
 		return true;
 	}
 	
+	/**
+	 * Initializes the instance with a matrix that was computed rather than loaded
+	 * (e.g. for a derived alphabet)
+	 * @param alphabet The alphabet to work with
+	 * @param matrix Full NxN matrix of digraph frequencies by letter indices
+	 */
+	void Init(Alphabet alphabet, int[] matrix)
+	{
+		m_Alphabet = alphabet;
+		m_AlphabetSize = alphabet.GetSize();
+		m_DigraphMatrix = matrix;
+	}
+
+	/**
+	 * @param first Index of the first letter
+	 * @param second Index of the second letter
+	 * @return How many times the two letters are next to each other in valid words
+	 */
+	public int GetDigraphFrequency(int first, int second)
+	{
+		return m_DigraphMatrix[first * m_AlphabetSize + second];
+	}
+
 	/**
 	 * Returns a map that tells for each letter, how frequently it appears next
 	 * to the given letter in valid words. The result contains all letters of the
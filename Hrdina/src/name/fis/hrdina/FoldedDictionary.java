@@ -0,0 +1,217 @@
+package name.fis.hrdina;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Dictionary for the game variant without diacritics. All letters on the board
+ * are without diacritics and each of them matches all its accented variants
+ * (c matches c and č, e matches e, é and ě, ...).
+ *
+ * Instead of fanning out across all variants during the search, the dictionary
+ * is folded once when it is created: every word is stripped of its diacritics
+ * and inserted into a new tree, which merges the accented edges with their base
+ * letters and unions the complete word flags. Solving a board with the folded
+ * tree therefore costs the same as with the original one. The original tree is
+ * kept to map the found words back to their real accented forms.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class FoldedDictionary
+{
+	/** The original alphabet with diacritics */
+	private final Alphabet m_Alphabet;
+	/** The original word tree with diacritics */
+	private final WordTree m_Tree;
+	private final Alphabet m_FoldedAlphabet;
+	private final WordTree m_FoldedTree;
+	private final Digraphs m_FoldedDigraphs;
+	/** For each letter index of the folded alphabet, all letters of the original
+	  * alphabet that fold to it */
+	private final char[][] m_Variants;
+
+	/**
+	 * Folds the given dictionary. This goes through all words of the tree, so it
+	 * takes about as long as loading the dictionary.
+	 * @param alphabet The original alphabet
+	 * @param tree The original word tree
+	 * @param digraphs The original digraph statistics
+	 */
+	public FoldedDictionary(Alphabet alphabet, WordTree tree, Digraphs digraphs)
+	{
+		this(alphabet, tree, digraphs, new Random());
+	}
+
+	/**
+	 * This overload lets the caller specify the random number generator of the folded alphabet
+	 * @param alphabet The original alphabet
+	 * @param tree The original word tree
+	 * @param digraphs The original digraph statistics
+	 * @param rand Random number generator for the folded alphabet
+	 */
+	public FoldedDictionary(Alphabet alphabet, WordTree tree, Digraphs digraphs, Random rand)
+	{
+		m_Alphabet = alphabet;
+		m_Tree = tree;
+
+		// Assign folded letter indices in the order of the original letters
+		int size = alphabet.GetSize();
+		Map<Character, List<Character>> variants = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++)
+		{
+			char letter = alphabet.GetLetterByIndex(i);
+			char folded = FoldLetter(letter);
+			if (!variants.containsKey(folded))
+				variants.put(folded, new ArrayList<Character>());
+			variants.get(folded).add(letter);
+		}
+
+		int foldedSize = variants.size();
+		char[] foldedLetters = new char[foldedSize];
+		int[] foldedFrequencies = new int[foldedSize];
+		m_Variants = new char[foldedSize][];
+		int[] indexMap = new int[size];
+		int foldedIndex = 0;
+		for (Map.Entry<Character, List<Character>> e: variants.entrySet())
+		{
+			foldedLetters[foldedIndex] = e.getKey();
+			List<Character> letters = e.getValue();
+			m_Variants[foldedIndex] = new char[letters.size()];
+			for (int j = 0; j < letters.size(); j++)
+			{
+				char letter = letters.get(j);
+				int index = alphabet.GetIndexOfLetter(letter);
+				m_Variants[foldedIndex][j] = letter;
+				indexMap[index] = foldedIndex;
+				foldedFrequencies[foldedIndex] += alphabet.GetLetterFrequency(index);
+			}
+			foldedIndex++;
+		}
+
+		m_FoldedAlphabet = new Alphabet(rand);
+		// The folded words are tokenized from folded text, so the split patterns are folded too
+		List<String> foldedSplits = new ArrayList<>();
+		for (String pattern: alphabet.GetSplits())
+			foldedSplits.add(Fold(pattern));
+		m_FoldedAlphabet.Init(alphabet.GetTotalLetters(), foldedLetters, foldedFrequencies, alphabet.GetTiles(),
+			foldedSplits);
+
+		// Digraphs of the folded letters are sums of the digraphs of their variants
+		int[] matrix = new int[foldedSize * foldedSize];
+		for (int i = 0; i < size; i++)
+		{
+			for (int j = 0; j < size; j++)
+			{
+				matrix[indexMap[i] * foldedSize + indexMap[j]] += digraphs.GetDigraphFrequency(i, j);
+			}
+		}
+		m_FoldedDigraphs = new Digraphs();
+		m_FoldedDigraphs.Init(m_FoldedAlphabet, matrix);
+
+		WordTreeBuilder builder = new WordTreeBuilder(m_FoldedAlphabet);
+		for (String word: tree.Words())
+		{
+			builder.AddWord(Fold(word));
+		}
+		m_FoldedTree = builder.Build();
+	}
+
+	/**
+	 * @param letter A single letter
+	 * @return The letter without diacritics
+	 */
+	public static char FoldLetter(char letter)
+	{
+		// Characters representing multi-letter tiles don't decompose, so they stay as they are
+		String decomposed = Normalizer.normalize(String.valueOf(letter), Normalizer.Form.NFD);
+		return decomposed.isEmpty()? letter: decomposed.charAt(0);
+	}
+
+	/**
+	 * @param word A word with diacritics
+	 * @return The word with diacritics removed from all letters
+	 */
+	public static String Fold(String word)
+	{
+		char[] letters = word.toCharArray();
+		for (int i = 0; i < letters.length; i++)
+			letters[i] = FoldLetter(letters[i]);
+		return new String(letters);
+	}
+
+	/**
+	 * Maps a word found in the folded tree back to the words of the original
+	 * dictionary that it stands for. Only the branches of the original tree that
+	 * match the folded word are visited, so this is cheap enough to call for
+	 * every found word.
+	 * @param foldedWord A word without diacritics
+	 * @return All words of the original dictionary that fold to the given word;
+	 *         empty if there are none
+	 */
+	public List<String> GetAccentedForms(String foldedWord)
+	{
+		List<String> result = new ArrayList<>();
+		if (m_Tree.GetNodeCount() > 0)
+			CollectAccentedForms(foldedWord, m_Tree.GetRoot(), new StringBuilder(), result);
+		return result;
+	}
+
+	/**
+	 * Recursive step of <code>GetAccentedForms</code>, following the links of
+	 * the original tree node by node
+	 * @param foldedWord The folded word
+	 * @param node Node of the original tree reached by the prefix
+	 * @param prefix Accented form of the first <code>prefix.length()</code> letters of the word
+	 * @param result Output list of complete accented forms
+	 */
+	private void CollectAccentedForms(String foldedWord, int node, StringBuilder prefix, List<String> result)
+	{
+		int pos = prefix.length();
+		if (pos == foldedWord.length())
+		{
+			if (m_Tree.IsWord(node))
+				result.add(prefix.toString());
+			return;
+		}
+		int foldedIndex = m_FoldedAlphabet.GetIndexOfLetter(foldedWord.charAt(pos));
+		if (foldedIndex == Alphabet.NO_LETTER_INDEX)
+			return;
+		for (char variant: m_Variants[foldedIndex])
+		{
+			int child = m_Tree.GetChild(node, m_Alphabet.GetIndexOfLetter(variant));
+			if (child == WordTree.NO_NODE)
+				continue;
+			prefix.append(variant);
+			CollectAccentedForms(foldedWord, child, prefix, result);
+			prefix.setLength(pos);
+		}
+	}
+
+	/** @return The original alphabet with diacritics */
+	public Alphabet GetOriginalAlphabet() {
+		return m_Alphabet;
+	}
+
+	/** @return The original word tree with diacritics */
+	public WordTree GetOriginalWordTree() {
+		return m_Tree;
+	}
+
+	/** @return Alphabet of letters without diacritics, to generate boards from */
+	public Alphabet GetAlphabet() {
+		return m_FoldedAlphabet;
+	}
+
+	/** @return Word tree of the folded words, to solve boards with */
+	public WordTree GetWordTree() {
+		return m_FoldedTree;
+	}
+
+	/** @return Digraph statistics of the folded letters */
+	public Digraphs GetDigraphs() {
+		return m_FoldedDigraphs;
+	}
+}
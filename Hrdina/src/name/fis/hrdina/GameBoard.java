@@ -1,7 +1,9 @@
 package name.fis.hrdina;
 
 import name.fis.hrdina.generators.IBoardGenerator;
+import name.fis.hrdina.metrics.Metrics;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 
@@ -16,8 +18,8 @@ public class GameBoard {
 	private final int SIZE = 4;
 	/** Board contents, i.e. SIZExSIZE letters */
 	private char[] m_Board;
-	/** WordTree used for word validation */
-	private WordTree m_Tree;
+	/** Dictionary used for word validation */
+	private IWordLookup m_Tree;
 	/** Alphabet that generates the letters for the board */
 	private Alphabet m_Alphabet;
 	
@@ -32,99 +34,215 @@ public class GameBoard {
 	/**
 	 * Generates a random board
 	 * @param alphabet The alphabet providing random letters
-	 * @param wordTree WordTree used for checking valid words
+	 * @param wordTree Dictionary used for checking valid words
 	 * @param boardGenerator Board generation strategy
 	 */
-	public void Init(Alphabet alphabet, WordTree wordTree, IBoardGenerator boardGenerator)
+	public void Init(Alphabet alphabet, IWordLookup wordTree, IBoardGenerator boardGenerator)
 	{
 		m_Alphabet = alphabet;
 		m_Tree = wordTree;
+		long start = Metrics.ENABLED? System.nanoTime(): 0;
 		m_Board = boardGenerator.GenerateBoard(SIZE);
+		if (Metrics.ENABLED)
+			Metrics.GENERATE_MICROS.Record(Metrics.MicrosSince(start));
 	}
 	
+	/** @return Size of the edge of the board */
+	public int GetEdgeSize()
+	{
+		return SIZE;
+	}
+
+	/**
+	 * @return Letters of the board, row by row starting in the top left corner.
+	 *         The array must not be modified.
+	 */
+	public char[] GetLetters()
+	{
+		return m_Board;
+	}
+
+	/** @return Alphabet the board was generated from */
+	public Alphabet GetAlphabet()
+	{
+		return m_Alphabet;
+	}
+
+	/**
+	 * Lists the neighbors of all positions of a square board
+	 * @param edgeSize Size of the edge of the board
+	 * @return For each position on the board, positions of all its neighbors
+	 */
+	public static int[][] GetNeighborTable(int edgeSize)
+	{
+		int[][] table = new int[edgeSize * edgeSize][];
+		for (int position = 0; position < edgeSize * edgeSize; position++)
+		{
+			int px = position % edgeSize;
+			int py = position / edgeSize;
+			int[] neighbors = new int[8];
+			int count = 0;
+			for (int dy = -1; dy <= 1; dy++)
+			{
+				for (int dx = -1; dx <= 1; dx++)
+				{
+					int nx = px + dx;
+					int ny = py + dy;
+					if ((dx != 0 || dy != 0) && nx >= 0 && nx < edgeSize && ny >= 0 && ny < edgeSize)
+						neighbors[count++] = ny * edgeSize + nx;
+				}
+			}
+			table[position] = Arrays.copyOf(neighbors, count);
+		}
+		return table;
+	}
+
 	/**
 	 * Solves the board, i.e. finds all valid words that the board contains
 	 * @return List of all unique valid words on the board
 	 */
 	public List<String> SolveBoard()
 	{
-		HashSet<String> hs = new HashSet<>();
-		for (int i = 0; i < SIZE * SIZE; i++)
-		{
-			boolean[] visited = new boolean[SIZE*SIZE];
-			for (int j = 0; j < SIZE*SIZE; j++)
-				visited[j] = (i == j);
-			
-			hs.addAll(ContinueSolvingFrom(i, String.valueOf(m_Board[i]), visited));
-		}
+		final HashSet<String> hs = new HashSet<>();
+		Solve(new IWordVisitor() {
+			@Override
+			public boolean VisitWord(String word, int[] path, int length) {
+				hs.add(word);
+				return true;
+			}
+		}, SolveBudget.Unlimited());
+		if (Metrics.ENABLED)
+			Metrics.BOARD_WORDS.Record(hs.size());
 		
 		List<String> result = new ArrayList<>(hs.size());
 		result.addAll(hs);
 		return result;
 	}
-	
+
 	/**
-	 * Recursive step of the valid word search
-	 * @param position Position of the next letter to be visited
-	 * @param wordSoFar The prefix of the word built so far
-	 * @param visited For each letter of the board, true signals that that letter
-	 *        was already used and can't be used again
-	 * @return Set of all valid words that were found from the starting point
-	 *         determined by the parameters.
+	 * Searches the board within the given budget and streams every found word to
+	 * the visitor. Nothing is collected, so the memory used doesn't depend on the
+	 * number of words. The search can be ended early by the visitor, by the
+	 * deadline or node limit of the budget, or by cancelling the budget; the
+	 * result tells which of these happened.
+	 * @param visitor Receives the found words with their paths
+	 * @param budget Limits of the search
+	 * @return Why and when the search ended
 	 */
-	private HashSet<String> ContinueSolvingFrom(int position, String wordSoFar, boolean []visited)
+	public SolveResult Solve(IWordVisitor visitor, SolveBudget budget)
 	{
-		HashSet<String> result = new HashSet<>();
-		WordTree.WordSearchResult perspective = m_Tree.CheckWord(wordSoFar);
-		
-		if (perspective.IsValidWord)
+		long start = Metrics.ENABLED? System.nanoTime(): 0;
+		Search search = new Search(visitor, budget);
+		for (int i = 0; i < SIZE * SIZE && search.m_Reason == null; i++)
 		{
-			result.add(wordSoFar);
+			search.m_Visited[i] = true;
+			search.m_Path[0] = i;
+			search.m_Word.append(m_Board[i]);
+			search.ContinueFrom(i, 1);
+			search.m_Word.setLength(0);
+			search.m_Visited[i] = false;
 		}
-		
-		if (perspective.IsPerspectivePrefix)
+		if (Metrics.ENABLED)
 		{
-			int[] neighbors = new int[] {
-				position - SIZE - 1,
-				position - SIZE,
-				position - SIZE + 1,
-				position - 1,
-				position + 1,
-				position + SIZE - 1,
-				position + SIZE,
-				position + SIZE + 1
-			};
-			
-			for (int i: neighbors)
-			{
-				if (!IsNeighborValid(position, i) || visited[i])
-					continue;
-				visited[i] = true;
-				result.addAll(ContinueSolvingFrom(i, wordSoFar + m_Board[i], visited));
-				visited[i] = false;
-			}
+			Metrics.SOLVE_MICROS.Record(Metrics.MicrosSince(start));
+			Metrics.SOLVE_NODES.Record(search.m_VisitedNodes);
 		}
-		
-		return result;
+		return new SolveResult(search.m_Reason == null? SolveResult.StopReason.COMPLETE: search.m_Reason,
+			search.m_VisitedNodes, search.m_FoundPaths);
 	}
-	
+
 	/**
-	 * For the given board position, determines whether the other position is its neighbor or not
-	 * @param position First position
-	 * @param neighbor Second position; proposed neighbor
-	 * @return true if the two positions are neighbors on the board; false if they are not
+	 * State of one run of <code>Solve</code>, so that the board itself can be
+	 * solved from several threads at once
 	 */
-	private boolean IsNeighborValid(int position, int neighbor)
+	private class Search
 	{
-		if (neighbor < 0 || neighbor >= SIZE * SIZE)
-			return false;
-		int px = position % SIZE;
-		int py = position / SIZE;
-		int nx = neighbor % SIZE;
-		int ny = neighbor / SIZE;
-		if ((Math.abs(px-nx) > 1) || (Math.abs(py-ny) > 1))
-			return false;
-		return true;
+		/** The budget is checked only once per this many visited nodes, to keep
+		  * the clock and the volatile cancellation flag out of the inner loop */
+		private static final int CHECK_INTERVAL = 64;
+
+		final IWordVisitor m_Visitor;
+		final SolveBudget m_Budget;
+		final int[][] m_Neighbors = GetNeighborTable(SIZE);
+		/** For each letter of the board, true signals that that letter was
+		  * already used and can't be used again */
+		final boolean[] m_Visited = new boolean[SIZE * SIZE];
+		/** Board positions of the current path */
+		final int[] m_Path = new int[SIZE * SIZE];
+		/** The prefix of the word built so far */
+		final StringBuilder m_Word = new StringBuilder(SIZE * SIZE);
+		long m_VisitedNodes = 0;
+		int m_FoundPaths = 0;
+		/** Why the search was stopped early; null while it goes on */
+		SolveResult.StopReason m_Reason = null;
+
+		Search(IWordVisitor visitor, SolveBudget budget)
+		{
+			m_Visitor = visitor;
+			m_Budget = budget;
+		}
+
+		/**
+		 * Recursive step of the valid word search
+		 * @param position Position of the last visited letter
+		 * @param length Length of the current path
+		 */
+		void ContinueFrom(int position, int length)
+		{
+			if (!Charge())
+				return;
+
+			String wordSoFar = m_Word.toString();
+			WordTree.WordSearchResult perspective = m_Tree.CheckWord(wordSoFar);
+			
+			if (perspective.IsValidWord)
+			{
+				m_FoundPaths++;
+				if (!m_Visitor.VisitWord(wordSoFar, m_Path, length))
+				{
+					m_Reason = SolveResult.StopReason.STOPPED_BY_VISITOR;
+					return;
+				}
+			}
+			
+			if (perspective.IsPerspectivePrefix)
+			{
+				for (int i: m_Neighbors[position])
+				{
+					if (m_Visited[i])
+						continue;
+					m_Visited[i] = true;
+					m_Path[length] = i;
+					m_Word.append(m_Board[i]);
+					ContinueFrom(i, length + 1);
+					m_Word.setLength(length);
+					m_Visited[i] = false;
+					if (m_Reason != null)
+						return;
+				}
+			}
+		}
+
+		/**
+		 * Counts one visited node against the budget
+		 * @return true if the search may go on
+		 */
+		private boolean Charge()
+		{
+			if (m_VisitedNodes >= m_Budget.GetMaxNodes())
+			{
+				m_Reason = SolveResult.StopReason.NODE_LIMIT;
+				return false;
+			}
+			if (m_VisitedNodes++ % CHECK_INTERVAL == 0)
+			{
+				if (m_Budget.IsCancelled())
+					m_Reason = SolveResult.StopReason.CANCELLED;
+				else if (m_Budget.IsExpired())
+					m_Reason = SolveResult.StopReason.DEADLINE;
+			}
+			return m_Reason == null;
+		}
 	}
 
 	/** For testing only */
@@ -132,11 +250,11 @@ public class GameBoard {
 	{
 		for (int i = 0; i < 16; i+=4)
 		{
-			System.out.println(String.format("%c %d; %c %d; %c %d; %c %d",
-				m_Board[i], m_Alphabet.GetLetterValue(m_Board[i]),
-				m_Board[i+1], m_Alphabet.GetLetterValue(m_Board[i+1]),
-				m_Board[i+2], m_Alphabet.GetLetterValue(m_Board[i+2]),
-				m_Board[i+3], m_Alphabet.GetLetterValue(m_Board[i+3])
+			System.out.println(String.format("%s %d; %s %d; %s %d; %s %d",
+				m_Alphabet.GetLetterText(m_Board[i]), m_Alphabet.GetLetterValue(m_Board[i]),
+				m_Alphabet.GetLetterText(m_Board[i+1]), m_Alphabet.GetLetterValue(m_Board[i+1]),
+				m_Alphabet.GetLetterText(m_Board[i+2]), m_Alphabet.GetLetterValue(m_Board[i+2]),
+				m_Alphabet.GetLetterText(m_Board[i+3]), m_Alphabet.GetLetterValue(m_Board[i+3])
 			));
 		}
 	}
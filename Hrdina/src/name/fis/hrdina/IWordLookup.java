@@ -0,0 +1,16 @@
+package name.fis.hrdina;
+
+/**
+ * Anything that can tell whether a string is a valid word or a prefix of a
+ * valid word. The board solver works against this interface, so it sees
+ * whichever view of the dictionary it is given.
+ * @author Filip Simek <filip@fis.name>
+ */
+public interface IWordLookup {
+	/**
+	 * Checks, whether the given string is a valid word or prefix of a word.
+	 * @param word The string to be checked
+	 * @return A tuple telling, whether the string was a word or a prefix (or neither or both)
+	 */
+	public WordTree.WordSearchResult CheckWord(String word);
+}
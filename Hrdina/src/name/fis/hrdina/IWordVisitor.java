@@ -0,0 +1,20 @@
+package name.fis.hrdina;
+
+/**
+ * Receives the words found on a board one by one, as the solver finds them.
+ * Nothing is collected by the solver itself, so the visitor decides what to
+ * keep.
+ * @author Filip Simek <filip@fis.name>
+ */
+public interface IWordVisitor {
+	/**
+	 * Called for every path on the board that spells a valid word. A word that
+	 * can be found along several paths is reported once for each of them.
+	 * @param word The word
+	 * @param path Board positions of the letters of the word. The array is reused
+	 *        by the solver; it is valid only during the call and must not be modified.
+	 * @param length Number of valid positions in <code>path</code>
+	 * @return true to continue the search; false to stop it
+	 */
+	public boolean VisitWord(String word, int[] path, int length);
+}
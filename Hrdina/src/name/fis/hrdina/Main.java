@@ -2,8 +2,14 @@ package name.fis.hrdina;
 import java.io.*;
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
+import name.fis.hrdina.dictionary.DictionaryRegistry;
+import name.fis.hrdina.dictionary.DictionarySnapshot;
+import name.fis.hrdina.dictionary.ResourceDictionarySource;
+import name.fis.hrdina.game.Warmup;
 import name.fis.hrdina.generators.ConditionalProbBoard;
 import name.fis.hrdina.generators.EqualProbBoard;
+import name.fis.hrdina.generators.TrigramBoard;
 import name.fis.hrdina.generators.IBoardGenerator;
 import name.fis.hrdina.generators.WeightedProbBoard;
 
@@ -13,58 +19,53 @@ import name.fis.hrdina.generators.WeightedProbBoard;
  */
 public class Main
 {
-	/** Name of the resource to load the alphabet from */
-	private static final String ALPHABET_FILE_NAME = "alphabet.bin";
-	/** Name of the resource to load the wordtree from */
-	private static final String WORDTREE_FILE_NAME = "wordtree.bin";
-	/** Name of the resource to load the digraph statistics from */
-	private static final String DIGRAPH_FILE_NAME = "digraph.bin";
+	/** Resource path of the directory containing the data files */
+	public static final String DATA_RESOURCE_PATH = "/name/fis/hrdina/data/";
+	/** Name of the dictionary that is used if none is given on the command line */
+	private static final String DEFAULT_DICTIONARY = "cs";
+	/** Maximal number of dictionaries loaded at the same time */
+	private static final int MAX_LOADED_DICTIONARIES = 4;
 	
 	/**
 	 * Program entry point
-	 * @param args Program arguments
+	 * @param args Program arguments: optional properties file with dictionary
+	 *        locations (see <code>DictionaryRegistry.Configure</code>) and optional
+	 *        name of the dictionary to use; the system property hrdina.warmup
+	 *        sets the number of boards of the warm-up (see <code>Warmup</code>)
 	 * @throws IOException 
 	 */
 	public static void main(String[] args) throws IOException
 	{
-		Alphabet alphabet = new Alphabet();
-		WordTree tree = new WordTree();
-		Digraphs digraphs = new Digraphs();
-		
-		InputStream alphabetStr, wordtreeStr, digraphStr;
-		alphabetStr = Main.class.getResourceAsStream("/name/fis/hrdina/data/" + ALPHABET_FILE_NAME);
-		wordtreeStr = Main.class.getResourceAsStream("/name/fis/hrdina/data/" + WORDTREE_FILE_NAME);
-		digraphStr = Main.class.getResourceAsStream("/name/fis/hrdina/data/" + DIGRAPH_FILE_NAME);
-		
-		try
+		DictionaryRegistry registry = new DictionaryRegistry(MAX_LOADED_DICTIONARIES);
+		if (args.length > 0)
 		{
-			if (!alphabet.Load(alphabetStr))
-			{
-				System.err.println("Failed to load alphabet");
-				return;
-			}
-			alphabetStr.close();
-			
-			if (!tree.Load(wordtreeStr, alphabet))
-			{
-				System.err.println("Failed to load word tree");
-				return;
-			}
-			wordtreeStr.close();
-			
-			if (!digraphs.Load(digraphStr, alphabet))
+			Properties props = new Properties();
+			try (InputStream propStr = new FileInputStream(args[0]))
 			{
-				System.err.println("Failed to load digraphs");
-				return;
+				props.load(propStr);
 			}
-			digraphStr.close();
+			registry.Configure(props);
+		}
+		String dictionaryName = args.length > 1? args[1]: DEFAULT_DICTIONARY;
+		if (!registry.GetNames().contains(DEFAULT_DICTIONARY))
+			registry.Register(DEFAULT_DICTIONARY, new ResourceDictionarySource(DATA_RESOURCE_PATH));
+
+		DictionarySnapshot snapshot;
+		try
+		{
+			snapshot = registry.Get(dictionaryName);
 		}
 		catch (WordTreeException e)
 		{
 			System.err.println(String.format("Error loading data files: %s", e.getMessage()));
 			return;
 		}
+		Alphabet alphabet = snapshot.GetAlphabet();
+		WordTree tree = snapshot.GetWordTree();
+		Digraphs digraphs = snapshot.GetDigraphs();
 
+		if (Warmup.MAX_BOARDS > 0)
+			System.out.println(String.format("Warm-up: %s", new Warmup(snapshot).Run(Warmup.MAX_BOARDS)));
 
 		// Test
 /*		TestWord(tree, "srp");
@@ -83,16 +84,20 @@ public class Main
 		// EqualProbBoard is almost always very bad
 		generator = new EqualProbBoard(alphabet);
 		board.Init(alphabet, tree, generator);
-		TestBoard(board, "EqualProb", alphabet);
+		TestBoard(board, "EqualProb", alphabet, tree);
 		*/
 
 		generator = new WeightedProbBoard(alphabet);
 		board.Init(alphabet, tree, generator);
-		TestBoard(board, "WeightedProb", alphabet);
+		TestBoard(board, "WeightedProb", alphabet, tree);
 
 		generator = new ConditionalProbBoard(alphabet, digraphs);
 		board.Init(alphabet, tree, generator);
-		TestBoard(board, "ConditionalProb", alphabet);
+		TestBoard(board, "ConditionalProb", alphabet, tree);
+
+		generator = new TrigramBoard(alphabet, snapshot.GetTrigrams());
+		board.Init(alphabet, tree, generator);
+		TestBoard(board, "Trigram", alphabet, tree);
 	}
 	
 	//<editor-fold desc="debugging">
@@ -103,7 +108,7 @@ public class Main
 		System.out.println(String.format("%s: is word? %s, is prefix? %s", word, r.IsValidWord? "YES":"NO", r.IsPerspectivePrefix? "YES":"NO"));
 	}
 	
-	private static void TestBoard(GameBoard board, String type, Alphabet alphabet)
+	private static void TestBoard(GameBoard board, String type, Alphabet alphabet, WordTree tree)
 	{
 		System.out.println("*********************");
 		System.out.println(String.format("Board type %s", type));
@@ -111,10 +116,13 @@ public class Main
 		List<String> solutions = board.SolveBoard();
 		Collections.sort(solutions);
 		System.out.println("--------");
-		System.out.println(String.format("Found %d solutions", solutions.size()));
+		BoardStatistics statistics = new BoardStatistics(tree);
+		statistics.Grade(board);
+		System.out.println(String.format("Found %d solutions, %d points in total, best word %d points",
+			statistics.GetWordCount(), statistics.GetTotalScore(), statistics.GetMaxScore()));
 		for (String s: solutions)
 		{
-			System.out.println(String.format("%s (%d)", s, alphabet.GetWordValue(s)));
+			System.out.println(String.format("%s (%d)", alphabet.Detokenize(s), alphabet.GetWordValue(s)));
 		}
 	}
 	//</editor-fold>
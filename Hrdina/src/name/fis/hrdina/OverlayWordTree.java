@@ -0,0 +1,371 @@
+package name.fis.hrdina;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Dictionary consisting of an immutable base <code>WordTree</code> and a small
+ * mutable overlay with added words and tombstones of removed words. Lookups see
+ * the merged view, so small batches of changes (like data/plus.txt) take effect
+ * without rebuilding the whole tree. Compaction folds the overlay into a new
+ * base tree in the background.
+ * 
+ * The overlay is a persistent trie: every change copies only the path to the
+ * changed word and then replaces the whole state with a single volatile write.
+ * Lookups therefore never lock and always see a consistent state.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class OverlayWordTree implements IWordLookup
+{
+	// <editor-fold desc="Nested classes">
+	/** Word state of an overlay node: no change against the base tree */
+	private static final int STATE_NONE = 0;
+	/** Word state of an overlay node: the word was added */
+	private static final int STATE_ADDED = 1;
+	/** Word state of an overlay node: the word was removed (tombstone) */
+	private static final int STATE_REMOVED = 2;
+
+	/** Immutable node of the overlay trie */
+	private static class OverlayNode {
+		/** Change of the word that ends in this node; one of the STATE_ constants */
+		final int State;
+		/** Number of added words strictly below this node */
+		final int AddedBelow;
+		/** Letters of the links to sub-nodes, sorted */
+		final char[] Letters;
+		/** Sub-nodes, in the same order as <code>Letters</code> */
+		final OverlayNode[] Children;
+
+		OverlayNode(int state, char[] letters, OverlayNode[] children) {
+			State = state;
+			Letters = letters;
+			Children = children;
+			int addedBelow = 0;
+			for (OverlayNode child: children) {
+				addedBelow += child.AddedBelow + (child.State == STATE_ADDED? 1: 0);
+			}
+			AddedBelow = addedBelow;
+		}
+
+		/** @return The sub-node for the given letter or null if there is none */
+		OverlayNode GetChild(char letter) {
+			for (int i = 0; i < Letters.length; i++) {
+				if (Letters[i] == letter)
+					return Children[i];
+			}
+			return null;
+		}
+
+		/** @return true if the node carries no information and can be dropped */
+		boolean IsEmpty() {
+			return State == STATE_NONE && Children.length == 0;
+		}
+	}
+
+	/** Complete immutable state of the dictionary: the base tree and the overlay over it */
+	private static class Layers {
+		final WordTree Base;
+		final OverlayNode Root;
+
+		Layers(WordTree base, OverlayNode root) {
+			Base = base;
+			Root = root;
+		}
+	}
+
+	/** One change of the dictionary, kept so that changes made during a
+	  * compaction can be re-applied on top of the compacted tree */
+	private static class Change {
+		final String Word;
+		final boolean Added;
+
+		Change(String word, boolean added) {
+			Word = word;
+			Added = added;
+		}
+	}
+	// </editor-fold>
+
+	private static final OverlayNode EMPTY_ROOT = new OverlayNode(STATE_NONE, new char[0], new OverlayNode[0]);
+
+	/** Alphabet of the dictionary; added words must only use its letters */
+	private final Alphabet m_Alphabet;
+	/** Current state. Replaced as a whole on every change */
+	private volatile Layers m_Layers;
+	/** Changes applied since the current base tree was built. Guarded by this */
+	private final List<Change> m_Journal;
+	/** Runs the compactions, one at a time */
+	private final ExecutorService m_Compactor;
+
+	/**
+	 * @param base The base tree
+	 * @param alphabet Alphabet of the base tree
+	 */
+	public OverlayWordTree(WordTree base, Alphabet alphabet)
+	{
+		m_Alphabet = alphabet;
+		m_Layers = new Layers(base, EMPTY_ROOT);
+		m_Journal = new ArrayList<>();
+		m_Compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "wordtree-compactor");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	@Override
+	public WordTree.WordSearchResult CheckWord(String word)
+	{
+		Layers layers = m_Layers;
+		WordTree.WordSearchResult result = layers.Base.CheckWord(word);
+		OverlayNode node = Find(layers.Root, word);
+		if (node != null)
+		{
+			if (node.State == STATE_ADDED)
+				result.IsValidWord = true;
+			else if (node.State == STATE_REMOVED)
+				result.IsValidWord = false;
+			// A base prefix whose words were all removed is still reported as
+			// a prefix. It only makes the solver look a bit further than needed.
+			if (node.AddedBelow > 0)
+				result.IsPerspectivePrefix = true;
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a word to the dictionary
+	 * @param word The word to add, as letters of the alphabet (see <code>Alphabet.Tokenize</code>)
+	 * @return true if the dictionary changed; false if the word was already there
+	 * @throws IllegalArgumentException if the word contains a letter that is not in the alphabet
+	 */
+	public synchronized boolean AddWord(String word)
+	{
+		for (char c: word.toCharArray())
+		{
+			if (m_Alphabet.GetIndexOfLetter(c) == Alphabet.NO_LETTER_INDEX)
+				throw new IllegalArgumentException(String.format("Letter '%c' of word '%s' is not in the alphabet", c, word));
+		}
+		if (!Apply(word, true))
+			return false;
+		m_Journal.add(new Change(word, true));
+		return true;
+	}
+
+	/**
+	 * Removes a word from the dictionary
+	 * @param word The word to remove
+	 * @return true if the dictionary changed; false if the word wasn't there
+	 */
+	public synchronized boolean RemoveWord(String word)
+	{
+		if (!Apply(word, false))
+			return false;
+		m_Journal.add(new Change(word, false));
+		return true;
+	}
+
+	/** @return The current base tree (without the overlay changes) */
+	public WordTree GetBase()
+	{
+		return m_Layers.Base;
+	}
+
+	/** @return Number of changes in the overlay that are not compacted yet */
+	public synchronized int GetPendingChanges()
+	{
+		return m_Journal.size();
+	}
+
+	/**
+	 * Starts folding the overlay into a new base tree in the background. Lookups
+	 * keep using the old base and the overlay until the new base is complete.
+	 * Changes made while the compaction runs are kept in the overlay over the
+	 * new base.
+	 * @return Future yielding the new base tree once it is in place
+	 */
+	public Future<WordTree> Compact()
+	{
+		return m_Compactor.submit(new Callable<WordTree>() {
+			@Override
+			public WordTree call() {
+				Layers layers;
+				int journalPosition;
+				synchronized (OverlayWordTree.this)
+				{
+					layers = m_Layers;
+					journalPosition = m_Journal.size();
+				}
+
+				WordTree newBase = BuildMerged(layers);
+
+				synchronized (OverlayWordTree.this)
+				{
+					List<Change> later = new ArrayList<>(m_Journal.subList(journalPosition, m_Journal.size()));
+					m_Layers = new Layers(newBase, EMPTY_ROOT);
+					m_Journal.clear();
+					for (Change change: later)
+					{
+						if (Apply(change.Word, change.Added))
+							m_Journal.add(change);
+					}
+				}
+				return newBase;
+			}
+		});
+	}
+
+	/** Stops the background compactor. A running compaction is still finished. */
+	public void Shutdown()
+	{
+		m_Compactor.shutdown();
+	}
+
+	/**
+	 * Builds a new tree containing the merged contents of the given state
+	 * @param layers The state to merge
+	 * @return Tree with the base words minus the removed ones plus the added ones
+	 */
+	private WordTree BuildMerged(Layers layers)
+	{
+		WordTreeBuilder builder = new WordTreeBuilder(m_Alphabet);
+		for (String word: layers.Base.Words())
+		{
+			OverlayNode node = Find(layers.Root, word);
+			if (node == null || node.State != STATE_REMOVED)
+				builder.AddWord(word);
+		}
+		AddOverlayWords(layers.Root, new StringBuilder(), builder);
+		return builder.Build();
+	}
+
+	/** Adds all words marked as added in the given overlay subtree to the builder */
+	private static void AddOverlayWords(OverlayNode node, StringBuilder prefix, WordTreeBuilder builder)
+	{
+		if (node.State == STATE_ADDED)
+			builder.AddWord(prefix.toString());
+		for (int i = 0; i < node.Letters.length; i++)
+		{
+			prefix.append(node.Letters[i]);
+			AddOverlayWords(node.Children[i], prefix, builder);
+			prefix.setLength(prefix.length() - 1);
+		}
+	}
+
+	/**
+	 * Applies a single change to the current state. Must be called with the lock held.
+	 * @param word The changed word
+	 * @param add true to add the word; false to remove it
+	 * @return true if the dictionary changed
+	 */
+	private boolean Apply(String word, boolean add)
+	{
+		Layers layers = m_Layers;
+		boolean inBase = layers.Base.CheckWord(word).IsValidWord;
+		OverlayNode node = Find(layers.Root, word);
+		int oldState = node == null? STATE_NONE: node.State;
+		boolean present = oldState == STATE_ADDED || (inBase && oldState != STATE_REMOVED);
+		if (present == add)
+			return false;
+
+		int newState;
+		if (add)
+			newState = inBase? STATE_NONE: STATE_ADDED;
+		else
+			newState = inBase? STATE_REMOVED: STATE_NONE;
+
+		OverlayNode root = WithState(layers.Root, word, 0, newState);
+		m_Layers = new Layers(layers.Base, root == null? EMPTY_ROOT: root);
+		return true;
+	}
+
+	/**
+	 * Copies the path to the given word, setting the word's state
+	 * @param node Node corresponding to the first <code>pos</code> letters of the word; may be null
+	 * @param word The word
+	 * @param pos Number of letters of the word already consumed
+	 * @param state New state of the word
+	 * @return The copied node or null if the node became empty
+	 */
+	private static OverlayNode WithState(OverlayNode node, String word, int pos, int state)
+	{
+		if (node == null)
+			node = EMPTY_ROOT;
+		OverlayNode result;
+		if (pos == word.length())
+		{
+			result = new OverlayNode(state, node.Letters, node.Children);
+		}
+		else
+		{
+			char letter = word.charAt(pos);
+			OverlayNode child = WithState(node.GetChild(letter), word, pos + 1, state);
+			result = WithChild(node, letter, child);
+		}
+		return result.IsEmpty()? null: result;
+	}
+
+	/**
+	 * @return Copy of the node with the sub-node for the given letter replaced
+	 *         (or removed if <code>child</code> is null)
+	 */
+	private static OverlayNode WithChild(OverlayNode node, char letter, OverlayNode child)
+	{
+		int n = node.Letters.length;
+		int pos = 0;
+		while (pos < n && node.Letters[pos] < letter)
+			pos++;
+		boolean exists = pos < n && node.Letters[pos] == letter;
+
+		int newSize = n + (exists? 0: 1) - (child == null? 1: 0);
+		if (!exists && child == null)
+			return node;
+		char[] letters = new char[newSize];
+		OverlayNode[] children = new OverlayNode[newSize];
+		int j = 0;
+		for (int i = 0; i < n; i++)
+		{
+			if (i == pos && child != null && !exists)
+			{
+				letters[j] = letter;
+				children[j++] = child;
+			}
+			if (i == pos && exists)
+			{
+				if (child != null)
+				{
+					letters[j] = letter;
+					children[j++] = child;
+				}
+				continue;
+			}
+			letters[j] = node.Letters[i];
+			children[j++] = node.Children[i];
+		}
+		if (pos == n && child != null && !exists)
+		{
+			letters[j] = letter;
+			children[j] = child;
+		}
+		return new OverlayNode(node.State, letters, children);
+	}
+
+	/** @return The overlay node for the given word or null if the overlay doesn't contain it */
+	private static OverlayNode Find(OverlayNode root, String word)
+	{
+		OverlayNode node = root;
+		for (int i = 0; i < word.length() && node != null; i++)
+		{
+			node = node.GetChild(word.charAt(i));
+		}
+		return node;
+	}
+}
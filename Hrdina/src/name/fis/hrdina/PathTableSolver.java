@@ -0,0 +1,179 @@
+package name.fis.hrdina;
+
+import java.util.Arrays;
+import name.fis.hrdina.metrics.Metrics;
+
+/**
+ * Solves boards of a fixed size into sets of word IDs, with the same results
+ * as <code>WordIdSolver</code>, by walking a <code>SimplePathTable</code> and
+ * the word tree together. Every child of a path is a valid unvisited position,
+ * so the inner loop only looks up the letter of the position in the word tree.
+ * Paths longer than the table (words longer than its maximal length) continue
+ * with the usual search over the neighbors.
+ *
+ * The table is shared; the solver keeps its buffers between the boards.
+ * Not thread safe; use one instance per thread.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class PathTableSolver
+{
+	/** Length of the paths of the tables created by the solver itself; longer
+	  * tables are faster for long words, but grow about threefold per letter */
+	public static final int DEFAULT_MAX_LENGTH = 8;
+
+	private final WordTree m_Tree;
+	private final Alphabet m_Alphabet;
+	private final SimplePathTable m_Paths;
+	private final int[][] m_Neighbors;
+
+	// <editor-fold desc="State of the current search">
+	private final int[] m_LetterIndices;
+	/** IDs of the found words, with duplicates */
+	private int[] m_Found = new int[256];
+	private int m_FoundCount;
+	/** Number of visited nodes; counted only if the metrics are enabled */
+	private long m_VisitedNodes;
+	// </editor-fold>
+
+	/**
+	 * Creates a solver with its own table of paths of up to DEFAULT_MAX_LENGTH positions
+	 * @param tree The word tree to check words with
+	 * @param edgeSize Size of the edge of the boards
+	 */
+	public PathTableSolver(WordTree tree, int edgeSize)
+	{
+		this(tree, SimplePathTable.Build(edgeSize, DEFAULT_MAX_LENGTH));
+	}
+
+	/**
+	 * @param tree The word tree to check words with
+	 * @param paths Table of the paths of the boards, may be shared with other solvers
+	 */
+	public PathTableSolver(WordTree tree, SimplePathTable paths)
+	{
+		m_Tree = tree;
+		m_Alphabet = tree.GetAlphabet();
+		m_Paths = paths;
+		m_Neighbors = GameBoard.GetNeighborTable(paths.GetEdgeSize());
+		m_LetterIndices = new int[paths.GetEdgeSize() * paths.GetEdgeSize()];
+	}
+
+	/** @return The table of paths of the solver */
+	public SimplePathTable GetPaths()
+	{
+		return m_Paths;
+	}
+
+	/**
+	 * Finds all words of a board
+	 * @param board The board
+	 * @return Sorted IDs of all unique words on the board
+	 * @throws IllegalArgumentException if the board is not of the size of the table
+	 */
+	public int[] Solve(GameBoard board)
+	{
+		return Solve(board.GetLetters());
+	}
+
+	/**
+	 * Finds all words of a board
+	 * @param board Letters of a square board of the size of the table, row by row
+	 * @return Sorted IDs of all unique words on the board
+	 * @throws IllegalArgumentException if the board is not of the size of the table
+	 */
+	public int[] Solve(char[] board)
+	{
+		long start = Metrics.ENABLED? System.nanoTime(): 0;
+		if (board.length != m_LetterIndices.length)
+			throw new IllegalArgumentException(String.format("Board of %d positions does not match the table of %d",
+				board.length, m_LetterIndices.length));
+		m_VisitedNodes = 0;
+		m_FoundCount = 0;
+		for (int i = 0; i < board.length; i++)
+			m_LetterIndices[i] = m_Alphabet.GetIndexOfLetter(board[i]);
+
+		if (m_Tree.GetNodeCount() > 0)
+			Walk(m_Paths.GetRoot(), m_Tree.GetRoot(), 0);
+
+		// Sort and drop the words found along several paths
+		Arrays.sort(m_Found, 0, m_FoundCount);
+		int unique = 0;
+		for (int i = 0; i < m_FoundCount; i++)
+		{
+			if (unique == 0 || m_Found[unique - 1] != m_Found[i])
+				m_Found[unique++] = m_Found[i];
+		}
+		if (Metrics.ENABLED)
+		{
+			Metrics.SOLVE_MICROS.Record(Metrics.MicrosSince(start));
+			Metrics.SOLVE_NODES.Record(m_VisitedNodes);
+			Metrics.BOARD_WORDS.Record(unique);
+		}
+		return Arrays.copyOf(m_Found, unique);
+	}
+
+	/**
+	 * Recursive step of the search: follows the children of a path of the table
+	 * @param path Node of the path in the table
+	 * @param node Word tree node of the letters of the path
+	 * @param cells Positions of the path, as bits; only needed past the end of the table
+	 */
+	private void Walk(int path, int node, long cells)
+	{
+		int end = m_Paths.GetFirstChild(path + 1);
+		for (int child = m_Paths.GetFirstChild(path); child < end; child++)
+		{
+			if (Metrics.ENABLED)
+				m_VisitedNodes++;
+			int position = m_Paths.GetPosition(child);
+			int letterIndex = m_LetterIndices[position];
+			if (letterIndex == Alphabet.NO_LETTER_INDEX)
+				continue;
+			int next = m_Tree.GetChild(node, letterIndex);
+			if (next == WordTree.NO_NODE)
+				continue;
+			if (m_Tree.IsWord(next))
+				AddFound(m_Tree.GetChildWordId(node, letterIndex));
+			if (!m_Tree.HasChildren(next))
+				continue;
+			if (m_Paths.GetFirstChild(child) != m_Paths.GetFirstChild(child + 1))
+				Walk(child, next, cells | (1L << position));
+			else
+				Follow(next, position, cells | (1L << position));
+		}
+	}
+
+	/**
+	 * Continues a path past the end of the table over the neighbors
+	 * @param node Word tree node of the letters of the path
+	 * @param position Last position of the path
+	 * @param cells Positions of the path, as bits
+	 */
+	private void Follow(int node, int position, long cells)
+	{
+		for (int neighbor: m_Neighbors[position])
+		{
+			if ((cells & (1L << neighbor)) != 0)
+				continue;
+			if (Metrics.ENABLED)
+				m_VisitedNodes++;
+			int letterIndex = m_LetterIndices[neighbor];
+			if (letterIndex == Alphabet.NO_LETTER_INDEX)
+				continue;
+			int next = m_Tree.GetChild(node, letterIndex);
+			if (next == WordTree.NO_NODE)
+				continue;
+			if (m_Tree.IsWord(next))
+				AddFound(m_Tree.GetChildWordId(node, letterIndex));
+			if (m_Tree.HasChildren(next))
+				Follow(next, neighbor, cells | (1L << neighbor));
+		}
+	}
+
+	private void AddFound(int id)
+	{
+		if (m_FoundCount == m_Found.length)
+			m_Found = Arrays.copyOf(m_Found, m_FoundCount * 2);
+		m_Found[m_FoundCount++] = id;
+	}
+}
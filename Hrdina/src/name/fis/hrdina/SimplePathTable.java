@@ -0,0 +1,140 @@
+package name.fis.hrdina;
+
+import java.util.Arrays;
+
+/**
+ * All simple paths (never visiting a position twice) over the positions of a
+ * square board up to a given length, as a tree sharing the common prefixes.
+ * The paths only depend on the size of the board, not on its letters, so the
+ * table is built once and shared by all boards of the size; a solver then
+ * walks the table and the word tree together and never checks neighbors or
+ * visited positions (see <code>PathTableSolver</code>).
+ *
+ * Node 0 is the empty path; every other node is a path ending at its position.
+ * The nodes are numbered breadth first, so the children of a node are the
+ * contiguous range <code>GetFirstChild(node)</code> to
+ * <code>GetFirstChild(node + 1)</code>.
+ * Immutable, so it can be shared between threads.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class SimplePathTable
+{
+	/** Maximal number of positions of a board; the positions of a path are kept as bits of a long while building */
+	public static final int MAX_BOARD_SIZE = 64;
+
+	private final int m_EdgeSize;
+	private final int m_MaxLength;
+	/** Last position of the path of each node */
+	private final byte[] m_Positions;
+	/** First child of each node; one more entry closes the range of the last node */
+	private final int[] m_FirstChildren;
+
+	private SimplePathTable(int edgeSize, int maxLength, byte[] positions, int[] firstChildren)
+	{
+		m_EdgeSize = edgeSize;
+		m_MaxLength = maxLength;
+		m_Positions = positions;
+		m_FirstChildren = firstChildren;
+	}
+
+	/**
+	 * Lists all simple paths of a board. The number of paths grows about
+	 * threefold with each letter on a 4x4 board (about 280 thousand paths of up
+	 * to 8 letters, 1.6 million of up to 10), so keep the length small.
+	 * @param edgeSize Size of the edge of the board
+	 * @param maxLength Maximal number of positions of a path
+	 * @return The table
+	 * @throws IllegalArgumentException if the board has more than MAX_BOARD_SIZE positions
+	 *         or the length is not positive
+	 */
+	public static SimplePathTable Build(int edgeSize, int maxLength)
+	{
+		int size = edgeSize * edgeSize;
+		if (size > MAX_BOARD_SIZE)
+			throw new IllegalArgumentException(String.format("Board of %d positions is too large", size));
+		if (maxLength < 1)
+			throw new IllegalArgumentException(String.format("Invalid path length %d", maxLength));
+		maxLength = Math.min(maxLength, size);
+		int[][] neighbors = GameBoard.GetNeighborTable(edgeSize);
+
+		// Breadth first: the children of the nodes of a level are appended in the order of the nodes
+		byte[] positions = new byte[1024];
+		long[] cells = new long[1024];
+		int[] firstChildren = new int[1024];
+		int count = 1;
+		int levelStart = 0, levelEnd = 1;
+		for (int length = 0; length < maxLength; length++)
+		{
+			for (int node = levelStart; node < levelEnd; node++)
+			{
+				firstChildren[node] = count;
+				int childCount = node == 0? size: neighbors[positions[node]].length;
+				if (count + childCount > positions.length)
+				{
+					int capacity = Math.max(positions.length * 2, count + childCount);
+					positions = Arrays.copyOf(positions, capacity);
+					cells = Arrays.copyOf(cells, capacity);
+					firstChildren = Arrays.copyOf(firstChildren, capacity);
+				}
+				for (int i = 0; i < childCount; i++)
+				{
+					int position = node == 0? i: neighbors[positions[node]][i];
+					if ((cells[node] & (1L << position)) != 0)
+						continue;
+					positions[count] = (byte)position;
+					cells[count] = cells[node] | (1L << position);
+					count++;
+				}
+			}
+			levelStart = levelEnd;
+			levelEnd = count;
+		}
+		// The paths of the maximal length have no children
+		firstChildren = Arrays.copyOf(firstChildren, count + 1);
+		for (int node = levelStart; node <= count; node++)
+			firstChildren[node] = count;
+		return new SimplePathTable(edgeSize, maxLength, Arrays.copyOf(positions, count), firstChildren);
+	}
+
+	/** @return Size of the edge of the board */
+	public int GetEdgeSize()
+	{
+		return m_EdgeSize;
+	}
+
+	/** @return Maximal number of positions of a path of the table */
+	public int GetMaxLength()
+	{
+		return m_MaxLength;
+	}
+
+	/** @return Number of nodes, i.e. the number of paths plus the empty one */
+	public int GetNodeCount()
+	{
+		return m_Positions.length;
+	}
+
+	/** @return Node of the empty path */
+	public int GetRoot()
+	{
+		return 0;
+	}
+
+	/**
+	 * @param node A node other than the root
+	 * @return Last position of the path of the node
+	 */
+	public int GetPosition(int node)
+	{
+		return m_Positions[node];
+	}
+
+	/**
+	 * @param node A node, or the node count to get the end of the last range
+	 * @return First child of the node; the children end at the first child of the next node
+	 */
+	public int GetFirstChild(int node)
+	{
+		return m_FirstChildren[node];
+	}
+}
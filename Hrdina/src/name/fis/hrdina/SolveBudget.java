@@ -0,0 +1,97 @@
+package name.fis.hrdina;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of a board search: a deadline, a maximum number of visited nodes
+ * (paths tried on the board) and a cancellation flag that can be raised from
+ * another thread. The deadline is fixed when the budget is created, so one
+ * budget can cover several searches done for the same request.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class SolveBudget
+{
+	/** Value of a limit that is not set */
+	public static final long NO_LIMIT = Long.MAX_VALUE;
+
+	/** Deadline in System.nanoTime() units; NO_LIMIT if there is none */
+	private final long m_Deadline;
+	private final long m_MaxNodes;
+	private volatile boolean m_Cancelled = false;
+
+	/**
+	 * @param timeout Time the search may take from now; NO_LIMIT for no deadline
+	 * @param unit Unit of the timeout
+	 * @param maxNodes Maximum number of nodes the search may visit; NO_LIMIT for no limit
+	 */
+	public SolveBudget(long timeout, TimeUnit unit, long maxNodes)
+	{
+		if (timeout == NO_LIMIT)
+		{
+			m_Deadline = NO_LIMIT;
+		}
+		else
+		{
+			long now = System.nanoTime();
+			long nanos = unit.toNanos(timeout);
+			// Saturate instead of overflowing for huge timeouts
+			m_Deadline = nanos >= NO_LIMIT - now? NO_LIMIT: now + nanos;
+		}
+		m_MaxNodes = maxNodes;
+	}
+
+	/** @return A budget without any limits; it can still be cancelled */
+	public static SolveBudget Unlimited()
+	{
+		return new SolveBudget(NO_LIMIT, TimeUnit.NANOSECONDS, NO_LIMIT);
+	}
+
+	/**
+	 * @param timeout Time the search may take from now
+	 * @param unit Unit of the timeout
+	 * @return A budget limited only by time
+	 */
+	public static SolveBudget WithTimeout(long timeout, TimeUnit unit)
+	{
+		return new SolveBudget(timeout, unit, NO_LIMIT);
+	}
+
+	/**
+	 * @param maxNodes Maximum number of nodes the search may visit
+	 * @return A budget limited only by the number of visited nodes
+	 */
+	public static SolveBudget WithNodeLimit(long maxNodes)
+	{
+		return new SolveBudget(NO_LIMIT, TimeUnit.NANOSECONDS, maxNodes);
+	}
+
+	/** Stops all searches using this budget as soon as they notice it */
+	public void Cancel()
+	{
+		m_Cancelled = true;
+	}
+
+	/** @return true if <code>Cancel</code> was called */
+	public boolean IsCancelled()
+	{
+		return m_Cancelled;
+	}
+
+	/** @return true if the budget has a deadline */
+	public boolean HasDeadline()
+	{
+		return m_Deadline != NO_LIMIT;
+	}
+
+	/** @return true if the deadline has passed */
+	public boolean IsExpired()
+	{
+		return m_Deadline != NO_LIMIT && System.nanoTime() - m_Deadline >= 0;
+	}
+
+	/** @return Maximum number of nodes a search may visit */
+	public long GetMaxNodes()
+	{
+		return m_MaxNodes;
+	}
+}
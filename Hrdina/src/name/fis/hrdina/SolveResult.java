@@ -0,0 +1,64 @@
+package name.fis.hrdina;
+
+/**
+ * Outcome of a budgeted board search. The words themselves were already
+ * passed to the visitor; this tells whether they were all of them.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class SolveResult
+{
+	/** Why the search ended */
+	public enum StopReason {
+		/** The whole board was searched */
+		COMPLETE,
+		/** The visitor asked to stop */
+		STOPPED_BY_VISITOR,
+		/** The deadline of the budget passed */
+		DEADLINE,
+		/** The node limit of the budget was reached */
+		NODE_LIMIT,
+		/** The budget was cancelled */
+		CANCELLED
+	}
+
+	private final StopReason m_Reason;
+	private final long m_VisitedNodes;
+	private final int m_FoundPaths;
+
+	public SolveResult(StopReason reason, long visitedNodes, int foundPaths)
+	{
+		m_Reason = reason;
+		m_VisitedNodes = visitedNodes;
+		m_FoundPaths = foundPaths;
+	}
+
+	/** @return Why the search ended */
+	public StopReason GetStopReason()
+	{
+		return m_Reason;
+	}
+
+	/** @return true if the whole board was searched, so the visitor saw all words */
+	public boolean IsComplete()
+	{
+		return m_Reason == StopReason.COMPLETE;
+	}
+
+	/** @return Number of nodes (paths on the board) the search visited */
+	public long GetVisitedNodes()
+	{
+		return m_VisitedNodes;
+	}
+
+	/** @return Number of times the visitor was called */
+	public int GetFoundPaths()
+	{
+		return m_FoundPaths;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%s after %d nodes, %d paths", m_Reason, m_VisitedNodes, m_FoundPaths);
+	}
+}
@@ -0,0 +1,230 @@
+package name.fis.hrdina;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import name.fis.hrdina.metrics.Metrics;
+
+/**
+ * Finds only the K highest-scoring words of a board (for hints, "best words"
+ * displays and board grading) without enumerating all of them.
+ *
+ * The search is a branch and bound over the board and the word tree. The upper
+ * bound of a branch is its current score plus the smaller of two estimates of
+ * what can still be added: the best continuation value stored in the word tree
+ * node, and the sum of the most valuable unvisited letters of the board, taking
+ * as many of them as the longest continuation of the node. A branch whose bound
+ * can't beat the K-th best word found so far is not entered at all.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class TopWordsSolver
+{
+	/** A found word with its value */
+	private static class Candidate {
+		final String Word;
+		final int Value;
+
+		Candidate(String word, int value) {
+			Word = word;
+			Value = value;
+		}
+	}
+
+	/** Orders candidates from the lowest value; ties by the word in reverse, so
+	  * that the head of the queue is always the candidate to drop first */
+	private static final Comparator<Candidate> WORST_FIRST = new Comparator<Candidate>() {
+		@Override
+		public int compare(Candidate a, Candidate b) {
+			if (a.Value != b.Value)
+				return a.Value < b.Value? -1: 1;
+			return b.Word.compareTo(a.Word);
+		}
+	};
+
+	private final WordTree m_Tree;
+	private final Alphabet m_Alphabet;
+
+	// <editor-fold desc="State of the current search">
+	private int m_K;
+	private char[] m_Board;
+	private int[] m_LetterIndices;
+	private int[] m_Values;
+	/** Board positions ordered from the most valuable letter */
+	private int[] m_PositionsByValue;
+	private int[][] m_Neighbors;
+	private boolean[] m_Visited;
+	/** Letters of the current path */
+	private char[] m_Path;
+	/** The best K words found so far, the worst one at the head */
+	private PriorityQueue<Candidate> m_Best;
+	/** Words in m_Best, so that a word reachable by several paths is counted once */
+	private HashSet<String> m_BestWords;
+	/** Number of visited nodes; counted only if the metrics are enabled */
+	private long m_VisitedNodes;
+	// </editor-fold>
+
+	/**
+	 * @param tree The word tree to check words with; its alphabet scores the words
+	 */
+	public TopWordsSolver(WordTree tree)
+	{
+		m_Tree = tree;
+		m_Alphabet = tree.GetAlphabet();
+	}
+
+	/**
+	 * Finds the K highest-scoring words of a board
+	 * @param board The board
+	 * @param k Number of words to find
+	 * @return Up to K unique words ordered from the highest value. If more words
+	 *         share the value of the K-th one, it is not defined which of them are returned.
+	 */
+	public List<String> Solve(GameBoard board, int k)
+	{
+		return Solve(board.GetLetters(), board.GetEdgeSize(), k);
+	}
+
+	/**
+	 * Finds the K highest-scoring words of a board.
+	 * Not thread safe; use one instance per thread.
+	 * @param board Letters of a square board, row by row
+	 * @param edgeSize Size of the edge of the board
+	 * @param k Number of words to find
+	 * @return Up to K unique words ordered from the highest value. If more words
+	 *         share the value of the K-th one, it is not defined which of them are returned.
+	 */
+	public List<String> Solve(char[] board, int edgeSize, int k)
+	{
+		long start = Metrics.ENABLED? System.nanoTime(): 0;
+		m_VisitedNodes = 0;
+		int size = edgeSize * edgeSize;
+		m_K = k;
+		m_Board = board;
+		m_LetterIndices = new int[size];
+		m_Values = new int[size];
+		m_Neighbors = GameBoard.GetNeighborTable(edgeSize);
+		m_Visited = new boolean[size];
+		m_Path = new char[size];
+		m_Best = new PriorityQueue<>(Math.max(k, 1), WORST_FIRST);
+		m_BestWords = new HashSet<>();
+
+		List<Integer> positions = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+		{
+			m_LetterIndices[i] = m_Alphabet.GetIndexOfLetter(board[i]);
+			m_Values[i] = m_Alphabet.GetLetterValue(board[i]);
+			positions.add(i);
+		}
+		Collections.sort(positions, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return m_Values[b] - m_Values[a];
+			}
+		});
+		m_PositionsByValue = new int[size];
+		for (int i = 0; i < size; i++)
+			m_PositionsByValue[i] = positions.get(i);
+
+		if (k > 0 && m_Tree.GetNodeCount() > 0)
+		{
+			for (int i = 0; i < size; i++)
+			{
+				int node = m_LetterIndices[i] == Alphabet.NO_LETTER_INDEX? WordTree.NO_NODE:
+					m_Tree.GetChild(m_Tree.GetRoot(), m_LetterIndices[i]);
+				if (node == WordTree.NO_NODE)
+					continue;
+				m_Visited[i] = true;
+				m_Path[0] = board[i];
+				ContinueFrom(i, node, 1, m_Values[i]);
+				m_Visited[i] = false;
+			}
+		}
+
+		List<Candidate> found = new ArrayList<>(m_Best);
+		Collections.sort(found, Collections.reverseOrder(WORST_FIRST));
+		List<String> result = new ArrayList<>(found.size());
+		for (Candidate c: found)
+			result.add(c.Word);
+		if (Metrics.ENABLED)
+		{
+			Metrics.SOLVE_MICROS.Record(Metrics.MicrosSince(start));
+			Metrics.SOLVE_NODES.Record(m_VisitedNodes);
+		}
+		return result;
+	}
+
+	/**
+	 * Recursive step of the search
+	 * @param position Position of the last letter of the path
+	 * @param node Word tree node of the path
+	 * @param length Length of the path
+	 * @param value Point value of the path
+	 */
+	private void ContinueFrom(int position, int node, int length, int value)
+	{
+		if (Metrics.ENABLED)
+			m_VisitedNodes++;
+		if (m_Tree.IsWord(node))
+			Offer(length, value);
+
+		if (!m_Tree.HasChildren(node))
+			return;
+		if (m_Best.size() == m_K && UpperBound(node, value) <= m_Best.peek().Value)
+			return;
+
+		for (int neighbor: m_Neighbors[position])
+		{
+			if (m_Visited[neighbor] || m_LetterIndices[neighbor] == Alphabet.NO_LETTER_INDEX)
+				continue;
+			int child = m_Tree.GetChild(node, m_LetterIndices[neighbor]);
+			if (child == WordTree.NO_NODE)
+				continue;
+			m_Visited[neighbor] = true;
+			m_Path[length] = m_Board[neighbor];
+			ContinueFrom(neighbor, child, length + 1, value + m_Values[neighbor]);
+			m_Visited[neighbor] = false;
+		}
+	}
+
+	/**
+	 * @param node Word tree node of the current path
+	 * @param value Point value of the current path
+	 * @return The highest value any word continuing the current path can have
+	 */
+	private int UpperBound(int node, int value)
+	{
+		int remaining = m_Tree.GetLongestContinuation(node);
+		int boardBound = 0;
+		for (int i = 0; i < m_PositionsByValue.length && remaining > 0; i++)
+		{
+			int position = m_PositionsByValue[i];
+			if (!m_Visited[position])
+			{
+				boardBound += m_Values[position];
+				remaining--;
+			}
+		}
+		return value + Math.min(boardBound, m_Tree.GetBestContinuationValue(node));
+	}
+
+	/**
+	 * Considers the current path as one of the best words
+	 * @param length Length of the path
+	 * @param value Point value of the path
+	 */
+	private void Offer(int length, int value)
+	{
+		if (m_Best.size() == m_K && value <= m_Best.peek().Value)
+			return;
+		String word = new String(m_Path, 0, length);
+		if (m_BestWords.contains(word))
+			return;
+		if (m_Best.size() == m_K)
+			m_BestWords.remove(m_Best.poll().Word);
+		m_Best.add(new Candidate(word, value));
+		m_BestWords.add(word);
+	}
+}
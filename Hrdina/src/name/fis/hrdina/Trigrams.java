@@ -0,0 +1,309 @@
+package name.fis.hrdina;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * Frequencies of letter trigrams in valid words, and tables for picking the
+ * letter that follows two given letters (or one, see <code>SampleAfter</code>)
+ * with the probability it follows them in the words. A path on the board can
+ * be read in both directions, so every trigram is counted in both directions.
+ *
+ * The statistics are loaded from the trigram file of the dictionary, or
+ * counted from the words of a word tree. The file is little endian:
+ * <pre>
+ * int version, int number of entries,
+ * for each trigram that occurs, sorted:
+ *   int letter indices (first | second &lt;&lt; 8 | third &lt;&lt; 16), int frequency
+ * </pre>
+ * For every context (one or two letters), the letters that can follow it are
+ * kept with an alias table (Walker's method), so a letter is picked in
+ * constant time however many letters can follow. The tables are never
+ * modified after loading, so one instance can be shared by many generators.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class Trigrams
+{
+	/** Version of the trigram file */
+	private static final int VERSION = 1;
+
+	/** Letters that can follow each context with their alias tables; the
+	  * entries of a context are a consecutive range */
+	private static class SamplingTable
+	{
+		/** First entry of each context; one more item than contexts */
+		final int[] Starts;
+		/** Letter index of each entry */
+		final byte[] Letters;
+		/** Probability of keeping the entry rather than taking its alias */
+		final double[] Keep;
+		/** Entry (relative to the start of its context) taken instead of the entry */
+		final int[] Alias;
+		/** Frequency of each entry */
+		final int[] Frequencies;
+
+		SamplingTable(int contexts, int entries)
+		{
+			Starts = new int[contexts + 1];
+			Letters = new byte[entries];
+			Keep = new double[entries];
+			Alias = new int[entries];
+			Frequencies = new int[entries];
+		}
+	}
+
+	private Alphabet m_Alphabet;
+	private int m_AlphabetSize;
+	/** Contexts of two letters, numbered first * N + second */
+	private SamplingTable m_Pairs;
+	/** Contexts of one letter: the middle letter of the trigrams */
+	private SamplingTable m_Singles;
+
+	public Trigrams()
+	{
+	}
+
+	/**
+	 * Initializes the instance with values from the given input stream
+	 * @param str Stream to load trigram statistics from
+	 * @param alphabet The alphabet to work with
+	 * @return true if the loading succeeded; false if the data is not valid
+	 * @throws IOException if there is a problem with input file manipulation
+	 */
+	public boolean Load(InputStream str, Alphabet alphabet) throws IOException
+	{
+		int[] data = Util.ReadLEInts(Util.ReadAll(str));
+		if (data.length < 2 || data[0] != VERSION)
+			return false;
+		int count = data[1];
+		if (count < 0 || data.length != 2 + 2 * count)
+			return false;
+		int size = alphabet.GetSize();
+		int[] keys = new int[count];
+		int[] frequencies = new int[count];
+		for (int i = 0; i < count; i++)
+		{
+			int key = data[2 + 2 * i];
+			int first = key & 255, second = (key >>> 8) & 255, third = (key >>> 16) & 255;
+			frequencies[i] = data[3 + 2 * i];
+			if (first >= size || second >= size || third >= size || frequencies[i] < 0)
+				return false;
+			keys[i] = (first * size + second) * size + third;
+			// The tables are built context by context, so the entries must be sorted
+			if (i > 0 && keys[i] <= keys[i - 1])
+				return false;
+		}
+		Init(alphabet, keys, frequencies);
+		return true;
+	}
+
+	/**
+	 * Initializes the instance by counting the trigrams of all words of a tree
+	 * (for dictionaries without a trigram file)
+	 * @param tree The word tree
+	 */
+	public void Compute(WordTree tree)
+	{
+		Alphabet alphabet = tree.GetAlphabet();
+		int size = alphabet.GetSize();
+		int[] counts = new int[size * size * size];
+		int[] word = new int[32];
+		for (String w: tree.Words())
+		{
+			if (w.length() > word.length)
+				word = new int[w.length()];
+			for (int i = 0; i < w.length(); i++)
+				word[i] = alphabet.GetIndexOfLetter(w.charAt(i));
+			for (int i = 0; i + 2 < w.length(); i++)
+			{
+				counts[(word[i] * size + word[i + 1]) * size + word[i + 2]]++;
+				counts[(word[i + 2] * size + word[i + 1]) * size + word[i]]++;
+			}
+		}
+		int entries = 0;
+		for (int count: counts)
+		{
+			if (count > 0)
+				entries++;
+		}
+		int[] keys = new int[entries];
+		int[] frequencies = new int[entries];
+		entries = 0;
+		for (int key = 0; key < counts.length; key++)
+		{
+			if (counts[key] > 0)
+			{
+				keys[entries] = key;
+				frequencies[entries++] = counts[key];
+			}
+		}
+		Init(alphabet, keys, frequencies);
+	}
+
+	/**
+	 * Builds the sampling tables
+	 * @param alphabet The alphabet to work with
+	 * @param keys Sorted trigrams, each as (first * N + second) * N + third
+	 * @param frequencies Frequency of each trigram
+	 */
+	private void Init(Alphabet alphabet, int[] keys, int[] frequencies)
+	{
+		m_Alphabet = alphabet;
+		m_AlphabetSize = alphabet.GetSize();
+		int n = m_AlphabetSize;
+		m_Pairs = BuildTable(n * n, keys, frequencies, n);
+
+		// The single letter contexts are the sums over the first letter
+		int[] sums = new int[n * n];
+		for (int i = 0; i < keys.length; i++)
+			sums[keys[i] % (n * n)] += frequencies[i];
+		int entries = 0;
+		for (int sum: sums)
+		{
+			if (sum > 0)
+				entries++;
+		}
+		int[] singleKeys = new int[entries];
+		int[] singleFrequencies = new int[entries];
+		entries = 0;
+		for (int key = 0; key < sums.length; key++)
+		{
+			if (sums[key] > 0)
+			{
+				singleKeys[entries] = key;
+				singleFrequencies[entries++] = sums[key];
+			}
+		}
+		m_Singles = BuildTable(n, singleKeys, singleFrequencies, n);
+	}
+
+	/**
+	 * @param contexts Number of contexts
+	 * @param keys Sorted entries, each as context * N + letter
+	 * @param frequencies Frequency of each entry
+	 * @param n Number of letters of the alphabet
+	 * @return The table with the alias tables of all contexts
+	 */
+	private static SamplingTable BuildTable(int contexts, int[] keys, int[] frequencies, int n)
+	{
+		SamplingTable table = new SamplingTable(contexts, keys.length);
+		for (int i = 0; i < keys.length; i++)
+		{
+			table.Starts[keys[i] / n + 1]++;
+			table.Letters[i] = (byte)(keys[i] % n);
+			table.Frequencies[i] = frequencies[i];
+		}
+		for (int c = 0; c < contexts; c++)
+			table.Starts[c + 1] += table.Starts[c];
+
+		// Vose's alias method, context by context
+		int[] small = new int[n];
+		int[] large = new int[n];
+		double[] scaled = new double[n];
+		for (int c = 0; c < contexts; c++)
+		{
+			int start = table.Starts[c];
+			int count = table.Starts[c + 1] - start;
+			if (count == 0)
+				continue;
+			double total = 0;
+			for (int i = 0; i < count; i++)
+				total += table.Frequencies[start + i];
+			int smallCount = 0, largeCount = 0;
+			for (int i = 0; i < count; i++)
+			{
+				scaled[i] = (double)table.Frequencies[start + i] * count / total;
+				if (scaled[i] < 1)
+					small[smallCount++] = i;
+				else
+					large[largeCount++] = i;
+			}
+			while (smallCount > 0 && largeCount > 0)
+			{
+				int less = small[--smallCount];
+				int more = large[--largeCount];
+				table.Keep[start + less] = scaled[less];
+				table.Alias[start + less] = more;
+				scaled[more] += scaled[less] - 1;
+				if (scaled[more] < 1)
+					small[smallCount++] = more;
+				else
+					large[largeCount++] = more;
+			}
+			// What is left is 1 up to rounding errors
+			while (largeCount > 0)
+				table.Keep[start + large[--largeCount]] = 1;
+			while (smallCount > 0)
+				table.Keep[start + small[--smallCount]] = 1;
+		}
+		return table;
+	}
+
+	/**
+	 * @param table The table
+	 * @param context Number of the context
+	 * @param rand Random number generator
+	 * @return Letter index of a random letter following the context; NO_LETTER_INDEX if none does
+	 */
+	private static int Sample(SamplingTable table, int context, Random rand)
+	{
+		int start = table.Starts[context];
+		int count = table.Starts[context + 1] - start;
+		if (count == 0)
+			return Alphabet.NO_LETTER_INDEX;
+		int i = start + rand.nextInt(count);
+		if (rand.nextDouble() >= table.Keep[i])
+			i = start + table.Alias[i];
+		return table.Letters[i];
+	}
+
+	/**
+	 * Picks a letter that follows two letters with its probability of following them in the words
+	 * @param first Index of the first letter
+	 * @param second Index of the second letter
+	 * @param rand Random number generator
+	 * @return Index of the third letter; NO_LETTER_INDEX if no word contains the two letters
+	 *         in the middle or at the end
+	 */
+	public int SampleAfter(int first, int second, Random rand)
+	{
+		return Sample(m_Pairs, first * m_AlphabetSize + second, rand);
+	}
+
+	/**
+	 * Picks a letter that follows a letter with its probability of following it
+	 * in the words (not counting the first letter of a word, which has no trigram)
+	 * @param letter Index of the letter
+	 * @param rand Random number generator
+	 * @return Index of the next letter; NO_LETTER_INDEX if no trigram has the letter in the middle
+	 */
+	public int SampleAfter(int letter, Random rand)
+	{
+		return Sample(m_Singles, letter, rand);
+	}
+
+	/**
+	 * @param first Index of the first letter
+	 * @param second Index of the second letter
+	 * @param third Index of the third letter
+	 * @return How many times the three letters follow each other in valid words
+	 *         (in either direction)
+	 */
+	public int GetTrigramFrequency(int first, int second, int third)
+	{
+		int context = first * m_AlphabetSize + second;
+		for (int i = m_Pairs.Starts[context]; i < m_Pairs.Starts[context + 1]; i++)
+		{
+			if (m_Pairs.Letters[i] == third)
+				return m_Pairs.Frequencies[i];
+		}
+		return 0;
+	}
+
+	/** @return The alphabet of the statistics */
+	public Alphabet GetAlphabet()
+	{
+		return m_Alphabet;
+	}
+}
@@ -1,7 +1,10 @@
 package name.fis.hrdina;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  * Miscellaneous utilities
@@ -19,4 +22,31 @@ public class Util {
 		fstr.read(buf);
 		return (int) buf[0] + ((int) buf[1] << 8) + ((int) buf[2] << 16) + ((int) buf[3] << 24);
 	}
+
+	/**
+	 * Reads the whole remaining content of a stream
+	 * @param fstr Stream to read from
+	 * @return All bytes until the end of the stream
+	 * @throws IOException if the stream can't be read
+	 */
+	public static byte[] ReadAll(InputStream fstr) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(fstr.available(), 4096));
+		byte[] buf = new byte[65536];
+		int read;
+		while ((read = fstr.read(buf)) != -1) {
+			out.write(buf, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes an array of little-endian encoded 32bit integers
+	 * @param data The encoded integers; trailing bytes that don't form a whole integer are ignored
+	 * @return The decoded integers
+	 */
+	public static int[] ReadLEInts(byte[] data) {
+		int[] values = new int[data.length / 4];
+		ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values);
+		return values;
+	}
 }
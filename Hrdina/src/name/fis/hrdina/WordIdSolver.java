@@ -0,0 +1,146 @@
+package name.fis.hrdina;
+
+import java.util.Arrays;
+import name.fis.hrdina.metrics.Metrics;
+
+/**
+ * Solves boards into sets of word IDs (see <code>WordTree.GetWordId</code>)
+ * instead of strings. The search walks the word tree node by node and never
+ * builds a string, and the result is a sorted array of unique IDs, which is
+ * compact to cache or store and cheap to compare or intersect. Strings are only
+ * needed when the words are shown, see <code>ToWords</code>.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class WordIdSolver
+{
+	private final WordTree m_Tree;
+	private final Alphabet m_Alphabet;
+
+	// <editor-fold desc="State of the current search">
+	private int[] m_LetterIndices;
+	private int[][] m_Neighbors;
+	private boolean[] m_Visited;
+	/** IDs of the found words, with duplicates */
+	private int[] m_Found;
+	private int m_FoundCount;
+	/** Number of visited nodes; counted only if the metrics are enabled */
+	private long m_VisitedNodes;
+	// </editor-fold>
+
+	/**
+	 * @param tree The word tree to check words with
+	 */
+	public WordIdSolver(WordTree tree)
+	{
+		m_Tree = tree;
+		m_Alphabet = tree.GetAlphabet();
+	}
+
+	/**
+	 * Finds all words of a board
+	 * @param board The board
+	 * @return Sorted IDs of all unique words on the board
+	 */
+	public int[] Solve(GameBoard board)
+	{
+		return Solve(board.GetLetters(), board.GetEdgeSize());
+	}
+
+	/**
+	 * Finds all words of a board.
+	 * Not thread safe; use one instance per thread.
+	 * @param board Letters of a square board, row by row
+	 * @param edgeSize Size of the edge of the board
+	 * @return Sorted IDs of all unique words on the board
+	 */
+	public int[] Solve(char[] board, int edgeSize)
+	{
+		long start = Metrics.ENABLED? System.nanoTime(): 0;
+		m_VisitedNodes = 0;
+		int size = edgeSize * edgeSize;
+		m_LetterIndices = new int[size];
+		m_Neighbors = GameBoard.GetNeighborTable(edgeSize);
+		m_Visited = new boolean[size];
+		m_Found = new int[64];
+		m_FoundCount = 0;
+
+		for (int i = 0; i < size; i++)
+			m_LetterIndices[i] = m_Alphabet.GetIndexOfLetter(board[i]);
+
+		if (m_Tree.GetNodeCount() > 0)
+		{
+			for (int i = 0; i < size; i++)
+			{
+				if (m_LetterIndices[i] == Alphabet.NO_LETTER_INDEX)
+					continue;
+				m_Visited[i] = true;
+				Visit(m_Tree.GetRoot(), i);
+				m_Visited[i] = false;
+			}
+		}
+
+		// Sort and drop the words found along several paths
+		Arrays.sort(m_Found, 0, m_FoundCount);
+		int unique = 0;
+		for (int i = 0; i < m_FoundCount; i++)
+		{
+			if (unique == 0 || m_Found[unique - 1] != m_Found[i])
+				m_Found[unique++] = m_Found[i];
+		}
+		int[] result = Arrays.copyOf(m_Found, unique);
+		m_Found = null;
+		if (Metrics.ENABLED)
+		{
+			Metrics.SOLVE_MICROS.Record(Metrics.MicrosSince(start));
+			Metrics.SOLVE_NODES.Record(m_VisitedNodes);
+			Metrics.BOARD_WORDS.Record(unique);
+		}
+		return result;
+	}
+
+	/**
+	 * Recursive step of the search: follows the link of the letter at the given
+	 * position from the node of the path so far
+	 * @param parent Word tree node of the path without the letter at the position
+	 * @param position Position of the next letter of the path
+	 */
+	private void Visit(int parent, int position)
+	{
+		if (Metrics.ENABLED)
+			m_VisitedNodes++;
+		int letterIndex = m_LetterIndices[position];
+		int node = m_Tree.GetChild(parent, letterIndex);
+		if (node == WordTree.NO_NODE)
+			return;
+		if (m_Tree.IsWord(node))
+		{
+			if (m_FoundCount == m_Found.length)
+				m_Found = Arrays.copyOf(m_Found, m_FoundCount * 2);
+			m_Found[m_FoundCount++] = m_Tree.GetChildWordId(parent, letterIndex);
+		}
+		if (!m_Tree.HasChildren(node))
+			return;
+
+		for (int neighbor: m_Neighbors[position])
+		{
+			if (m_Visited[neighbor] || m_LetterIndices[neighbor] == Alphabet.NO_LETTER_INDEX)
+				continue;
+			m_Visited[neighbor] = true;
+			Visit(node, neighbor);
+			m_Visited[neighbor] = false;
+		}
+	}
+
+	/**
+	 * Materializes words from their IDs
+	 * @param ids Word IDs
+	 * @return The words, in the order of the IDs
+	 */
+	public String[] ToWords(int[] ids)
+	{
+		String[] words = new String[ids.length];
+		for (int i = 0; i < ids.length; i++)
+			words[i] = m_Tree.GetWord(ids[i]);
+		return words;
+	}
+}
@@ -0,0 +1,413 @@
+package name.fis.hrdina;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Pattern of words, matched against a word tree by walking the tree directly.
+ *
+ * A pattern is a sequence of these items:
+ * <pre>
+ * a        the letter a
+ * ?        any one letter
+ * [abc]    one of the letters a, b, c
+ * [^abc]   any one letter except a, b, c
+ * *        any number of any letters, including none
+ * </pre>
+ * and the words can be further limited by their length. For example
+ * <code>k?t*</code> matches all words with k and t as their first and third
+ * letter, and <code>pře*</code> with both lengths 6 all six letter words
+ * starting with "pře".
+ *
+ * The search follows only the links of the tree that some position of the
+ * pattern can take, and it doesn't enter subtrees whose longest word is too
+ * short for the rest of the pattern or which only contain words that are too
+ * long. The matching words are found lazily while iterating, so a query with
+ * many results doesn't need to hold them in memory.
+ *
+ * The letters of a pattern are text; runs of letters and the letters of each
+ * set are tokenized by the alphabet of the tree like words are (see
+ * <code>Alphabet.Tokenize</code>), so <code>ch*</code> and <code>[ch]</code>
+ * stand for the multi-letter tile ch if the alphabet has it. The matching words
+ * are letters of the alphabet, like the words of <code>WordTree.Words()</code>,
+ * and the length limits count tiles as single letters.
+ *
+ * Letters of a pattern that are not in the alphabet of the tree match nothing.
+ * A pattern can be used with several trees and from several threads at once.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class WordPattern
+{
+	/** Value of the maximal length that doesn't limit the length */
+	public static final int NO_LIMIT = Integer.MAX_VALUE;
+	/** Maximal number of items of a pattern */
+	public static final int MAX_ITEMS = 63;
+
+	/** An item of the pattern: one letter of a set, or any number of letters of a set */
+	private static class Item
+	{
+		/** Letters of the set */
+		final String Letters;
+		/** If true, the set is all letters except <code>Letters</code> */
+		final boolean Negated;
+		/** If true, the item matches any number of letters */
+		final boolean Repeated;
+		/** If true, the item is a letter written in the pattern as it is, which
+		  * forms a tile together with the neighbouring such letters */
+		final boolean Literal;
+
+		Item(String letters, boolean negated, boolean repeated, boolean literal)
+		{
+			Letters = letters;
+			Negated = negated;
+			Repeated = repeated;
+			Literal = literal;
+		}
+	}
+
+	private final String m_Pattern;
+	private final Item[] m_Items;
+	private final int m_MinLength;
+	private final int m_MaxLength;
+
+	/**
+	 * Creates a pattern without length limits
+	 * @param pattern The pattern
+	 * @throws IllegalArgumentException if the pattern is not valid
+	 */
+	public WordPattern(String pattern)
+	{
+		this(pattern, 0, NO_LIMIT);
+	}
+
+	/**
+	 * @param pattern The pattern
+	 * @param minLength Minimal number of letters of the words
+	 * @param maxLength Maximal number of letters of the words; NO_LIMIT for no limit
+	 * @throws IllegalArgumentException if the pattern is not valid
+	 */
+	public WordPattern(String pattern, int minLength, int maxLength)
+	{
+		m_Pattern = pattern;
+		m_Items = Parse(pattern);
+		m_MinLength = minLength;
+		m_MaxLength = maxLength;
+	}
+
+	/**
+	 * @param pattern The pattern
+	 * @return Its items
+	 * @throws IllegalArgumentException if the pattern is not valid
+	 */
+	private static Item[] Parse(String pattern)
+	{
+		List<Item> items = new ArrayList<>();
+		int i = 0;
+		while (i < pattern.length())
+		{
+			char c = pattern.charAt(i++);
+			if (c == '*')
+			{
+				// Consecutive stars are the same as one
+				if (items.isEmpty() || !items.get(items.size() - 1).Repeated)
+					items.add(new Item("", true, true, false));
+			}
+			else if (c == '?')
+			{
+				items.add(new Item("", true, false, false));
+			}
+			else if (c == '[')
+			{
+				int end = pattern.indexOf(']', i);
+				if (end < 0)
+					throw new IllegalArgumentException(String.format("Unclosed [ in pattern %s", pattern));
+				boolean negated = end > i && pattern.charAt(i) == '^';
+				items.add(new Item(pattern.substring(negated? i + 1: i, end), negated, false, false));
+				i = end + 1;
+			}
+			else if (c == ']')
+			{
+				throw new IllegalArgumentException(String.format("Unexpected ] in pattern %s", pattern));
+			}
+			else
+			{
+				items.add(new Item(String.valueOf(c), false, false, true));
+			}
+		}
+		if (items.size() > MAX_ITEMS)
+			throw new IllegalArgumentException(String.format("Pattern %s has more than %d items", pattern, MAX_ITEMS));
+		return items.toArray(new Item[items.size()]);
+	}
+
+	/**
+	 * Converts the letters of the items to letters of an alphabet. A run of
+	 * literal letters is tokenized as a whole, so it can become fewer items.
+	 * @param items Items of the pattern
+	 * @param alphabet The alphabet
+	 * @return The items with tokenized letters
+	 */
+	private static Item[] Tokenize(Item[] items, Alphabet alphabet)
+	{
+		List<Item> result = new ArrayList<>(items.length);
+		int i = 0;
+		while (i < items.length)
+		{
+			if (items[i].Literal)
+			{
+				StringBuilder run = new StringBuilder();
+				while (i < items.length && items[i].Literal)
+					run.append(items[i++].Letters);
+				for (char letter: alphabet.Tokenize(run.toString()).toCharArray())
+					result.add(new Item(String.valueOf(letter), false, false, true));
+			}
+			else
+			{
+				Item item = items[i++];
+				result.add(new Item(alphabet.Tokenize(item.Letters), item.Negated, item.Repeated, false));
+			}
+		}
+		return result.toArray(new Item[result.size()]);
+	}
+
+	/** @return The pattern as it was given */
+	public String GetPattern()
+	{
+		return m_Pattern;
+	}
+
+	/** @return Minimal number of letters of the words */
+	public int GetMinLength()
+	{
+		return m_MinLength;
+	}
+
+	/** @return Maximal number of letters of the words; NO_LIMIT if there is no limit */
+	public int GetMaxLength()
+	{
+		return m_MaxLength;
+	}
+
+	/**
+	 * Lists the words of a tree that match the pattern, in the order of
+	 * <code>WordTree.Words()</code>. The words are found lazily while iterating.
+	 * @param tree The word tree
+	 * @return The matching words as letters of the alphabet; see
+	 *         <code>Alphabet.Detokenize</code> for their text
+	 */
+	public Iterable<String> Matches(final WordTree tree)
+	{
+		return new Iterable<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new MatchIterator(tree);
+			}
+		};
+	}
+
+	/**
+	 * @param tree The word tree
+	 * @return Number of the words of the tree that match the pattern
+	 */
+	public int Count(WordTree tree)
+	{
+		int count = 0;
+		for (Iterator<String> it = new MatchIterator(tree); it.hasNext(); it.next())
+			count++;
+		return count;
+	}
+
+	/** Depth-first search of the tree, following the positions of the pattern each path can be at */
+	private class MatchIterator implements Iterator<String>
+	{
+		private final WordTree m_Tree;
+		private final Alphabet m_Alphabet;
+		/** Items of the pattern tokenized by the alphabet of the tree */
+		private final Item[] m_Tokens;
+		/** Number of letters the items from each one to the end need at least */
+		private final int[] m_MinRemaining;
+		/** For each item, the bit of the item and of all items reachable from it
+		  * by skipping repeated items; the bit after the last item means a match */
+		private final long[] m_Closure;
+		/** Letter indices of the set of each item, as bits of two longs */
+		private final long[] m_LowLetters, m_HighLetters;
+		/** The bit of the position after the last item */
+		private final long m_MatchBit;
+
+		/** Node on each level of the current path */
+		private int[] m_PathNodes;
+		/** Number of the next link to follow on each level of the current path */
+		private int[] m_PathLinks;
+		/** Positions of the pattern (as bits) the path up to each level can be at */
+		private long[] m_PathStates;
+		/** Number of levels of the current path */
+		private int m_Depth = 0;
+		/** Letters of the current path */
+		private final StringBuilder m_Prefix = new StringBuilder();
+		/** The next word to return; null if the search is finished */
+		private String m_Next;
+
+		MatchIterator(WordTree tree)
+		{
+			m_Tree = tree;
+			m_Alphabet = tree.GetAlphabet();
+			m_Tokens = Tokenize(m_Items, m_Alphabet);
+
+			int n = m_Tokens.length;
+			m_MinRemaining = new int[n + 1];
+			m_Closure = new long[n + 1];
+			m_Closure[n] = 1L << n;
+			for (int i = n - 1; i >= 0; i--)
+			{
+				m_MinRemaining[i] = m_MinRemaining[i + 1] + (m_Tokens[i].Repeated? 0: 1);
+				m_Closure[i] = (1L << i) | (m_Tokens[i].Repeated? m_Closure[i + 1]: 0);
+			}
+
+			m_LowLetters = new long[n];
+			m_HighLetters = new long[n];
+			for (int i = 0; i < n; i++)
+			{
+				Item item = m_Tokens[i];
+				for (int k = 0; k < item.Letters.length(); k++)
+				{
+					int letter = m_Alphabet.GetIndexOfLetter(item.Letters.charAt(k));
+					if (letter == Alphabet.NO_LETTER_INDEX)
+						continue;
+					if (letter < 64)
+						m_LowLetters[i] |= 1L << letter;
+					else
+						m_HighLetters[i] |= 1L << (letter - 64);
+				}
+				if (item.Negated)
+				{
+					m_LowLetters[i] = ~m_LowLetters[i];
+					m_HighLetters[i] = ~m_HighLetters[i];
+				}
+			}
+			m_MatchBit = 1L << n;
+
+			m_PathNodes = new int[16];
+			m_PathLinks = new int[16];
+			m_PathStates = new long[16];
+			if (tree.GetNodeCount() > 0)
+			{
+				long states = m_Closure[0];
+				// The empty word is never a word of the tree, but the root may still be entered
+				if (CanContinue(tree.GetRoot(), states, 0))
+					Push(tree.GetRoot(), states);
+			}
+			m_Next = Advance();
+		}
+
+		/** Appends the given node to the current path */
+		private void Push(int node, long states)
+		{
+			if (m_Depth == m_PathNodes.length)
+			{
+				m_PathNodes = Arrays.copyOf(m_PathNodes, m_Depth * 2);
+				m_PathLinks = Arrays.copyOf(m_PathLinks, m_Depth * 2);
+				m_PathStates = Arrays.copyOf(m_PathStates, m_Depth * 2);
+			}
+			m_PathNodes[m_Depth] = node;
+			m_PathLinks[m_Depth] = 0;
+			m_PathStates[m_Depth] = states;
+			m_Depth++;
+		}
+
+		/**
+		 * @param states Positions of the pattern
+		 * @param letter Letter index of the next letter
+		 * @return Positions of the pattern after the letter; 0 if none
+		 */
+		private long Step(long states, int letter)
+		{
+			long next = 0;
+			for (long rest = states & ~m_MatchBit; rest != 0; rest &= rest - 1)
+			{
+				int i = Long.numberOfTrailingZeros(rest);
+				long set = letter < 64? m_LowLetters[i] >>> letter: m_HighLetters[i] >>> (letter - 64);
+				if ((set & 1) != 0)
+					next |= m_Tokens[i].Repeated? m_Closure[i]: m_Closure[i + 1];
+			}
+			return next;
+		}
+
+		/**
+		 * @param node A node of the tree
+		 * @param states Positions of the pattern the path to the node can be at
+		 * @param length Length of the path to the node
+		 * @return true if a longer path through the node can still match
+		 */
+		private boolean CanContinue(int node, long states, int length)
+		{
+			long open = states & ~m_MatchBit;
+			if (open == 0 || !m_Tree.HasChildren(node))
+				return false;
+			// At least one more letter, and as many as the shortest rest of the pattern needs
+			int need = Integer.MAX_VALUE;
+			for (long rest = open; rest != 0; rest &= rest - 1)
+				need = Math.min(need, m_MinRemaining[Long.numberOfTrailingZeros(rest)]);
+			need = Math.max(need, 1);
+			return need <= m_Tree.GetLongestContinuation(node) && need <= m_MaxLength - length;
+		}
+
+		/** @return The next matching word in the order of the tree or null if there is none */
+		private String Advance()
+		{
+			while (m_Depth > 0)
+			{
+				int level = m_Depth - 1;
+				int node = m_PathNodes[level];
+				if (m_PathLinks[level] >= m_Tree.GetChildCount(node))
+				{
+					// All links of this node are done, go back up
+					m_Depth--;
+					if (level > 0)
+						m_Prefix.setLength(m_Prefix.length() - 1);
+					continue;
+				}
+				int i = m_PathLinks[level]++;
+				int letter = m_Tree.GetChildLetter(node, i);
+				long states = Step(m_PathStates[level], letter);
+				if (states == 0)
+					continue;
+				int child = m_Tree.GetChildNode(node, i);
+				int length = level + 1;
+				m_Prefix.append(m_Alphabet.GetLetterByIndex(letter));
+				String word = (states & m_MatchBit) != 0 && m_Tree.IsWord(child) && length >= m_MinLength?
+					m_Prefix.toString(): null;
+				if (CanContinue(child, states, length))
+					Push(child, states);
+				else
+					m_Prefix.setLength(m_Prefix.length() - 1);
+				if (word != null)
+					return word;
+			}
+			return null;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return m_Next != null;
+		}
+
+		@Override
+		public String next()
+		{
+			if (m_Next == null)
+				throw new NoSuchElementException();
+			String word = m_Next;
+			m_Next = Advance();
+			return word;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -2,76 +2,29 @@ package name.fis.hrdina;
 
 import java.io.*;
 import java.util.*;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 /**
  * Search tree containing only and all valid words.
+ *
+ * The tree is kept in memory in exactly the format of wordtree.bin: an array of
+ * integers where the first N items are node headers and the rest are links.
+ * A node header consists of the number of children (lowest 7 bits), the complete
+ * word flag (bit 7) and the index of the node's first link (upper 24 bits).
+ * A link consists of the letter index (lowest 7 bits) and the index of the
+ * sub-node (upper 24 bits). The image is never modified after loading, so the
+ * same image can be shared by several trees.
+ *
+ * Besides checking whole strings, the tree can be walked node by node (see
+ * <code>GetChild</code>). Links to node 0 (complete words that can't be
+ * continued) lead to a virtual leaf node numbered <code>GetNodeCount()</code>
+ * in this interface, so that node 0 is always the root.
  * @author Filip Simek <filip@fis.name>
  */
-public class WordTree {
+public class WordTree implements IWordLookup {
 
 	// <editor-fold desc="Nested classes">
-	/** A node of the search tree */
-	private class Node {
-		/** Link to a single sub-node for a single letter */
-		private class Link {
-			/** The letter to which the link belongs */
-			public char Letter;
-			/** Reference to the sub-node */
-			public int NextNode;
-
-			public Link(char letter, int nextNode) {
-				Letter = letter;
-				NextNode = nextNode;
-			}
-		}
-
-		/** Complete word flag. If true, this node represents a complete word */
-		private final boolean m_Complete;
-		/** List of links to subnodes for all valid next letters */
-		private final List<Link> m_Links;
-
-		/**
-		 * Creates the node
-		 * @param complete Set to true if this node represents a complete word; use false otherwise
-		 * @param numChildren Number of children that this node will have
-		 */
-		public Node(boolean complete, int numChildren) {
-			m_Complete = complete;
-			m_Links = new ArrayList<>(numChildren);
-		}
-
-		/**
-		 * Add a child node (link) to the node
-		 * @param letter The letter to which the link belongs
-		 * @param dest Index of the child node
-		 */
-		public void AddLink(char letter, int dest) {
-			m_Links.add(new Link(letter, dest));
-		}
-
-		/** @return True if this node represents a complete word. False otherwise */
-		public boolean getComplete() {
-			return m_Complete;
-		}
-
-		/**
-		 * Returns index of the child node for the given letter
-		 * @param letter The next letter of the word
-		 * @return Index of the child node for the given letter
-		 */
-		public int getNext(char letter) {
-			for (Link l : m_Links) {
-				if (l.Letter == letter)
-					return l.NextNode;
-			}
-			return -1;
-		}
-	}
-
 	/** Tuple used as a result of the <code>CheckWord</code> method */
-	public class WordSearchResult {
+	public static class WordSearchResult {
 		/** If true, the string was a perspective prefix (i.e. can be prolonged
 		 * to a valid word by appending some letters) */
 		public boolean IsPerspectivePrefix;
@@ -86,12 +39,68 @@ public class WordTree {
 	// </editor-fold>
 
 	// <editor-fold desc="Private members">
-	/** All nodes of the tree. The root node is the 0th element */
-	private List<Node> m_Nodes;
+	/** Mask of the number of children in a node header */
+	private static final int CHILD_COUNT_MASK = 127;
+	/** Complete word flag in a node header */
+	private static final int COMPLETE_FLAG = 128;
+	/** Mask of the letter index in a link */
+	private static final int LETTER_MASK = 127;
+	/** Parameters of the 64-bit FNV-1a hash of the fingerprint */
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** All nodes of the tree followed by all links. The root node is the 0th element */
+	private int[] m_Image;
+	/** Number of nodes (node headers) at the beginning of the image */
+	private int m_NodeCount;
+	/** Alphabet used to translate letters to letter indices */
+	private Alphabet m_Alphabet;
+	/** Per-node bounds of the words below each node; computed on first use */
+	private volatile NodeBounds m_Bounds;
+	/** Word IDs of all nodes and links; computed on first use */
+	private volatile WordIds m_WordIds;
 	// </editor-fold>
 
+	/** Value returned by <code>GetChild</code> if there is no such child */
+	public static final int NO_NODE = -1;
+	/** Value returned by <code>GetWordId</code> for strings that are not words */
+	public static final int NO_WORD_ID = -1;
+
+	/** Upper bounds of what can still be appended to the word of each node */
+	private static class NodeBounds {
+		/** Maximal number of letters that can be appended to form a complete word */
+		final int[] LongestContinuation;
+		/** Maximal point value of the letters that can be appended to form a complete word */
+		final int[] BestContinuationValue;
+
+		NodeBounds(int size) {
+			LongestContinuation = new int[size];
+			BestContinuationValue = new int[size];
+		}
+	}
+
+	/** Numbering of the words in the order of <code>Words()</code> */
+	private static class WordIds {
+		/** Parallel to the image: for a node, the number of words that come
+		  * before the node's subtree (which is the ID of the node's word if it is
+		  * complete); for a link, the same for the node it leads to (which is the
+		  * ID of the word if the link leads to node 0) */
+		final int[] FirstId;
+		/** Number of words of the tree */
+		final int Count;
+		/** Hash of the letters of the alphabet and the words in the order of their IDs */
+		final long Fingerprint;
+
+		WordIds(int[] firstId, int count, long fingerprint) {
+			FirstId = firstId;
+			Count = count;
+			Fingerprint = fingerprint;
+		}
+	}
+
 	public WordTree() {
-		m_Nodes = null;
+		m_Image = null;
+		m_NodeCount = 0;
 	}
 
 	/**
@@ -103,42 +112,197 @@ public class WordTree {
 	 */
 	public boolean Load(InputStream wordTreeStr, Alphabet alphabet)
 		throws IOException
-	{	
-		byte[] nodeData = new byte[wordTreeStr.available()];
-		wordTreeStr.read(nodeData);
-		int[] nodeValues = new int[nodeData.length / 4];
-		ByteBuffer.wrap(nodeData).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(nodeValues);
-		int numNodes = nodeValues[0] >> 8;
-		m_Nodes = new ArrayList<>(numNodes);
-		
-		for (int i = 0; i < numNodes; i++) {
-			int numChildren = nodeValues[i] & 127;
-			boolean completeFlag = (nodeValues[i] & 128) == 128;
-			int nodePointer = nodeValues[i] >> 8;
-			Node node = new Node(completeFlag, numChildren);
-			for (int j = 0; j < numChildren; j++) {
-				int letterIndex = nodeValues[nodePointer + j] & 127;
-				char letter = alphabet.GetLetterByIndex(letterIndex);
-				int dest = nodeValues[nodePointer + j] >> 8;
-				node.AddLink(letter, dest);
+	{
+		LoadImage(Util.ReadLEInts(Util.ReadAll(wordTreeStr)), alphabet);
+		return true;
+	}
+
+	/**
+	 * Initializes the wordtree with an already decoded image of wordtree.bin
+	 * (e.g. one produced by <code>WordTreeBuilder</code>). The image is used
+	 * directly, without copying, and must not be modified afterwards.
+	 * @param nodeValues Contents of wordtree.bin as an array of integers
+	 * @param alphabet Alphabet associated with the wordtree (needed to decode letters)
+	 */
+	public void LoadImage(int[] nodeValues, Alphabet alphabet)
+	{
+		m_Image = nodeValues;
+		m_NodeCount = nodeValues.length == 0? 0: nodeValues[0] >>> 8;
+		m_Alphabet = alphabet;
+		m_Bounds = null;
+		m_WordIds = null;
+	}
+
+	/** @return The image of the tree in the format of wordtree.bin. Must not be modified. */
+	public int[] GetImage() {
+		return m_Image;
+	}
+
+	/** @return Alphabet associated with the tree */
+	public Alphabet GetAlphabet() {
+		return m_Alphabet;
+	}
+
+	/** @return Number of nodes of the tree; 0 if the tree was not loaded */
+	public int GetNodeCount() {
+		return m_NodeCount;
+	}
+
+	/**
+	 * Returns index of the child node for the given letter
+	 * @param node Index of the parent node
+	 * @param letterIndex Index of the next letter of the word
+	 * @return Index of the child node for the given letter or -1 if there is none
+	 */
+	private int GetNext(int node, int letterIndex) {
+		int link = FindLink(node, letterIndex);
+		return link == -1? -1: m_Image[link] >>> 8;
+	}
+
+	// <editor-fold desc="Node by node traversal">
+	/** @return Index of the root node */
+	public int GetRoot() {
+		return 0;
+	}
+
+	/**
+	 * Follows a link from the given node
+	 * @param node Index of the parent node
+	 * @param letterIndex Index of the next letter of the word
+	 * @return Index of the child node for the given letter or NO_NODE if there is none
+	 */
+	public int GetChild(int node, int letterIndex) {
+		if (node >= m_NodeCount)
+			return NO_NODE;
+		int next = GetNext(node, letterIndex);
+		return next == 0? m_NodeCount: next;
+	}
+
+	/**
+	 * @param node Index of a node
+	 * @return Number of links leading from the node
+	 */
+	public int GetChildCount(int node) {
+		return node >= m_NodeCount? 0: m_Image[node] & CHILD_COUNT_MASK;
+	}
+
+	/**
+	 * @param node Index of a node
+	 * @param i Number of the link, between 0 and <code>GetChildCount(node) - 1</code>
+	 * @return Letter index of the i-th link of the node
+	 */
+	public int GetChildLetter(int node, int i) {
+		return m_Image[(m_Image[node] >>> 8) + i] & LETTER_MASK;
+	}
+
+	/**
+	 * @param node Index of a node
+	 * @param i Number of the link, between 0 and <code>GetChildCount(node) - 1</code>
+	 * @return Index of the node the i-th link of the node leads to
+	 */
+	public int GetChildNode(int node, int i) {
+		int next = m_Image[(m_Image[node] >>> 8) + i] >>> 8;
+		return next == 0? m_NodeCount: next;
+	}
+
+	/**
+	 * @param node Index of a node
+	 * @return true if the path to the node forms a complete word
+	 */
+	public boolean IsWord(int node) {
+		return node >= m_NodeCount || (m_Image[node] & COMPLETE_FLAG) != 0;
+	}
+
+	/**
+	 * @param node Index of a node
+	 * @return true if the word of the node can be prolonged to another valid word
+	 */
+	public boolean HasChildren(int node) {
+		return node < m_NodeCount && (m_Image[node] & CHILD_COUNT_MASK) != 0;
+	}
+
+	/**
+	 * @param node Index of a node
+	 * @return Maximal number of letters that can be appended to the word of the node
+	 *         so that it forms a complete word; 0 if there are none
+	 */
+	public int GetLongestContinuation(int node) {
+		return GetBounds().LongestContinuation[node];
+	}
+
+	/**
+	 * @param node Index of a node
+	 * @return Maximal point value of letters that can be appended to the word of
+	 *         the node so that it forms a complete word; 0 if there are none
+	 */
+	public int GetBestContinuationValue(int node) {
+		return GetBounds().BestContinuationValue[node];
+	}
+
+	/** @return The per-node bounds, computing them on the first call */
+	private NodeBounds GetBounds() {
+		NodeBounds bounds = m_Bounds;
+		if (bounds == null) {
+			// Two threads may compute the bounds at the same time; the result is the same
+			bounds = ComputeBounds();
+			m_Bounds = bounds;
+		}
+		return bounds;
+	}
+
+	/** Computes the bounds of all nodes bottom-up (the leaf node has zero bounds) */
+	private NodeBounds ComputeBounds() {
+		NodeBounds bounds = new NodeBounds(m_NodeCount + 1);
+		if (m_NodeCount == 0)
+			return bounds;
+
+		// Pre-order of all nodes; in the reverse order every child comes before its parent
+		int[] order = new int[m_NodeCount];
+		int orderSize = 0;
+		int[] stack = new int[m_NodeCount];
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+		while (stackSize > 0) {
+			int node = stack[--stackSize];
+			order[orderSize++] = node;
+			for (int i = 0; i < GetChildCount(node); i++) {
+				int child = GetChildNode(node, i);
+				if (child < m_NodeCount)
+					stack[stackSize++] = child;
 			}
-			m_Nodes.add(node);
 		}
-		return true;
+
+		for (int k = orderSize - 1; k >= 0; k--) {
+			int node = order[k];
+			int longest = 0, best = 0;
+			for (int i = 0; i < GetChildCount(node); i++) {
+				int child = GetChildNode(node, i);
+				int value = m_Alphabet.GetLetterValue(m_Alphabet.GetLetterByIndex(GetChildLetter(node, i)));
+				longest = Math.max(longest, 1 + bounds.LongestContinuation[child]);
+				best = Math.max(best, value + bounds.BestContinuationValue[child]);
+			}
+			bounds.LongestContinuation[node] = longest;
+			bounds.BestContinuationValue[node] = best;
+		}
+		return bounds;
 	}
+	// </editor-fold>
 
 	/**
 	 * Checks, whether the given string is a valid word or prefix of a word.
 	 * @param word The string to be checked
 	 * @return A tuple telling, whether the string was a word or a prefix (or neither or both)
 	 */
+	@Override
 	public WordSearchResult CheckWord(String word) {
 		WordSearchResult result = new WordSearchResult();
+		if (m_NodeCount == 0)
+			return result;
 
 		// Trace the tree from the root
 		int currentNode = 0;
 		boolean wordStart = true;
-		for (char c : word.toCharArray()) {
+		for (int i = 0; i < word.length(); i++) {
 			if (currentNode == 0 && !wordStart) {
 				// We mustn't visit node 0 except for the very start of the search.
 				// If we do visit it here again, it means that the prefix up to the
@@ -148,7 +312,8 @@ public class WordTree {
 			}
 			wordStart = false;
 
-			int link = m_Nodes.get(currentNode).getNext(c);
+			int letterIndex = m_Alphabet.GetIndexOfLetter(word.charAt(i));
+			int link = letterIndex == Alphabet.NO_LETTER_INDEX? -1: GetNext(currentNode, letterIndex);
 			if (link == -1) {
 				// No continuation for letter c from the current node. Invalid word/prefix
 				return result;
@@ -162,7 +327,7 @@ public class WordTree {
 			// If we've ended up in node 0, the string is a valid word only, because
 			// there will be no way of continuing from node 0, so it can't be a prefix
 			result.IsValidWord = true;
-		} else if (m_Nodes.get(currentNode).getComplete()) {
+		} else if ((m_Image[currentNode] & COMPLETE_FLAG) != 0) {
 			// If we've ended up in a node that is not node 0 but has the complete flag
 			// then the string is indeed a complete word, but since this is not node 0,
 			// there also must be some child nodes to continue to (due to the construction
@@ -176,4 +341,291 @@ public class WordTree {
 
 		return result;
 	}
+
+	// <editor-fold desc="Word IDs">
+	/*
+	 * Every word has a dense ID between 0 and GetWordCount() - 1, its position
+	 * in the order of Words(). The ID of a word is the number of words that come
+	 * before it, which is the sum over the path of the words in the subtrees of
+	 * the earlier links, plus the complete words on the path itself. These sums
+	 * are stored for each node and link, so a word is numbered by walking its
+	 * path and numbers are decoded by a binary search over the links of each
+	 * node on the way down.
+	 */
+
+	/** @return Number of words of the tree */
+	public int GetWordCount() {
+		return GetWordIds().Count;
+	}
+
+	/**
+	 * Identifies the contents of the tree, e.g. to check that word IDs stored
+	 * somewhere are decoded with the dictionary they were made with. Trees of
+	 * the same alphabet and words have the same fingerprint, whatever the order
+	 * of their nodes in the image (see <code>WordTreeLayout</code>).
+	 * @return 64-bit hash of the letters of the alphabet and of the words in the order of their IDs
+	 */
+	public long GetFingerprint() {
+		return GetWordIds().Fingerprint;
+	}
+
+	/**
+	 * @param word A string
+	 * @return ID of the word; NO_WORD_ID if it is not a valid word
+	 */
+	public int GetWordId(String word) {
+		if (m_NodeCount == 0 || word.isEmpty())
+			return NO_WORD_ID;
+		int[] ids = GetWordIds().FirstId;
+		int node = 0;
+		for (int i = 0; i < word.length(); i++) {
+			int letterIndex = m_Alphabet.GetIndexOfLetter(word.charAt(i));
+			int link = letterIndex == Alphabet.NO_LETTER_INDEX? -1: FindLink(node, letterIndex);
+			if (link == -1)
+				return NO_WORD_ID;
+			int next = m_Image[link] >>> 8;
+			if (next == 0) {
+				// Complete word without continuation; it must be the end of the string
+				if (i != word.length() - 1)
+					return NO_WORD_ID;
+				return ids[link];
+			}
+			node = next;
+		}
+		return (m_Image[node] & COMPLETE_FLAG) != 0? ids[node]: NO_WORD_ID;
+	}
+
+	/**
+	 * Node by node form of <code>GetWordId</code> for solvers walking the tree
+	 * @param node Index of a node
+	 * @param letterIndex Index of the next letter
+	 * @return ID of the word formed by appending the letter to the word of the
+	 *         node; NO_WORD_ID if that is not a valid word
+	 */
+	public int GetChildWordId(int node, int letterIndex) {
+		if (node >= m_NodeCount)
+			return NO_WORD_ID;
+		int link = FindLink(node, letterIndex);
+		if (link == -1)
+			return NO_WORD_ID;
+		int next = m_Image[link] >>> 8;
+		if (next != 0 && (m_Image[next] & COMPLETE_FLAG) == 0)
+			return NO_WORD_ID;
+		return GetWordIds().FirstId[link];
+	}
+
+	/**
+	 * Reverse lookup of a word ID
+	 * @param id ID of a word
+	 * @return The word; null if there is no word with the ID
+	 */
+	public String GetWord(int id) {
+		WordIds wordIds = GetWordIds();
+		if (id < 0 || id >= wordIds.Count)
+			return null;
+		int[] ids = wordIds.FirstId;
+		StringBuilder word = new StringBuilder();
+		int node = 0;
+		while (true) {
+			if ((m_Image[node] & COMPLETE_FLAG) != 0 && ids[node] == id)
+				return word.toString();
+			// The last link whose subtree starts at or before the ID
+			int header = m_Image[node];
+			int lo = header >>> 8;
+			int hi = lo + (header & CHILD_COUNT_MASK) - 1;
+			while (lo < hi) {
+				int mid = (lo + hi + 1) >>> 1;
+				if (ids[mid] <= id)
+					lo = mid;
+				else
+					hi = mid - 1;
+			}
+			int link = m_Image[lo];
+			word.append(m_Alphabet.GetLetterByIndex(link & LETTER_MASK));
+			node = link >>> 8;
+			if (node == 0)
+				return word.toString();
+		}
+	}
+
+	/**
+	 * Returns index of the link of the given node for the given letter
+	 * @param node Index of the parent node
+	 * @param letterIndex Index of the next letter of the word
+	 * @return Index of the link in the image or -1 if there is none
+	 */
+	private int FindLink(int node, int letterIndex) {
+		int header = m_Image[node];
+		int first = header >>> 8;
+		int last = first + (header & CHILD_COUNT_MASK);
+		for (int i = first; i < last; i++) {
+			if ((m_Image[i] & LETTER_MASK) == letterIndex)
+				return i;
+		}
+		return -1;
+	}
+
+	/** @return The word numbering, computing it on the first call */
+	private WordIds GetWordIds() {
+		WordIds wordIds = m_WordIds;
+		if (wordIds == null) {
+			// Two threads may compute the numbering at the same time; the result is the same
+			wordIds = ComputeWordIds();
+			m_WordIds = wordIds;
+		}
+		return wordIds;
+	}
+
+	/**
+	 * Numbers the words by a pre-order traversal in the order of the links.
+	 * The fingerprint hashes (FNV-1a) the letters of the alphabet and then every
+	 * link of the traversal as its depth, letter and whether it ends a word,
+	 * which describes the words and their order.
+	 */
+	private WordIds ComputeWordIds() {
+		int[] ids = new int[m_Image == null? 0: m_Image.length];
+		long fingerprint = FNV_OFFSET;
+		if (m_Alphabet != null) {
+			for (int i = 0; i < m_Alphabet.GetSize(); i++)
+				fingerprint = (fingerprint ^ m_Alphabet.GetLetterByIndex(i)) * FNV_PRIME;
+		}
+		if (m_NodeCount == 0)
+			return new WordIds(ids, 0, fingerprint);
+
+		int[] pathLinks = new int[32];
+		int[] pathEnds = new int[32];
+		int depth = 0;
+		int count = 0;
+		int node = 0;
+		while (true) {
+			// Enter the node: its own word comes before all words below it
+			ids[node] = count;
+			if ((m_Image[node] & COMPLETE_FLAG) != 0)
+				count++;
+			if (depth == pathLinks.length) {
+				pathLinks = Arrays.copyOf(pathLinks, depth * 2);
+				pathEnds = Arrays.copyOf(pathEnds, depth * 2);
+			}
+			int header = m_Image[node];
+			pathLinks[depth] = header >>> 8;
+			pathEnds[depth] = (header >>> 8) + (header & CHILD_COUNT_MASK);
+			depth++;
+
+			// Find the next node to enter, numbering the links to node 0 on the way
+			node = 0;
+			while (node == 0 && depth > 0) {
+				int level = depth - 1;
+				if (pathLinks[level] >= pathEnds[level]) {
+					depth--;
+					continue;
+				}
+				int link = pathLinks[level]++;
+				ids[link] = count;
+				node = m_Image[link] >>> 8;
+				if (node == 0)
+					count++;
+				boolean complete = node == 0 || (m_Image[node] & COMPLETE_FLAG) != 0;
+				fingerprint = (fingerprint ^ ((level << 8 | m_Image[link] & LETTER_MASK) << 1 | (complete? 1: 0)))
+					* FNV_PRIME;
+			}
+			if (node == 0)
+				return new WordIds(ids, count, fingerprint);
+		}
+	}
+	// </editor-fold>
+
+	/**
+	 * Lists all words of the tree in the order of the links (i.e. alphabetically
+	 * by character). The words are generated lazily while iterating.
+	 * @return All complete words stored in the tree
+	 */
+	public Iterable<String> Words() {
+		return new Iterable<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new WordIterator();
+			}
+		};
+	}
+
+	/** Depth-first traversal of the tree yielding complete words */
+	private class WordIterator implements Iterator<String> {
+		/** Index of the next link to follow on each level of the current path */
+		private int[] m_PathLinks;
+		/** Index after the last link of the node on each level of the current path */
+		private int[] m_PathEnds;
+		/** Number of levels of the current path */
+		private int m_Depth;
+		/** Letters of the current path */
+		private final StringBuilder m_Prefix = new StringBuilder();
+		/** The next word to return; null if the traversal is finished */
+		private String m_Next;
+
+		public WordIterator() {
+			m_PathLinks = new int[32];
+			m_PathEnds = new int[32];
+			m_Depth = 0;
+			if (m_NodeCount > 0)
+				Push(0);
+			m_Next = Advance();
+		}
+
+		/** Appends the given node to the current path */
+		private void Push(int node) {
+			if (m_Depth == m_PathLinks.length) {
+				m_PathLinks = Arrays.copyOf(m_PathLinks, m_Depth * 2);
+				m_PathEnds = Arrays.copyOf(m_PathEnds, m_Depth * 2);
+			}
+			int header = m_Image[node];
+			m_PathLinks[m_Depth] = header >>> 8;
+			m_PathEnds[m_Depth] = (header >>> 8) + (header & CHILD_COUNT_MASK);
+			m_Depth++;
+		}
+
+		/** @return The next complete word in the traversal order or null if there is none */
+		private String Advance() {
+			while (m_Depth > 0) {
+				int level = m_Depth - 1;
+				if (m_PathLinks[level] >= m_PathEnds[level]) {
+					// All links of this node are done, go back up
+					m_Depth--;
+					if (level > 0)
+						m_Prefix.setLength(m_Prefix.length() - 1);
+					continue;
+				}
+				int link = m_Image[m_PathLinks[level]++];
+				m_Prefix.append(m_Alphabet.GetLetterByIndex(link & LETTER_MASK));
+				int next = link >>> 8;
+				if (next == 0) {
+					// Link to node 0 stands for a complete word without continuation
+					String word = m_Prefix.toString();
+					m_Prefix.setLength(m_Prefix.length() - 1);
+					return word;
+				}
+				Push(next);
+				if ((m_Image[next] & COMPLETE_FLAG) != 0)
+					return m_Prefix.toString();
+			}
+			return null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return m_Next != null;
+		}
+
+		@Override
+		public String next() {
+			if (m_Next == null)
+				throw new NoSuchElementException();
+			String word = m_Next;
+			m_Next = Advance();
+			return word;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
 }
@@ -0,0 +1,119 @@
+package name.fis.hrdina;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Builds a word tree image in the same binary format that tree_builder.py writes
+ * to wordtree.bin, so that it can be loaded by <code>WordTree</code> without
+ * going through a file. Words can only consist of letters of the given alphabet.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class WordTreeBuilder {
+	/** A node of the tree being built */
+	private static class Node {
+		/** True if the path to this node forms a complete word */
+		boolean Complete = false;
+		/** Sub-nodes ordered by letter (the same order tidy_tree produces) */
+		final TreeMap<Character, Node> Children = new TreeMap<>();
+	}
+
+	/** Alphabet used to translate letters to letter indices */
+	private final Alphabet m_Alphabet;
+	private final Node m_Root;
+	private int m_WordCount;
+
+	/**
+	 * @param alphabet Alphabet of the words that will be added
+	 */
+	public WordTreeBuilder(Alphabet alphabet) {
+		m_Alphabet = alphabet;
+		m_Root = new Node();
+		m_WordCount = 0;
+	}
+
+	/**
+	 * Adds a single word to the tree
+	 * @param word The word to add
+	 * @throws IllegalArgumentException if the word contains a letter that is not in the alphabet
+	 */
+	public void AddWord(String word) {
+		if (word.isEmpty())
+			throw new IllegalArgumentException("Can't add an empty word");
+		Node node = m_Root;
+		for (char c : word.toCharArray()) {
+			if (m_Alphabet.GetIndexOfLetter(c) == Alphabet.NO_LETTER_INDEX)
+				throw new IllegalArgumentException(String.format("Letter '%c' of word '%s' is not in the alphabet", c, word));
+			Node next = node.Children.get(c);
+			if (next == null) {
+				next = new Node();
+				node.Children.put(c, next);
+			}
+			node = next;
+		}
+		if (!node.Complete)
+			m_WordCount++;
+		node.Complete = true;
+	}
+
+	/** @return Number of distinct words added so far */
+	public int GetWordCount() {
+		return m_WordCount;
+	}
+
+	/**
+	 * Serializes the tree. Like in tidy_tree, nodes without children are not
+	 * emitted at all; links to them are replaced by links to node 0.
+	 * @return Image of the tree as an array of little-endian ints of wordtree.bin
+	 */
+	public int[] BuildImage() {
+		// Number the non-empty nodes in breadth-first order; the root is node 0
+		List<Node> order = new ArrayList<>();
+		Map<Node, Integer> numbers = new IdentityHashMap<>();
+		Queue<Node> queue = new ArrayDeque<>();
+		queue.add(m_Root);
+		int numLinks = 0;
+		while (!queue.isEmpty()) {
+			Node node = queue.remove();
+			numbers.put(node, order.size());
+			order.add(node);
+			numLinks += node.Children.size();
+			for (Node child : node.Children.values()) {
+				if (!child.Children.isEmpty())
+					queue.add(child);
+			}
+		}
+		if (order.size() >= (1 << 24))
+			throw new IllegalStateException(String.format("Too many tree nodes (%d). At most 2^24 are supported", order.size()));
+
+		// Node headers first, then all links of all nodes in a consecutive order
+		int[] image = new int[order.size() + numLinks];
+		int pointer = order.size();
+		for (int i = 0; i < order.size(); i++) {
+			Node node = order.get(i);
+			image[i] = node.Children.size() | (node.Complete? 128: 0) | (pointer << 8);
+			for (Map.Entry<Character, Node> link : node.Children.entrySet()) {
+				Node child = link.getValue();
+				int dest = child.Children.isEmpty()? 0: numbers.get(child);
+				image[pointer] = m_Alphabet.GetIndexOfLetter(link.getKey()) | (dest << 8);
+				pointer++;
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Builds a ready-to-use word tree
+	 * @return New word tree containing all words added so far
+	 */
+	public WordTree Build() {
+		WordTree tree = new WordTree();
+		tree.LoadImage(BuildImage(), m_Alphabet);
+		return tree;
+	}
+}
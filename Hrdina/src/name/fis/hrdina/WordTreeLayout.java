@@ -0,0 +1,224 @@
+package name.fis.hrdina;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renumbers the nodes of a word tree so that the nodes a solver visits
+ * together are also close to each other in memory.
+ *
+ * The node numbering of wordtree.bin follows the order in which tree_builder
+ * created the nodes, so a node and its children usually lie far apart and
+ * almost every step of a search is a cache miss. The new layout keeps the
+ * shallow levels, which every search passes through, together in breadth-first
+ * order at the start of the image. Below them, every subtree is laid out
+ * depth-first, following the most frequently visited child first, so the path
+ * a search most likely takes continues in the next node. The links are stored
+ * in the order of their nodes, so a node's links lie next to those of its
+ * neighbours as well.
+ *
+ * The links of each node keep their order, so the words, their order in
+ * <code>WordTree.Words()</code> and their IDs are the same in both trees.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class WordTreeLayout
+{
+	/** Number of levels laid out breadth-first by default */
+	public static final int DEFAULT_BFS_LEVELS = 3;
+
+	/** Mask of the number of children in a node header */
+	private static final int CHILD_COUNT_MASK = 127;
+	/** Complete word flag in a node header */
+	private static final int COMPLETE_FLAG = 128;
+
+	private WordTreeLayout()
+	{
+	}
+
+	/**
+	 * Counts how many times the solver visits each node of the tree when
+	 * solving the given boards
+	 * @param tree The word tree
+	 * @param boards Letters of sample boards, row by row
+	 * @param edgeSize Size of the edge of the boards
+	 * @return Number of visits of each node, indexed by the node
+	 */
+	public static long[] MeasureAccesses(WordTree tree, List<char[]> boards, int edgeSize)
+	{
+		long[] counts = new long[tree.GetNodeCount() + 1];
+		if (tree.GetNodeCount() == 0)
+			return counts;
+		Alphabet alphabet = tree.GetAlphabet();
+		int size = edgeSize * edgeSize;
+		int[][] neighbors = GameBoard.GetNeighborTable(edgeSize);
+		int[] letterIndices = new int[size];
+		boolean[] visited = new boolean[size];
+
+		for (char[] board: boards)
+		{
+			for (int i = 0; i < size; i++)
+				letterIndices[i] = alphabet.GetIndexOfLetter(board[i]);
+			counts[tree.GetRoot()]++;
+			for (int i = 0; i < size; i++)
+			{
+				if (letterIndices[i] == Alphabet.NO_LETTER_INDEX)
+					continue;
+				visited[i] = true;
+				Visit(tree, tree.GetRoot(), i, letterIndices, neighbors, visited, counts);
+				visited[i] = false;
+			}
+		}
+		return Arrays.copyOf(counts, tree.GetNodeCount());
+	}
+
+	/** Recursive step of <code>MeasureAccesses</code>, the same search as <code>WordIdSolver</code> does */
+	private static void Visit(WordTree tree, int parent, int position, int[] letterIndices,
+		int[][] neighbors, boolean[] visited, long[] counts)
+	{
+		int node = tree.GetChild(parent, letterIndices[position]);
+		if (node == WordTree.NO_NODE)
+			return;
+		counts[node]++;
+		if (!tree.HasChildren(node))
+			return;
+		for (int neighbor: neighbors[position])
+		{
+			if (visited[neighbor] || letterIndices[neighbor] == Alphabet.NO_LETTER_INDEX)
+				continue;
+			visited[neighbor] = true;
+			Visit(tree, node, neighbor, letterIndices, neighbors, visited, counts);
+			visited[neighbor] = false;
+		}
+	}
+
+	/**
+	 * Builds an image of the tree with the nodes renumbered for locality
+	 * @param tree The word tree
+	 * @param bfsLevels Number of levels (including the root) laid out breadth-first
+	 * @param weights Access frequency of each node (see <code>MeasureAccesses</code>);
+	 *        more frequent children are placed first. null to keep the order of the links.
+	 * @return The new image in the format of wordtree.bin
+	 */
+	public static int[] Relayout(WordTree tree, int bfsLevels, long[] weights)
+	{
+		int nodeCount = tree.GetNodeCount();
+		int[] image = tree.GetImage();
+		if (nodeCount == 0)
+			return image.clone();
+
+		// New position of every node: order[newIndex] = oldIndex
+		int[] order = new int[nodeCount];
+		int count = 0;
+		order[count++] = tree.GetRoot();
+
+		// The shallow levels breadth-first, level by level
+		int levelStart = 0;
+		for (int level = 1; level < bfsLevels && levelStart < count; level++)
+		{
+			int levelEnd = count;
+			for (int k = levelStart; k < levelEnd; k++)
+			{
+				for (int child: InnerChildren(image, order[k], weights))
+					order[count++] = child;
+			}
+			levelStart = levelEnd;
+		}
+
+		// Everything below the last breadth-first level depth-first, the most
+		// frequent child first
+		int[] stack = new int[nodeCount];
+		int frontierEnd = count;
+		for (int k = levelStart; k < frontierEnd; k++)
+		{
+			int stackSize = 0;
+			int[] children = InnerChildren(image, order[k], weights);
+			for (int i = children.length - 1; i >= 0; i--)
+				stack[stackSize++] = children[i];
+			while (stackSize > 0)
+			{
+				int node = stack[--stackSize];
+				order[count++] = node;
+				children = InnerChildren(image, node, weights);
+				for (int i = children.length - 1; i >= 0; i--)
+					stack[stackSize++] = children[i];
+			}
+		}
+		if (count != nodeCount)
+			throw new IllegalStateException(String.format("Laid out %d of %d nodes", count, nodeCount));
+
+		int[] newIndex = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+			newIndex[order[i]] = i;
+
+		// Node headers in the new order, followed by their links in the same order
+		int[] result = new int[image.length];
+		int pointer = nodeCount;
+		for (int i = 0; i < nodeCount; i++)
+		{
+			int header = image[order[i]];
+			int first = header >>> 8;
+			int children = header & CHILD_COUNT_MASK;
+			result[i] = children | (header & COMPLETE_FLAG) | (pointer << 8);
+			for (int j = first; j < first + children; j++)
+			{
+				int link = image[j];
+				int dest = link >>> 8;
+				// Links to node 0 stand for complete words without continuation
+				result[pointer++] = (link & 255) | ((dest == 0? 0: newIndex[dest]) << 8);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a copy of the tree laid out for the way the given boards are solved
+	 * @param tree The word tree
+	 * @param sampleBoards Letters of sample boards, row by row
+	 * @param edgeSize Size of the edge of the boards
+	 * @return The new tree; it contains the same words with the same IDs
+	 */
+	public static WordTree Optimize(WordTree tree, List<char[]> sampleBoards, int edgeSize)
+	{
+		long[] weights = MeasureAccesses(tree, sampleBoards, edgeSize);
+		WordTree result = new WordTree();
+		result.LoadImage(Relayout(tree, DEFAULT_BFS_LEVELS, weights), tree.GetAlphabet());
+		return result;
+	}
+
+	/**
+	 * @param image Image of the tree
+	 * @param node Index of a node
+	 * @param weights Access frequency of each node; may be null
+	 * @return The children of the node that have children themselves, the most
+	 *         frequent first; in the order of the links if equally frequent
+	 */
+	private static int[] InnerChildren(int[] image, int node, long[] weights)
+	{
+		int header = image[node];
+		int first = header >>> 8;
+		int[] children = new int[header & CHILD_COUNT_MASK];
+		int count = 0;
+		for (int j = first; j < first + children.length; j++)
+		{
+			int dest = image[j] >>> 8;
+			if (dest != 0)
+				children[count++] = dest;
+		}
+		if (weights != null)
+		{
+			// Insertion sort; it is stable and a node has only a few children
+			for (int i = 1; i < count; i++)
+			{
+				int child = children[i];
+				int k = i;
+				while (k > 0 && weights[children[k - 1]] < weights[child])
+				{
+					children[k] = children[k - 1];
+					k--;
+				}
+				children[k] = child;
+			}
+		}
+		return count == children.length? children: Arrays.copyOf(children, count);
+	}
+}
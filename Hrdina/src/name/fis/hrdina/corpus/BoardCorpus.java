@@ -0,0 +1,312 @@
+package name.fis.hrdina.corpus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.generators.GeneratorType;
+
+/**
+ * Read access to a file of pregenerated boards, built by
+ * <code>BoardCorpusBuilder</code>.
+ *
+ * The file is memory-mapped, so opening a corpus of millions of boards takes no
+ * time and memory, and fetching a board is a few reads from the mapping: a
+ * board by its number, or the i-th board of a quality bucket, is found in
+ * constant time. The boards are sorted by their bucket, so a bucket is a range
+ * of board numbers.
+ *
+ * All numbers are little endian. The file consists of the following
+ * sections, in this order; the header gives the offsets of the others:
+ * <pre>
+ * header (HEADER_SIZE bytes):
+ *   int magic, int version, int edge size, int board count,
+ *   int number of words of the dictionary, int bucket count,
+ *   int record size, int size of the largest solution in bytes,
+ *   long offsets of the buckets, records, solution offsets and solutions sections,
+ *   long fingerprint of the dictionary (see <code>WordTree.GetFingerprint</code>)
+ * solutions: for each board the sorted IDs of its words (see
+ *            <code>WordTree.GetWordId</code>); the first one and then the
+ *            differences, each as a variable-length number of 7-bit groups
+ * buckets:   int[bucket count] lowest word count of each bucket,
+ *            int[bucket count + 1] first board of each bucket
+ * records:   one per board, of the record size:
+ *            byte[edge*edge] letter indices, byte generator type,
+ *            padding to 4 bytes, int word count, int score
+ * offsets:   long[board count] start of each board's solution in the solutions section
+ * </pre>
+ * The word IDs are only valid for the dictionary the corpus was built with;
+ * the fingerprint of its words is checked when the corpus is opened, so a
+ * corpus can't be read with an edited dictionary, even one with as many words.
+ *
+ * A corpus can be read from several threads at once.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BoardCorpus
+{
+	// <editor-fold desc="File format">
+	static final int MAGIC = 0x43425248;
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 72;
+	/** Mapping size of the solutions section; larger sections are mapped in several windows */
+	private static final long WINDOW_SIZE = 1L << 30;
+	// </editor-fold>
+
+	private final Alphabet m_Alphabet;
+	private final int m_EdgeSize;
+	private final int m_BoardCount;
+	private final int m_RecordSize;
+	/** Lowest word count of each bucket */
+	private final int[] m_BucketLimits;
+	/** First board of each bucket; one more item than buckets */
+	private final int[] m_BucketStarts;
+	/** Mapping of the records section */
+	private final ByteBuffer m_Records;
+	/** Mapping of the solution offsets section */
+	private final ByteBuffer m_Offsets;
+	/** Mappings of consecutive windows of the solutions section. Each window
+	  * overlaps the next one by the size of the largest solution, so every
+	  * solution can be read from the window its start is in. */
+	private final ByteBuffer[] m_Solutions;
+
+	/**
+	 * Opens a corpus
+	 * @param file The corpus file
+	 * @param tree Word tree of the dictionary the corpus was built with
+	 * @throws IOException if the file can't be read, is not a corpus or was
+	 *         built with another dictionary
+	 */
+	public BoardCorpus(File file, WordTree tree) throws IOException
+	{
+		m_Alphabet = tree.GetAlphabet();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+		{
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException(String.format("%s is not a board corpus", file));
+			ByteBuffer header = Map(channel, 0, HEADER_SIZE);
+			if (header.getInt(0) != MAGIC)
+				throw new IOException(String.format("%s is not a board corpus", file));
+			if (header.getInt(4) != VERSION)
+				throw new IOException(String.format("Unsupported board corpus version %d", header.getInt(4)));
+			m_EdgeSize = header.getInt(8);
+			m_BoardCount = header.getInt(12);
+			if (header.getInt(16) != tree.GetWordCount() || header.getLong(64) != tree.GetFingerprint())
+				throw new IOException(String.format(
+					"%s was built with another dictionary (%d words, fingerprint %016x; not %d words, %016x)",
+					file, header.getInt(16), header.getLong(64), tree.GetWordCount(), tree.GetFingerprint()));
+			int bucketCount = header.getInt(20);
+			m_RecordSize = header.getInt(24);
+			int maxSolution = header.getInt(28);
+			long bucketsOffset = header.getLong(32);
+			long recordsOffset = header.getLong(40);
+			long offsetsOffset = header.getLong(48);
+			long solutionsOffset = header.getLong(56);
+
+			ByteBuffer buckets = Map(channel, bucketsOffset, 8L * bucketCount + 4);
+			m_BucketLimits = new int[bucketCount];
+			m_BucketStarts = new int[bucketCount + 1];
+			for (int i = 0; i < bucketCount; i++)
+				m_BucketLimits[i] = buckets.getInt(4 * i);
+			for (int i = 0; i <= bucketCount; i++)
+				m_BucketStarts[i] = buckets.getInt(4 * (bucketCount + i));
+
+			m_Records = Map(channel, recordsOffset, (long)m_BoardCount * m_RecordSize);
+			m_Offsets = Map(channel, offsetsOffset, 8L * m_BoardCount);
+			long solutionsSize = channel.size() - solutionsOffset;
+			int windows = (int)Math.max(1, (solutionsSize + WINDOW_SIZE - 1) / WINDOW_SIZE);
+			m_Solutions = new ByteBuffer[windows];
+			for (int i = 0; i < windows; i++)
+			{
+				long start = i * WINDOW_SIZE;
+				long size = Math.min(solutionsSize - start, WINDOW_SIZE + maxSolution);
+				m_Solutions[i] = Map(channel, solutionsOffset + start, size);
+			}
+		}
+	}
+
+	/**
+	 * @param edgeSize Size of the edge of the boards
+	 * @return Size of a record of a board: the letters and the generator type
+	 *         padded to 4 bytes, the word count and the score
+	 */
+	static int RecordSize(int edgeSize)
+	{
+		return ((edgeSize * edgeSize + 1 + 3) & ~3) + 8;
+	}
+
+	/**
+	 * Maps a section of the file for reading
+	 * @param channel The file
+	 * @param position Start of the section
+	 * @param size Size of the section
+	 * @return The little endian mapping
+	 */
+	private static ByteBuffer Map(FileChannel channel, long position, long size) throws IOException
+	{
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Board corpus section too large");
+		MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		return buf;
+	}
+
+	/** @return Number of boards of the corpus */
+	public int GetBoardCount()
+	{
+		return m_BoardCount;
+	}
+
+	/** @return Size of the edge of the boards */
+	public int GetEdgeSize()
+	{
+		return m_EdgeSize;
+	}
+
+	// <editor-fold desc="Boards">
+	/**
+	 * @param board Number of a board
+	 * @return Letters of the board, row by row
+	 */
+	public char[] GetLetters(int board)
+	{
+		int record = RecordStart(board);
+		char[] letters = new char[m_EdgeSize * m_EdgeSize];
+		for (int i = 0; i < letters.length; i++)
+			letters[i] = m_Alphabet.GetLetterByIndex(m_Records.get(record + i) & 0xFF);
+		return letters;
+	}
+
+	/**
+	 * @param board Number of a board
+	 * @return The strategy that generated the board
+	 */
+	public GeneratorType GetGeneratorType(int board)
+	{
+		return GeneratorType.values()[m_Records.get(RecordStart(board) + m_EdgeSize * m_EdgeSize)];
+	}
+
+	/**
+	 * @param board Number of a board
+	 * @return Number of distinct words of the board
+	 */
+	public int GetWordCount(int board)
+	{
+		return m_Records.getInt(RecordStart(board) + m_RecordSize - 8);
+	}
+
+	/**
+	 * @param board Number of a board
+	 * @return Sum of the values of all words of the board
+	 */
+	public int GetScore(int board)
+	{
+		return m_Records.getInt(RecordStart(board) + m_RecordSize - 4);
+	}
+
+	/**
+	 * @param board Number of a board
+	 * @return Sorted IDs of all words of the board (see <code>WordTree.GetWord</code>)
+	 */
+	public int[] GetSolution(int board)
+	{
+		int[] ids = new int[GetWordCount(board)];
+		long offset = m_Offsets.getLong(8 * CheckBoard(board));
+		ByteBuffer window = m_Solutions[(int)(offset / WINDOW_SIZE)];
+		int pos = (int)(offset % WINDOW_SIZE);
+		int id = 0;
+		for (int i = 0; i < ids.length; i++)
+		{
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do
+			{
+				b = window.get(pos++);
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			id += value;
+			ids[i] = id;
+		}
+		return ids;
+	}
+
+	/**
+	 * @param board Number of a board
+	 * @return Position of the board's record in the records section
+	 */
+	private int RecordStart(int board)
+	{
+		return CheckBoard(board) * m_RecordSize;
+	}
+
+	/**
+	 * @param board Number of a board
+	 * @return The number
+	 * @throws IndexOutOfBoundsException if there is no such board
+	 */
+	private int CheckBoard(int board)
+	{
+		if (board < 0 || board >= m_BoardCount)
+			throw new IndexOutOfBoundsException(String.format("Board %d of %d", board, m_BoardCount));
+		return board;
+	}
+	// </editor-fold>
+
+	// <editor-fold desc="Quality buckets">
+	/** @return Number of quality buckets */
+	public int GetBucketCount()
+	{
+		return m_BucketLimits.length;
+	}
+
+	/**
+	 * @param bucket Number of a bucket
+	 * @return Lowest word count of the boards of the bucket; the boards of the
+	 *         next bucket have at least the next limit
+	 */
+	public int GetBucketLimit(int bucket)
+	{
+		return m_BucketLimits[bucket];
+	}
+
+	/**
+	 * @param bucket Number of a bucket
+	 * @return Number of boards of the bucket
+	 */
+	public int GetBucketSize(int bucket)
+	{
+		return m_BucketStarts[bucket + 1] - m_BucketStarts[bucket];
+	}
+
+	/**
+	 * @param bucket Number of a bucket
+	 * @param i Index of a board in the bucket
+	 * @return Number of the i-th board of the bucket
+	 */
+	public int GetBoardInBucket(int bucket, int i)
+	{
+		if (i < 0 || i >= GetBucketSize(bucket))
+			throw new IndexOutOfBoundsException(String.format("Board %d of bucket %d", i, bucket));
+		return m_BucketStarts[bucket] + i;
+	}
+
+	/**
+	 * @param bucket Number of a bucket
+	 * @param rand Random number generator
+	 * @return Number of a random board of the bucket; -1 if the bucket is empty
+	 */
+	public int GetRandomBoard(int bucket, Random rand)
+	{
+		int size = GetBucketSize(bucket);
+		return size == 0? -1: m_BucketStarts[bucket] + rand.nextInt(size);
+	}
+	// </editor-fold>
+}
@@ -0,0 +1,373 @@
+package name.fis.hrdina.corpus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.BatchSolver;
+import name.fis.hrdina.Main;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.WordTreeException;
+import name.fis.hrdina.dictionary.DictionarySnapshot;
+import name.fis.hrdina.dictionary.ResourceDictionarySource;
+import name.fis.hrdina.generators.GeneratorType;
+import name.fis.hrdina.generators.IBoardGenerator;
+
+/**
+ * Generates a corpus of boards offline and writes it to a file that
+ * <code>BoardCorpus</code> reads (see there for the format).
+ *
+ * The boards are generated and solved in batches on several threads. Every
+ * batch has its own random number generator seeded from the seed of the
+ * corpus and the number of the batch, so the same seed gives the same corpus
+ * regardless of the number of threads. The solutions are written to the file
+ * as the batches complete, in the order of the batches; only the small fixed
+ * size records of the boards are kept in memory until the end, when they are
+ * sorted into the quality buckets.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BoardCorpusBuilder
+{
+	/** Quality buckets used by <code>main</code>: lowest word counts */
+	public static final int[] DEFAULT_BUCKET_LIMITS = {0, 10, 25, 50, 100, 200};
+	/** Number of boards generated by one task */
+	private static final int BATCH_SIZE = 256;
+
+	private final DictionarySnapshot m_Dictionary;
+	private final int m_EdgeSize;
+	/** Lowest word count of each bucket, ascending */
+	private final int[] m_BucketLimits;
+	/** Generation strategies; the batches take turns in using them */
+	private final GeneratorType[] m_Generators;
+	/** Value of each word by its ID */
+	private final int[] m_WordValues;
+
+	/**
+	 * @param dictionary Dictionary to generate and solve the boards with
+	 * @param edgeSize Size of the edge of the boards
+	 * @param bucketLimits Lowest word count of each quality bucket, ascending.
+	 *        The first limit should be 0, otherwise boards with fewer words are left out.
+	 * @param generators Generation strategies to use, in turns by batches
+	 */
+	public BoardCorpusBuilder(DictionarySnapshot dictionary, int edgeSize, int[] bucketLimits,
+		GeneratorType... generators)
+	{
+		if (generators.length == 0)
+			throw new IllegalArgumentException("No generator given");
+		for (int i = 1; i < bucketLimits.length; i++)
+		{
+			if (bucketLimits[i] <= bucketLimits[i - 1])
+				throw new IllegalArgumentException("Bucket limits must be ascending");
+		}
+		m_Dictionary = dictionary;
+		m_EdgeSize = edgeSize;
+		m_BucketLimits = bucketLimits.clone();
+		m_Generators = generators.clone();
+
+		WordTree tree = dictionary.GetWordTree();
+		Alphabet alphabet = dictionary.GetAlphabet();
+		m_WordValues = new int[tree.GetWordCount()];
+		int id = 0;
+		for (String word: tree.Words())
+			m_WordValues[id++] = alphabet.GetWordValue(word);
+	}
+
+	/** Boards of one batch, generated and solved */
+	private static class Batch
+	{
+		final int Count;
+		final GeneratorType Generator;
+		/** Letter indices of all boards */
+		final byte[] Letters;
+		final int[] WordCounts;
+		final int[] Scores;
+		/** Encoded solutions of all boards, one after another */
+		byte[] Solutions = new byte[4096];
+		int SolutionsSize = 0;
+		/** Start of the solution of each board in <code>Solutions</code> */
+		final int[] SolutionStarts;
+
+		Batch(int count, GeneratorType generator, int boardSize)
+		{
+			Count = count;
+			Generator = generator;
+			Letters = new byte[count * boardSize];
+			WordCounts = new int[count];
+			Scores = new int[count];
+			SolutionStarts = new int[count];
+		}
+
+		/** Appends a number to the solutions as groups of 7 bits, the lowest first */
+		void AppendNumber(int value)
+		{
+			if (SolutionsSize + 5 > Solutions.length)
+				Solutions = Arrays.copyOf(Solutions, Solutions.length * 2);
+			while ((value & ~0x7F) != 0)
+			{
+				Solutions[SolutionsSize++] = (byte)(value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+			Solutions[SolutionsSize++] = (byte)value;
+		}
+	}
+
+	/**
+	 * Generates and solves the boards of one batch
+	 * @param number Number of the batch
+	 * @param count Number of boards of the batch
+	 * @param seed Seed of the corpus
+	 * @return The batch
+	 */
+	private Batch BuildBatch(int number, int count, long seed)
+	{
+		int boardSize = m_EdgeSize * m_EdgeSize;
+		Alphabet alphabet = m_Dictionary.GetAlphabet().WithRandom(new Random(seed * 1000003 + number));
+		GeneratorType type = m_Generators[number % m_Generators.length];
+		IBoardGenerator generator = type.Create(alphabet, m_Dictionary.GetDigraphs(), m_Dictionary.GetTrigrams());
+		Batch batch = new Batch(count, type, boardSize);
+		List<char[]> boards = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			char[] board = generator.GenerateBoard(m_EdgeSize);
+			for (int j = 0; j < boardSize; j++)
+				batch.Letters[i * boardSize + j] = (byte)alphabet.GetIndexOfLetter(board[j]);
+			boards.add(board);
+		}
+		// The whole batch is solved in one pass over the word tree
+		int[][] solutions = new BatchSolver(m_Dictionary.GetWordTree()).Solve(boards, m_EdgeSize);
+		for (int i = 0; i < count; i++)
+		{
+			int[] ids = solutions[i];
+			int score = 0;
+			batch.SolutionStarts[i] = batch.SolutionsSize;
+			int previous = 0;
+			for (int id: ids)
+			{
+				score += m_WordValues[id];
+				batch.AppendNumber(id - previous);
+				previous = id;
+			}
+			batch.WordCounts[i] = ids.length;
+			batch.Scores[i] = score;
+		}
+		return batch;
+	}
+
+	/**
+	 * Builds the corpus
+	 * @param file The file to write
+	 * @param boardCount Number of boards to generate
+	 * @param seed Seed of the random number generators
+	 * @param threads Number of threads generating the boards
+	 * @return Number of boards of the corpus; less than boardCount if some
+	 *         boards have fewer words than the lowest bucket
+	 * @throws IOException if the file can't be written
+	 */
+	public int Build(File file, int boardCount, final long seed, int threads) throws IOException
+	{
+		int boardSize = m_EdgeSize * m_EdgeSize;
+		int recordSize = BoardCorpus.RecordSize(m_EdgeSize);
+		// Records of the kept boards in the order they were generated
+		byte[] records = new byte[boardCount * recordSize];
+		long[] offsets = new long[boardCount];
+		int[] buckets = new int[boardCount];
+		int kept = 0;
+		int maxSolution = 0;
+
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+		{
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			// The solutions come right after the header, the rest is written at the end
+			long solutionsOffset = BoardCorpus.HEADER_SIZE;
+			long solutionsSize = 0;
+			ByteBuffer recordsBuffer = ByteBuffer.wrap(records).order(ByteOrder.LITTLE_ENDIAN);
+
+			// Keep a few batches per thread queued, and write them in order
+			Queue<Future<Batch>> pending = new ArrayDeque<>();
+			int batches = (boardCount + BATCH_SIZE - 1) / BATCH_SIZE;
+			int submitted = 0;
+			while (submitted < batches || !pending.isEmpty())
+			{
+				while (submitted < batches && pending.size() < 4 * threads)
+				{
+					final int number = submitted++;
+					final int count = Math.min(BATCH_SIZE, boardCount - number * BATCH_SIZE);
+					pending.add(workers.submit(new Callable<Batch>() {
+						@Override
+						public Batch call() {
+							return BuildBatch(number, count, seed);
+						}
+					}));
+				}
+				Batch batch = Get(pending.remove());
+
+				// Drop the boards below the lowest bucket, moving the solutions of
+				// the kept ones together, so the batch is written at once
+				int batchSize = 0;
+				for (int i = 0; i < batch.Count; i++)
+				{
+					int bucket = BucketOf(batch.WordCounts[i]);
+					if (bucket < 0)
+						continue;
+					int start = batch.SolutionStarts[i];
+					int length = (i + 1 < batch.Count? batch.SolutionStarts[i + 1]: batch.SolutionsSize) - start;
+					System.arraycopy(batch.Solutions, start, batch.Solutions, batchSize, length);
+					offsets[kept] = solutionsSize + batchSize;
+					batchSize += length;
+					maxSolution = Math.max(maxSolution, length);
+
+					int record = kept * recordSize;
+					System.arraycopy(batch.Letters, i * boardSize, records, record, boardSize);
+					records[record + boardSize] = (byte)batch.Generator.ordinal();
+					recordsBuffer.putInt(record + recordSize - 8, batch.WordCounts[i]);
+					recordsBuffer.putInt(record + recordSize - 4, batch.Scores[i]);
+					buckets[kept] = bucket;
+					kept++;
+				}
+				ByteBuffer solutions = ByteBuffer.wrap(batch.Solutions, 0, batchSize);
+				while (solutions.hasRemaining())
+					channel.write(solutions, solutionsOffset + solutionsSize + solutions.position());
+				solutionsSize += batchSize;
+			}
+
+			// Sort the boards by their bucket, keeping the order within a bucket
+			int[] bucketStarts = new int[m_BucketLimits.length + 1];
+			for (int i = 0; i < kept; i++)
+				bucketStarts[buckets[i] + 1]++;
+			for (int b = 0; b < m_BucketLimits.length; b++)
+				bucketStarts[b + 1] += bucketStarts[b];
+			int[] next = Arrays.copyOf(bucketStarts, m_BucketLimits.length);
+			long bucketsOffset = solutionsOffset + solutionsSize;
+			long recordsOffset = bucketsOffset + 4L * (2 * m_BucketLimits.length + 1);
+			long offsetsOffset = recordsOffset + (long)kept * recordSize;
+			ByteBuffer tail = ByteBuffer.allocate((int)(offsetsOffset + 8L * kept - bucketsOffset))
+				.order(ByteOrder.LITTLE_ENDIAN);
+			for (int limit: m_BucketLimits)
+				tail.putInt(limit);
+			for (int start: bucketStarts)
+				tail.putInt(start);
+			int recordsStart = tail.position();
+			int offsetsStart = recordsStart + kept * recordSize;
+			for (int i = 0; i < kept; i++)
+			{
+				int position = next[buckets[i]]++;
+				tail.position(recordsStart + position * recordSize);
+				tail.put(records, i * recordSize, recordSize);
+				tail.putLong(offsetsStart + 8 * position, offsets[i]);
+			}
+			tail.position(0);
+			while (tail.hasRemaining())
+				channel.write(tail, bucketsOffset + tail.position());
+
+			ByteBuffer header = ByteBuffer.allocate(BoardCorpus.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(BoardCorpus.MAGIC);
+			header.putInt(BoardCorpus.VERSION);
+			header.putInt(m_EdgeSize);
+			header.putInt(kept);
+			header.putInt(m_WordValues.length);
+			header.putInt(m_BucketLimits.length);
+			header.putInt(recordSize);
+			header.putInt(maxSolution);
+			header.putLong(bucketsOffset);
+			header.putLong(recordsOffset);
+			header.putLong(offsetsOffset);
+			header.putLong(solutionsOffset);
+			header.putLong(m_Dictionary.GetWordTree().GetFingerprint());
+			header.flip();
+			while (header.hasRemaining())
+				channel.write(header, header.position());
+		}
+		finally
+		{
+			workers.shutdownNow();
+		}
+		return kept;
+	}
+
+	/**
+	 * Waits for a batch
+	 * @param future The task generating the batch
+	 * @return The batch
+	 */
+	private static Batch Get(Future<Batch> future) throws IOException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("Generating boards failed", e.getCause());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while building the corpus", e);
+		}
+	}
+
+	/**
+	 * @param wordCount Number of words of a board
+	 * @return The highest bucket whose limit the word count reaches; -1 if none
+	 */
+	private int BucketOf(int wordCount)
+	{
+		int bucket = -1;
+		while (bucket + 1 < m_BucketLimits.length && m_BucketLimits[bucket + 1] <= wordCount)
+			bucket++;
+		return bucket;
+	}
+
+	/**
+	 * Builds a corpus of 4x4 boards of the built-in dictionary with all
+	 * generation strategies
+	 * @param args Program arguments: output file, number of boards, optionally
+	 *        the number of threads and the seed
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 2)
+		{
+			System.err.println("Usage: BoardCorpusBuilder <file> <boards> [threads] [seed]");
+			return;
+		}
+		File file = new File(args[0]);
+		int boards = Integer.parseInt(args[1]);
+		int threads = args.length > 2? Integer.parseInt(args[2]): Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 3? Long.parseLong(args[3]): System.currentTimeMillis();
+
+		DictionarySnapshot dictionary;
+		try
+		{
+			dictionary = DictionarySnapshot.Load(new ResourceDictionarySource(Main.DATA_RESOURCE_PATH), 1);
+		}
+		catch (WordTreeException e)
+		{
+			System.err.println(String.format("Error loading data files: %s", e.getMessage()));
+			return;
+		}
+
+		long start = System.nanoTime();
+		BoardCorpusBuilder builder = new BoardCorpusBuilder(dictionary, 4, DEFAULT_BUCKET_LIMITS,
+			GeneratorType.values());
+		int kept = builder.Build(file, boards, seed, threads);
+		System.out.println(String.format("%d boards written to %s in %.1f s (%d bytes)",
+			kept, file, (System.nanoTime() - start) / 1e9, file.length()));
+	}
+}
@@ -0,0 +1,200 @@
+package name.fis.hrdina.dictionary;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.Digraphs;
+import name.fis.hrdina.Trigrams;
+import name.fis.hrdina.Util;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.WordTreeException;
+import name.fis.hrdina.metrics.Metrics;
+
+/**
+ * Deduplicates the data of dictionaries loaded in the same process. Data files
+ * are identified by the digest of their contents, so dictionaries whose files
+ * are identical (e.g. variants sharing one alphabet) share a single instance
+ * of the loaded object. Only weak references are kept, so data that is no
+ * longer used by any dictionary can still be garbage collected.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class DictionaryDataCache
+{
+	/** Loaded objects by a key derived from the digests of their data files */
+	private final Map<String, WeakReference<Object>> m_Entries;
+
+	public DictionaryDataCache()
+	{
+		m_Entries = new HashMap<>();
+	}
+
+	/**
+	 * Loads all data files of a dictionary from the given source, reusing
+	 * already loaded objects for files that were seen before. With metrics
+	 * enabled, the time of each file is recorded as by
+	 * <code>DictionarySnapshot.Load</code>; it includes reading and digesting
+	 * the file, also when the loaded object is reused.
+	 * @param source Where to read the data files from
+	 * @param version Version number to assign to the snapshot
+	 * @return The loaded snapshot
+	 * @throws IOException Problems manipulating the input files
+	 * @throws WordTreeException Data in the input files is invalid
+	 */
+	public DictionarySnapshot Load(IDictionarySource source, long version) throws IOException, WordTreeException
+	{
+		long start = Metrics.ENABLED? System.nanoTime(): 0;
+		byte[] alphabetData;
+		try (InputStream str = source.OpenAlphabet())
+		{
+			alphabetData = Util.ReadAll(str);
+		}
+		String alphabetKey = Digest(alphabetData);
+		Alphabet alphabet = (Alphabet)Get("alphabet:" + alphabetKey);
+		if (alphabet == null)
+		{
+			alphabet = new Alphabet();
+			if (!alphabet.Load(new ByteArrayInputStream(alphabetData)))
+				throw new WordTreeException("Failed to load alphabet");
+			alphabet = (Alphabet)Intern("alphabet:" + alphabetKey, alphabet);
+		}
+		if (Metrics.ENABLED)
+		{
+			Metrics.LOAD_ALPHABET_MICROS.Record(Metrics.MicrosSince(start));
+			start = System.nanoTime();
+		}
+
+		byte[] treeData;
+		try (InputStream str = source.OpenWordTree())
+		{
+			treeData = Util.ReadAll(str);
+		}
+		String treeKey = Digest(treeData);
+		// The tree image does not depend on the alphabet, so it is shared even
+		// between trees with different alphabets
+		int[] image = (int[])Get("image:" + treeKey);
+		if (image == null)
+			image = (int[])Intern("image:" + treeKey, Util.ReadLEInts(treeData));
+		String treeObjectKey = "tree:" + alphabetKey + ":" + treeKey;
+		WordTree tree = (WordTree)Get(treeObjectKey);
+		if (tree == null)
+		{
+			tree = new WordTree();
+			tree.LoadImage(image, alphabet);
+			tree = (WordTree)Intern(treeObjectKey, tree);
+		}
+		if (Metrics.ENABLED)
+		{
+			Metrics.LOAD_WORDTREE_MICROS.Record(Metrics.MicrosSince(start));
+			start = System.nanoTime();
+		}
+
+		byte[] digraphData;
+		try (InputStream str = source.OpenDigraphs())
+		{
+			digraphData = Util.ReadAll(str);
+		}
+		String digraphObjectKey = "digraphs:" + alphabetKey + ":" + Digest(digraphData);
+		Digraphs digraphs = (Digraphs)Get(digraphObjectKey);
+		if (digraphs == null)
+		{
+			digraphs = new Digraphs();
+			if (!digraphs.Load(new ByteArrayInputStream(digraphData), alphabet))
+				throw new WordTreeException("Failed to load digraphs");
+			digraphs = (Digraphs)Intern(digraphObjectKey, digraphs);
+		}
+		if (Metrics.ENABLED)
+			Metrics.LOAD_DIGRAPHS_MICROS.Record(Metrics.MicrosSince(start));
+
+		byte[] trigramData;
+		try (InputStream str = source.OpenTrigrams())
+		{
+			trigramData = Util.ReadAll(str);
+		}
+		catch (FileNotFoundException e)
+		{
+			// The snapshot counts the trigrams from its tree when they are needed
+			trigramData = null;
+		}
+		Trigrams trigrams = null;
+		if (trigramData != null)
+		{
+			String trigramObjectKey = "trigrams:" + alphabetKey + ":" + Digest(trigramData);
+			trigrams = (Trigrams)Get(trigramObjectKey);
+			if (trigrams == null)
+			{
+				trigrams = new Trigrams();
+				if (!trigrams.Load(new ByteArrayInputStream(trigramData), alphabet))
+					throw new WordTreeException("Failed to load trigrams");
+				trigrams = (Trigrams)Intern(trigramObjectKey, trigrams);
+			}
+		}
+
+		return new DictionarySnapshot(alphabet, tree, digraphs, trigrams, version);
+	}
+
+	/** @return Number of live shared objects held by the cache */
+	public synchronized int GetSize()
+	{
+		Purge();
+		return m_Entries.size();
+	}
+
+	/** @return The live object stored under the key or null */
+	private synchronized Object Get(String key)
+	{
+		WeakReference<Object> ref = m_Entries.get(key);
+		return ref == null? null: ref.get();
+	}
+
+	/**
+	 * Stores an object unless another thread stored one under the same key first
+	 * @return The object that is stored under the key after the call
+	 */
+	private synchronized Object Intern(String key, Object value)
+	{
+		Object existing = Get(key);
+		if (existing != null)
+			return existing;
+		Purge();
+		m_Entries.put(key, new WeakReference<>(value));
+		return value;
+	}
+
+	/** Drops entries whose objects were already garbage collected */
+	private void Purge()
+	{
+		Iterator<WeakReference<Object>> it = m_Entries.values().iterator();
+		while (it.hasNext())
+		{
+			if (it.next().get() == null)
+				it.remove();
+		}
+	}
+
+	/** @return Hexadecimal SHA-1 digest of the data */
+	private static String Digest(byte[] data)
+	{
+		MessageDigest md;
+		try
+		{
+			md = MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// Every Java platform is required to support SHA-1
+			throw new IllegalStateException(e);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b: md.digest(data))
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+}
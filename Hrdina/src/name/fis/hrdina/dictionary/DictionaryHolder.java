@@ -0,0 +1,172 @@
+package name.fis.hrdina.dictionary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import name.fis.hrdina.WordTreeException;
+
+/**
+ * Holds the current version of a dictionary and allows replacing it while the
+ * program is running. A new version is loaded and validated in the background
+ * and then published atomically. Games that already hold a snapshot keep using
+ * it; games started after the publication get the new one. The holder itself
+ * only references the current snapshot, so an old version is released as soon
+ * as the last game using it is gone.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class DictionaryHolder
+{
+	/** The currently published snapshot; null until the first load finishes */
+	private final AtomicReference<DictionarySnapshot> m_Current;
+	/** Source of the version numbers assigned to the loaded snapshots */
+	private final AtomicLong m_NextVersion;
+	/** Words that every new snapshot must contain before it gets published */
+	private final List<String> m_ProbeWords;
+	/** Deduplicates the loaded data with other dictionaries; may be null */
+	private final DictionaryDataCache m_Cache;
+	/** Performs the background loads. Single thread, so there is never more
+	  * than one snapshot being loaded at a time. */
+	private final ExecutorService m_Loader;
+
+	/**
+	 * Creates an empty holder
+	 * @param probeWords Words that every published snapshot must contain
+	 */
+	public DictionaryHolder(String... probeWords)
+	{
+		this(null, probeWords);
+	}
+
+	/**
+	 * Creates an empty holder that shares the loaded data through a cache
+	 * @param cache Cache to load the data through; null to load it directly
+	 * @param probeWords Words that every published snapshot must contain
+	 */
+	public DictionaryHolder(DictionaryDataCache cache, String... probeWords)
+	{
+		m_Cache = cache;
+		m_Current = new AtomicReference<>();
+		m_NextVersion = new AtomicLong(1);
+		m_ProbeWords = new ArrayList<>(Arrays.asList(probeWords));
+		m_Loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "dictionary-loader");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * @return The current snapshot. Callers starting a game should call this
+	 *         once and keep the result for the whole game.
+	 * @throws IllegalStateException if no snapshot was published yet
+	 */
+	public DictionarySnapshot Get()
+	{
+		DictionarySnapshot snapshot = m_Current.get();
+		if (snapshot == null)
+			throw new IllegalStateException("No dictionary has been loaded yet");
+		return snapshot;
+	}
+
+	/** @return The current snapshot or null if there is none */
+	public DictionarySnapshot Peek()
+	{
+		return m_Current.get();
+	}
+
+	/** @return true if a snapshot has already been published */
+	public boolean IsLoaded()
+	{
+		return m_Current.get() != null;
+	}
+
+	/**
+	 * Drops the reference to the current snapshot, so that its memory can be
+	 * released once no game uses it. The next reload publishes a new one.
+	 */
+	public void Unload()
+	{
+		m_Current.set(null);
+	}
+
+	/**
+	 * Loads, validates and publishes a new snapshot on the calling thread
+	 * @param source Where to read the new dictionary from
+	 * @return The newly published snapshot
+	 * @throws IOException Problems manipulating the input files
+	 * @throws WordTreeException Data in the input files is invalid or the validation failed.
+	 *         The previously published snapshot stays in place.
+	 */
+	public DictionarySnapshot Reload(IDictionarySource source) throws IOException, WordTreeException
+	{
+		long version = m_NextVersion.getAndIncrement();
+		DictionarySnapshot snapshot = m_Cache == null?
+			DictionarySnapshot.Load(source, version):
+			m_Cache.Load(source, version);
+		if (DictionarySnapshot.OPTIMIZE_LAYOUT)
+			snapshot = snapshot.WithOptimizedLayout();
+		return Publish(snapshot);
+	}
+
+	/**
+	 * Loads, validates and publishes a new snapshot in the background. Requests
+	 * are processed one at a time in the order they were submitted.
+	 * @param source Where to read the new dictionary from
+	 * @return Future yielding the published snapshot, or failing with the reason
+	 *         why the snapshot was rejected
+	 */
+	public Future<DictionarySnapshot> ReloadAsync(final IDictionarySource source)
+	{
+		return m_Loader.submit(new Callable<DictionarySnapshot>() {
+			@Override
+			public DictionarySnapshot call() throws IOException, WordTreeException {
+				return Reload(source);
+			}
+		});
+	}
+
+	/**
+	 * Validates an already constructed snapshot and makes it the current one
+	 * @param snapshot The snapshot to publish
+	 * @return The published snapshot
+	 * @throws WordTreeException if the validation failed or a newer snapshot was
+	 *         published in the meantime. The previously published snapshot stays in place.
+	 */
+	public DictionarySnapshot Publish(DictionarySnapshot snapshot) throws WordTreeException
+	{
+		snapshot.Validate(m_ProbeWords);
+		while (true)
+		{
+			DictionarySnapshot current = m_Current.get();
+			// Never replace a newer snapshot with an older one if two loads race
+			if (current != null && current.GetVersion() >= snapshot.GetVersion())
+				throw new WordTreeException(String.format("Snapshot version %d is superseded by version %d",
+					snapshot.GetVersion(), current.GetVersion()));
+			if (m_Current.compareAndSet(current, snapshot))
+				return snapshot;
+		}
+	}
+
+	/** @return A version number for a snapshot that is constructed outside of this holder */
+	public long NextVersion()
+	{
+		return m_NextVersion.getAndIncrement();
+	}
+
+	/** Stops the background loader. Pending reloads are still finished. */
+	public void Shutdown()
+	{
+		m_Loader.shutdown();
+	}
+}
@@ -0,0 +1,262 @@
+package name.fis.hrdina.dictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import name.fis.hrdina.FoldedDictionary;
+import name.fis.hrdina.WordTreeException;
+
+/**
+ * Registry of all dictionaries hosted by the process (e.g. standard Czech,
+ * a kids word list, a variant without diacritics). Dictionaries are registered
+ * by name with the location of their data files and loaded lazily on first use.
+ * Identical data files are loaded only once and shared between dictionaries
+ * (see <code>DictionaryDataCache</code>). When more than the configured number
+ * of dictionaries is loaded, the least recently used one is evicted; games that
+ * still hold its snapshot are not affected.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class DictionaryRegistry
+{
+	/** Prefix of the property keys that define dictionaries in <code>Configure</code> */
+	public static final String PROPERTY_PREFIX = "dictionary.";
+	/** Prefix of a location that refers to classpath resources */
+	public static final String RESOURCE_LOCATION_PREFIX = "resource:";
+	/** Prefix of a location that defines a variant without diacritics of another dictionary */
+	public static final String FOLDED_LOCATION_PREFIX = "fold:";
+
+	/** A registered dictionary */
+	private static class Entry {
+		/** Location of the data files; null for a folded variant */
+		final IDictionarySource Source;
+		/** Name of the dictionary this one is a folded variant of; null for a regular dictionary */
+		final String BaseName;
+		final DictionaryHolder Holder;
+		/** Logical time of the last access; used to find the least recently used entry */
+		volatile long LastAccess;
+		/** Version of the base snapshot that the current folded snapshot was made from */
+		volatile long BaseVersion;
+
+		Entry(IDictionarySource source, String baseName, DictionaryHolder holder) {
+			Source = source;
+			BaseName = baseName;
+			Holder = holder;
+			LastAccess = 0;
+			BaseVersion = -1;
+		}
+	}
+
+	private final ConcurrentHashMap<String, Entry> m_Entries;
+	/** Shared data of all dictionaries of this registry */
+	private final DictionaryDataCache m_Cache;
+	/** Maximal number of dictionaries that are loaded at the same time */
+	private final int m_MaxLoaded;
+	/** Logical clock for the access times */
+	private final AtomicLong m_Clock;
+
+	/**
+	 * @param maxLoaded Maximal number of dictionaries to keep loaded at the same time
+	 */
+	public DictionaryRegistry(int maxLoaded)
+	{
+		if (maxLoaded < 1)
+			throw new IllegalArgumentException("At least one dictionary must be allowed to be loaded");
+		m_Entries = new ConcurrentHashMap<>();
+		m_Cache = new DictionaryDataCache();
+		m_MaxLoaded = maxLoaded;
+		m_Clock = new AtomicLong();
+	}
+
+	/**
+	 * Registers a dictionary. Nothing is loaded until the dictionary is used.
+	 * @param name Name of the dictionary
+	 * @param source Location of the dictionary's data files
+	 * @param probeWords Words that every loaded version of the dictionary must contain
+	 * @throws IllegalArgumentException if a dictionary with that name already exists
+	 */
+	public void Register(String name, IDictionarySource source, String... probeWords)
+	{
+		AddEntry(name, new Entry(source, null, new DictionaryHolder(m_Cache, probeWords)));
+	}
+
+	/**
+	 * Registers a variant without diacritics of another dictionary (see
+	 * <code>FoldedDictionary</code>). The variant is folded on its first use and
+	 * folded again whenever a new version of the base dictionary gets published.
+	 * @param name Name of the variant
+	 * @param baseName Name of the dictionary with diacritics
+	 * @throws IllegalArgumentException if a dictionary with that name already exists
+	 */
+	public void RegisterFolded(String name, String baseName)
+	{
+		AddEntry(name, new Entry(null, baseName, new DictionaryHolder()));
+	}
+
+	private void AddEntry(String name, Entry entry)
+	{
+		if (m_Entries.putIfAbsent(name, entry) != null)
+			throw new IllegalArgumentException(String.format("Dictionary '%s' is already registered", name));
+	}
+
+	/**
+	 * Registers all dictionaries defined in the given properties. Each dictionary
+	 * is defined by a property <code>dictionary.&lt;name&gt;=&lt;location&gt;</code>;
+	 * see <code>ParseLocation</code> for the location syntax. The location
+	 * <code>fold:&lt;other name&gt;</code> defines a variant without diacritics
+	 * of another dictionary.
+	 * @param props The configuration
+	 */
+	public void Configure(Properties props)
+	{
+		for (String key: props.stringPropertyNames())
+		{
+			if (!key.startsWith(PROPERTY_PREFIX))
+				continue;
+			String name = key.substring(PROPERTY_PREFIX.length());
+			String location = props.getProperty(key).trim();
+			if (location.startsWith(FOLDED_LOCATION_PREFIX))
+				RegisterFolded(name, location.substring(FOLDED_LOCATION_PREFIX.length()));
+			else
+				Register(name, ParseLocation(location));
+		}
+	}
+
+	/**
+	 * @param location Either <code>resource:</code> followed by a resource path
+	 *        or a path to a directory on the disk
+	 * @return Dictionary source for the location
+	 */
+	public static IDictionarySource ParseLocation(String location)
+	{
+		if (location.startsWith(RESOURCE_LOCATION_PREFIX))
+			return new ResourceDictionarySource(location.substring(RESOURCE_LOCATION_PREFIX.length()));
+		return new FileDictionarySource(new File(location));
+	}
+
+	/**
+	 * Returns the current snapshot of the dictionary, loading it first if needed
+	 * @param name Name of the dictionary
+	 * @return The current snapshot of the dictionary
+	 * @throws IOException Problems manipulating the input files
+	 * @throws WordTreeException Data in the input files is invalid
+	 * @throws IllegalArgumentException if there is no such dictionary
+	 */
+	public DictionarySnapshot Get(String name) throws IOException, WordTreeException
+	{
+		Entry entry = GetEntry(name);
+		entry.LastAccess = m_Clock.incrementAndGet();
+		if (entry.BaseName != null)
+			return GetFolded(entry);
+		DictionarySnapshot snapshot = entry.Holder.Peek();
+		if (snapshot == null)
+		{
+			// Concurrent first uses of the same dictionary wait for a single load
+			synchronized (entry)
+			{
+				snapshot = entry.Holder.Peek();
+				if (snapshot == null)
+				{
+					snapshot = entry.Holder.Reload(entry.Source);
+					EvictIfNeeded();
+				}
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Returns the folded variant of the current snapshot of the base dictionary
+	 * @param entry Entry of the folded variant
+	 * @return The current snapshot of the folded variant
+	 */
+	private DictionarySnapshot GetFolded(Entry entry) throws IOException, WordTreeException
+	{
+		DictionarySnapshot base = Get(entry.BaseName);
+		DictionarySnapshot snapshot = entry.Holder.Peek();
+		if (snapshot == null || entry.BaseVersion != base.GetVersion())
+		{
+			synchronized (entry)
+			{
+				snapshot = entry.Holder.Peek();
+				if (snapshot == null || entry.BaseVersion != base.GetVersion())
+				{
+					FoldedDictionary folded = new FoldedDictionary(base.GetAlphabet(), base.GetWordTree(), base.GetDigraphs());
+					snapshot = entry.Holder.Publish(new DictionarySnapshot(folded, entry.Holder.NextVersion()));
+					entry.BaseVersion = base.GetVersion();
+					EvictIfNeeded();
+				}
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Reloads the dictionary from its location in the background. A folded
+	 * variant can't be reloaded by itself; reload its base dictionary instead.
+	 * @param name Name of the dictionary
+	 * @return Future yielding the newly published snapshot
+	 * @throws IllegalArgumentException if there is no such dictionary or it is a folded variant
+	 */
+	public Future<DictionarySnapshot> Reload(String name)
+	{
+		Entry entry = GetEntry(name);
+		if (entry.BaseName != null)
+			throw new IllegalArgumentException(String.format("Dictionary '%s' is a folded variant of '%s'; reload that one", name, entry.BaseName));
+		entry.LastAccess = m_Clock.incrementAndGet();
+		return entry.Holder.ReloadAsync(entry.Source);
+	}
+
+	/** @return Names of all registered dictionaries */
+	public Set<String> GetNames()
+	{
+		return new TreeSet<>(m_Entries.keySet());
+	}
+
+	/** @return Number of dictionaries currently loaded */
+	public int GetLoadedCount()
+	{
+		int count = 0;
+		for (Entry entry: m_Entries.values())
+		{
+			if (entry.Holder.IsLoaded())
+				count++;
+		}
+		return count;
+	}
+
+	/** @return The cache of the data shared between the dictionaries */
+	public DictionaryDataCache GetCache()
+	{
+		return m_Cache;
+	}
+
+	private Entry GetEntry(String name)
+	{
+		Entry entry = m_Entries.get(name);
+		if (entry == null)
+			throw new IllegalArgumentException(String.format("Unknown dictionary '%s'", name));
+		return entry;
+	}
+
+	/** Unloads the least recently used dictionaries until at most m_MaxLoaded remain */
+	private synchronized void EvictIfNeeded()
+	{
+		while (GetLoadedCount() > m_MaxLoaded)
+		{
+			Entry oldest = null;
+			for (Map.Entry<String, Entry> e: m_Entries.entrySet())
+			{
+				Entry entry = e.getValue();
+				if (entry.Holder.IsLoaded() && (oldest == null || entry.LastAccess < oldest.LastAccess))
+					oldest = entry;
+			}
+			oldest.Holder.Unload();
+		}
+	}
+}
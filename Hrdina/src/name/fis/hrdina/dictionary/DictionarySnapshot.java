@@ -0,0 +1,233 @@
+package name.fis.hrdina.dictionary;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.Digraphs;
+import name.fis.hrdina.FoldedDictionary;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.Trigrams;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.WordTreeException;
+import name.fis.hrdina.WordTreeLayout;
+import name.fis.hrdina.generators.ConditionalProbBoard;
+import name.fis.hrdina.generators.IBoardGenerator;
+import name.fis.hrdina.metrics.Metrics;
+
+/**
+ * One immutable version of a dictionary: the alphabet, the word tree and the
+ * digraph and trigram statistics that belong together. A game keeps the snapshot it was
+ * started with for its whole lifetime, even if a newer version gets published
+ * in the meantime.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class DictionarySnapshot
+{
+	/** If set (system property hrdina.layout), DictionaryHolder lays out every
+	  * loaded word tree for cache locality, see <code>WithOptimizedLayout</code> */
+	public static final boolean OPTIMIZE_LAYOUT = Boolean.getBoolean("hrdina.layout");
+	/** Number of boards the access frequencies of the layout are measured on */
+	private static final int LAYOUT_SAMPLE_BOARDS = 256;
+
+	private final Alphabet m_Alphabet;
+	private final WordTree m_Tree;
+	private final Digraphs m_Digraphs;
+	/** Trigram statistics; counted from the word tree on first use if the
+	  * dictionary has none */
+	private volatile Trigrams m_Trigrams;
+	/** Version number assigned by the holder that published this snapshot */
+	private final long m_Version;
+	/** Folding of the base dictionary if this is a variant without diacritics; null otherwise */
+	private final FoldedDictionary m_Folded;
+
+	public DictionarySnapshot(Alphabet alphabet, WordTree tree, Digraphs digraphs, long version)
+	{
+		this(alphabet, tree, digraphs, null, version);
+	}
+
+	/**
+	 * @param alphabet The alphabet
+	 * @param tree The word tree
+	 * @param digraphs The digraph statistics
+	 * @param trigrams The trigram statistics; null to count them from the tree on first use
+	 * @param version Version number of the snapshot
+	 */
+	public DictionarySnapshot(Alphabet alphabet, WordTree tree, Digraphs digraphs, Trigrams trigrams, long version)
+	{
+		m_Alphabet = alphabet;
+		m_Tree = tree;
+		m_Digraphs = digraphs;
+		m_Trigrams = trigrams;
+		m_Version = version;
+		m_Folded = null;
+	}
+
+	/**
+	 * Creates a snapshot of a variant without diacritics
+	 * @param folded The folded dictionary
+	 * @param version Version number of the snapshot
+	 */
+	public DictionarySnapshot(FoldedDictionary folded, long version)
+	{
+		m_Alphabet = folded.GetAlphabet();
+		m_Tree = folded.GetWordTree();
+		m_Digraphs = folded.GetDigraphs();
+		m_Version = version;
+		m_Folded = folded;
+	}
+
+	/**
+	 * Loads all data files of a dictionary from the given source
+	 * @param source Where to read the data files from
+	 * @param version Version number to assign to the snapshot
+	 * @return The loaded snapshot
+	 * @throws IOException Problems manipulating the input files
+	 * @throws WordTreeException Data in the input files is invalid
+	 */
+	public static DictionarySnapshot Load(IDictionarySource source, long version)
+		throws IOException, WordTreeException
+	{
+		Alphabet alphabet = new Alphabet();
+		WordTree tree = new WordTree();
+		Digraphs digraphs = new Digraphs();
+
+		long start = Metrics.ENABLED? System.nanoTime(): 0;
+		try (InputStream str = source.OpenAlphabet())
+		{
+			if (!alphabet.Load(str))
+				throw new WordTreeException("Failed to load alphabet");
+		}
+		if (Metrics.ENABLED)
+		{
+			Metrics.LOAD_ALPHABET_MICROS.Record(Metrics.MicrosSince(start));
+			start = System.nanoTime();
+		}
+		try (InputStream str = source.OpenWordTree())
+		{
+			if (!tree.Load(str, alphabet))
+				throw new WordTreeException("Failed to load word tree");
+		}
+		if (Metrics.ENABLED)
+		{
+			Metrics.LOAD_WORDTREE_MICROS.Record(Metrics.MicrosSince(start));
+			start = System.nanoTime();
+		}
+		try (InputStream str = source.OpenDigraphs())
+		{
+			if (!digraphs.Load(str, alphabet))
+				throw new WordTreeException("Failed to load digraphs");
+		}
+		if (Metrics.ENABLED)
+			Metrics.LOAD_DIGRAPHS_MICROS.Record(Metrics.MicrosSince(start));
+
+		Trigrams trigrams = new Trigrams();
+		try (InputStream str = source.OpenTrigrams())
+		{
+			if (!trigrams.Load(str, alphabet))
+				throw new WordTreeException("Failed to load trigrams");
+		}
+		catch (FileNotFoundException e)
+		{
+			// Dictionaries built before the trigram file existed
+			trigrams = null;
+		}
+
+		return new DictionarySnapshot(alphabet, tree, digraphs, trigrams, version);
+	}
+
+	/**
+	 * Checks that the snapshot is usable before it gets published to new games.
+	 * Besides basic sanity of the data, every probe word must be found in the
+	 * word tree; this catches truncated or otherwise broken word lists.
+	 * @param probeWords Words that must be valid in the dictionary, as text (they
+	 *                   get tokenized like submitted words); may be empty
+	 * @throws WordTreeException if the snapshot fails any of the checks
+	 */
+	public void Validate(Iterable<String> probeWords) throws WordTreeException
+	{
+		long start = Metrics.ENABLED? System.nanoTime(): 0;
+		if (m_Alphabet.GetSize() == 0)
+			throw new WordTreeException("Alphabet is empty");
+		if (m_Tree.GetNodeCount() == 0)
+			throw new WordTreeException("Word tree is empty");
+		for (String word: probeWords)
+		{
+			if (!m_Tree.CheckWord(m_Alphabet.Tokenize(word)).IsValidWord)
+				throw new WordTreeException(String.format("Probe word '%s' not found in the word tree", word));
+		}
+		if (Metrics.ENABLED)
+			Metrics.VALIDATE_MICROS.Record(Metrics.MicrosSince(start));
+	}
+
+	/**
+	 * Creates a new board generated from this snapshot. The generator should be
+	 * created with this snapshot's alphabet (and digraphs).
+	 * @param generator Board generation strategy
+	 * @return The initialized board
+	 */
+	public GameBoard NewBoard(IBoardGenerator generator)
+	{
+		GameBoard board = new GameBoard();
+		board.Init(m_Alphabet, m_Tree, generator);
+		return board;
+	}
+
+	/**
+	 * Creates a copy of the snapshot whose word tree is laid out for cache
+	 * locality (see <code>WordTreeLayout</code>), measured on boards of the
+	 * conditional probability generator. The words and their IDs don't change.
+	 * @return The new snapshot with the same version; this snapshot if it is a
+	 *         variant without diacritics, whose tree belongs to the folding
+	 */
+	public DictionarySnapshot WithOptimizedLayout()
+	{
+		if (m_Folded != null || m_Tree.GetNodeCount() == 0)
+			return this;
+		ConditionalProbBoard generator = new ConditionalProbBoard(m_Alphabet, m_Digraphs);
+		int edgeSize = new GameBoard().GetEdgeSize();
+		List<char[]> boards = new ArrayList<>();
+		for (int i = 0; i < LAYOUT_SAMPLE_BOARDS; i++)
+			boards.add(generator.GenerateBoard(edgeSize));
+		return new DictionarySnapshot(m_Alphabet, WordTreeLayout.Optimize(m_Tree, boards, edgeSize),
+			m_Digraphs, m_Trigrams, m_Version);
+	}
+
+	public Alphabet GetAlphabet() {
+		return m_Alphabet;
+	}
+
+	public WordTree GetWordTree() {
+		return m_Tree;
+	}
+
+	public Digraphs GetDigraphs() {
+		return m_Digraphs;
+	}
+
+	/** @return The trigram statistics, counting them from the word tree on the first call if there are none */
+	public Trigrams GetTrigrams() {
+		Trigrams trigrams = m_Trigrams;
+		if (trigrams == null) {
+			// Two threads may count the trigrams at the same time; the result is the same
+			trigrams = new Trigrams();
+			trigrams.Compute(m_Tree);
+			m_Trigrams = trigrams;
+		}
+		return trigrams;
+	}
+
+	public long GetVersion() {
+		return m_Version;
+	}
+
+	/**
+	 * @return The folded dictionary if this is a variant without diacritics (use it
+	 *         to map the found words back to their accented forms); null otherwise
+	 */
+	public FoldedDictionary GetFolded() {
+		return m_Folded;
+	}
+}
@@ -0,0 +1,57 @@
+package name.fis.hrdina.dictionary;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Dictionary source reading the data files from a directory on the disk. This
+ * is the source to use for dictionaries that are updated while the program runs.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class FileDictionarySource implements IDictionarySource
+{
+	/** Directory containing the data files */
+	private final File m_Directory;
+
+	/**
+	 * @param directory Directory containing alphabet.bin, wordtree.bin, digraph.bin
+	 *        and optionally trigram.bin
+	 */
+	public FileDictionarySource(File directory)
+	{
+		m_Directory = directory;
+	}
+
+	@Override
+	public InputStream OpenAlphabet() throws IOException {
+		return Open(ResourceDictionarySource.ALPHABET_FILE_NAME);
+	}
+
+	@Override
+	public InputStream OpenWordTree() throws IOException {
+		return Open(ResourceDictionarySource.WORDTREE_FILE_NAME);
+	}
+
+	@Override
+	public InputStream OpenDigraphs() throws IOException {
+		return Open(ResourceDictionarySource.DIGRAPH_FILE_NAME);
+	}
+
+	@Override
+	public InputStream OpenTrigrams() throws IOException {
+		return Open(ResourceDictionarySource.TRIGRAM_FILE_NAME);
+	}
+
+	private InputStream Open(String fileName) throws IOException
+	{
+		return new BufferedInputStream(new FileInputStream(new File(m_Directory, fileName)));
+	}
+
+	@Override
+	public String toString() {
+		return "file:" + m_Directory.getPath();
+	}
+}
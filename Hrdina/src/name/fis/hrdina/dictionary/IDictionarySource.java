@@ -0,0 +1,39 @@
+package name.fis.hrdina.dictionary;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Location that the data files of one dictionary (alphabet, word tree, digraph
+ * and trigram statistics) can be read from. Each call opens a new stream; the caller is
+ * responsible for closing it.
+ * @author Filip Simek <filip@fis.name>
+ */
+public interface IDictionarySource {
+	/**
+	 * @return Stream with the alphabet data
+	 * @throws IOException if the data can't be opened
+	 */
+	public InputStream OpenAlphabet() throws IOException;
+
+	/**
+	 * @return Stream with the word tree data
+	 * @throws IOException if the data can't be opened
+	 */
+	public InputStream OpenWordTree() throws IOException;
+
+	/**
+	 * @return Stream with the digraph statistics
+	 * @throws IOException if the data can't be opened
+	 */
+	public InputStream OpenDigraphs() throws IOException;
+
+	/**
+	 * @return Stream with the trigram statistics
+	 * @throws FileNotFoundException if the dictionary has no trigram statistics
+	 *         (they are then counted from the word tree)
+	 * @throws IOException if the data can't be opened
+	 */
+	public InputStream OpenTrigrams() throws IOException;
+}
@@ -0,0 +1,66 @@
+package name.fis.hrdina.dictionary;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Dictionary source reading the data files as classpath resources
+ * @author Filip Simek <filip@fis.name>
+ */
+public class ResourceDictionarySource implements IDictionarySource
+{
+	/** Name of the resource to load the alphabet from */
+	public static final String ALPHABET_FILE_NAME = "alphabet.bin";
+	/** Name of the resource to load the wordtree from */
+	public static final String WORDTREE_FILE_NAME = "wordtree.bin";
+	/** Name of the resource to load the digraph statistics from */
+	public static final String DIGRAPH_FILE_NAME = "digraph.bin";
+	/** Name of the resource to load the trigram statistics from */
+	public static final String TRIGRAM_FILE_NAME = "trigram.bin";
+
+	/** Resource path of the directory containing the data files, ending with a slash */
+	private final String m_Prefix;
+
+	/**
+	 * @param prefix Resource path of the directory containing the data files,
+	 *        e.g. <code>/name/fis/hrdina/data/</code>
+	 */
+	public ResourceDictionarySource(String prefix)
+	{
+		m_Prefix = prefix.endsWith("/")? prefix: prefix + "/";
+	}
+
+	@Override
+	public InputStream OpenAlphabet() throws IOException {
+		return Open(ALPHABET_FILE_NAME);
+	}
+
+	@Override
+	public InputStream OpenWordTree() throws IOException {
+		return Open(WORDTREE_FILE_NAME);
+	}
+
+	@Override
+	public InputStream OpenDigraphs() throws IOException {
+		return Open(DIGRAPH_FILE_NAME);
+	}
+
+	@Override
+	public InputStream OpenTrigrams() throws IOException {
+		return Open(TRIGRAM_FILE_NAME);
+	}
+
+	private InputStream Open(String fileName) throws IOException
+	{
+		InputStream str = ResourceDictionarySource.class.getResourceAsStream(m_Prefix + fileName);
+		if (str == null)
+			throw new FileNotFoundException(String.format("Resource %s%s not found", m_Prefix, fileName));
+		return str;
+	}
+
+	@Override
+	public String toString() {
+		return "resource:" + m_Prefix;
+	}
+}
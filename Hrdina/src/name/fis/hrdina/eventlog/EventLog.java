@@ -0,0 +1,415 @@
+package name.fis.hrdina.eventlog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only log of game events, written through memory-mapped segment files.
+ *
+ * Appending a record is a copy into the mapped memory of the current segment,
+ * without a system call, so logging doesn't slow down the submissions. The
+ * operating system writes the pages to the disk in the background; the data
+ * survives a crash of the program, and <code>Flush</code> makes it survive a
+ * crash of the machine as well. When a segment is full, the next one is
+ * created.
+ *
+ * Appends take no lock, so the rooms logging their games don't wait for each
+ * other: a record reserves its space in the segment by a compare-and-set of
+ * the reserved size, and is then written into that space with its own view of
+ * the buffer. Only moving to the next segment is locked. The records of one
+ * room keep their order, as the room appends them one at a time.
+ *
+ * Segments are files named <code>events-NNNNNNNN.log</code> of a fixed size.
+ * All numbers are little endian. A record is:
+ * <pre>
+ * int   length of the whole record in bytes
+ * byte  type
+ * long  time in milliseconds since the epoch
+ * long  game ID
+ * ...   body by the type:
+ *   GAME_STARTED:  long dictionary fingerprint, int duration in ms, byte edge size, byte[edge*edge] letter indices
+ *   PLAYER_JOINED: short player index, short name length, byte[] UTF-8 name
+ *   WORD_SUBMITTED: short player index, byte result, int word ID, byte length, byte[length] letter indices
+ *   GAME_ENDED:    short player count, int[player count] scores
+ * </pre>
+ * The dictionary fingerprint is <code>WordTree.GetFingerprint</code> of the
+ * dictionary of the game; the word IDs of the game only make sense with it.
+ * The unused rest of a segment is zero; a record length of 0 marks the end of
+ * the segment. The length of a record is written after the rest of it, so a
+ * record interrupted by a crash is never read (nor are the records after it
+ * in the same segment, which were being written at the same moment). A segment
+ * with records is never appended to again: a reopened log continues in a new
+ * segment, so there are no leftovers of an interrupted record to clear.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class EventLog implements Closeable
+{
+	// <editor-fold desc="Record format">
+	static final byte GAME_STARTED = 1;
+	static final byte PLAYER_JOINED = 2;
+	static final byte WORD_SUBMITTED = 3;
+	static final byte GAME_ENDED = 4;
+	/** Size of the common part of every record */
+	static final int HEADER_SIZE = 4 + 1 + 8 + 8;
+	/** Letter index written for characters that are not in the alphabet */
+	public static final byte UNKNOWN_LETTER = (byte)0xFF;
+	// </editor-fold>
+
+	/** Default size of a segment file */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+	/** Longest word that is logged with its letters */
+	public static final int MAX_WORD_LENGTH = 255;
+
+	/** A mapped segment and the space reserved in it */
+	private static class Segment
+	{
+		final int Number;
+		final MappedByteBuffer Buffer;
+		/** Bytes from the start of the segment reserved by records */
+		final AtomicInteger Reserved = new AtomicInteger(0);
+
+		Segment(int number, MappedByteBuffer buffer)
+		{
+			Number = number;
+			Buffer = buffer;
+		}
+	}
+
+	private final File m_Directory;
+	private final int m_SegmentSize;
+	/** The segment records are appended to; replaced under m_SegmentLock */
+	private volatile Segment m_Segment;
+	/** Guards moving to the next segment, flushing and closing */
+	private final Object m_SegmentLock = new Object();
+	private final AtomicLong m_LastGameId = new AtomicLong(0);
+	private volatile boolean m_Closed = false;
+
+	/**
+	 * Opens the log in the given directory. If the directory already contains
+	 * a log, new records are appended after its last record, in a new segment.
+	 * @param directory Directory of the segment files; created if it doesn't exist
+	 * @param segmentSize Size of each segment file in bytes
+	 * @throws IOException if the log can't be opened
+	 */
+	public EventLog(File directory, int segmentSize) throws IOException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException(String.format("Can't create directory %s", directory));
+		m_Directory = directory;
+		m_SegmentSize = segmentSize;
+
+		int[] segments = ListSegments(directory);
+		int number = 1;
+		if (segments.length > 0)
+		{
+			// An empty last segment (of a log opened without logging anything) is reused
+			number = segments[segments.length - 1];
+			long lastGameId = LastGameId(SegmentFile(directory, number));
+			if (lastGameId != 0)
+				number++;
+			for (int i = segments.length - 2; i >= 0 && lastGameId == 0; i--)
+				lastGameId = LastGameId(SegmentFile(directory, segments[i]));
+			m_LastGameId.set(lastGameId);
+		}
+		m_Segment = OpenSegment(number);
+	}
+
+	/**
+	 * Lists the segments of a log
+	 * @param directory Directory of the log
+	 * @return Sorted numbers of all segment files in the directory
+	 */
+	static int[] ListSegments(File directory)
+	{
+		String[] names = directory.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.matches("events-\\d{8}\\.log");
+			}
+		});
+		if (names == null)
+			return new int[0];
+		int[] numbers = new int[names.length];
+		for (int i = 0; i < names.length; i++)
+			numbers[i] = Integer.parseInt(names[i].substring(7, 15));
+		Arrays.sort(numbers);
+		return numbers;
+	}
+
+	/**
+	 * @param directory Directory of the log
+	 * @param number Number of a segment
+	 * @return The segment file
+	 */
+	static File SegmentFile(File directory, int number)
+	{
+		return new File(directory, String.format("events-%08d.log", number));
+	}
+
+	/**
+	 * Maps a segment for writing, creating it if it doesn't exist
+	 * @param number Number of the segment
+	 * @return The segment, with nothing reserved
+	 */
+	private Segment OpenSegment(int number) throws IOException
+	{
+		// A mapping doesn't depend on the file it was created from, so the file
+		// is closed right away
+		MappedByteBuffer buffer;
+		try (RandomAccessFile file = new RandomAccessFile(SegmentFile(m_Directory, number), "rw"))
+		{
+			if (file.length() < m_SegmentSize)
+				file.setLength(m_SegmentSize);
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, m_SegmentSize);
+		}
+		return new Segment(number, buffer);
+	}
+
+	/**
+	 * Moves to the segment after a full one, unless another thread already did
+	 * @param full The segment a record didn't fit in
+	 */
+	private void NextSegment(Segment full) throws IOException
+	{
+		synchronized (m_SegmentLock)
+		{
+			if (m_Segment != full || m_Closed)
+				return;
+			// The old mapping is released when it is garbage collected; there is no
+			// public way to unmap it earlier. Records still being written to it get
+			// to the disk later.
+			full.Buffer.force();
+			m_Segment = OpenSegment(full.Number + 1);
+		}
+	}
+
+	/**
+	 * Reads the records of a segment of an earlier run of the log
+	 * @param segment The segment file
+	 * @return The highest game ID of the segment's records; 0 if it has none
+	 */
+	private static long LastGameId(File segment) throws IOException
+	{
+		MappedByteBuffer buf;
+		try (RandomAccessFile file = new RandomAccessFile(segment, "r"))
+		{
+			buf = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		}
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		long lastGameId = 0;
+		int pos = 0;
+		while (pos + HEADER_SIZE <= buf.capacity())
+		{
+			int length = buf.getInt(pos);
+			if (length < HEADER_SIZE || pos + length > buf.capacity())
+				break;
+			lastGameId = Math.max(lastGameId, buf.getLong(pos + 13));
+			pos += length;
+		}
+		return lastGameId;
+	}
+
+	/**
+	 * @return A new game ID. IDs are based on the current time, so they stay
+	 *         unique when the log is reopened.
+	 */
+	public long NextGameId()
+	{
+		while (true)
+		{
+			long last = m_LastGameId.get();
+			long next = Math.max(last + 1, System.currentTimeMillis() * 1000);
+			if (m_LastGameId.compareAndSet(last, next))
+				return next;
+		}
+	}
+
+	/**
+	 * Starts a record: reserves its space, moving to a new segment if it
+	 * doesn't fit in the current one, and writes the header
+	 * @param type Type of the record
+	 * @param gameId ID of the game
+	 * @param size Size of the whole record
+	 * @return View of the record's space, positioned after the header; the
+	 *         record must be completed by <code>End</code>
+	 */
+	private ByteBuffer Begin(byte type, long gameId, int size) throws IOException
+	{
+		if (size > m_SegmentSize)
+			throw new IllegalArgumentException("Record larger than a segment");
+		while (true)
+		{
+			if (m_Closed)
+				throw new IOException("The event log is closed");
+			Segment segment = m_Segment;
+			int start = segment.Reserved.get();
+			if (start + size > m_SegmentSize)
+			{
+				NextSegment(segment);
+				continue;
+			}
+			if (!segment.Reserved.compareAndSet(start, start + size))
+				continue;
+			ByteBuffer record = segment.Buffer.duplicate();
+			record.position(start);
+			record = record.slice();
+			record.limit(size);
+			record.order(ByteOrder.LITTLE_ENDIAN);
+			record.position(4);
+			record.put(type);
+			record.putLong(System.currentTimeMillis());
+			record.putLong(gameId);
+			return record;
+		}
+	}
+
+	/**
+	 * Completes a record by writing its length. Called even if writing the
+	 * body failed, so that the records after it in the segment can be read.
+	 * @param record View of the record's space
+	 */
+	private static void End(ByteBuffer record)
+	{
+		record.putInt(0, record.limit());
+	}
+
+	/**
+	 * Logs the start of a game
+	 * @param gameId ID of the game
+	 * @param dictionaryFingerprint <code>WordTree.GetFingerprint</code> of the dictionary of the game
+	 * @param durationMillis Length of the game
+	 * @param edgeSize Size of the edge of the board
+	 * @param letters Letter indices of the board, row by row
+	 * @throws IOException if a new segment can't be created or the log is closed
+	 */
+	public void GameStarted(long gameId, long dictionaryFingerprint, int durationMillis,
+		int edgeSize, byte[] letters) throws IOException
+	{
+		ByteBuffer record = Begin(GAME_STARTED, gameId, HEADER_SIZE + 8 + 4 + 1 + letters.length);
+		try
+		{
+			record.putLong(dictionaryFingerprint);
+			record.putInt(durationMillis);
+			record.put((byte)edgeSize);
+			record.put(letters);
+		}
+		finally
+		{
+			End(record);
+		}
+	}
+
+	/**
+	 * Logs a player joining a game
+	 * @param gameId ID of the game
+	 * @param player Index of the player in the game
+	 * @param name Name of the player
+	 * @throws IOException if a new segment can't be created or the log is closed
+	 */
+	public void PlayerJoined(long gameId, int player, String name) throws IOException
+	{
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer record = Begin(PLAYER_JOINED, gameId, HEADER_SIZE + 2 + 2 + nameBytes.length);
+		try
+		{
+			record.putShort((short)player);
+			record.putShort((short)nameBytes.length);
+			record.put(nameBytes);
+		}
+		finally
+		{
+			End(record);
+		}
+	}
+
+	/**
+	 * Logs a submitted word
+	 * @param gameId ID of the game
+	 * @param player Index of the player in the game
+	 * @param result Ordinal of the result of the submission
+	 * @param wordId Dictionary ID of the word; WordTree.NO_WORD_ID if it is not a word
+	 * @param letters Letter indices of the word; only logged if it has no ID
+	 * @param length Number of letters; words longer than MAX_WORD_LENGTH are cut
+	 * @throws IOException if a new segment can't be created or the log is closed
+	 */
+	public void WordSubmitted(long gameId, int player, int result, int wordId,
+		byte[] letters, int length) throws IOException
+	{
+		int logged = wordId < 0? Math.min(Math.min(length, letters.length), MAX_WORD_LENGTH): 0;
+		ByteBuffer record = Begin(WORD_SUBMITTED, gameId, HEADER_SIZE + 2 + 1 + 4 + 1 + logged);
+		try
+		{
+			record.putShort((short)player);
+			record.put((byte)result);
+			record.putInt(wordId);
+			record.put((byte)logged);
+			record.put(letters, 0, logged);
+		}
+		finally
+		{
+			End(record);
+		}
+	}
+
+	/**
+	 * Logs the end of a game
+	 * @param gameId ID of the game
+	 * @param scores Final score of each player by the player index
+	 * @param playerCount Number of players
+	 * @throws IOException if a new segment can't be created or the log is closed
+	 */
+	public void GameEnded(long gameId, int[] scores, int playerCount) throws IOException
+	{
+		playerCount = Math.min(playerCount, scores.length);
+		ByteBuffer record = Begin(GAME_ENDED, gameId, HEADER_SIZE + 2 + 4 * playerCount);
+		try
+		{
+			record.putShort((short)playerCount);
+			for (int i = 0; i < playerCount; i++)
+				record.putInt(scores[i]);
+		}
+		finally
+		{
+			End(record);
+		}
+	}
+
+	/** Writes everything logged so far to the disk */
+	public void Flush()
+	{
+		synchronized (m_SegmentLock)
+		{
+			if (!m_Closed)
+				m_Segment.Buffer.force();
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		synchronized (m_SegmentLock)
+		{
+			if (m_Closed)
+				return;
+			m_Closed = true;
+			m_Segment.Buffer.force();
+		}
+	}
+
+	/** @return Directory of the log */
+	public File GetDirectory()
+	{
+		return m_Directory;
+	}
+}
@@ -0,0 +1,126 @@
+package name.fis.hrdina.eventlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads an event log written by <code>EventLog</code>. The segments are
+ * mapped into memory and decoded in place, and the visitor gets primitives and
+ * reused buffers, so a scan runs at the speed of the disk (or the page cache)
+ * without creating objects per record; the only exception is the name of a
+ * joining player, a String, which is rare next to the submitted words. A log
+ * that is being written can be read at the same time; the scan of a segment
+ * ends at the first record that is not complete yet.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class EventLogReader
+{
+	private final File m_Directory;
+
+	/**
+	 * @param directory Directory of the log
+	 */
+	public EventLogReader(File directory)
+	{
+		m_Directory = directory;
+	}
+
+	/**
+	 * Passes all records of the log to the visitor, in the order they were written
+	 * @param visitor Receives the records
+	 * @return Number of the records
+	 * @throws IOException if a segment can't be read
+	 */
+	public long Scan(IEventVisitor visitor) throws IOException
+	{
+		long count = 0;
+		for (int number: EventLog.ListSegments(m_Directory))
+			count += ScanSegment(EventLog.SegmentFile(m_Directory, number), visitor);
+		return count;
+	}
+
+	/**
+	 * Passes all records of one segment to the visitor
+	 * @param segment The segment file
+	 * @param visitor Receives the records
+	 * @return Number of the records
+	 * @throws IOException if the segment can't be read
+	 */
+	private long ScanSegment(File segment, IEventVisitor visitor) throws IOException
+	{
+		MappedByteBuffer buf;
+		try (RandomAccessFile file = new RandomAccessFile(segment, "r"))
+		{
+			buf = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		}
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+
+		byte[] letters = new byte[256];
+		byte[] board = new byte[256];
+		int[] scores = new int[64];
+		long count = 0;
+		int pos = 0;
+		while (pos + EventLog.HEADER_SIZE <= buf.capacity())
+		{
+			int length = buf.getInt(pos);
+			if (length < EventLog.HEADER_SIZE || pos + length > buf.capacity())
+				break;
+			buf.position(pos + 4);
+			byte type = buf.get();
+			long time = buf.getLong();
+			long gameId = buf.getLong();
+			switch (type)
+			{
+				case EventLog.GAME_STARTED:
+				{
+					long fingerprint = buf.getLong();
+					int duration = buf.getInt();
+					int edgeSize = buf.get() & 0xFF;
+					if (edgeSize * edgeSize > board.length)
+						board = new byte[edgeSize * edgeSize];
+					buf.get(board, 0, edgeSize * edgeSize);
+					visitor.GameStarted(gameId, time, fingerprint, duration, edgeSize, board);
+					break;
+				}
+				case EventLog.PLAYER_JOINED:
+				{
+					int player = buf.getShort() & 0xFFFF;
+					byte[] name = new byte[buf.getShort() & 0xFFFF];
+					buf.get(name);
+					visitor.PlayerJoined(gameId, time, player, new String(name, StandardCharsets.UTF_8));
+					break;
+				}
+				case EventLog.WORD_SUBMITTED:
+				{
+					int player = buf.getShort() & 0xFFFF;
+					int result = buf.get() & 0xFF;
+					int wordId = buf.getInt();
+					int wordLength = buf.get() & 0xFF;
+					buf.get(letters, 0, wordLength);
+					visitor.WordSubmitted(gameId, time, player, result, wordId, letters, wordLength);
+					break;
+				}
+				case EventLog.GAME_ENDED:
+				{
+					int players = buf.getShort() & 0xFFFF;
+					if (players > scores.length)
+						scores = new int[players];
+					for (int i = 0; i < players; i++)
+						scores[i] = buf.getInt();
+					visitor.GameEnded(gameId, time, scores, players);
+					break;
+				}
+				default:
+					throw new IOException(String.format("Unknown record type %d in %s at %d", type, segment, pos));
+			}
+			pos += length;
+			count++;
+		}
+		return count;
+	}
+}
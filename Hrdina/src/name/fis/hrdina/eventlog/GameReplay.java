@@ -0,0 +1,170 @@
+package name.fis.hrdina.eventlog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.WordTree;
+
+/**
+ * Rebuilds one game from an event log: its board, its players, the words they
+ * submitted and the final scores. Pass it to <code>EventLogReader.Scan</code>;
+ * records of other games are skipped. The word IDs in the log only make sense
+ * with the dictionary the game was played with, so the scan fails if the
+ * fingerprint of the given word tree is not the one logged with the game.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class GameReplay implements IEventVisitor
+{
+	/** Ordinal of <code>GameRoom.SubmitResult.ACCEPTED</code> */
+	private static final int ACCEPTED = 0;
+
+	private final long m_GameId;
+	private final Alphabet m_Alphabet;
+	private final WordTree m_Tree;
+
+	private boolean m_Started = false;
+	private boolean m_Ended = false;
+	private long m_DictionaryFingerprint;
+	private int m_EdgeSize;
+	private char[] m_Board;
+	private final List<String> m_Players = new ArrayList<>();
+	/** Accepted words of each player by the player index */
+	private final List<List<String>> m_Words = new ArrayList<>();
+	private int m_Submissions = 0;
+	private int[] m_Scores;
+
+	/**
+	 * @param gameId ID of the game to rebuild
+	 * @param tree Word tree of the dictionary the game was played with; the
+	 *        scan throws IllegalArgumentException when it reaches the start of
+	 *        the game if the tree has another fingerprint
+	 */
+	public GameReplay(long gameId, WordTree tree)
+	{
+		m_GameId = gameId;
+		m_Tree = tree;
+		m_Alphabet = tree.GetAlphabet();
+	}
+
+	@Override
+	public void GameStarted(long gameId, long time, long dictionaryFingerprint, int durationMillis,
+		int edgeSize, byte[] letters)
+	{
+		if (gameId != m_GameId)
+			return;
+		if (dictionaryFingerprint != m_Tree.GetFingerprint())
+			throw new IllegalArgumentException(String.format(
+				"Game %d was played with dictionary %016x, not with the given one (%016x)",
+				gameId, dictionaryFingerprint, m_Tree.GetFingerprint()));
+		m_Started = true;
+		m_DictionaryFingerprint = dictionaryFingerprint;
+		m_EdgeSize = edgeSize;
+		m_Board = new char[edgeSize * edgeSize];
+		for (int i = 0; i < m_Board.length; i++)
+			m_Board[i] = ToLetter(letters[i]);
+	}
+
+	@Override
+	public void PlayerJoined(long gameId, long time, int player, String name)
+	{
+		if (gameId != m_GameId)
+			return;
+		while (m_Players.size() <= player)
+		{
+			m_Players.add(null);
+			m_Words.add(new ArrayList<String>());
+		}
+		m_Players.set(player, name);
+	}
+
+	@Override
+	public void WordSubmitted(long gameId, long time, int player, int result, int wordId,
+		byte[] letters, int length)
+	{
+		if (gameId != m_GameId)
+			return;
+		m_Submissions++;
+		// Only words of the dictionary are accepted, and those are logged by their ID
+		if (wordId != WordTree.NO_WORD_ID && player < m_Words.size() && result == ACCEPTED)
+			m_Words.get(player).add(m_Tree.GetWord(wordId));
+	}
+
+	@Override
+	public void GameEnded(long gameId, long time, int[] scores, int playerCount)
+	{
+		if (gameId != m_GameId)
+			return;
+		m_Ended = true;
+		m_Scores = new int[playerCount];
+		System.arraycopy(scores, 0, m_Scores, 0, playerCount);
+	}
+
+	/**
+	 * @param index Logged letter index
+	 * @return The letter; '?' for an unknown letter
+	 */
+	private char ToLetter(byte index)
+	{
+		if (index == EventLog.UNKNOWN_LETTER)
+			return '?';
+		return m_Alphabet.GetLetterByIndex(index & 0xFF);
+	}
+
+	/** @return true if the log contains the start of the game */
+	public boolean IsStarted()
+	{
+		return m_Started;
+	}
+
+	/** @return true if the log contains the end of the game */
+	public boolean IsEnded()
+	{
+		return m_Ended;
+	}
+
+	/** @return Fingerprint of the dictionary of the game (see <code>WordTree.GetFingerprint</code>) */
+	public long GetDictionaryFingerprint()
+	{
+		return m_DictionaryFingerprint;
+	}
+
+	/** @return Size of the edge of the board */
+	public int GetEdgeSize()
+	{
+		return m_EdgeSize;
+	}
+
+	/** @return Letters of the board, row by row; null if the game didn't start in the log */
+	public char[] GetBoard()
+	{
+		return m_Board;
+	}
+
+	/** @return Names of the players by the player index */
+	public List<String> GetPlayers()
+	{
+		return Collections.unmodifiableList(m_Players);
+	}
+
+	/**
+	 * @param player Index of a player
+	 * @return Words accepted from the player, in the order they were submitted
+	 */
+	public List<String> GetWords(int player)
+	{
+		return Collections.unmodifiableList(m_Words.get(player));
+	}
+
+	/** @return Number of all submissions of the game, including the rejected ones */
+	public int GetSubmissionCount()
+	{
+		return m_Submissions;
+	}
+
+	/** @return Final scores by the player index; null if the game didn't end in the log */
+	public int[] GetScores()
+	{
+		return m_Scores;
+	}
+}
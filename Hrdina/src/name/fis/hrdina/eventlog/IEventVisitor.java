@@ -0,0 +1,55 @@
+package name.fis.hrdina.eventlog;
+
+/**
+ * Receives the records of an event log during a scan. The arguments are
+ * primitives or buffers reused by the reader, so a scan allocates nothing per
+ * record but the names of the players; a visitor that wants to keep the
+ * letters must copy them.
+ * @author Filip Simek <filip@fis.name>
+ */
+public interface IEventVisitor {
+	/**
+	 * A game started
+	 * @param gameId ID of the game
+	 * @param time Time of the event in milliseconds since the epoch
+	 * @param dictionaryFingerprint <code>WordTree.GetFingerprint</code> of the dictionary of the game
+	 * @param durationMillis Length of the game
+	 * @param edgeSize Size of the edge of the board
+	 * @param letters Letter indices of the board, row by row, in the first
+	 *        edgeSize * edgeSize entries; reused buffer
+	 */
+	public void GameStarted(long gameId, long time, long dictionaryFingerprint, int durationMillis,
+		int edgeSize, byte[] letters);
+
+	/**
+	 * A player joined a game
+	 * @param gameId ID of the game
+	 * @param time Time of the event
+	 * @param player Index of the player in the game (players are numbered from 0 in the order they joined)
+	 * @param name Name of the player
+	 */
+	public void PlayerJoined(long gameId, long time, int player, String name);
+
+	/**
+	 * A player submitted a word
+	 * @param gameId ID of the game
+	 * @param time Time of the event
+	 * @param player Index of the player in the game
+	 * @param result Ordinal of the <code>GameRoom.SubmitResult</code>
+	 * @param wordId Dictionary ID of the word; <code>WordTree.NO_WORD_ID</code> if it is not a word
+	 * @param letters Letter indices of the word if it is not a word (unknown
+	 *        letters are <code>EventLog.UNKNOWN_LETTER</code>); reused buffer
+	 * @param length Number of valid letters; 0 if the word has an ID
+	 */
+	public void WordSubmitted(long gameId, long time, int player, int result, int wordId,
+		byte[] letters, int length);
+
+	/**
+	 * A game ended
+	 * @param gameId ID of the game
+	 * @param time Time of the event
+	 * @param scores Final score of each player by the player index; reused buffer
+	 * @param playerCount Number of valid scores
+	 */
+	public void GameEnded(long gameId, long time, int[] scores, int playerCount);
+}
@@ -0,0 +1,171 @@
+package name.fis.hrdina.game;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.GameBoard;
+
+/**
+ * All solutions of one board, numbered once so that the progress of every
+ * player on the board can be a bit set over the numbers (see
+ * <code>PlayerProgress</code>). The instance is immutable and shared by all
+ * players of the board.
+ *
+ * Words are numbered from the highest value, so the first clear bit of a
+ * player's set is the most valuable word the player hasn't found yet. For every
+ * word length there is a mask of the words of that length, so hints and counts
+ * by length are a few bit operations per 64 words.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BoardSolutions
+{
+	/** Value returned for words that are not solutions of the board */
+	public static final int NO_WORD = -1;
+
+	/** Words ordered from the highest value */
+	private final String[] m_Words;
+	private final int[] m_Values;
+	/** Length of each word in letters (tiles count as one letter) */
+	private final int[] m_Lengths;
+	private final Map<String, Integer> m_Numbers;
+	/** For each word length, bit set of the words of that length */
+	private final long[][] m_LengthMasks;
+	/** Number of longs of the bit sets */
+	private final int m_SetSize;
+
+	/**
+	 * Solves the board and numbers the solutions
+	 * @param board The board
+	 */
+	public BoardSolutions(GameBoard board)
+	{
+		this(board.SolveBoard(), board.GetAlphabet());
+	}
+
+	/**
+	 * Numbers the given solutions
+	 * @param solutions Unique words found on a board
+	 * @param alphabet Alphabet scoring the words
+	 */
+	public BoardSolutions(List<String> solutions, Alphabet alphabet)
+	{
+		final Map<String, Integer> values = new HashMap<>(solutions.size() * 2);
+		for (String word: solutions)
+			values.put(word, alphabet.GetWordValue(word));
+		String[] words = solutions.toArray(new String[solutions.size()]);
+		Arrays.sort(words, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				int diff = values.get(b) - values.get(a);
+				return diff != 0? diff: a.compareTo(b);
+			}
+		});
+
+		m_Words = words;
+		m_Values = new int[words.length];
+		m_Lengths = new int[words.length];
+		m_Numbers = new HashMap<>(words.length * 2);
+		m_SetSize = (words.length + 63) >>> 6;
+		int maxLength = 0;
+		for (int i = 0; i < words.length; i++)
+		{
+			m_Values[i] = values.get(words[i]);
+			m_Lengths[i] = words[i].length();
+			m_Numbers.put(words[i], i);
+			maxLength = Math.max(maxLength, m_Lengths[i]);
+		}
+		m_LengthMasks = new long[maxLength + 1][m_SetSize];
+		for (int i = 0; i < words.length; i++)
+			m_LengthMasks[m_Lengths[i]][i >>> 6] |= 1L << i;
+	}
+
+	/** @return Number of solutions of the board */
+	public int GetWordCount()
+	{
+		return m_Words.length;
+	}
+
+	/**
+	 * @param word A word
+	 * @return Number of the word; NO_WORD if it is not a solution of the board
+	 */
+	public int GetNumber(String word)
+	{
+		Integer number = m_Numbers.get(word);
+		return number == null? NO_WORD: number;
+	}
+
+	/**
+	 * @param number Number of a word
+	 * @return The word
+	 */
+	public String GetWord(int number)
+	{
+		return m_Words[number];
+	}
+
+	/**
+	 * @param number Number of a word
+	 * @return Point value of the word
+	 */
+	public int GetValue(int number)
+	{
+		return m_Values[number];
+	}
+
+	/**
+	 * @param number Number of a word
+	 * @return Length of the word in letters
+	 */
+	public int GetLength(int number)
+	{
+		return m_Lengths[number];
+	}
+
+	/** @return Sum of the values of all solutions, the maximal score of a player */
+	public int GetTotalValue()
+	{
+		int total = 0;
+		for (int value: m_Values)
+			total += value;
+		return total;
+	}
+
+	/** @return Length of the longest solution; 0 if there are none */
+	public int GetMaxLength()
+	{
+		return m_LengthMasks.length - 1;
+	}
+
+	/** @return All solutions ordered from the highest value */
+	public List<String> GetWords()
+	{
+		return Collections.unmodifiableList(Arrays.asList(m_Words));
+	}
+
+	/** @return A new player progress over these solutions with no words found */
+	public PlayerProgress NewProgress()
+	{
+		return new PlayerProgress(this);
+	}
+
+	/** @return Number of longs of a bit set over the solutions */
+	int GetSetSize()
+	{
+		return m_SetSize;
+	}
+
+	/**
+	 * @param length Word length
+	 * @return Bit set of the words of the given length; null if there are none.
+	 *         The array must not be modified.
+	 */
+	long[] GetLengthMask(int length)
+	{
+		return length < m_LengthMasks.length? m_LengthMasks[length]: null;
+	}
+}
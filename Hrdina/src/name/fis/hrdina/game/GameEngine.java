@@ -0,0 +1,275 @@
+package name.fis.hrdina.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import name.fis.hrdina.BoardQualityEstimator;
+import name.fis.hrdina.BoardStatistics;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.dictionary.DictionaryHolder;
+import name.fis.hrdina.dictionary.DictionarySnapshot;
+import name.fis.hrdina.eventlog.EventLog;
+import name.fis.hrdina.generators.IBoardGenerator;
+import name.fis.hrdina.generators.TrigramBoard;
+import name.fis.hrdina.metrics.Metrics;
+
+/**
+ * Hosts many games (rooms) at once over a shared dictionary.
+ *
+ * Every room processes its own operations one at a time on a serial executor
+ * (see <code>GameRoom</code>), and all rooms share one small pool of worker
+ * threads, so there is no lock shared between rooms and a room only holds a
+ * thread while it has work queued. A new room takes the current snapshot of
+ * the dictionary and keeps it for the whole game, so the dictionary can be
+ * reloaded while games are running.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class GameEngine
+{
+	/** Number of boards generated at most when looking for one with enough words */
+	private static final int MAX_BOARD_ATTEMPTS = 20;
+	/** Whether boards are first checked by <code>BoardQualityEstimator</code>, and
+	  * only those that may have enough words are solved */
+	public static final boolean ESTIMATE_BOARDS = Boolean.getBoolean("hrdina.estimate");
+	/** How long a room stays after its game ended, from the system property
+	  * hrdina.retention, so that the players can still read the final scores */
+	public static final long RETENTION_MILLIS = Long.getLong("hrdina.retention", 300000);
+
+	private final DictionaryHolder m_Dictionary;
+	private final ConcurrentMap<String, GameRoom> m_Rooms = new ConcurrentHashMap<>();
+	/** Worker threads shared by all rooms */
+	private final ExecutorService m_Workers;
+	/** Ends the games when their time is up and removes the finished rooms */
+	private final ScheduledExecutorService m_Timer;
+	/** Log of the events of all games; null if the games are not logged */
+	private final EventLog m_Log;
+	/** How long a room stays after its game ended */
+	private final long m_RetentionMillis;
+	/** Grader of the candidate boards of each thread creating rooms; replaced
+	  * when a room uses another word tree */
+	private final ThreadLocal<BoardStatistics> m_Statistics = new ThreadLocal<>();
+
+	/**
+	 * @param dictionary Holder of the dictionary; new rooms use its current snapshot
+	 * @param threads Number of worker threads shared by all rooms
+	 */
+	public GameEngine(DictionaryHolder dictionary, int threads)
+	{
+		this(dictionary, threads, null);
+	}
+
+	/**
+	 * @param dictionary Holder of the dictionary; new rooms use its current snapshot
+	 * @param threads Number of worker threads shared by all rooms
+	 * @param log Log to write the events of all games to; null to not log them.
+	 *        The caller closes the log after the engine is shut down.
+	 */
+	public GameEngine(DictionaryHolder dictionary, int threads, EventLog log)
+	{
+		this(dictionary, threads, log, RETENTION_MILLIS);
+	}
+
+	/**
+	 * @param dictionary Holder of the dictionary; new rooms use its current snapshot
+	 * @param threads Number of worker threads shared by all rooms
+	 * @param log Log to write the events of all games to; null to not log them.
+	 *        The caller closes the log after the engine is shut down.
+	 * @param retentionMillis How long a room stays after its game ended
+	 *        before it is removed
+	 */
+	public GameEngine(DictionaryHolder dictionary, int threads, EventLog log, long retentionMillis)
+	{
+		m_Dictionary = dictionary;
+		m_Log = log;
+		m_RetentionMillis = retentionMillis;
+		m_Workers = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("game-worker"));
+		m_Timer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("game-timer"));
+	}
+
+	/** Names the threads of the engine and makes them daemons */
+	private static class DaemonThreadFactory implements ThreadFactory
+	{
+		private final String m_Prefix;
+		private final AtomicInteger m_Count = new AtomicInteger();
+
+		DaemonThreadFactory(String prefix)
+		{
+			m_Prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, m_Prefix + "-" + m_Count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Creates a room with a board generated by the trigram generator. Boards
+	 * with fewer than the given number of words are thrown away and generated
+	 * again (up to a limit, after which the best one is used).
+	 * With <code>ESTIMATE_BOARDS</code>, boards that clearly have too few words
+	 * are thrown away without solving them; the last attempt is always solved.
+	 * @param name Name of the room
+	 * @param durationMillis Length of the game
+	 * @param minWords Minimal number of words of the board
+	 * @return The new room
+	 * @throws IllegalArgumentException if a room of the name already exists
+	 */
+	public GameRoom CreateRoom(String name, long durationMillis, int minWords)
+	{
+		DictionarySnapshot dictionary = m_Dictionary.Get();
+		return CreateRoom(name, durationMillis, minWords, dictionary,
+			new TrigramBoard(dictionary.GetAlphabet(), dictionary.GetTrigrams()));
+	}
+
+	/**
+	 * Creates a room with a board from the given generator
+	 * @param name Name of the room
+	 * @param durationMillis Length of the game
+	 * @param minWords Minimal number of words of the board
+	 * @param dictionary The dictionary of the game
+	 * @param generator Board generation strategy
+	 * @return The new room
+	 * @throws IllegalArgumentException if a room of the name already exists
+	 */
+	public GameRoom CreateRoom(String name, long durationMillis, int minWords,
+		DictionarySnapshot dictionary, IBoardGenerator generator)
+	{
+		if (m_Rooms.containsKey(name))
+			throw new IllegalArgumentException(String.format("Room %s already exists", name));
+
+		BoardStatistics statistics = m_Statistics.get();
+		if (statistics == null || statistics.GetWordTree() != dictionary.GetWordTree())
+		{
+			statistics = new BoardStatistics(dictionary.GetWordTree());
+			m_Statistics.set(statistics);
+		}
+		// Candidates are only counted; the solutions are listed for the chosen board
+		GameBoard bestBoard = null;
+		int bestWords = -1;
+		BoardQualityEstimator estimator = ESTIMATE_BOARDS?
+			new BoardQualityEstimator(dictionary.GetWordTree(), new Random()): null;
+		for (int i = 0; i < MAX_BOARD_ATTEMPTS; i++)
+		{
+			GameBoard board = dictionary.NewBoard(generator);
+			if (estimator != null && i < MAX_BOARD_ATTEMPTS - 1
+				&& estimator.IsClearlyBelow(board.GetLetters(), board.GetEdgeSize(), minWords))
+			{
+				if (Metrics.ENABLED)
+					Metrics.ESTIMATE_REJECTIONS.Increment();
+				continue;
+			}
+			statistics.Grade(board);
+			if (statistics.GetWordCount() > bestWords)
+			{
+				bestWords = statistics.GetWordCount();
+				bestBoard = board;
+			}
+			if (bestWords >= minWords)
+				break;
+			if (Metrics.ENABLED)
+				Metrics.BOARD_REJECTIONS.Increment();
+		}
+
+		BoardSolutions solutions = new BoardSolutions(bestBoard);
+		return AddRoom(new GameRoom(name, dictionary, bestBoard, solutions, durationMillis, m_Workers, m_Log),
+			durationMillis);
+	}
+
+	/**
+	 * Creates a room of a tournament: all rooms of the tournament play the same
+	 * board and report the scores of their players to a shared leaderboard
+	 * @param name Name of the room
+	 * @param durationMillis Length of the game
+	 * @param dictionary The dictionary of the game
+	 * @param board The board of the tournament
+	 * @param solutions Solutions of the board, shared by the rooms of the tournament
+	 * @param leaderboard Ranking of the tournament, with a maximal score of at
+	 *        least <code>solutions.GetTotalValue()</code>
+	 * @return The new room
+	 * @throws IllegalArgumentException if a room of the name already exists, or
+	 *         the maximal score of the leaderboard is too low
+	 */
+	public GameRoom CreateRoom(String name, long durationMillis, DictionarySnapshot dictionary,
+		GameBoard board, BoardSolutions solutions, Leaderboard leaderboard)
+	{
+		if (m_Rooms.containsKey(name))
+			throw new IllegalArgumentException(String.format("Room %s already exists", name));
+		return AddRoom(new GameRoom(name, dictionary, board, solutions, durationMillis, m_Workers, m_Log, leaderboard),
+			durationMillis);
+	}
+
+	/**
+	 * Registers a new room and schedules the end of its game and its removal
+	 * @param room The room
+	 * @param durationMillis Length of the game
+	 * @return The room
+	 * @throws IllegalArgumentException if a room of the name already exists
+	 */
+	private GameRoom AddRoom(final GameRoom room, long durationMillis)
+	{
+		if (m_Rooms.putIfAbsent(room.GetName(), room) != null)
+			throw new IllegalArgumentException(String.format("Room %s already exists", room.GetName()));
+		m_Timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				room.Finish();
+			}
+		}, durationMillis, TimeUnit.MILLISECONDS);
+		m_Timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				// Only this room; the name may have been closed and reused since
+				m_Rooms.remove(room.GetName(), room);
+			}
+		}, durationMillis + m_RetentionMillis, TimeUnit.MILLISECONDS);
+		return room;
+	}
+
+	/**
+	 * @param name Name of a room
+	 * @return The room; null if there is no such room
+	 */
+	public GameRoom GetRoom(String name)
+	{
+		return m_Rooms.get(name);
+	}
+
+	/** @return Names of all rooms, sorted */
+	public List<String> GetRoomNames()
+	{
+		List<String> names = new ArrayList<>(m_Rooms.keySet());
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 * Removes a room before it is removed on its own, RETENTION_MILLIS after
+	 * its game ended. Operations already queued on the room still finish.
+	 * @param name Name of the room
+	 * @return true if the room existed
+	 */
+	public boolean CloseRoom(String name)
+	{
+		return m_Rooms.remove(name) != null;
+	}
+
+	/** Stops the worker threads and the timer. Queued operations are still finished. */
+	public void Shutdown()
+	{
+		m_Timer.shutdownNow();
+		m_Workers.shutdown();
+	}
+}
@@ -0,0 +1,457 @@
+package name.fis.hrdina.game;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.dictionary.DictionarySnapshot;
+import name.fis.hrdina.eventlog.EventLog;
+
+/**
+ * One running game: a board, its timer and the players playing it.
+ *
+ * A room has a single writer: every operation that reads or changes the
+ * players is queued on the room's serial executor and returns a future. The
+ * player map and progresses are therefore only touched by one thread at a
+ * time, without any locks, and submissions of one room never wait for another
+ * room. The board, its solutions and the dictionary snapshot are immutable and
+ * can be read from any thread.
+ *
+ * If the room has an event log, the start of the game, the players joining,
+ * every submission and the final scores are written to it, so the game can be
+ * replayed later (see <code>GameReplay</code>).
+ * @author Filip Simek <filip@fis.name>
+ */
+public class GameRoom
+{
+	/** Result of a submitted word */
+	public enum SubmitResult {
+		/** A new word of the player; it was added to the player's score */
+		ACCEPTED,
+		/** The player already found the word */
+		ALREADY_FOUND,
+		/** The word is not on the board or not in the dictionary */
+		NOT_A_WORD,
+		/** The player didn't join the room */
+		NOT_JOINED,
+		/** The time of the game is up */
+		GAME_OVER
+	}
+
+	private final String m_Name;
+	private final DictionarySnapshot m_Dictionary;
+	private final GameBoard m_Board;
+	private final BoardSolutions m_Solutions;
+	/** System.currentTimeMillis() when the game ends */
+	private final long m_EndTime;
+	private final SerialExecutor m_Queue;
+	/** Log of the game's events; null if the game is not logged */
+	private final EventLog m_Log;
+	private final long m_GameId;
+	/** Ranking of the tournament the room is part of; null if it is not part of one */
+	private final Leaderboard m_Leaderboard;
+
+	// <editor-fold desc="Accessed only from the room's executor">
+	private final Map<String, PlayerProgress> m_Players = new HashMap<>();
+	/** Index of each player in the event log, in the order they joined */
+	private final Map<String, Integer> m_PlayerIndices = new HashMap<>();
+	/** Index of each player in the leaderboard; empty if the room is not part of a tournament */
+	private final Map<String, Integer> m_LeaderboardIndices = new HashMap<>();
+	private boolean m_Finished = false;
+	// </editor-fold>
+
+	/**
+	 * @param name Name of the room
+	 * @param dictionary The dictionary the board was generated from
+	 * @param board The board
+	 * @param solutions Numbered solutions of the board
+	 * @param durationMillis Length of the game
+	 * @param executor Shared executor running the rooms' tasks
+	 */
+	GameRoom(String name, DictionarySnapshot dictionary, GameBoard board, BoardSolutions solutions,
+		long durationMillis, Executor executor)
+	{
+		this(name, dictionary, board, solutions, durationMillis, executor, null);
+	}
+
+	/**
+	 * @param name Name of the room
+	 * @param dictionary The dictionary the board was generated from
+	 * @param board The board
+	 * @param solutions Numbered solutions of the board
+	 * @param durationMillis Length of the game
+	 * @param executor Shared executor running the rooms' tasks
+	 * @param log Log of the game's events; null to not log the game
+	 */
+	GameRoom(String name, DictionarySnapshot dictionary, GameBoard board, BoardSolutions solutions,
+		long durationMillis, Executor executor, EventLog log)
+	{
+		this(name, dictionary, board, solutions, durationMillis, executor, log, null);
+	}
+
+	/**
+	 * @param name Name of the room
+	 * @param dictionary The dictionary the board was generated from
+	 * @param board The board
+	 * @param solutions Numbered solutions of the board
+	 * @param durationMillis Length of the game
+	 * @param executor Shared executor running the rooms' tasks
+	 * @param log Log of the game's events; null to not log the game
+	 * @param leaderboard Ranking of the tournament the room is part of; the
+	 *        players join it and their accepted words add to it. Null if the
+	 *        room is not part of a tournament.
+	 * @throws IllegalArgumentException if the maximal score of the leaderboard
+	 *         is lower than the total value of the solutions
+	 */
+	GameRoom(String name, DictionarySnapshot dictionary, GameBoard board, BoardSolutions solutions,
+		long durationMillis, Executor executor, EventLog log, Leaderboard leaderboard)
+	{
+		if (leaderboard != null && leaderboard.GetMaxScore() < solutions.GetTotalValue())
+			throw new IllegalArgumentException(String.format("Leaderboard maximal score %d is below the total value %d",
+				leaderboard.GetMaxScore(), solutions.GetTotalValue()));
+		m_Name = name;
+		m_Dictionary = dictionary;
+		m_Board = board;
+		m_Solutions = solutions;
+		m_EndTime = System.currentTimeMillis() + durationMillis;
+		m_Queue = new SerialExecutor(executor, new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread thread, Throwable e) {
+				TaskFailed(e);
+			}
+		});
+		m_Log = log;
+		m_GameId = log != null? log.NextGameId(): 0;
+		m_Leaderboard = leaderboard;
+
+		if (m_Log != null)
+		{
+			char[] letters = board.GetLetters();
+			byte[] indices = new byte[letters.length];
+			for (int i = 0; i < letters.length; i++)
+				indices[i] = ToLogIndex(letters[i]);
+			try
+			{
+				m_Log.GameStarted(m_GameId, dictionary.GetWordTree().GetFingerprint(), (int)durationMillis,
+					board.GetEdgeSize(), indices);
+			}
+			catch (IOException e)
+			{
+				LogFailed(e);
+			}
+		}
+	}
+
+	/**
+	 * @param letter A letter
+	 * @return Index of the letter as it is written to the event log
+	 */
+	private byte ToLogIndex(char letter)
+	{
+		int index = m_Dictionary.GetAlphabet().GetIndexOfLetter(letter);
+		return index == Alphabet.NO_LETTER_INDEX? EventLog.UNKNOWN_LETTER: (byte)index;
+	}
+
+	/**
+	 * Reports a task of the room that failed with an exception. The room goes
+	 * on with its next task.
+	 * @param e The failure
+	 */
+	private void TaskFailed(Throwable e)
+	{
+		System.err.println(String.format("Room %s: task failed: %s", m_Name, e));
+	}
+
+	/**
+	 * Reports a failure to write to the event log. The game goes on without the record.
+	 * @param e The failure
+	 */
+	private void LogFailed(IOException e)
+	{
+		System.err.println(String.format("Room %s: can't write to the event log: %s", m_Name, e.getMessage()));
+	}
+
+	/**
+	 * Queues a task on the room's executor
+	 * @param task The task
+	 * @return Future of the task's result
+	 */
+	private <T> Future<T> Enqueue(Callable<T> task)
+	{
+		FutureTask<T> future = new FutureTask<>(task);
+		m_Queue.execute(future);
+		return future;
+	}
+
+	/**
+	 * Adds a player to the room. Joining a finished game is allowed; the player
+	 * can see the board and the scores but can't submit words.
+	 * In a tournament the player also joins the leaderboard, as
+	 * <code>LeaderboardName</code>, so players of the same name in different
+	 * rooms are ranked separately.
+	 * @param player Name of the player
+	 * @return Future yielding true if the player joined; false if a player
+	 *         of that name is already in the room. Fails with
+	 *         IllegalStateException if the leaderboard is full; the player is
+	 *         then not in the room.
+	 */
+	public Future<Boolean> Join(final String player)
+	{
+		return Enqueue(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				if (m_Players.containsKey(player))
+					return false;
+				// Join the leaderboard first: if it is full, the room stays as it was
+				if (m_Leaderboard != null)
+					m_LeaderboardIndices.put(player, m_Leaderboard.Join(LeaderboardName(player)));
+				m_Players.put(player, m_Solutions.NewProgress());
+				int index = m_PlayerIndices.size();
+				m_PlayerIndices.put(player, index);
+				if (m_Log != null)
+				{
+					try
+					{
+						m_Log.PlayerJoined(m_GameId, index, player);
+					}
+					catch (IOException e)
+					{
+						LogFailed(e);
+					}
+				}
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * @param player Name of a player of the room
+	 * @return Name of the player in the leaderboard of the tournament
+	 */
+	public String LeaderboardName(String player)
+	{
+		return player + "@" + m_Name;
+	}
+
+	/**
+	 * Submits a word found by a player
+	 * @param player Name of the player
+	 * @param text The word as the player typed it (multi-letter tiles spelled out)
+	 * @return Future yielding the result of the submission
+	 */
+	public Future<SubmitResult> Submit(final String player, final String text)
+	{
+		return Enqueue(new Callable<SubmitResult>() {
+			@Override
+			public SubmitResult call() {
+				PlayerProgress progress = m_Players.get(player);
+				if (progress == null)
+					return SubmitResult.NOT_JOINED;
+				String word = m_Dictionary.GetAlphabet().Tokenize(text);
+				SubmitResult result;
+				if (CheckFinished())
+				{
+					result = SubmitResult.GAME_OVER;
+				}
+				else
+				{
+					int score = progress.GetScore();
+					switch (progress.MarkFound(word))
+					{
+						case NEW:
+							result = SubmitResult.ACCEPTED;
+							if (m_Leaderboard != null)
+								m_Leaderboard.AddScore(m_LeaderboardIndices.get(player), progress.GetScore() - score);
+							break;
+						case ALREADY_FOUND:
+							result = SubmitResult.ALREADY_FOUND;
+							break;
+						default:
+							result = SubmitResult.NOT_A_WORD;
+							break;
+					}
+				}
+				if (m_Log != null)
+					LogSubmission(m_PlayerIndices.get(player), result, word);
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Writes a submission to the event log. Words of the dictionary are written
+	 * as their ID, other text as the letter indices.
+	 * @param player Index of the player
+	 * @param result Result of the submission
+	 * @param word The submitted word, tokenized
+	 */
+	private void LogSubmission(int player, SubmitResult result, String word)
+	{
+		int wordId = m_Dictionary.GetWordTree().GetWordId(word);
+		byte[] letters = new byte[0];
+		int length = 0;
+		if (wordId == WordTree.NO_WORD_ID)
+		{
+			length = Math.min(word.length(), EventLog.MAX_WORD_LENGTH);
+			letters = new byte[length];
+			for (int i = 0; i < length; i++)
+				letters[i] = ToLogIndex(word.charAt(i));
+		}
+		try
+		{
+			m_Log.WordSubmitted(m_GameId, player, result.ordinal(), wordId, letters, length);
+		}
+		catch (IOException e)
+		{
+			LogFailed(e);
+		}
+	}
+
+	/**
+	 * Finds a hint for a player
+	 * @param player Name of the player
+	 * @param length Length of the hinted word in letters; 0 for any length
+	 * @return Future yielding the text of the most valuable word of the given
+	 *         length the player hasn't found yet; null if there is none or the
+	 *         player didn't join
+	 */
+	public Future<String> Hint(final String player, final int length)
+	{
+		return Enqueue(new Callable<String>() {
+			@Override
+			public String call() {
+				PlayerProgress progress = m_Players.get(player);
+				if (progress == null)
+					return null;
+				int number = length == 0? progress.GetBestUnfound(): progress.GetBestUnfound(length);
+				if (number == BoardSolutions.NO_WORD)
+					return null;
+				return m_Dictionary.GetAlphabet().Detokenize(m_Solutions.GetWord(number));
+			}
+		});
+	}
+
+	/**
+	 * @return Future yielding the score of every player, ordered from the best one
+	 */
+	public Future<Map<String, Integer>> GetScores()
+	{
+		return Enqueue(new Callable<Map<String, Integer>>() {
+			@Override
+			public Map<String, Integer> call() {
+				List<Map.Entry<String, PlayerProgress>> players = new ArrayList<>(m_Players.entrySet());
+				Collections.sort(players, new Comparator<Map.Entry<String, PlayerProgress>>() {
+					@Override
+					public int compare(Map.Entry<String, PlayerProgress> a, Map.Entry<String, PlayerProgress> b) {
+						int diff = b.getValue().GetScore() - a.getValue().GetScore();
+						return diff != 0? diff: a.getKey().compareTo(b.getKey());
+					}
+				});
+				Map<String, Integer> scores = new LinkedHashMap<>();
+				for (Map.Entry<String, PlayerProgress> e: players)
+					scores.put(e.getKey(), e.getValue().GetScore());
+				return scores;
+			}
+		});
+	}
+
+	/**
+	 * Ends the game. Called by the engine's timer when the time is up; the
+	 * submissions check the time themselves as well, so a late timer never
+	 * lets a late word in.
+	 */
+	void Finish()
+	{
+		m_Queue.execute(new Runnable() {
+			@Override
+			public void run() {
+				m_Finished = true;
+				if (m_Log != null)
+				{
+					int[] scores = new int[m_PlayerIndices.size()];
+					for (Map.Entry<String, Integer> e: m_PlayerIndices.entrySet())
+						scores[e.getValue()] = m_Players.get(e.getKey()).GetScore();
+					try
+					{
+						m_Log.GameEnded(m_GameId, scores, scores.length);
+					}
+					catch (IOException e)
+					{
+						LogFailed(e);
+					}
+				}
+			}
+		});
+	}
+
+	/** @return true if the game is over; must be called on the room's executor */
+	private boolean CheckFinished()
+	{
+		if (!m_Finished && System.currentTimeMillis() >= m_EndTime)
+			m_Finished = true;
+		return m_Finished;
+	}
+
+	/** @return Ranking of the tournament the room is part of; null if it is not part of one */
+	public Leaderboard GetLeaderboard()
+	{
+		return m_Leaderboard;
+	}
+
+	/** @return ID of the game in the event log; 0 if the game is not logged */
+	public long GetGameId()
+	{
+		return m_GameId;
+	}
+
+	/** @return Name of the room */
+	public String GetName()
+	{
+		return m_Name;
+	}
+
+	/** @return The board of the game */
+	public GameBoard GetBoard()
+	{
+		return m_Board;
+	}
+
+	/** @return Text of the letters of the board, row by row */
+	public List<String> GetBoardText()
+	{
+		Alphabet alphabet = m_Dictionary.GetAlphabet();
+		List<String> letters = new ArrayList<>();
+		for (char letter: m_Board.GetLetters())
+			letters.add(alphabet.GetLetterText(letter));
+		return letters;
+	}
+
+	/** @return All solutions of the board */
+	public BoardSolutions GetSolutions()
+	{
+		return m_Solutions;
+	}
+
+	/** @return The dictionary of the game */
+	public DictionarySnapshot GetDictionary()
+	{
+		return m_Dictionary;
+	}
+
+	/** @return Milliseconds until the end of the game; 0 if it is over */
+	public long GetTimeLeft()
+	{
+		return Math.max(0, m_EndTime - System.currentTimeMillis());
+	}
+}
@@ -0,0 +1,367 @@
+package name.fis.hrdina.game;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import name.fis.hrdina.Main;
+import name.fis.hrdina.WordTreeException;
+import name.fis.hrdina.dictionary.DictionaryHolder;
+import name.fis.hrdina.dictionary.ResourceDictionarySource;
+
+/**
+ * Drives a <code>GameEngine</code> through a text protocol on a local socket,
+ * so that games can be played and tested on one machine. The server only
+ * listens on the loopback interface.
+ *
+ * Every request is one line of UTF-8 text, words separated by spaces; every
+ * response is one line starting with <code>OK</code> or <code>ERR</code>:
+ * <pre>
+ * ROOMS                          OK room1 room2 ...
+ * CREATE room seconds [minWords] OK
+ * CLOSE room                     OK
+ * BOARD room                     OK timeLeftMillis letter1 letter2 ...
+ * JOIN room player               OK | ERR player exists
+ * SUBMIT room player word        OK ACCEPTED|ALREADY_FOUND|NOT_A_WORD|NOT_JOINED|GAME_OVER
+ * HINT room player [length]      OK word | OK -
+ * SCORES room                    OK player1=score1 player2=score2 ...
+ * READY                          OK | ERR warming up
+ * QUIT                           (closes the connection)
+ * </pre>
+ * A server started by <code>main</code> answers the other requests while it
+ * warms up (see <code>Warmup</code>), but READY fails until the warm-up is
+ * done, so that a load balancer checking READY only sends players to warm
+ * servers.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class GameServer implements Closeable
+{
+	/** Port used by <code>main</code> if none is given */
+	public static final int DEFAULT_PORT = 7070;
+	/** How long a connection waits for a room to process a request */
+	private static final long REQUEST_TIMEOUT_SECONDS = 10;
+
+	private final GameEngine m_Engine;
+	private final ServerSocket m_Socket;
+	private final Thread m_Acceptor;
+	private volatile boolean m_Closed = false;
+	private volatile boolean m_Ready;
+
+	/**
+	 * Starts listening, ready
+	 * @param engine The engine to drive
+	 * @param port Port to listen on; 0 for any free port
+	 * @throws IOException if the socket can't be opened
+	 */
+	public GameServer(GameEngine engine, int port) throws IOException
+	{
+		this(engine, port, true);
+	}
+
+	/**
+	 * Starts listening
+	 * @param engine The engine to drive
+	 * @param port Port to listen on; 0 for any free port
+	 * @param ready Whether READY succeeds; see <code>SetReady</code>
+	 * @throws IOException if the socket can't be opened
+	 */
+	public GameServer(GameEngine engine, int port, boolean ready) throws IOException
+	{
+		m_Engine = engine;
+		m_Ready = ready;
+		m_Socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		m_Acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Accept();
+			}
+		}, "game-server");
+		m_Acceptor.setDaemon(true);
+		m_Acceptor.start();
+	}
+
+	/**
+	 * @param ready Whether the READY request succeeds, i.e. the server should
+	 *        get players
+	 */
+	public void SetReady(boolean ready)
+	{
+		m_Ready = ready;
+	}
+
+	/** @return Whether the READY request succeeds */
+	public boolean IsReady()
+	{
+		return m_Ready;
+	}
+
+	/** @return The port the server listens on */
+	public int GetPort()
+	{
+		return m_Socket.getLocalPort();
+	}
+
+	/** Stops accepting connections. Connections already open are served until they end. */
+	@Override
+	public void close() throws IOException
+	{
+		m_Closed = true;
+		m_Socket.close();
+	}
+
+	/** Accepts connections and serves each of them on its own thread */
+	private void Accept()
+	{
+		while (!m_Closed)
+		{
+			final Socket client;
+			try
+			{
+				client = m_Socket.accept();
+			}
+			catch (IOException e)
+			{
+				if (!m_Closed)
+					System.err.println(String.format("Accepting a connection failed: %s", e.getMessage()));
+				continue;
+			}
+			Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Serve(client);
+				}
+			}, "game-client-" + client.getPort());
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	/**
+	 * Serves one connection until the client quits or disconnects
+	 * @param client The connection
+	 */
+	private void Serve(Socket client)
+	{
+		try (Socket s = client;
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+			BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = in.readLine()) != null)
+			{
+				String[] request = line.trim().split("\\s+");
+				if (request[0].equalsIgnoreCase("QUIT"))
+					break;
+				String response;
+				try
+				{
+					response = "OK" + Handle(request);
+				}
+				catch (IllegalArgumentException | IllegalStateException e)
+				{
+					response = "ERR " + e.getMessage();
+				}
+				out.write(response);
+				out.write('\n');
+				out.flush();
+			}
+		}
+		catch (SocketException e)
+		{
+			// The client disconnected
+		}
+		catch (IOException e)
+		{
+			System.err.println(String.format("Connection failed: %s", e.getMessage()));
+		}
+	}
+
+	/**
+	 * Processes one request
+	 * @param request Words of the request line
+	 * @return The response without the leading OK (starting with a space if not empty)
+	 * @throws IllegalArgumentException if the request is invalid
+	 * @throws IllegalStateException if the engine failed to process the request,
+	 *         or the server is not ready
+	 */
+	private String Handle(String[] request)
+	{
+		String command = request[0].toUpperCase();
+		switch (command)
+		{
+			case "ROOMS":
+			{
+				StringBuilder sb = new StringBuilder();
+				for (String name: m_Engine.GetRoomNames())
+					sb.append(' ').append(name);
+				return sb.toString();
+			}
+			case "CREATE":
+				CheckArgs(request, 3, 4);
+				m_Engine.CreateRoom(request[1], TimeUnit.SECONDS.toMillis(ParseInt(request[2])),
+					request.length > 3? ParseInt(request[3]): 0);
+				return "";
+			case "CLOSE":
+				CheckArgs(request, 2, 2);
+				if (!m_Engine.CloseRoom(request[1]))
+					throw new IllegalArgumentException("no such room");
+				return "";
+			case "BOARD":
+			{
+				CheckArgs(request, 2, 2);
+				GameRoom room = GetRoom(request[1]);
+				StringBuilder sb = new StringBuilder();
+				sb.append(' ').append(room.GetTimeLeft());
+				for (String letter: room.GetBoardText())
+					sb.append(' ').append(letter);
+				return sb.toString();
+			}
+			case "JOIN":
+				CheckArgs(request, 3, 3);
+				if (!Await(GetRoom(request[1]).Join(request[2])))
+					throw new IllegalArgumentException("player exists");
+				return "";
+			case "SUBMIT":
+				CheckArgs(request, 4, 4);
+				return " " + Await(GetRoom(request[1]).Submit(request[2], request[3]));
+			case "HINT":
+			{
+				CheckArgs(request, 3, 4);
+				String hint = Await(GetRoom(request[1]).Hint(request[2],
+					request.length > 3? ParseInt(request[3]): 0));
+				return " " + (hint == null? "-": hint);
+			}
+			case "SCORES":
+			{
+				CheckArgs(request, 2, 2);
+				StringBuilder sb = new StringBuilder();
+				for (Map.Entry<String, Integer> e: Await(GetRoom(request[1]).GetScores()).entrySet())
+					sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+				return sb.toString();
+			}
+			case "READY":
+				CheckArgs(request, 1, 1);
+				if (!m_Ready)
+					throw new IllegalStateException("warming up");
+				return "";
+			default:
+				throw new IllegalArgumentException("unknown command " + command);
+		}
+	}
+
+	/**
+	 * @param request Words of the request line
+	 * @param min Minimal number of words including the command
+	 * @param max Maximal number of words including the command
+	 * @throws IllegalArgumentException if the number of words is out of range
+	 */
+	private static void CheckArgs(String[] request, int min, int max)
+	{
+		if (request.length < min || request.length > max)
+			throw new IllegalArgumentException("wrong number of arguments");
+	}
+
+	/**
+	 * @param value Text of a number
+	 * @return The number
+	 * @throws IllegalArgumentException if the text is not a number
+	 */
+	private static int ParseInt(String value)
+	{
+		try
+		{
+			return Integer.parseInt(value);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("not a number: " + value);
+		}
+	}
+
+	/**
+	 * @param name Name of a room
+	 * @return The room
+	 * @throws IllegalArgumentException if there is no such room
+	 */
+	private GameRoom GetRoom(String name)
+	{
+		GameRoom room = m_Engine.GetRoom(name);
+		if (room == null)
+			throw new IllegalArgumentException("no such room");
+		return room;
+	}
+
+	/**
+	 * Waits for an operation queued on a room
+	 * @param future Future of the operation
+	 * @return Result of the operation
+	 * @throws IllegalStateException if the operation failed or timed out
+	 */
+	private static <T> T Await(Future<T> future)
+	{
+		try
+		{
+			return future.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException(e.getCause().toString());
+		}
+		catch (TimeoutException e)
+		{
+			future.cancel(false);
+			throw new IllegalStateException("timeout");
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted");
+		}
+	}
+
+	/**
+	 * Runs a server with the built-in dictionary
+	 * @param args Optional port to listen on and optional number of worker threads
+	 * @throws IOException if the dictionary can't be loaded or the socket can't be opened
+	 * @throws InterruptedException if the server thread is interrupted
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		int port = args.length > 0? Integer.parseInt(args[0]): DEFAULT_PORT;
+		int threads = args.length > 1? Integer.parseInt(args[1]): Runtime.getRuntime().availableProcessors();
+
+		DictionaryHolder dictionary = new DictionaryHolder();
+		try
+		{
+			dictionary.Reload(new ResourceDictionarySource(Main.DATA_RESOURCE_PATH));
+		}
+		catch (WordTreeException e)
+		{
+			System.err.println(String.format("Error loading data files: %s", e.getMessage()));
+			return;
+		}
+
+		GameEngine engine = new GameEngine(dictionary, threads);
+		GameServer server = new GameServer(engine, port, Warmup.MAX_BOARDS <= 0);
+		System.out.println(String.format("Listening on port %d", server.GetPort()));
+		if (!server.IsReady())
+		{
+			Warmup.Report report = new Warmup(dictionary.Get()).Run(Warmup.MAX_BOARDS);
+			System.out.println(String.format("Warm-up: %s", report));
+			server.SetReady(true);
+		}
+		server.m_Acceptor.join();
+	}
+}
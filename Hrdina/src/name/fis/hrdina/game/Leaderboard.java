@@ -0,0 +1,292 @@
+package name.fis.hrdina.game;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Live ranking of the players of a tournament, where many rooms (and so many
+ * threads) play the same board and report every accepted word.
+ *
+ * Scores are bounded by the total value of the board, so the players are
+ * bucketed by their score. The numbers of players by score are kept in
+ * Fenwick trees (binary indexed trees) from the highest score, so the rank of
+ * a score is one prefix sum, O(log maxScore). To keep the threads of the rooms
+ * from all updating the same counters, there are several trees (stripes) and
+ * every player counts in the one of their index; a query sums the stripes.
+ * For the top of the ranking, the players of each score are linked in a list,
+ * and the lists are read from the highest score until there are enough
+ * players, without looking at the others.
+ *
+ * No update takes a global lock: the lists are guarded by a set of locks
+ * striped by score, and an update only holds the locks of the old and the new
+ * score of the player. Ranks read during an update may see it half done, with
+ * the player counted with both the old and the new score for a moment.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class Leaderboard
+{
+	/** Value returned for players that didn't join */
+	public static final int NO_PLAYER = -1;
+	/** Maximal number of stripes of the counts */
+	private static final int MAX_STRIPES = 16;
+	/** Number of locks of the lists of players by score */
+	private static final int LOCK_COUNT = 64;
+
+	private final int m_MaxScore;
+	private final AtomicReferenceArray<String> m_Names;
+	private final ConcurrentMap<String, Integer> m_Indices = new ConcurrentHashMap<>();
+	/** Number of joined players; the entries below it are complete */
+	private volatile int m_PlayerCount = 0;
+	private final AtomicIntegerArray m_Scores;
+	/** For each stripe, Fenwick tree of the number of players by score; index 1 is the maximal score */
+	private final AtomicIntegerArray[] m_Counts;
+
+	// <editor-fold desc="Lists of players by score, guarded by the lock of the score">
+	private final Object[] m_Locks = new Object[LOCK_COUNT];
+	/** First player of each score; NO_PLAYER if none */
+	private final int[] m_Heads;
+	/** Next and previous player of the same score, by player */
+	private final int[] m_Next;
+	private final int[] m_Previous;
+	/** Number of players of each score; can be read without the lock to skip empty scores */
+	private final AtomicIntegerArray m_BucketSizes;
+	// </editor-fold>
+
+	/**
+	 * @param maxPlayers Maximal number of players
+	 * @param maxScore Maximal score of a player, e.g. <code>BoardSolutions.GetTotalValue</code>
+	 *        of the board of the tournament
+	 */
+	public Leaderboard(int maxPlayers, int maxScore)
+	{
+		m_MaxScore = maxScore;
+		m_Names = new AtomicReferenceArray<>(maxPlayers);
+		m_Scores = new AtomicIntegerArray(maxPlayers);
+		int stripes = 1;
+		while (stripes < Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES))
+			stripes *= 2;
+		m_Counts = new AtomicIntegerArray[stripes];
+		for (int i = 0; i < stripes; i++)
+			m_Counts[i] = new AtomicIntegerArray(maxScore + 2);
+
+		for (int i = 0; i < LOCK_COUNT; i++)
+			m_Locks[i] = new Object();
+		m_Heads = new int[maxScore + 1];
+		Arrays.fill(m_Heads, NO_PLAYER);
+		m_Next = new int[maxPlayers];
+		m_Previous = new int[maxPlayers];
+		m_BucketSizes = new AtomicIntegerArray(maxScore + 1);
+	}
+
+	/**
+	 * Adds a player with a score of 0
+	 * @param name Name of the player
+	 * @return Index of the player; the existing one if a player of the name already joined
+	 * @throws IllegalStateException if the leaderboard is full
+	 */
+	public synchronized int Join(String name)
+	{
+		Integer existing = m_Indices.get(name);
+		if (existing != null)
+			return existing;
+		int index = m_PlayerCount;
+		if (index == m_Names.length())
+			throw new IllegalStateException(String.format("Leaderboard is full (%d players)", index));
+		m_Names.set(index, name);
+		synchronized (LockOf(0))
+		{
+			Link(index, 0);
+		}
+		Count(index, 0, 1);
+		m_Indices.put(name, index);
+		m_PlayerCount = index + 1;
+		return index;
+	}
+
+	/**
+	 * Adds points to the score of a player
+	 * @param player Index of the player
+	 * @param points The points, e.g. the value of an accepted word
+	 * @throws IllegalArgumentException if the score would get out of 0 to the maximal score
+	 */
+	public void AddScore(int player, int points)
+	{
+		if (points == 0)
+			return;
+		while (true)
+		{
+			int oldScore = m_Scores.get(player);
+			int newScore = oldScore + points;
+			if (newScore < 0 || newScore > m_MaxScore)
+				throw new IllegalArgumentException(String.format("Score %d is out of range 0-%d", newScore, m_MaxScore));
+			// Always lock in the order of the locks, so that two updates can't wait for each other
+			int oldLock = oldScore & (LOCK_COUNT - 1);
+			int newLock = newScore & (LOCK_COUNT - 1);
+			Object first = m_Locks[Math.min(oldLock, newLock)];
+			Object second = m_Locks[Math.max(oldLock, newLock)];
+			synchronized (first)
+			{
+				synchronized (second)
+				{
+					// Another thread may have changed the score before the locks were taken
+					if (m_Scores.get(player) != oldScore)
+						continue;
+					Unlink(player, oldScore);
+					Link(player, newScore);
+					m_Scores.set(player, newScore);
+				}
+			}
+			Count(player, newScore, 1);
+			Count(player, oldScore, -1);
+			return;
+		}
+	}
+
+	/** @return Number of joined players */
+	public int GetPlayerCount()
+	{
+		return m_PlayerCount;
+	}
+
+	/** @return Maximal score of a player */
+	public int GetMaxScore()
+	{
+		return m_MaxScore;
+	}
+
+	/**
+	 * @param name Name of a player
+	 * @return Index of the player; NO_PLAYER if the player didn't join
+	 */
+	public int GetIndex(String name)
+	{
+		Integer index = m_Indices.get(name);
+		return index == null? NO_PLAYER: index;
+	}
+
+	/**
+	 * @param player Index of a player
+	 * @return Name of the player
+	 */
+	public String GetName(int player)
+	{
+		return m_Names.get(player);
+	}
+
+	/**
+	 * @param player Index of a player
+	 * @return Score of the player
+	 */
+	public int GetScore(int player)
+	{
+		return m_Scores.get(player);
+	}
+
+	/**
+	 * @param player Index of a player
+	 * @return Rank of the player: 1 plus the number of players with a higher
+	 *         score, so players with the same score share the rank
+	 */
+	public int GetRank(int player)
+	{
+		return CountAbove(m_Scores.get(player)) + 1;
+	}
+
+	/**
+	 * @param score A score
+	 * @return Number of players with a higher score
+	 */
+	public int CountAbove(int score)
+	{
+		if (score >= m_MaxScore)
+			return 0;
+		// Scores above the given one are the first (m_MaxScore - score) entries
+		int count = 0;
+		for (AtomicIntegerArray tree: m_Counts)
+		{
+			for (int i = m_MaxScore - Math.max(score, -1); i > 0; i -= i & -i)
+				count += tree.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * @param count Number of players to list
+	 * @return Names and scores of the best players, ordered from the best one;
+	 *         players with the same score in the order they joined
+	 */
+	public Map<String, Integer> GetTop(int count)
+	{
+		Map<String, Integer> top = new LinkedHashMap<>();
+		int[] members = new int[16];
+		for (int score = m_MaxScore; score >= 0 && top.size() < count; score--)
+		{
+			if (m_BucketSizes.get(score) == 0)
+				continue;
+			int found = 0;
+			synchronized (LockOf(score))
+			{
+				for (int p = m_Heads[score]; p != NO_PLAYER; p = m_Next[p])
+				{
+					if (found == members.length)
+						members = Arrays.copyOf(members, found * 2);
+					members[found++] = p;
+				}
+			}
+			Arrays.sort(members, 0, found);
+			for (int i = 0; i < found && top.size() < count; i++)
+				top.put(m_Names.get(members[i]), score);
+		}
+		return top;
+	}
+
+	/** @return The lock guarding the list of players of a score */
+	private Object LockOf(int score)
+	{
+		return m_Locks[score & (LOCK_COUNT - 1)];
+	}
+
+	/** Adds a player to the list of a score; the lock of the score must be held */
+	private void Link(int player, int score)
+	{
+		int head = m_Heads[score];
+		m_Next[player] = head;
+		m_Previous[player] = NO_PLAYER;
+		if (head != NO_PLAYER)
+			m_Previous[head] = player;
+		m_Heads[score] = player;
+		m_BucketSizes.incrementAndGet(score);
+	}
+
+	/** Removes a player from the list of a score; the lock of the score must be held */
+	private void Unlink(int player, int score)
+	{
+		int next = m_Next[player];
+		int previous = m_Previous[player];
+		if (previous == NO_PLAYER)
+			m_Heads[score] = next;
+		else
+			m_Next[previous] = next;
+		if (next != NO_PLAYER)
+			m_Previous[next] = previous;
+		m_BucketSizes.decrementAndGet(score);
+	}
+
+	/**
+	 * Changes the number of players with a score in the stripe of a player
+	 * @param player Index of the player
+	 * @param score The score
+	 * @param delta Change of the number
+	 */
+	private void Count(int player, int score, int delta)
+	{
+		AtomicIntegerArray tree = m_Counts[player & (m_Counts.length - 1)];
+		for (int i = m_MaxScore - score + 1; i < tree.length(); i += i & -i)
+			tree.getAndAdd(i, delta);
+	}
+}
@@ -0,0 +1,141 @@
+package name.fis.hrdina.game;
+
+/**
+ * Words one player has found on a board, as a bit set over the numbers of
+ * <code>BoardSolutions</code>. It takes one bit per solution of the board, and
+ * all queries work on whole longs, 64 words at a time.
+ *
+ * Not thread safe; the game must not update one player from several threads
+ * at once.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class PlayerProgress
+{
+	/** Result of <code>MarkFound</code> */
+	public enum FindResult {
+		/** The word is a solution the player hasn't found before */
+		NEW,
+		/** The player already found the word */
+		ALREADY_FOUND,
+		/** The word is not a solution of the board */
+		NOT_A_SOLUTION
+	}
+
+	private final BoardSolutions m_Solutions;
+	private final long[] m_Found;
+	private int m_FoundCount = 0;
+	private int m_Score = 0;
+
+	/**
+	 * @param solutions Solutions of the board the player plays
+	 */
+	public PlayerProgress(BoardSolutions solutions)
+	{
+		m_Solutions = solutions;
+		m_Found = new long[solutions.GetSetSize()];
+	}
+
+	/**
+	 * Records a word the player submitted
+	 * @param word The word
+	 * @return Whether the word counts for the player
+	 */
+	public FindResult MarkFound(String word)
+	{
+		int number = m_Solutions.GetNumber(word);
+		if (number == BoardSolutions.NO_WORD)
+			return FindResult.NOT_A_SOLUTION;
+		long bit = 1L << number;
+		if ((m_Found[number >>> 6] & bit) != 0)
+			return FindResult.ALREADY_FOUND;
+		m_Found[number >>> 6] |= bit;
+		m_FoundCount++;
+		m_Score += m_Solutions.GetValue(number);
+		return FindResult.NEW;
+	}
+
+	/**
+	 * @param number Number of a word
+	 * @return true if the player found the word
+	 */
+	public boolean IsFound(int number)
+	{
+		return (m_Found[number >>> 6] & (1L << number)) != 0;
+	}
+
+	/** @return Number of words the player found */
+	public int GetFoundCount()
+	{
+		return m_FoundCount;
+	}
+
+	/** @return Sum of the values of the words the player found */
+	public int GetScore()
+	{
+		return m_Score;
+	}
+
+	/** @return Number of solutions the player hasn't found yet */
+	public int GetRemainingCount()
+	{
+		return m_Solutions.GetWordCount() - m_FoundCount;
+	}
+
+	/**
+	 * @param length Word length
+	 * @return Number of solutions of the given length the player hasn't found yet
+	 */
+	public int GetRemainingCount(int length)
+	{
+		long[] mask = m_Solutions.GetLengthMask(length);
+		if (mask == null)
+			return 0;
+		int count = 0;
+		for (int i = 0; i < m_Found.length; i++)
+			count += Long.bitCount(mask[i] & ~m_Found[i]);
+		return count;
+	}
+
+	/**
+	 * Hint: the most valuable word the player hasn't found yet
+	 * @return Number of the word; BoardSolutions.NO_WORD if the player found all of them
+	 */
+	public int GetBestUnfound()
+	{
+		for (int i = 0; i < m_Found.length; i++)
+		{
+			long unfound = ~m_Found[i];
+			if (unfound != 0)
+			{
+				int number = (i << 6) + Long.numberOfTrailingZeros(unfound);
+				return number < m_Solutions.GetWordCount()? number: BoardSolutions.NO_WORD;
+			}
+		}
+		return BoardSolutions.NO_WORD;
+	}
+
+	/**
+	 * Hint: the most valuable word of the given length the player hasn't found yet
+	 * @param length Word length
+	 * @return Number of the word; BoardSolutions.NO_WORD if there is none
+	 */
+	public int GetBestUnfound(int length)
+	{
+		long[] mask = m_Solutions.GetLengthMask(length);
+		if (mask == null)
+			return BoardSolutions.NO_WORD;
+		for (int i = 0; i < m_Found.length; i++)
+		{
+			long unfound = mask[i] & ~m_Found[i];
+			if (unfound != 0)
+				return (i << 6) + Long.numberOfTrailingZeros(unfound);
+		}
+		return BoardSolutions.NO_WORD;
+	}
+
+	/** @return Solutions of the board this progress is over */
+	public BoardSolutions GetSolutions()
+	{
+		return m_Solutions;
+	}
+}
@@ -0,0 +1,137 @@
+package name.fis.hrdina.game;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks one at a time, in the order they were submitted, on a shared
+ * executor. Each game room has one, so everything that changes the state of a
+ * room runs on a single logical thread and needs no locks, while all rooms
+ * share a small pool of worker threads.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class SerialExecutor implements Executor
+{
+	/** Maximal number of tasks run in one go before the worker thread is handed
+	  * over to other executors, so a busy room can't starve the others */
+	private static final int MAX_BATCH = 64;
+
+	private final Executor m_Executor;
+	/** Gets the exceptions thrown by tasks; null to ignore them */
+	private final Thread.UncaughtExceptionHandler m_FailureHandler;
+	/** Tasks waiting to run; guarded by this */
+	private final ArrayDeque<Runnable> m_Tasks = new ArrayDeque<>();
+	/** True while a drain of the queue is scheduled or running; guarded by this */
+	private boolean m_Scheduled = false;
+
+	private final Runnable m_Drain = new Runnable() {
+		@Override
+		public void run() {
+			Drain();
+		}
+	};
+
+	/**
+	 * Creates an executor that ignores exceptions thrown by the tasks
+	 * @param executor The shared executor to run the tasks on
+	 */
+	public SerialExecutor(Executor executor)
+	{
+		this(executor, null);
+	}
+
+	/**
+	 * @param executor The shared executor to run the tasks on
+	 * @param failureHandler Gets the runtime exceptions thrown by the tasks,
+	 *        on the worker thread; null to ignore them. The queue goes on
+	 *        with the next task either way.
+	 */
+	public SerialExecutor(Executor executor, Thread.UncaughtExceptionHandler failureHandler)
+	{
+		m_Executor = executor;
+		m_FailureHandler = failureHandler;
+	}
+
+	@Override
+	public void execute(Runnable task)
+	{
+		synchronized (this)
+		{
+			m_Tasks.add(task);
+			if (m_Scheduled)
+				return;
+			m_Scheduled = true;
+		}
+		try
+		{
+			m_Executor.execute(m_Drain);
+		}
+		catch (RuntimeException e)
+		{
+			synchronized (this)
+			{
+				m_Tasks.remove(task);
+				m_Scheduled = false;
+			}
+			throw e;
+		}
+	}
+
+	/** Runs a batch of the queued tasks and schedules itself again if some are left */
+	private void Drain()
+	{
+		boolean more = true;
+		try
+		{
+			for (int i = 0; i < MAX_BATCH; i++)
+			{
+				Runnable task;
+				synchronized (this)
+				{
+					task = m_Tasks.poll();
+					if (task == null)
+					{
+						m_Scheduled = false;
+						more = false;
+						return;
+					}
+				}
+				try
+				{
+					task.run();
+				}
+				catch (RuntimeException e)
+				{
+					// Tasks report their own failures (e.g. through a FutureTask); this
+					// only keeps one broken task from stopping the queue
+					if (m_FailureHandler != null)
+						m_FailureHandler.uncaughtException(Thread.currentThread(), e);
+				}
+			}
+		}
+		finally
+		{
+			// Also when a task throws an Error, which goes on to the worker thread;
+			// without a new drain m_Scheduled would stay set and the queue would stop
+			if (more)
+				Reschedule();
+		}
+	}
+
+	/** Schedules the next drain; if the executor rejects it, the next task submitted tries again */
+	private void Reschedule()
+	{
+		try
+		{
+			m_Executor.execute(m_Drain);
+		}
+		catch (RuntimeException e)
+		{
+			synchronized (this)
+			{
+				m_Scheduled = false;
+			}
+			throw e;
+		}
+	}
+}
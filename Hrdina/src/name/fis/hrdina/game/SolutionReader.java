@@ -0,0 +1,222 @@
+package name.fis.hrdina.game;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.GameBoard;
+
+/**
+ * Reads solutions written by <code>SolutionWriter</code> (see there for the
+ * format), one word at a time. The letters and the path of the current word
+ * are kept in reused buffers, so only <code>GetWord</code> creates an object.
+ * Not thread safe.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class SolutionReader
+{
+	private final InputStream m_In;
+	private final Alphabet m_Alphabet;
+	private final int m_EdgeSize;
+	private final int[][] m_Neighbors;
+	/** Number of bits of a letter index and of a position */
+	private final int m_LetterBits;
+	private final int m_PositionBits;
+	/** Number of words not read yet */
+	private int m_Remaining;
+	/** Bits read from the stream but not used yet, the first ones lowest */
+	private long m_Bits = 0;
+	private int m_BitCount = 0;
+	/** Letters of the current word; the prefix is shared with the previous one */
+	private char[] m_Letters = new char[32];
+	private int m_Length = 0;
+	/** Positions of the letters of the current word */
+	private int[] m_Path = new int[32];
+
+	/**
+	 * Starts reading by reading the header
+	 * @param in Where to read from; buffered by the caller if needed
+	 * @param alphabet Alphabet the solutions were written with
+	 * @throws IOException if the header can't be read or is not of a known version
+	 */
+	public SolutionReader(InputStream in, Alphabet alphabet) throws IOException
+	{
+		m_In = in;
+		m_Alphabet = alphabet;
+		int version = ReadByte();
+		if (version != SolutionWriter.VERSION)
+			throw new IOException(String.format("Unknown version %d of the solutions", version));
+		int alphabetSize = ReadByte();
+		if (alphabetSize != alphabet.GetSize())
+			throw new IOException(String.format("Solutions of an alphabet of %d letters, not %d",
+				alphabetSize, alphabet.GetSize()));
+		m_EdgeSize = ReadByte();
+		m_Neighbors = m_EdgeSize > 0? GameBoard.GetNeighborTable(m_EdgeSize): null;
+		m_LetterBits = SolutionWriter.BitsFor(alphabetSize);
+		m_PositionBits = SolutionWriter.BitsFor(m_EdgeSize * m_EdgeSize);
+		m_Remaining = ReadNumber();
+	}
+
+	/** @return Number of words not read yet */
+	public int GetRemainingCount()
+	{
+		return m_Remaining;
+	}
+
+	/** @return true if the words have paths */
+	public boolean HasPaths()
+	{
+		return m_Neighbors != null;
+	}
+
+	/** @return Size of the edge of the board of the paths; 0 if there are no paths */
+	public int GetEdgeSize()
+	{
+		return m_EdgeSize;
+	}
+
+	/**
+	 * Reads the next word
+	 * @return false if there are no more words
+	 * @throws IOException if the word can't be read or is invalid
+	 */
+	public boolean Next() throws IOException
+	{
+		if (m_Remaining == 0)
+			return false;
+		m_Remaining--;
+		int shared = ReadGamma() - 1;
+		int added = ReadGamma();
+		if (shared > m_Length)
+			throw new IOException(String.format("Invalid prefix length %d", shared));
+		m_Length = shared + added;
+		if (m_Length > m_Letters.length)
+		{
+			m_Letters = Arrays.copyOf(m_Letters, Math.max(m_Length, m_Letters.length * 2));
+			m_Path = new int[m_Letters.length];
+		}
+		for (int i = shared; i < m_Length; i++)
+		{
+			int index = ReadBits(m_LetterBits);
+			if (index >= m_Alphabet.GetSize())
+				throw new IOException(String.format("Invalid letter index %d", index));
+			m_Letters[i] = m_Alphabet.GetLetterByIndex(index);
+		}
+
+		if (m_Neighbors != null)
+		{
+			m_Path[0] = ReadBits(m_PositionBits);
+			if (m_Path[0] >= m_Neighbors.length)
+				throw new IOException(String.format("Invalid position %d", m_Path[0]));
+			for (int i = 1; i < m_Length; i++)
+			{
+				int[] neighbors = m_Neighbors[m_Path[i - 1]];
+				int direction = ReadBits(3);
+				if (direction >= neighbors.length)
+					throw new IOException(String.format("Invalid direction %d", direction));
+				m_Path[i] = neighbors[direction];
+			}
+		}
+		return true;
+	}
+
+	/** @return Number of letters of the current word */
+	public int GetLength()
+	{
+		return m_Length;
+	}
+
+	/**
+	 * @param i Number of a letter of the current word
+	 * @return The letter
+	 */
+	public char GetLetter(int i)
+	{
+		return m_Letters[i];
+	}
+
+	/**
+	 * @param i Number of a letter of the current word
+	 * @return Position of the letter on the board; only if the words have paths
+	 */
+	public int GetPosition(int i)
+	{
+		return m_Path[i];
+	}
+
+	/** @return The current word, tokenized */
+	public String GetWord()
+	{
+		return new String(m_Letters, 0, m_Length);
+	}
+
+	/** @return The next byte of the input */
+	private int ReadByte() throws IOException
+	{
+		int b = m_In.read();
+		if (b < 0)
+			throw new EOFException("Solutions end unexpectedly");
+		return b;
+	}
+
+	/** @return The next bits of the stream */
+	private int ReadBits(int count) throws IOException
+	{
+		while (m_BitCount < count)
+		{
+			m_Bits |= (long)ReadByte() << m_BitCount;
+			m_BitCount += 8;
+		}
+		int value = (int)m_Bits & ((1 << count) - 1);
+		m_Bits >>>= count;
+		m_BitCount -= count;
+		return value;
+	}
+
+	/** @return The next Elias gamma code of the stream */
+	private int ReadGamma() throws IOException
+	{
+		int bits = 0;
+		while (ReadBits(1) == 0)
+		{
+			if (++bits > 30)
+				throw new IOException("Invalid length");
+		}
+		return 1 << bits | ReadBits(bits);
+	}
+
+	/** @return The next number of the header, written as groups of 7 bits */
+	private int ReadNumber() throws IOException
+	{
+		int value = 0;
+		for (int shift = 0; ; shift += 7)
+		{
+			int b = ReadByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+			if (shift > 21)
+				throw new IOException("Invalid number");
+		}
+	}
+
+	/**
+	 * Decodes a set of solutions
+	 * @param data The encoded solutions
+	 * @param alphabet Alphabet the solutions were written with
+	 * @return The words, tokenized, in the order of their letter indices
+	 * @throws IOException if the data is not valid
+	 */
+	public static List<String> Decode(byte[] data, Alphabet alphabet) throws IOException
+	{
+		SolutionReader reader = new SolutionReader(new ByteArrayInputStream(data), alphabet);
+		List<String> words = new ArrayList<>(reader.GetRemainingCount());
+		while (reader.Next())
+			words.add(reader.GetWord());
+		return words;
+	}
+}
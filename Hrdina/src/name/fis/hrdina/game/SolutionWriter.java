@@ -0,0 +1,315 @@
+package name.fis.hrdina.game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.IWordVisitor;
+import name.fis.hrdina.SolveBudget;
+
+/**
+ * Writes the solutions of a board in a compact form, read by
+ * <code>SolutionReader</code>. The words are written in the order of their
+ * letter indices, and each one only as the number of letters it shares with
+ * the previous word and the letters that follow (front coding), so the many
+ * words of a board that share prefixes take a few bytes each.
+ *
+ * The format is a header followed by a stream of bits:
+ * <pre>
+ * byte version, byte size of the alphabet,
+ * byte edge size of the board (0 if there are no paths),
+ * number of words as groups of 7 bits, the lowest first
+ * for each word:
+ *   number of letters shared with the previous word plus one, and the
+ *   number of letters that follow, as Elias gamma codes
+ *   letter indices after the shared prefix, of the bits needed for the alphabet
+ *   if there are paths: the first position, of the bits needed for the board,
+ *   then each next position as the index into the neighbors of the previous
+ *   one (see <code>GameBoard.GetNeighborTable</code>), 3 bits each
+ * the last byte is padded with zeros
+ * </pre>
+ * The bits fill each byte from the lowest one; a gamma code of n is as many
+ * zeros as n has bits after the highest one, a one, and those bits.
+ * Nothing is allocated per word. Not thread safe.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class SolutionWriter
+{
+	static final int VERSION = 1;
+
+	private final OutputStream m_Out;
+	private final Alphabet m_Alphabet;
+	private final int[][] m_Neighbors;
+	/** Number of bits of a letter index and of a position */
+	private final int m_LetterBits;
+	private final int m_PositionBits;
+	/** Number of words announced in the header and written so far */
+	private final int m_WordCount;
+	private int m_Written = 0;
+	/** Bits not written to the stream yet, the first ones lowest */
+	private long m_Bits = 0;
+	private int m_BitCount = 0;
+	/** Letter indices of the previous word */
+	private int[] m_Previous = new int[32];
+	private int m_PreviousLength = 0;
+	/** Letter indices of the current word */
+	private int[] m_Current = new int[32];
+	private boolean m_Finished = false;
+
+	/**
+	 * Starts the solutions by writing the header
+	 * @param out Where to write to; buffered by the caller if needed
+	 * @param alphabet Alphabet of the words
+	 * @param edgeSize Size of the edge of the board if every word is written
+	 *        with its path; 0 to write the words only
+	 * @param wordCount Number of words that will be written
+	 * @throws IOException if the header can't be written
+	 */
+	public SolutionWriter(OutputStream out, Alphabet alphabet, int edgeSize, int wordCount) throws IOException
+	{
+		m_Out = out;
+		m_Alphabet = alphabet;
+		m_Neighbors = edgeSize > 0? GameBoard.GetNeighborTable(edgeSize): null;
+		m_LetterBits = BitsFor(alphabet.GetSize());
+		m_PositionBits = BitsFor(edgeSize * edgeSize);
+		m_WordCount = wordCount;
+		m_Out.write(VERSION);
+		m_Out.write(alphabet.GetSize());
+		m_Out.write(edgeSize);
+		int value = wordCount;
+		while ((value & ~0x7F) != 0)
+		{
+			m_Out.write(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		m_Out.write(value);
+	}
+
+	/**
+	 * @param count Number of values
+	 * @return Number of bits needed to store values from 0 to count - 1
+	 */
+	static int BitsFor(int count)
+	{
+		return count <= 1? 0: 32 - Integer.numberOfLeadingZeros(count - 1);
+	}
+
+	/**
+	 * Writes a word; only if the solutions are written without paths
+	 * @param word The word, tokenized (see <code>Alphabet.Tokenize</code>)
+	 * @throws IOException if the word can't be written
+	 * @throws IllegalArgumentException if the word is not after the previous
+	 *         one in the order of the letter indices, or has invalid letters
+	 */
+	public void Write(String word) throws IOException
+	{
+		if (m_Neighbors != null)
+			throw new IllegalStateException("The solutions are written with paths");
+		WriteLetters(word);
+	}
+
+	/**
+	 * Writes a word with its path; only if the solutions are written with paths
+	 * @param word The word, tokenized (see <code>Alphabet.Tokenize</code>)
+	 * @param path Position of each letter of the word on the board
+	 * @throws IOException if the word can't be written
+	 * @throws IllegalArgumentException if the word is not after the previous
+	 *         one in the order of the letter indices, has invalid letters, or
+	 *         the path is not a path of neighbors
+	 */
+	public void Write(String word, int[] path) throws IOException
+	{
+		if (m_Neighbors == null)
+			throw new IllegalStateException("The solutions are written without paths");
+		for (int i = 1; i < word.length(); i++)
+		{
+			if (IndexOf(m_Neighbors[path[i - 1]], path[i]) < 0)
+				throw new IllegalArgumentException(String.format("Positions %d and %d of %s are not neighbors",
+					path[i - 1], path[i], word));
+		}
+		WriteLetters(word);
+		WriteBits(path[0], m_PositionBits);
+		for (int i = 1; i < word.length(); i++)
+			WriteBits(IndexOf(m_Neighbors[path[i - 1]], path[i]), 3);
+	}
+
+	/**
+	 * Ends the solutions; the stream is not closed
+	 * @throws IOException if the end can't be written
+	 * @throws IllegalStateException if fewer words were written than announced
+	 */
+	public void Finish() throws IOException
+	{
+		if (m_Finished)
+			return;
+		if (m_Written != m_WordCount)
+			throw new IllegalStateException(String.format("%d of %d words written", m_Written, m_WordCount));
+		if (m_BitCount > 0)
+			m_Out.write((int)m_Bits);
+		m_Out.flush();
+		m_Finished = true;
+	}
+
+	/**
+	 * Writes the letters of a word after the shared prefix
+	 * @param word The word
+	 */
+	private void WriteLetters(String word) throws IOException
+	{
+		if (m_Written == m_WordCount)
+			throw new IllegalStateException(String.format("More than %d words written", m_WordCount));
+		int length = word.length();
+		if (length > m_Current.length)
+		{
+			m_Current = new int[Math.max(length, m_Current.length * 2)];
+			m_Previous = Arrays.copyOf(m_Previous, m_Current.length);
+		}
+		for (int i = 0; i < length; i++)
+		{
+			m_Current[i] = m_Alphabet.GetIndexOfLetter(word.charAt(i));
+			if (m_Current[i] == Alphabet.NO_LETTER_INDEX)
+				throw new IllegalArgumentException(String.format("Invalid letter in %s", word));
+		}
+		int shared = 0;
+		while (shared < length && shared < m_PreviousLength && m_Current[shared] == m_Previous[shared])
+			shared++;
+		// A word that is a prefix of the previous one or has a lower letter is out of order
+		if (shared == length || (shared < m_PreviousLength && m_Current[shared] < m_Previous[shared]))
+			throw new IllegalArgumentException(String.format("Word %s is out of order", word));
+
+		WriteGamma(shared + 1);
+		WriteGamma(length - shared);
+		for (int i = shared; i < length; i++)
+			WriteBits(m_Current[i], m_LetterBits);
+		m_Written++;
+
+		int[] swap = m_Previous;
+		m_Previous = m_Current;
+		m_Current = swap;
+		m_PreviousLength = length;
+	}
+
+	/** Writes a positive number as an Elias gamma code */
+	private void WriteGamma(int value) throws IOException
+	{
+		int bits = 31 - Integer.numberOfLeadingZeros(value);
+		WriteBits(0, bits);
+		WriteBits(1, 1);
+		WriteBits(value & ((1 << bits) - 1), bits);
+	}
+
+	/** Appends the lowest bits of a value to the stream */
+	private void WriteBits(int value, int count) throws IOException
+	{
+		m_Bits |= (long)value << m_BitCount;
+		m_BitCount += count;
+		while (m_BitCount >= 8)
+		{
+			m_Out.write((int)m_Bits & 0xFF);
+			m_Bits >>>= 8;
+			m_BitCount -= 8;
+		}
+	}
+
+	/** @return Index of the value in the array; -1 if it is not there */
+	private static int IndexOf(int[] array, int value)
+	{
+		for (int i = 0; i < array.length; i++)
+		{
+			if (array[i] == value)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Sorts words in the order of their letter indices, as the writer needs them
+	 * @param words The words, tokenized
+	 * @param alphabet Alphabet of the words
+	 * @return The sorted words
+	 */
+	public static List<String> Sort(Collection<String> words, final Alphabet alphabet)
+	{
+		List<String> sorted = new ArrayList<>(words);
+		Collections.sort(sorted, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				int length = Math.min(a.length(), b.length());
+				for (int i = 0; i < length; i++)
+				{
+					int diff = alphabet.GetIndexOfLetter(a.charAt(i)) - alphabet.GetIndexOfLetter(b.charAt(i));
+					if (diff != 0)
+						return diff;
+				}
+				return a.length() - b.length();
+			}
+		});
+		return sorted;
+	}
+
+	/**
+	 * Encodes a set of solutions without paths
+	 * @param words The words, tokenized, in any order
+	 * @param alphabet Alphabet of the words
+	 * @return The encoded solutions
+	 */
+	public static byte[] Encode(Collection<String> words, Alphabet alphabet)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try
+		{
+			SolutionWriter writer = new SolutionWriter(out, alphabet, 0, words.size());
+			for (String word: Sort(words, alphabet))
+				writer.Write(word);
+			writer.Finish();
+		}
+		catch (IOException e)
+		{
+			// A byte array stream doesn't throw
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Solves a board and encodes its solutions, each with the first path it was found along
+	 * @param board The board
+	 * @return The encoded solutions
+	 */
+	public static byte[] EncodeWithPaths(GameBoard board)
+	{
+		final Map<String, int[]> paths = new HashMap<>();
+		board.Solve(new IWordVisitor() {
+			@Override
+			public boolean VisitWord(String word, int[] path, int length) {
+				if (!paths.containsKey(word))
+					paths.put(word, Arrays.copyOf(path, length));
+				return true;
+			}
+		}, SolveBudget.Unlimited());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try
+		{
+			SolutionWriter writer = new SolutionWriter(out, board.GetAlphabet(), board.GetEdgeSize(), paths.size());
+			for (String word: Sort(paths.keySet(), board.GetAlphabet()))
+				writer.Write(word, paths.get(word));
+			writer.Finish();
+		}
+		catch (IOException e)
+		{
+			// A byte array stream doesn't throw
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+}
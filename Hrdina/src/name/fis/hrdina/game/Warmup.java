@@ -0,0 +1,230 @@
+package name.fis.hrdina.game;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.BoardStatistics;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.WordIdSolver;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.dictionary.DictionarySnapshot;
+import name.fis.hrdina.generators.GeneratorType;
+import name.fis.hrdina.generators.IBoardGenerator;
+
+/**
+ * Runs the hot paths of the game on a fresh JVM until the JIT compiler has
+ * compiled them, so that the first real games are not played interpreted.
+ *
+ * The work is done in rounds; every round generates a board with every
+ * generator, grades and lists its solutions as a new room does, submits the
+ * solutions as a player would, and solves a board of every size of
+ * EDGE_SIZES. Every round plays the same boards of a fixed seed, so the time
+ * of a round only changes with the compiled code.
+ *
+ * The warm-up ends in the steady state: when the JIT compiler hasn't compiled
+ * anything for STEADY_ROUNDS rounds. The time of the rounds alone is a poor
+ * signal: with few processors, the compiler takes time from the rounds, and
+ * a late compilation of the search can halve it after hundreds of rounds of
+ * the same time. If the JVM doesn't report the time of compilation, the
+ * steady state is when the median time of the last STEADY_ROUNDS rounds is
+ * within TOLERANCE of the median of the rounds before them.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class Warmup
+{
+	/** Maximal number of boards of the warm-up, from the system property hrdina.warmup; 0 disables it */
+	public static final int MAX_BOARDS = Integer.getInteger("hrdina.warmup", 16000);
+	/** Seed of the boards */
+	public static final long SEED = 20161019L;
+	/** Sizes of the edges of the solved boards besides the boards of the game */
+	private static final int[] EDGE_SIZES = {3, 4, 5};
+	/** Number of rounds without compilation (or of similar time) of the steady state */
+	private static final int STEADY_ROUNDS = 50;
+	/** How much slower than the median of the previous rounds the median of
+	  * the steady rounds may be, if the time of compilation is not known */
+	private static final double TOLERANCE = 1.05;
+
+	/**
+	 * Outcome of a warm-up
+	 */
+	public static class Report
+	{
+		private final int m_Rounds;
+		private final int m_Boards;
+		private final long m_ElapsedMillis;
+		private final long m_FirstRoundMicros;
+		private final long m_LastRoundsMicros;
+		private final boolean m_Steady;
+
+		private Report(int rounds, int boards, long elapsedMillis, long firstRoundMicros, long lastRoundsMicros,
+			boolean steady)
+		{
+			m_Rounds = rounds;
+			m_Boards = boards;
+			m_ElapsedMillis = elapsedMillis;
+			m_FirstRoundMicros = firstRoundMicros;
+			m_LastRoundsMicros = lastRoundsMicros;
+			m_Steady = steady;
+		}
+
+		/** @return Number of rounds run */
+		public int GetRounds() {
+			return m_Rounds;
+		}
+
+		/** @return Number of boards generated in all rounds */
+		public int GetBoards() {
+			return m_Boards;
+		}
+
+		/** @return Length of the whole warm-up */
+		public long GetElapsedMillis() {
+			return m_ElapsedMillis;
+		}
+
+		/** @return Length of the first round, i.e. of a round on a cold JVM */
+		public long GetFirstRoundMicros() {
+			return m_FirstRoundMicros;
+		}
+
+		/** @return Median length of the last STEADY_ROUNDS rounds (or fewer if there weren't as many) */
+		public long GetLastRoundsMicros() {
+			return m_LastRoundsMicros;
+		}
+
+		/** @return true if the rounds reached the steady state; false if the warm-up ran out of boards */
+		public boolean IsSteady() {
+			return m_Steady;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("%s after %d rounds (%d boards) in %d ms, round %d us cold, %d us at the end",
+				m_Steady? "steady": "not steady", m_Rounds, m_Boards, m_ElapsedMillis,
+				m_FirstRoundMicros, m_LastRoundsMicros);
+		}
+	}
+
+	private final DictionarySnapshot m_Dictionary;
+	/** Random number generator of the alphabet of the generators, seeded again for every round */
+	private final Random m_Random = new Random(SEED);
+	private final Alphabet m_Alphabet;
+	private final WordTree m_Tree;
+	private final IBoardGenerator[] m_Generators;
+	private final BoardStatistics m_Statistics;
+	private final WordIdSolver m_Solver;
+	/** Sum of the results, so that the compiler can't drop the work */
+	private long m_Checksum = 0;
+
+	/**
+	 * @param dictionary The dictionary the game will be played with
+	 */
+	public Warmup(DictionarySnapshot dictionary)
+	{
+		m_Dictionary = dictionary;
+		m_Alphabet = dictionary.GetAlphabet().WithRandom(m_Random);
+		m_Tree = dictionary.GetWordTree();
+		GeneratorType[] types = GeneratorType.values();
+		m_Generators = new IBoardGenerator[types.length];
+		for (int i = 0; i < types.length; i++)
+			m_Generators[i] = types[i].Create(m_Alphabet, dictionary.GetDigraphs(), dictionary.GetTrigrams());
+		m_Statistics = new BoardStatistics(m_Tree);
+		m_Solver = new WordIdSolver(m_Tree);
+	}
+
+	/**
+	 * Runs rounds until the steady state
+	 * @param maxBoards Maximal number of boards; the rounds are stopped before
+	 *        the next one would exceed it
+	 * @return The report of the warm-up
+	 */
+	public Report Run(int maxBoards)
+	{
+		int boardsPerRound = m_Generators.length * (1 + EDGE_SIZES.length);
+		int maxRounds = maxBoards / boardsPerRound;
+		CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+		boolean compileTimes = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+		long[] micros = new long[Math.max(maxRounds, 0)];
+		long start = System.nanoTime();
+		long compileMillis = compileTimes? compiler.getTotalCompilationTime(): 0;
+		int rounds = 0, quietRounds = 0;
+		boolean steady = false;
+		while (rounds < maxRounds && !steady)
+		{
+			long roundStart = System.nanoTime();
+			RunRound();
+			micros[rounds++] = (System.nanoTime() - roundStart) / 1000;
+			if (compileTimes)
+			{
+				long total = compiler.getTotalCompilationTime();
+				quietRounds = total == compileMillis? quietRounds + 1: 0;
+				compileMillis = total;
+				steady = quietRounds >= STEADY_ROUNDS;
+			}
+			else if (rounds >= 2 * STEADY_ROUNDS)
+			{
+				steady = Median(micros, rounds - STEADY_ROUNDS, rounds)
+					<= Median(micros, rounds - 2 * STEADY_ROUNDS, rounds - STEADY_ROUNDS) * TOLERANCE;
+			}
+		}
+		return new Report(rounds, rounds * boardsPerRound, (System.nanoTime() - start) / 1000000,
+			rounds == 0? 0: micros[0], Median(micros, Math.max(rounds - STEADY_ROUNDS, 0), rounds), steady);
+	}
+
+	/**
+	 * @param values Array of values; not changed
+	 * @param from First value
+	 * @param to End of the values
+	 * @return Median of the values; 0 if there are none
+	 */
+	private static long Median(long[] values, int from, int to)
+	{
+		if (from == to)
+			return 0;
+		long[] sorted = Arrays.copyOfRange(values, from, to);
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	/** Plays one round with every generator; every round plays the same boards */
+	private void RunRound()
+	{
+		m_Random.setSeed(SEED);
+		for (IBoardGenerator generator: m_Generators)
+		{
+			// As a new room: grade the board and list its solutions
+			GameBoard board = m_Dictionary.NewBoard(generator);
+			m_Statistics.Grade(board);
+			BoardSolutions solutions = new BoardSolutions(board);
+			m_Checksum += m_Statistics.GetTotalScore() + solutions.GetTotalValue();
+
+			// As a player: submit every solution as typed, some of them twice
+			PlayerProgress progress = solutions.NewProgress();
+			for (int i = 0; i < solutions.GetWordCount(); i++)
+			{
+				String word = m_Alphabet.Tokenize(m_Alphabet.Detokenize(solutions.GetWord(i)));
+				if (m_Tree.CheckWord(word).IsValidWord)
+					m_Checksum += progress.MarkFound(word).ordinal();
+				if ((i & 3) == 0)
+					m_Checksum += progress.MarkFound(word).ordinal();
+			}
+			m_Checksum += progress.GetScore();
+
+			for (int edgeSize: EDGE_SIZES)
+			{
+				char[] letters = generator.GenerateBoard(edgeSize);
+				m_Statistics.Grade(letters, edgeSize);
+				m_Checksum += m_Statistics.GetWordCount() + m_Solver.Solve(letters, edgeSize).length;
+			}
+		}
+	}
+
+	/** @return Sum of the results of all rounds; only to keep the work from being optimized away */
+	public long GetChecksum()
+	{
+		return m_Checksum;
+	}
+}
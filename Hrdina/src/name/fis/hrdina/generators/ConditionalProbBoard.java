@@ -59,7 +59,7 @@ public class ConditionalProbBoard implements IBoardGenerator
 	 * @param size Board edge size
 	 * @return a list of board coordinates going in a spiral from the center to the edge
 	 */
-	private List<Integer> GenerateSpiral(int size)
+	static List<Integer> GenerateSpiral(int size)
 	{
 		List<Integer> spiral = new ArrayList<>(size * size);
 		int pos = -1;
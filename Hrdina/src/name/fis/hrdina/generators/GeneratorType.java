@@ -0,0 +1,52 @@
+package name.fis.hrdina.generators;
+
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.Digraphs;
+import name.fis.hrdina.Trigrams;
+
+/**
+ * The board generation strategies, so that a strategy can be chosen by name
+ * and recorded by number (e.g. in a board corpus). The ordinals are stored in
+ * files; new strategies must be added at the end.
+ * @author Filip Simek <filip@fis.name>
+ */
+public enum GeneratorType
+{
+	/** See <code>EqualProbBoard</code> */
+	EQUAL {
+		@Override
+		public IBoardGenerator Create(Alphabet alphabet, Digraphs digraphs, Trigrams trigrams) {
+			return new EqualProbBoard(alphabet);
+		}
+	},
+	/** See <code>WeightedProbBoard</code> */
+	WEIGHTED {
+		@Override
+		public IBoardGenerator Create(Alphabet alphabet, Digraphs digraphs, Trigrams trigrams) {
+			return new WeightedProbBoard(alphabet);
+		}
+	},
+	/** See <code>ConditionalProbBoard</code> */
+	CONDITIONAL {
+		@Override
+		public IBoardGenerator Create(Alphabet alphabet, Digraphs digraphs, Trigrams trigrams) {
+			return new ConditionalProbBoard(alphabet, digraphs);
+		}
+	},
+	/** See <code>TrigramBoard</code> */
+	TRIGRAM {
+		@Override
+		public IBoardGenerator Create(Alphabet alphabet, Digraphs digraphs, Trigrams trigrams) {
+			return new TrigramBoard(alphabet, trigrams);
+		}
+	};
+
+	/**
+	 * Creates a generator of this strategy
+	 * @param alphabet Alphabet to generate letters with; the generator uses its random number generator
+	 * @param digraphs Digraph statistics; only used by the conditional strategy
+	 * @param trigrams Trigram statistics; only used by the trigram strategy
+	 * @return The generator
+	 */
+	public abstract IBoardGenerator Create(Alphabet alphabet, Digraphs digraphs, Trigrams trigrams);
+}
@@ -0,0 +1,86 @@
+package name.fis.hrdina.generators;
+
+import java.util.Random;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.Trigrams;
+
+/**
+ * Board generation strategy. The letters are placed in a spiral from the
+ * center like with <code>ConditionalProbBoard</code>, but each letter is picked
+ * to continue a path of two letters already on the board: one of the placed
+ * neighbors and one of its placed neighbors, chosen at random among all such
+ * pairs. The letter then follows the pair with the probability it follows them
+ * in the words (see <code>Trigrams</code>).
+ *
+ * Choosing one path instead of adding up the statistics of all neighbors
+ * keeps letters that fit rare neighbors as likely as those that fit common
+ * ones, and picking the letter takes constant time. Where no path of two
+ * letters exists yet, the letter follows a single neighbor; the first letter
+ * is picked by the letter frequencies.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class TrigramBoard implements IBoardGenerator
+{
+	/** Alphabet to work with */
+	private final Alphabet m_Alphabet;
+	/** Trigram statistics */
+	private final Trigrams m_Trigrams;
+
+	public TrigramBoard(Alphabet alphabet, Trigrams trigrams)
+	{
+		m_Alphabet = alphabet;
+		m_Trigrams = trigrams;
+	}
+
+	@Override
+	public char[] GenerateBoard(int edgeSize) {
+		int boardSize = edgeSize * edgeSize;
+		int[][] neighbors = GameBoard.GetNeighborTable(edgeSize);
+		Random rand = m_Alphabet.GetRandom();
+		int[] letters = new int[boardSize];
+		boolean[] placed = new boolean[boardSize];
+		// Paths of two placed letters ending next to the current position
+		int[] pathFirsts = new int[64];
+		int[] pathSeconds = new int[64];
+		int[] placedNeighbors = new int[8];
+
+		for (int coord: ConditionalProbBoard.GenerateSpiral(edgeSize))
+		{
+			int neighborCount = 0;
+			int pathCount = 0;
+			for (int second: neighbors[coord])
+			{
+				if (!placed[second])
+					continue;
+				placedNeighbors[neighborCount++] = second;
+				for (int first: neighbors[second])
+				{
+					if (!placed[first])
+						continue;
+					pathFirsts[pathCount] = first;
+					pathSeconds[pathCount] = second;
+					pathCount++;
+				}
+			}
+
+			int letter = Alphabet.NO_LETTER_INDEX;
+			if (pathCount > 0)
+			{
+				int path = rand.nextInt(pathCount);
+				letter = m_Trigrams.SampleAfter(letters[pathFirsts[path]], letters[pathSeconds[path]], rand);
+			}
+			if (letter == Alphabet.NO_LETTER_INDEX && neighborCount > 0)
+				letter = m_Trigrams.SampleAfter(letters[placedNeighbors[rand.nextInt(neighborCount)]], rand);
+			if (letter == Alphabet.NO_LETTER_INDEX)
+				letter = m_Alphabet.GetIndexOfLetter(m_Alphabet.GetRandomLetterWeighted());
+			letters[coord] = letter;
+			placed[coord] = true;
+		}
+
+		char[] result = new char[boardSize];
+		for (int i = 0; i < boardSize; i++)
+			result[i] = m_Alphabet.GetLetterByIndex(letters[i]);
+		return result;
+	}
+}
@@ -0,0 +1,61 @@
+package name.fis.hrdina.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A number of events
+ * @author Filip Simek <filip@fis.name>
+ */
+public class Counter implements IMetric
+{
+	private final String m_Name;
+	private final AtomicLong m_Value = new AtomicLong();
+
+	/**
+	 * @param name Name of the counter
+	 */
+	public Counter(String name)
+	{
+		m_Name = name;
+	}
+
+	/** Counts one event */
+	public void Increment()
+	{
+		m_Value.incrementAndGet();
+	}
+
+	/**
+	 * Counts several events
+	 * @param count Number of the events
+	 */
+	public void Add(long count)
+	{
+		m_Value.addAndGet(count);
+	}
+
+	/** @return Number of the events counted so far */
+	public long Get()
+	{
+		return m_Value.get();
+	}
+
+	@Override
+	public String GetName()
+	{
+		return m_Name;
+	}
+
+	@Override
+	public void Snapshot(Map<String, Object> values)
+	{
+		values.put(m_Name + ".Count", m_Value.get());
+	}
+
+	@Override
+	public void Reset()
+	{
+		m_Value.set(0);
+	}
+}
@@ -0,0 +1,146 @@
+package name.fis.hrdina.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of non-negative values (times, sizes) in logarithmic buckets.
+ * Every power of two is split into four buckets, so a percentile is reported
+ * with an error below 25 % while the whole histogram is a fixed array of a few
+ * hundred counters. Recording a value is a few atomic increments, without
+ * locks or allocation.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class Histogram implements IMetric
+{
+	/** Number of buckets per power of two is 2^SUB_BITS */
+	private static final int SUB_BITS = 2;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	/** Enough buckets for all values up to Long.MAX_VALUE */
+	private static final int BUCKET_COUNT = (64 - SUB_BITS) * SUB_COUNT;
+
+	private final String m_Name;
+	private final AtomicLongArray m_Buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong m_Count = new AtomicLong();
+	private final AtomicLong m_Sum = new AtomicLong();
+	private final AtomicLong m_Max = new AtomicLong();
+
+	/**
+	 * @param name Name of the histogram; include the unit (e.g. "SolveMicros")
+	 */
+	public Histogram(String name)
+	{
+		m_Name = name;
+	}
+
+	/**
+	 * Records one value
+	 * @param value The value; negative values are recorded as 0
+	 */
+	public void Record(long value)
+	{
+		if (value < 0)
+			value = 0;
+		m_Buckets.incrementAndGet(BucketOf(value));
+		m_Count.incrementAndGet();
+		m_Sum.addAndGet(value);
+		long max = m_Max.get();
+		while (value > max && !m_Max.compareAndSet(max, value))
+			max = m_Max.get();
+	}
+
+	/**
+	 * @param value A non-negative value
+	 * @return Index of the bucket of the value
+	 */
+	static int BucketOf(long value)
+	{
+		if (value < SUB_COUNT)
+			return (int)value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int)(value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	/**
+	 * @param bucket Index of a bucket
+	 * @return The highest value of the bucket
+	 */
+	static long BucketLimit(int bucket)
+	{
+		if (bucket < SUB_COUNT)
+			return bucket;
+		int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+		long sub = bucket % SUB_COUNT;
+		long width = 1L << (exponent - SUB_BITS);
+		return ((SUB_COUNT + sub) << (exponent - SUB_BITS)) + width - 1;
+	}
+
+	/** @return Number of recorded values */
+	public long GetCount()
+	{
+		return m_Count.get();
+	}
+
+	/** @return Mean of the recorded values; 0 if there are none */
+	public double GetMean()
+	{
+		long count = m_Count.get();
+		return count == 0? 0: (double)m_Sum.get() / count;
+	}
+
+	/** @return The highest recorded value */
+	public long GetMax()
+	{
+		return m_Max.get();
+	}
+
+	/**
+	 * @param p Percentile between 0 and 1
+	 * @return Upper estimate of the value below which the given fraction of the
+	 *         recorded values is; 0 if there are none
+	 */
+	public long GetPercentile(double p)
+	{
+		long count = m_Count.get();
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long)Math.ceil(p * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++)
+		{
+			seen += m_Buckets.get(i);
+			if (seen >= rank)
+				return Math.min(BucketLimit(i), m_Max.get());
+		}
+		return m_Max.get();
+	}
+
+	@Override
+	public String GetName()
+	{
+		return m_Name;
+	}
+
+	@Override
+	public void Snapshot(Map<String, Object> values)
+	{
+		values.put(m_Name + ".Count", GetCount());
+		values.put(m_Name + ".Mean", GetMean());
+		values.put(m_Name + ".P50", GetPercentile(0.5));
+		values.put(m_Name + ".P99", GetPercentile(0.99));
+		values.put(m_Name + ".P999", GetPercentile(0.999));
+		values.put(m_Name + ".Max", GetMax());
+	}
+
+	@Override
+	public void Reset()
+	{
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			m_Buckets.set(i, 0);
+		m_Count.set(0);
+		m_Sum.set(0);
+		m_Max.set(0);
+	}
+}
@@ -0,0 +1,22 @@
+package name.fis.hrdina.metrics;
+
+import java.util.Map;
+
+/**
+ * A named measurement that can be published through JMX
+ * @author Filip Simek <filip@fis.name>
+ */
+public interface IMetric {
+	/** @return Name of the metric; the prefix of all its values */
+	public String GetName();
+
+	/**
+	 * Writes the current values of the metric
+	 * @param values Output map; the metric puts its values in it under keys
+	 *        "name.value" (e.g. "SolveTime.P99"), as Long or Double
+	 */
+	public void Snapshot(Map<String, Object> values);
+
+	/** Sets the metric back to its initial state */
+	public void Reset();
+}
@@ -0,0 +1,98 @@
+package name.fis.hrdina.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * All metrics of the program.
+ *
+ * The metrics are collected only if the program is started with
+ * <code>-Dhrdina.metrics=true</code>; they are then published through JMX
+ * under the name <code>name.fis.hrdina:type=Metrics</code>. Every measuring
+ * place is guarded by <code>if (Metrics.ENABLED)</code>. The flag is a static
+ * final constant, so when it is false the JIT compiler removes the guarded
+ * code completely and the instrumentation costs nothing.
+ * @author Filip Simek <filip@fis.name>
+ */
+public final class Metrics
+{
+	/** True if the metrics are collected */
+	public static final boolean ENABLED = Boolean.getBoolean("hrdina.metrics");
+	/** JMX name of the metrics */
+	public static final String OBJECT_NAME = "name.fis.hrdina:type=Metrics";
+
+	// <editor-fold desc="Solver">
+	/** Time of one board search */
+	public static final Histogram SOLVE_MICROS = new Histogram("SolveMicros");
+	/** Word tree nodes (paths on the board) visited by one board search */
+	public static final Histogram SOLVE_NODES = new Histogram("SolveNodes");
+	/** Unique words of a solved board */
+	public static final Histogram BOARD_WORDS = new Histogram("BoardWords");
+	// </editor-fold>
+
+	// <editor-fold desc="Generator">
+	/** Time of generating the letters of one board */
+	public static final Histogram GENERATE_MICROS = new Histogram("GenerateMicros");
+	/** Generated boards thrown away for having too few words */
+	public static final Counter BOARD_REJECTIONS = new Counter("BoardRejections");
+	/** Generated boards thrown away by the estimate, without solving them */
+	public static final Counter ESTIMATE_REJECTIONS = new Counter("EstimateRejections");
+	/** Calls of Alphabet.GetRandomLetterConditional */
+	public static final Counter CONDITIONAL_LETTERS = new Counter("ConditionalLetters");
+	// </editor-fold>
+
+	// <editor-fold desc="Loader">
+	public static final Histogram LOAD_ALPHABET_MICROS = new Histogram("LoadAlphabetMicros");
+	public static final Histogram LOAD_WORDTREE_MICROS = new Histogram("LoadWordTreeMicros");
+	public static final Histogram LOAD_DIGRAPHS_MICROS = new Histogram("LoadDigraphsMicros");
+	public static final Histogram VALIDATE_MICROS = new Histogram("ValidateMicros");
+	// </editor-fold>
+
+	private static final List<IMetric> ALL = Collections.unmodifiableList(Arrays.<IMetric>asList(
+		SOLVE_MICROS, SOLVE_NODES, BOARD_WORDS,
+		GENERATE_MICROS, BOARD_REJECTIONS, ESTIMATE_REJECTIONS, CONDITIONAL_LETTERS,
+		LOAD_ALPHABET_MICROS, LOAD_WORDTREE_MICROS, LOAD_DIGRAPHS_MICROS, VALIDATE_MICROS
+	));
+
+	static
+	{
+		if (ENABLED)
+			Register();
+	}
+
+	private Metrics()
+	{
+	}
+
+	/** @return All metrics */
+	public static List<IMetric> GetAll()
+	{
+		return ALL;
+	}
+
+	/**
+	 * @param startNanos Value of System.nanoTime() at the start of a measured interval
+	 * @return Microseconds since the start
+	 */
+	public static long MicrosSince(long startNanos)
+	{
+		return (System.nanoTime() - startNanos) / 1000;
+	}
+
+	/** Publishes the metrics through the platform MBean server */
+	private static void Register()
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(ALL), new ObjectName(OBJECT_NAME));
+		}
+		catch (JMException e)
+		{
+			System.err.println(String.format("Metrics could not be published: %s", e.getMessage()));
+		}
+	}
+}
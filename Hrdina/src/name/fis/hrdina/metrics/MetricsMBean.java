@@ -0,0 +1,103 @@
+package name.fis.hrdina.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Publishes a set of metrics through JMX. Every value of every metric is one
+ * read-only attribute (e.g. "SolveMicros.P99"); the operation "Reset" sets
+ * all the metrics back to zero.
+ * @author Filip Simek <filip@fis.name>
+ */
+public class MetricsMBean implements DynamicMBean
+{
+	private final List<IMetric> m_Metrics;
+
+	/**
+	 * @param metrics The metrics to publish
+	 */
+	public MetricsMBean(List<IMetric> metrics)
+	{
+		m_Metrics = new ArrayList<>(metrics);
+	}
+
+	/** @return Current values of all the metrics by attribute name */
+	public Map<String, Object> Snapshot()
+	{
+		Map<String, Object> values = new TreeMap<>();
+		for (IMetric m: m_Metrics)
+			m.Snapshot(values);
+		return values;
+	}
+
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException
+	{
+		Object value = Snapshot().get(attribute);
+		if (value == null)
+			throw new AttributeNotFoundException(attribute);
+		return value;
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException
+	{
+		throw new AttributeNotFoundException("All attributes are read-only");
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] attributes)
+	{
+		Map<String, Object> values = Snapshot();
+		AttributeList list = new AttributeList();
+		for (String name: attributes)
+		{
+			if (values.containsKey(name))
+				list.add(new Attribute(name, values.get(name)));
+		}
+		return list;
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes)
+	{
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException
+	{
+		if (!"Reset".equals(actionName))
+			throw new ReflectionException(new NoSuchMethodException(actionName));
+		for (IMetric m: m_Metrics)
+			m.Reset();
+		return null;
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo()
+	{
+		List<MBeanAttributeInfo> attributes = new ArrayList<>();
+		for (Map.Entry<String, Object> e: Snapshot().entrySet())
+		{
+			attributes.add(new MBeanAttributeInfo(e.getKey(), e.getValue().getClass().getName(),
+				e.getKey(), true, false, false));
+		}
+		MBeanOperationInfo reset = new MBeanOperationInfo("Reset", "Sets all metrics to zero",
+			new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+		return new MBeanInfo(getClass().getName(), "Hrdina metrics",
+			attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+			null, new MBeanOperationInfo[] {reset}, null);
+	}
+}
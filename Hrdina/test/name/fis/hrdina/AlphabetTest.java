@@ -21,6 +21,10 @@ package name.fis.hrdina;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.TreeMap;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -135,6 +139,20 @@ public class AlphabetTest {
 		assertEquals(1, instance.GetIndexOfLetter('b'));
 		assertEquals(2, instance.GetIndexOfLetter('c'));
 		assertEquals(Alphabet.NO_LETTER_INDEX, instance.GetIndexOfLetter('d'));
+
+		// Indices past 127 don't overflow
+		StringBuilder letters = new StringBuilder();
+		for (int i = 0; i < 300; i++)
+			letters.append((char)(0x100 + i));
+		Alphabet large = TestDictionary.CreateAlphabet(letters.toString(), new Random(1));
+		assertEquals(300, large.GetSize());
+		for (int i = 0; i < 300; i++)
+		{
+			assertEquals(i, large.GetIndexOfLetter((char)(0x100 + i)));
+			assertEquals((char)(0x100 + i), large.GetLetterByIndex(i));
+		}
+		assertEquals(Alphabet.NO_LETTER_INDEX, large.GetIndexOfLetter('a'));
+		assertEquals(Alphabet.NO_LETTER_INDEX, large.GetIndexOfLetter((char)(0x100 + 300)));
 	}
 
 	/**
@@ -215,4 +233,100 @@ public class AlphabetTest {
 		assertEquals(3, instance.GetWordValue("aaa"));
 		assertEquals(4, instance.GetWordValue("bac"));
 	}
+
+	/**
+	 * @param version File version, 2 or 3
+	 * @param splits Split patterns; written only for version 3
+	 * @return Alphabet file with letters a, c and a tile U+E000 = "ch"
+	 */
+	private static byte[] TiledAlphabetBytes(int version, String... splits) {
+		byte[] header = new byte[] {
+			// File version
+			(byte)version, 0, 0, 0,
+			// total letters = 30
+			30, 0, 0, 0,
+			// distinct letters
+			3, 0, 0, 0,
+			// letter a
+			0x61, 0, 0, 0,
+			// letter c
+			0x63, 0, 0, 0,
+			// tile U+E000
+			0, (byte)0xe0, 0, 0,
+			// frequencies
+			10, 0, 0, 0,
+			10, 0, 0, 0,
+			10, 0, 0, 0,
+			// one tile: U+E000 = "ch"
+			1, 0, 0, 0,
+			0, (byte)0xe0, 0, 0,
+			2, 0, 0, 0,
+			0x63, 0, 0, 0,
+			0x68, 0, 0, 0
+		};
+		ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(header);
+		if (version >= 3) {
+			buffer.putInt(splits.length);
+			for (String pattern: splits) {
+				buffer.putInt(pattern.length());
+				for (char c: pattern.toCharArray())
+					buffer.putInt(c);
+			}
+		}
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	/**
+	 * Test of Tokenize and Detokenize methods with an alphabet containing
+	 * a multi-letter tile (file version 2).
+	 */
+	@Test
+	public void testTiles() throws IOException, WordTreeException {
+		System.out.println("Tokenize");
+		Alphabet tiled = new Alphabet();
+		assertTrue(tiled.Load(new ByteArrayInputStream(TiledAlphabetBytes(2))));
+		assertEquals(3, tiled.GetSize());
+		assertEquals("ch", tiled.GetLetterText('\ue000'));
+		assertEquals("c", tiled.GetLetterText('c'));
+		assertEquals("\ue000a\ue000ca", tiled.Tokenize("chachca"));
+		assertEquals("chachca", tiled.Detokenize("\ue000a\ue000ca"));
+		assertEquals("abc", instance.Tokenize("abc"));
+		assertTrue(tiled.GetSplits().isEmpty());
+	}
+
+	/**
+	 * Test of Tokenize with split patterns (file version 3)
+	 */
+	@Test
+	public void testSplits() throws IOException, WordTreeException {
+		System.out.println("Tokenize with splits");
+		Alphabet tiled = new Alphabet();
+		assertTrue(tiled.Load(new ByteArrayInputStream(TiledAlphabetBytes(3, "tisíc|h", "a|ch"))));
+		assertEquals(Arrays.asList("tisíc|h", "a|ch"), tiled.GetSplits());
+		// The pattern keeps c and h apart in every form of the word
+		assertEquals("tisíchlavý", tiled.Tokenize("tisíchlavý"));
+		assertEquals("tisíchlavého", tiled.Tokenize("tisíchlavého"));
+		// Other c+h pairs still make the tile
+		assertEquals("tisíc\ue000", tiled.Tokenize("tisícch"));
+		assertEquals("\ue000ata", tiled.Tokenize("chata"));
+		// A split outside the tile doesn't prevent it
+		assertEquals("ba\ue000", tiled.Tokenize("bach"));
+		assertEquals("nejhezčí", tiled.Tokenize("nejhezčí"));
+		// The text comes back unchanged either way
+		assertEquals("tisíchlavý", tiled.Detokenize(tiled.Tokenize("tisíchlavý")));
+	}
+
+	/**
+	 * Test that a newer file version is rejected
+	 */
+	@Test
+	public void testUnsupportedVersion() throws IOException {
+		System.out.println("Load unsupported version");
+		try {
+			new Alphabet().Load(new ByteArrayInputStream(TiledAlphabetBytes(4)));
+			fail("Version 4 should be rejected");
+		} catch (WordTreeException e) {
+		}
+	}
 }
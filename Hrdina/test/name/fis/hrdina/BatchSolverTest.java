@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package name.fis.hrdina;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of BatchSolver
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BatchSolverTest {
+
+	private static final String LETTERS = "abcdehmruy";
+
+	private WordTree tree;
+	private BatchSolver instance;
+
+	@Before
+	public void setUp()
+	{
+		Alphabet alphabet = TestDictionary.CreateAlphabet(LETTERS, new Random(1));
+		tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "had", "cay", "duch", "ruch",
+			"ad", "ah", "bay", "ray", "rum", "ham", "hay", "yeah", "dummy", "duh");
+		instance = new BatchSolver(tree);
+	}
+
+	/**
+	 * Test of Solve method, of class BatchSolver.
+	 */
+	@Test
+	public void testSolve() {
+		System.out.println("Solve");
+		// Enough boards that the common nodes are reached by many paths at once
+		Random rand = new Random(7);
+		List<char[]> boards = new ArrayList<>();
+		boards.add("hamrdayucheuymrb".toCharArray());
+		for (int i = 0; i < 300; i++)
+		{
+			char[] board = new char[16];
+			for (int j = 0; j < board.length; j++)
+				board[j] = LETTERS.charAt(rand.nextInt(LETTERS.length()));
+			boards.add(board);
+		}
+		WordIdSolver solver = new WordIdSolver(tree);
+		int[][] result = instance.Solve(boards, 4);
+		assertEquals(boards.size(), result.length);
+		for (int i = 0; i < boards.size(); i++)
+			assertArrayEquals(solver.Solve(boards.get(i), 4), result[i]);
+		assertArrayEquals(new String[] {"ad", "ah", "cay", "had", "ham", "hamr", "hamru", "hamry", "hay", "rum", "yeah"},
+			solver.ToWords(result[0]));
+
+		// The same instance solves batches of other sizes and board sizes
+		List<char[]> small = new ArrayList<>();
+		small.add("hamyrudcb".toCharArray());
+		assertArrayEquals(solver.Solve(small.get(0), 3), instance.Solve(small, 3)[0]);
+		assertEquals(0, instance.Solve(new ArrayList<char[]>(), 4).length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSolveTooLarge() {
+		List<char[]> boards = new ArrayList<>();
+		boards.add(new char[81]);
+		instance.Solve(boards, 9);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package name.fis.hrdina;
+
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of BoardQualityEstimator
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BoardQualityEstimatorTest {
+
+	private static final String BOARD = "hamrdayucheuymrb";
+
+	private Alphabet alphabet;
+	private WordTree tree;
+	private BoardQualityEstimator instance;
+
+	@Before
+	public void setUp()
+	{
+		alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "had", "cay", "duch", "ruch", "ham", "ay", "me");
+		instance = new BoardQualityEstimator(tree, new Random(1));
+	}
+
+	/**
+	 * Test of Estimate method, of class BoardQualityEstimator.
+	 */
+	@Test
+	public void testEstimate() {
+		System.out.println("Estimate");
+		char[] board = BOARD.toCharArray();
+		int[] exact = new int[2];
+		CountPaths(board, exact);
+		BoardQualityEstimator.Estimate est = instance.Estimate(board, 4, 5000);
+		assertEquals(5000, est.GetProbes());
+		assertEquals(exact[0], est.GetWordCount(), 4 * est.GetWordCountError() + 1e-9);
+		assertEquals(exact[1], est.GetScore(), 4 * est.GetScoreError() + 1e-9);
+
+		est = instance.Estimate("bbbbbbbbbbbbbbbb".toCharArray(), 4, 10);
+		assertEquals(0, est.GetWordCount(), 0);
+		assertEquals(0, est.GetWordCountError(), 0);
+	}
+
+	/**
+	 * Test of IsClearlyBelow method, of class BoardQualityEstimator.
+	 */
+	@Test
+	public void testIsClearlyBelow() {
+		System.out.println("IsClearlyBelow");
+		assertTrue(instance.IsClearlyBelow("bbbbbbbbbbbbbbbb".toCharArray(), 4, 1));
+		assertTrue(instance.IsClearlyBelow(BOARD.toCharArray(), 4, 1000));
+		assertFalse(instance.IsClearlyBelow(BOARD.toCharArray(), 4, 1));
+	}
+
+	/**
+	 * Counts the word paths of a board and the sum of their values by a full search
+	 * @param board Letters of the board
+	 * @param result Receives the number of the paths and the sum of their values
+	 */
+	private void CountPaths(char[] board, int[] result)
+	{
+		boolean[] visited = new boolean[board.length];
+		int[][] neighbors = GameBoard.GetNeighborTable(4);
+		for (int i = 0; i < board.length; i++)
+		{
+			visited[i] = true;
+			CountPaths(board, neighbors, visited, i, "" + board[i], alphabet.GetLetterValue(board[i]), result);
+			visited[i] = false;
+		}
+	}
+
+	private void CountPaths(char[] board, int[][] neighbors, boolean[] visited, int position,
+		String prefix, int value, int[] result)
+	{
+		WordTree.WordSearchResult r = tree.CheckWord(prefix);
+		if (r.IsValidWord)
+		{
+			result[0]++;
+			result[1] += value;
+		}
+		if (!r.IsPerspectivePrefix)
+			return;
+		for (int neighbor: neighbors[position])
+		{
+			if (visited[neighbor])
+				continue;
+			visited[neighbor] = true;
+			CountPaths(board, neighbors, visited, neighbor, prefix + board[neighbor],
+				value + alphabet.GetLetterValue(board[neighbor]), result);
+			visited[neighbor] = false;
+		}
+	}
+}
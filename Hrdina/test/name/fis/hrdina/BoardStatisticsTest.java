@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package name.fis.hrdina;
+
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of BoardStatistics
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BoardStatisticsTest {
+
+	/*
+	 * h a m r
+	 * d a y u
+	 * c h e u
+	 * y m r b
+	 */
+	private static final String BOARD = "hamrdayucheuymrb";
+
+	private Alphabet alphabet;
+	private BoardStatistics instance;
+
+	@Before
+	public void setUp()
+	{
+		alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		WordTree tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "had", "cay", "duch", "ruch");
+		instance = new BoardStatistics(tree);
+	}
+
+	/**
+	 * Test of Grade method, of class BoardStatistics.
+	 */
+	@Test
+	public void testGrade() {
+		System.out.println("Grade");
+		instance.Grade(BOARD.toCharArray(), 4);
+		CheckBoard();
+
+		// The results of another board replace the previous ones, and the words
+		// of the first board are counted again when it is graded again
+		instance.Grade("bbbbbbbbbbbbbbbb".toCharArray(), 4);
+		assertEquals(0, instance.GetWordCount());
+		assertEquals(0, instance.GetTotalScore());
+		assertEquals(0, instance.GetCoveredCells());
+		instance.Grade(BOARD.toCharArray(), 4);
+		CheckBoard();
+	}
+
+	private void CheckBoard()
+	{
+		String[] words = new String[] {"cay", "had", "hamr", "hamru", "hamry"};
+		int total = 0, max = 0;
+		for (String w: words)
+		{
+			total += alphabet.GetWordValue(w);
+			max = Math.max(max, alphabet.GetWordValue(w));
+		}
+		assertEquals(5, instance.GetWordCount());
+		assertEquals(total, instance.GetTotalScore());
+		assertEquals(max, instance.GetMaxScore());
+		assertEquals(2, instance.GetLengthCount(3));
+		assertEquals(1, instance.GetLengthCount(4));
+		assertEquals(2, instance.GetLengthCount(5));
+		assertEquals(0, instance.GetLengthCount(6));
+
+		// "hamr" can be formed by three paths, but it counts once for each cell
+		assertEquals(4, instance.GetCoverage(0));
+		assertEquals(3, instance.GetCoverage(2));
+		assertEquals(4, instance.GetCoverage(9));
+		assertEquals(5, instance.GetCoverage(5));
+		assertEquals(2, instance.GetCoverage(6));
+		assertEquals(1, instance.GetCoverage(8));
+		assertEquals(0, instance.GetCoverage(15));
+		assertEquals(10, instance.GetCoveredCells());
+	}
+}
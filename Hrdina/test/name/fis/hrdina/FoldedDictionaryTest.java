@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import name.fis.hrdina.generators.IBoardGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of FoldedDictionary
+ * @author Filip Simek <filip@fis.name>
+ */
+public class FoldedDictionaryTest {
+
+	private static final String LETTERS = "aácčeěhkmrsšyý";
+	private static final String[] WORDS = {"máma", "mama", "šek", "seker", "čas", "časy", "cár", "rys", "sýr"};
+
+	private FoldedDictionary instance;
+
+	@Before
+	public void setUp()
+	{
+		Alphabet alphabet = TestDictionary.CreateAlphabet(LETTERS, new Random(1));
+		WordTree tree = TestDictionary.CreateTree(alphabet, WORDS);
+		instance = new FoldedDictionary(alphabet, tree, TestDictionary.CreateDigraphs(alphabet), new Random(1));
+	}
+
+	/**
+	 * Test of Fold and FoldLetter methods, of class FoldedDictionary.
+	 */
+	@Test
+	public void testFold() {
+		System.out.println("Fold");
+		assertEquals('c', FoldedDictionary.FoldLetter('č'));
+		assertEquals('e', FoldedDictionary.FoldLetter('ě'));
+		assertEquals('a', FoldedDictionary.FoldLetter('a'));
+		assertEquals("sykora", FoldedDictionary.Fold("sýkora"));
+		assertEquals("", FoldedDictionary.Fold(""));
+	}
+
+	/**
+	 * Test of the folded alphabet and word tree.
+	 */
+	@Test
+	public void testFoldedTree() {
+		System.out.println("FoldedTree");
+		Alphabet folded = instance.GetAlphabet();
+		assertEquals("acehkmrsy".length(), folded.GetSize());
+		for (char c: "acehkmrsy".toCharArray())
+			assertTrue(folded.GetIndexOfLetter(c) != Alphabet.NO_LETTER_INDEX);
+		assertEquals(Alphabet.NO_LETTER_INDEX, folded.GetIndexOfLetter('č'));
+
+		// Words that fold to the same form are merged
+		List<String> words = new ArrayList<>();
+		for (String word: instance.GetWordTree().Words())
+			words.add(word);
+		Collections.sort(words);
+		assertEquals(Arrays.asList("car", "cas", "casy", "mama", "rys", "sek", "seker", "syr"), words);
+
+		// The complete flags are a union: "sek" is only a prefix of "seker" in
+		// the s branch, but a complete word in the š branch
+		WordTree.WordSearchResult r = instance.GetWordTree().CheckWord("sek");
+		assertTrue(r.IsValidWord);
+		assertTrue(r.IsPerspectivePrefix);
+		assertFalse(instance.GetOriginalWordTree().CheckWord("sek").IsValidWord);
+		r = instance.GetWordTree().CheckWord("cas");
+		assertTrue(r.IsValidWord);
+		assertTrue(r.IsPerspectivePrefix);
+		assertFalse(instance.GetWordTree().CheckWord("ca").IsValidWord);
+	}
+
+	/**
+	 * Test of GetAccentedForms method, of class FoldedDictionary.
+	 */
+	@Test
+	public void testGetAccentedForms() {
+		System.out.println("GetAccentedForms");
+		assertEquals(Arrays.asList("mama", "máma"), instance.GetAccentedForms("mama"));
+		assertEquals(Arrays.asList("šek"), instance.GetAccentedForms("sek"));
+		assertEquals(Arrays.asList("seker"), instance.GetAccentedForms("seker"));
+		assertEquals(Arrays.asList("časy"), instance.GetAccentedForms("casy"));
+		assertEquals(Arrays.asList("sýr"), instance.GetAccentedForms("syr"));
+		// Prefixes, unknown words and letters outside the folded alphabet
+		assertTrue(instance.GetAccentedForms("ca").isEmpty());
+		assertTrue(instance.GetAccentedForms("sekr").isEmpty());
+		assertTrue(instance.GetAccentedForms("čas").isEmpty());
+		assertTrue(instance.GetAccentedForms("").isEmpty());
+	}
+
+	/**
+	 * Test of solving a board through the folded word tree.
+	 */
+	@Test
+	public void testSolve() {
+		System.out.println("Solve");
+		GameBoard board = new GameBoard();
+		board.Init(instance.GetAlphabet(), instance.GetWordTree(), new IBoardGenerator() {
+			@Override
+			public char[] GenerateBoard(int size) {
+				return "mamycashrkemyser".toCharArray();
+			}
+		});
+		List<String> found = board.SolveBoard();
+		Collections.sort(found);
+		assertEquals(Arrays.asList("car", "cas", "casy", "mama", "rys", "sek", "seker", "syr"), found);
+
+		List<String> accented = new ArrayList<>();
+		for (String word: found)
+			accented.addAll(instance.GetAccentedForms(word));
+		Collections.sort(accented);
+		List<String> expected = new ArrayList<>(Arrays.asList(WORDS));
+		Collections.sort(expected);
+		assertEquals(expected, accented);
+	}
+}
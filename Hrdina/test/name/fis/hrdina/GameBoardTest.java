@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import name.fis.hrdina.generators.IBoardGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the GameBoard solvers
+ * @author Filip Simek <filip@fis.name>
+ */
+public class GameBoardTest {
+
+	private GameBoard board;
+
+	@Before
+	public void setUp()
+	{
+		Alphabet alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		WordTree tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "had", "cay", "duch", "ruch");
+		board = new GameBoard();
+		board.Init(alphabet, tree, new IBoardGenerator() {
+			@Override
+			public char[] GenerateBoard(int size) {
+				return "hamrdayucheuymrb".toCharArray();
+			}
+		});
+	}
+
+	/**
+	 * Test of SolveBoard method, of class GameBoard.
+	 */
+	@Test
+	public void testSolveBoard() {
+		System.out.println("SolveBoard");
+		List<String> words = board.SolveBoard();
+		String[] sorted = words.toArray(new String[0]);
+		Arrays.sort(sorted);
+		assertArrayEquals(new String[] {"cay", "had", "hamr", "hamru", "hamry"}, sorted);
+	}
+
+	/**
+	 * Test of Solve method, of class GameBoard.
+	 */
+	@Test
+	public void testSolve() {
+		System.out.println("Solve");
+		final List<String> found = new ArrayList<>();
+		SolveResult r = board.Solve(new IWordVisitor() {
+			@Override
+			public boolean VisitWord(String word, int[] path, int length) {
+				assertEquals(word.length(), length);
+				for (int i = 0; i < length; i++)
+					assertEquals(word.charAt(i), board.GetLetters()[path[i]]);
+				found.add(word);
+				return true;
+			}
+		}, SolveBudget.Unlimited());
+		assertTrue(r.IsComplete());
+		assertEquals(found.size(), r.GetFoundPaths());
+		long allNodes = r.GetVisitedNodes();
+
+		// The visitor stops the search after the first word
+		found.clear();
+		r = board.Solve(new IWordVisitor() {
+			@Override
+			public boolean VisitWord(String word, int[] path, int length) {
+				found.add(word);
+				return false;
+			}
+		}, SolveBudget.Unlimited());
+		assertEquals(SolveResult.StopReason.STOPPED_BY_VISITOR, r.GetStopReason());
+		assertFalse(r.IsComplete());
+		assertEquals(1, found.size());
+
+		IWordVisitor ignore = new IWordVisitor() {
+			@Override
+			public boolean VisitWord(String word, int[] path, int length) {
+				return true;
+			}
+		};
+		r = board.Solve(ignore, SolveBudget.WithNodeLimit(allNodes / 2));
+		assertEquals(SolveResult.StopReason.NODE_LIMIT, r.GetStopReason());
+		assertEquals(allNodes / 2, r.GetVisitedNodes());
+
+		r = board.Solve(ignore, SolveBudget.WithNodeLimit(allNodes));
+		assertTrue(r.IsComplete());
+
+		SolveBudget cancelled = SolveBudget.Unlimited();
+		cancelled.Cancel();
+		r = board.Solve(ignore, cancelled);
+		assertEquals(SolveResult.StopReason.CANCELLED, r.GetStopReason());
+
+		r = board.Solve(ignore, SolveBudget.WithTimeout(0, TimeUnit.MILLISECONDS));
+		assertEquals(SolveResult.StopReason.DEADLINE, r.GetStopReason());
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina;
+
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of OverlayWordTree
+ * @author Filip Simek <filip@fis.name>
+ */
+public class OverlayWordTreeTest {
+	
+	private Alphabet alphabet;
+	private OverlayWordTree instance;
+	
+	@Before
+	public void setUp()
+	{
+		alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		WordTree base = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "had", "cay");
+		instance = new OverlayWordTree(base, alphabet);
+	}
+
+	/**
+	 * Test of AddWord method, of class OverlayWordTree.
+	 */
+	@Test
+	public void testAddWord() {
+		System.out.println("AddWord");
+		assertTrue(instance.AddWord("hamru"));
+		assertFalse(instance.AddWord("hamru"));
+		assertFalse(instance.AddWord("hamr"));
+		assertTrue(instance.AddWord("duch"));
+		assertTrue(instance.CheckWord("hamru").IsValidWord);
+		assertTrue(instance.CheckWord("duch").IsValidWord);
+		assertTrue(instance.CheckWord("du").IsPerspectivePrefix);
+		assertFalse(instance.CheckWord("du").IsValidWord);
+		assertEquals(2, instance.GetPendingChanges());
+	}
+
+	/**
+	 * Test of RemoveWord method, of class OverlayWordTree.
+	 */
+	@Test
+	public void testRemoveWord() {
+		System.out.println("RemoveWord");
+		assertTrue(instance.RemoveWord("hamr"));
+		assertFalse(instance.RemoveWord("hamr"));
+		assertFalse(instance.CheckWord("hamr").IsValidWord);
+		assertTrue(instance.CheckWord("hamr").IsPerspectivePrefix);
+		assertTrue(instance.CheckWord("hamry").IsValidWord);
+		// Adding the word back just drops the tombstone
+		assertTrue(instance.AddWord("hamr"));
+		assertTrue(instance.CheckWord("hamr").IsValidWord);
+		// Removing an added word drops it from the overlay
+		assertTrue(instance.AddWord("duch"));
+		assertTrue(instance.RemoveWord("duch"));
+		assertFalse(instance.CheckWord("duch").IsValidWord);
+		assertFalse(instance.CheckWord("du").IsPerspectivePrefix);
+	}
+
+	/**
+	 * Test of Compact method, of class OverlayWordTree.
+	 */
+	@Test
+	public void testCompact() throws Exception {
+		System.out.println("Compact");
+		instance.AddWord("duch");
+		instance.RemoveWord("had");
+		WordTree compacted = instance.Compact().get();
+		assertSame(compacted, instance.GetBase());
+		assertEquals(0, instance.GetPendingChanges());
+		assertTrue(compacted.CheckWord("duch").IsValidWord);
+		assertFalse(compacted.CheckWord("had").IsValidWord);
+		assertTrue(compacted.CheckWord("hamry").IsValidWord);
+		assertTrue(instance.CheckWord("duch").IsValidWord);
+		assertFalse(instance.CheckWord("had").IsValidWord);
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package name.fis.hrdina;
+
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of PathTableSolver and SimplePathTable
+ * @author Filip Simek <filip@fis.name>
+ */
+public class PathTableSolverTest {
+
+	private static final String LETTERS = "abcdehmruy";
+
+	private WordTree tree;
+
+	@Before
+	public void setUp()
+	{
+		Alphabet alphabet = TestDictionary.CreateAlphabet(LETTERS, new Random(1));
+		tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "had", "cay", "duch", "ruch",
+			"ad", "ah", "bay", "ray", "rum", "ham", "hay", "yeah", "dummy", "duh");
+	}
+
+	/**
+	 * Test of Build method, of class SimplePathTable.
+	 */
+	@Test
+	public void testBuild() {
+		System.out.println("Build");
+		// 4x4: 16 positions, 84 paths of two positions (pairs of neighbors in both directions)
+		SimplePathTable paths = SimplePathTable.Build(4, 2);
+		assertEquals(1 + 16 + 84, paths.GetNodeCount());
+		assertEquals(2, paths.GetMaxLength());
+		// A corner has 3 neighbors, the paths of two positions have no children
+		assertEquals(3, paths.GetFirstChild(2) - paths.GetFirstChild(1));
+		assertEquals(paths.GetNodeCount(), paths.GetFirstChild(paths.GetNodeCount() - 1));
+		// Every path of a 2x2 board has all other positions as neighbors
+		assertEquals(1 + 4 + 12 + 24 + 24, SimplePathTable.Build(2, 10).GetNodeCount());
+	}
+
+	/**
+	 * Test of Solve method, of class PathTableSolver.
+	 */
+	@Test
+	public void testSolve() {
+		System.out.println("Solve");
+		WordIdSolver solver = new WordIdSolver(tree);
+		// The short table also exercises the search past the end of the table
+		PathTableSolver[] instances = new PathTableSolver[] {
+			new PathTableSolver(tree, 4), new PathTableSolver(tree, SimplePathTable.Build(4, 3))};
+		Random rand = new Random(7);
+		for (int i = 0; i < 300; i++)
+		{
+			char[] board = new char[16];
+			for (int j = 0; j < board.length; j++)
+				board[j] = LETTERS.charAt(rand.nextInt(LETTERS.length()));
+			for (PathTableSolver instance: instances)
+				assertArrayEquals(solver.Solve(board, 4), instance.Solve(board));
+		}
+		assertArrayEquals(new String[] {"ad", "ah", "cay", "had", "ham", "hamr", "hamru", "hamry", "hay", "rum", "yeah"},
+			solver.ToWords(instances[1].Solve("hamrdayucheuymrb".toCharArray())));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSolveWrongSize() {
+		new PathTableSolver(tree, 4).Solve("hamyrudcb".toCharArray());
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import name.fis.hrdina.dictionary.ResourceDictionarySource;
+
+/**
+ * Builds small in-memory dictionaries for the tests
+ * @author Filip Simek <filip@fis.name>
+ */
+public class TestDictionary {
+	/**
+	 * Creates an alphabet from the given letters. Every letter gets the same
+	 * frequency, the letter index is the position in the string.
+	 * @param letters All letters of the alphabet
+	 * @param rand Random number generator for the alphabet
+	 * @return The loaded alphabet
+	 */
+	public static Alphabet CreateAlphabet(String letters, Random rand)
+	{
+		int[] frequencies = new int[letters.length()];
+		Arrays.fill(frequencies, 10);
+		return CreateAlphabet(letters, frequencies, rand);
+	}
+
+	/**
+	 * Creates an alphabet from the given letters and their frequencies, which
+	 * also give the letters their values. The letter index is the position in
+	 * the string.
+	 * @param letters All letters of the alphabet
+	 * @param frequencies Number of occurencies of each letter
+	 * @param rand Random number generator for the alphabet
+	 * @return The loaded alphabet
+	 */
+	public static Alphabet CreateAlphabet(String letters, int[] frequencies, Random rand)
+	{
+		Alphabet alphabet = new Alphabet(rand);
+		try
+		{
+			alphabet.Load(new ByteArrayInputStream(AlphabetToBytes(letters, frequencies)));
+		}
+		catch (IOException | WordTreeException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		return alphabet;
+	}
+
+	/**
+	 * Creates an alphabet with multi-letter tiles. Every letter and tile gets
+	 * the same frequency; the tiles are represented by characters from U+E000
+	 * in the given order and follow the letters.
+	 * @param letters All single letters of the alphabet
+	 * @param tiles Text of the multi-letter tiles
+	 * @param rand Random number generator for the alphabet
+	 * @return The loaded alphabet
+	 */
+	public static Alphabet CreateAlphabet(String letters, String[] tiles, Random rand)
+	{
+		Alphabet alphabet = new Alphabet(rand);
+		try
+		{
+			alphabet.Load(new ByteArrayInputStream(AlphabetToBytes(letters, tiles)));
+		}
+		catch (IOException | WordTreeException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		return alphabet;
+	}
+
+	/**
+	 * Serializes an alphabet with multi-letter tiles the same way alphabet.bin
+	 * is written (file version 2)
+	 * @param letters All single letters of the alphabet
+	 * @param tiles Text of the multi-letter tiles
+	 * @return Little-endian bytes of the alphabet
+	 */
+	public static byte[] AlphabetToBytes(String letters, String[] tiles)
+	{
+		int size = letters.length() + tiles.length;
+		int tileChars = 0;
+		for (String tile: tiles)
+			tileChars += tile.length();
+		ByteBuffer buf = ByteBuffer.allocate(16 + 8 * size + 8 * tiles.length + 4 * tileChars)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(2);
+		buf.putInt(10 * size);
+		buf.putInt(size);
+		for (char c: letters.toCharArray())
+			buf.putInt(c);
+		for (int i = 0; i < tiles.length; i++)
+			buf.putInt(0xe000 + i);
+		for (int i = 0; i < size; i++)
+			buf.putInt(10);
+		buf.putInt(tiles.length);
+		for (int i = 0; i < tiles.length; i++)
+		{
+			buf.putInt(0xe000 + i);
+			buf.putInt(tiles[i].length());
+			for (char c: tiles[i].toCharArray())
+				buf.putInt(c);
+		}
+		return buf.array();
+	}
+
+	/**
+	 * Serializes an alphabet the same way alphabet.bin is written
+	 * @param letters All letters of the alphabet
+	 * @param frequencies Number of occurencies of each letter
+	 * @return Little-endian bytes of the alphabet
+	 */
+	public static byte[] AlphabetToBytes(String letters, int[] frequencies)
+	{
+		int total = 0;
+		for (int f: frequencies)
+			total += f;
+		ByteBuffer buf = ByteBuffer.allocate(12 + 8 * letters.length()).order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(1);
+		buf.putInt(total);
+		buf.putInt(letters.length());
+		for (char c: letters.toCharArray())
+			buf.putInt(c);
+		for (int f: frequencies)
+			buf.putInt(f);
+		return buf.array();
+	}
+
+	/**
+	 * Builds a word tree from the given words
+	 * @param alphabet Alphabet of the words
+	 * @param words The words; tokenized like tree_builder.py does
+	 * @return The word tree
+	 */
+	public static WordTree CreateTree(Alphabet alphabet, String... words)
+	{
+		WordTreeBuilder builder = new WordTreeBuilder(alphabet);
+		for (String w: words)
+			builder.AddWord(alphabet.Tokenize(w));
+		return builder.Build();
+	}
+
+	/**
+	 * Creates digraph statistics where every pair of letters is equally frequent
+	 * @param alphabet The alphabet
+	 * @return The loaded digraphs
+	 */
+	public static Digraphs CreateDigraphs(Alphabet alphabet)
+	{
+		Digraphs digraphs = new Digraphs();
+		try
+		{
+			digraphs.Load(new ByteArrayInputStream(DigraphsToBytes(alphabet.GetSize())), alphabet);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		return digraphs;
+	}
+
+	/**
+	 * Serializes digraph statistics where every pair of letters is equally
+	 * frequent, the same way digraph.bin is written
+	 * @param size Number of letters of the alphabet
+	 * @return Little-endian bytes of the digraphs
+	 */
+	public static byte[] DigraphsToBytes(int size)
+	{
+		int[] triangle = new int[(size * size + size) / 2];
+		Arrays.fill(triangle, 1);
+		return ImageToBytes(triangle);
+	}
+
+	/**
+	 * Writes the data files of a dictionary (alphabet.bin, wordtree.bin and
+	 * digraph.bin) of the given letters and words to a directory, so that it
+	 * can be loaded by <code>FileDictionarySource</code>. Every letter gets
+	 * the same frequency.
+	 * @param directory Directory to write the files to; created if it doesn't exist
+	 * @param letters All letters of the alphabet
+	 * @param words The words
+	 * @throws IOException Problems writing the files
+	 */
+	public static void WriteDictionary(File directory, String letters, String... words) throws IOException
+	{
+		int[] frequencies = new int[letters.length()];
+		Arrays.fill(frequencies, 10);
+		WordTree tree = CreateTree(CreateAlphabet(letters, new Random(1)), words);
+		Files.createDirectories(directory.toPath());
+		Files.write(new File(directory, ResourceDictionarySource.ALPHABET_FILE_NAME).toPath(), AlphabetToBytes(letters, frequencies));
+		Files.write(new File(directory, ResourceDictionarySource.WORDTREE_FILE_NAME).toPath(), ImageToBytes(tree.GetImage()));
+		Files.write(new File(directory, ResourceDictionarySource.DIGRAPH_FILE_NAME).toPath(), DigraphsToBytes(letters.length()));
+	}
+
+	/**
+	 * Serializes a word tree image the same way tree_builder.py writes wordtree.bin
+	 * @param image The image
+	 * @return Little-endian bytes of the image
+	 */
+	public static byte[] ImageToBytes(int[] image)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteBuffer buf = ByteBuffer.allocate(image.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+		buf.asIntBuffer().put(image);
+		out.write(buf.array(), 0, image.length * 4);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import name.fis.hrdina.generators.IBoardGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of TopWordsSolver
+ * @author Filip Simek <filip@fis.name>
+ */
+public class TopWordsSolverTest {
+
+	private static final String LETTERS = "abcdehmruy";
+	/** Frequencies of LETTERS, so that the letters are worth 1 to 6 points */
+	private static final int[] FREQUENCIES = {300, 200, 150, 100, 80, 40, 20, 8, 5, 3};
+
+	private Alphabet alphabet;
+	private WordTree tree;
+	private TopWordsSolver instance;
+
+	@Before
+	public void setUp()
+	{
+		alphabet = TestDictionary.CreateAlphabet(LETTERS, FREQUENCIES, new Random(1));
+		Random rand = new Random(3);
+		List<String> words = new ArrayList<>();
+		for (int i = 0; i < 2000; i++)
+			words.add(RandomString(rand, 2 + rand.nextInt(5)));
+		tree = TestDictionary.CreateTree(alphabet, words.toArray(new String[words.size()]));
+		instance = new TopWordsSolver(tree);
+	}
+
+	/**
+	 * Test of Solve method, of class TopWordsSolver, against all words of
+	 * the board sorted by value.
+	 */
+	@Test
+	public void testSolve() {
+		System.out.println("Solve");
+		Random rand = new Random(7);
+		int[] ks = {1, 3, 10, 50, 1000};
+		int ties = 0;
+		for (int i = 0; i < 200; i++)
+		{
+			final char[] letters = RandomString(rand, 16).toCharArray();
+			GameBoard board = new GameBoard();
+			board.Init(alphabet, tree, new IBoardGenerator() {
+				@Override
+				public char[] GenerateBoard(int size) {
+					return letters;
+				}
+			});
+			List<String> all = board.SolveBoard();
+			List<Integer> values = new ArrayList<>(all.size());
+			for (String word: all)
+				values.add(alphabet.GetWordValue(word));
+			Collections.sort(values, Collections.reverseOrder());
+
+			for (int k: ks)
+			{
+				List<String> result = instance.Solve(board, k);
+				int expected = Math.min(k, all.size());
+				assertEquals(expected, result.size());
+				assertEquals(expected, new HashSet<>(result).size());
+				for (int j = 0; j < expected; j++)
+				{
+					String word = result.get(j);
+					assertTrue(word, all.contains(word));
+					// Any of the words tied with the K-th one may be returned, but
+					// the values must be the K best ones
+					assertEquals(word, values.get(j).intValue(), alphabet.GetWordValue(word));
+				}
+				if (expected < all.size() && values.get(expected - 1).equals(values.get(expected)))
+					ties++;
+			}
+		}
+		// The boards must include cases where the K-th word is tied with the next one
+		assertTrue(ties > 0);
+	}
+
+	/**
+	 * Test of Solve method, of class TopWordsSolver, with nothing to find.
+	 */
+	@Test
+	public void testSolveEmpty() {
+		System.out.println("SolveEmpty");
+		char[] letters = "hamrdayucheuymrb".toCharArray();
+		assertTrue(instance.Solve(letters, 4, 0).isEmpty());
+		assertTrue(instance.Solve(letters, 4, -1).isEmpty());
+		assertTrue(new TopWordsSolver(TestDictionary.CreateTree(alphabet)).Solve(letters, 4, 5).isEmpty());
+	}
+
+	/** @return A random string of letters of LETTERS */
+	private static String RandomString(Random rand, int length)
+	{
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+			sb.append(LETTERS.charAt(rand.nextInt(LETTERS.length())));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package name.fis.hrdina;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import name.fis.hrdina.generators.TrigramBoard;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of Trigrams and TrigramBoard
+ * @author Filip Simek <filip@fis.name>
+ */
+public class TrigramsTest {
+
+	private Alphabet alphabet;
+	private WordTree tree;
+	private Trigrams instance;
+
+	@Before
+	public void setUp()
+	{
+		alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "hamre", "had", "cay", "duch");
+		instance = new Trigrams();
+		instance.Compute(tree);
+	}
+
+	private int Index(char letter)
+	{
+		return alphabet.GetIndexOfLetter(letter);
+	}
+
+	/**
+	 * Test of Compute method, of class Trigrams.
+	 */
+	@Test
+	public void testCompute() {
+		System.out.println("Compute");
+		assertEquals(4, instance.GetTrigramFrequency(Index('h'), Index('a'), Index('m')));
+		assertEquals(4, instance.GetTrigramFrequency(Index('m'), Index('a'), Index('h')));
+		assertEquals(1, instance.GetTrigramFrequency(Index('h'), Index('a'), Index('d')));
+		assertEquals(1, instance.GetTrigramFrequency(Index('m'), Index('r'), Index('y')));
+		assertEquals(0, instance.GetTrigramFrequency(Index('h'), Index('a'), Index('y')));
+	}
+
+	/**
+	 * Test of Load method, of class Trigrams.
+	 */
+	@Test
+	public void testLoad() throws IOException {
+		System.out.println("Load");
+		int ham = Index('h') | Index('a') << 8 | Index('m') << 16;
+		int had = Index('h') | Index('a') << 8 | Index('d') << 16;
+		int[] data = new int[] {1, 2, 0, 0, 0, 0};
+		// The entries are sorted by the first, second and third letter
+		boolean hamFirst = Index('m') < Index('d');
+		data[2] = hamFirst? ham: had;
+		data[3] = hamFirst? 3: 5;
+		data[4] = hamFirst? had: ham;
+		data[5] = hamFirst? 5: 3;
+		Trigrams loaded = new Trigrams();
+		assertTrue(loaded.Load(new ByteArrayInputStream(TestDictionary.ImageToBytes(data)), alphabet));
+		assertEquals(3, loaded.GetTrigramFrequency(Index('h'), Index('a'), Index('m')));
+		assertEquals(5, loaded.GetTrigramFrequency(Index('h'), Index('a'), Index('d')));
+		assertEquals(0, loaded.GetTrigramFrequency(Index('m'), Index('a'), Index('h')));
+
+		// Unsorted entries and letters outside of the alphabet are invalid
+		int[] unsorted = new int[] {1, 2, data[4], data[5], data[2], data[3]};
+		assertFalse(new Trigrams().Load(new ByteArrayInputStream(TestDictionary.ImageToBytes(unsorted)), alphabet));
+		int[] badLetter = new int[] {1, 1, 100 | Index('a') << 8, 1};
+		assertFalse(new Trigrams().Load(new ByteArrayInputStream(TestDictionary.ImageToBytes(badLetter)), alphabet));
+	}
+
+	/**
+	 * Test of SampleAfter method, of class Trigrams.
+	 */
+	@Test
+	public void testSampleAfter() {
+		System.out.println("SampleAfter");
+		Random rand = new Random(1);
+		// After "ha" comes "m" in four words and "d" in one
+		int m = 0, d = 0;
+		for (int i = 0; i < 10000; i++)
+		{
+			int letter = instance.SampleAfter(Index('h'), Index('a'), rand);
+			if (letter == Index('m'))
+				m++;
+			else if (letter == Index('d'))
+				d++;
+		}
+		assertEquals(10000, m + d);
+		assertEquals(0.8, m / 10000.0, 0.02);
+		assertEquals(Index('c'), instance.SampleAfter(Index('d'), Index('u'), rand));
+		assertEquals(Alphabet.NO_LETTER_INDEX, instance.SampleAfter(Index('b'), Index('a'), rand));
+		assertEquals(Alphabet.NO_LETTER_INDEX, instance.SampleAfter(Index('b'), rand));
+	}
+
+	/**
+	 * Test of GenerateBoard method, of class TrigramBoard.
+	 */
+	@Test
+	public void testGenerateBoard() {
+		System.out.println("GenerateBoard");
+		char[] board = new TrigramBoard(alphabet, instance).GenerateBoard(4);
+		assertEquals(16, board.length);
+		for (char c: board)
+			assertTrue(alphabet.GetIndexOfLetter(c) != Alphabet.NO_LETTER_INDEX);
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import name.fis.hrdina.generators.IBoardGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of WordIdSolver
+ * @author Filip Simek <filip@fis.name>
+ */
+public class WordIdSolverTest {
+
+	private static final String LETTERS = "abcdehmruy";
+
+	private Alphabet alphabet;
+	private WordTree tree;
+	private WordIdSolver instance;
+
+	@Before
+	public void setUp()
+	{
+		alphabet = TestDictionary.CreateAlphabet(LETTERS, new Random(1));
+		Random rand = new Random(3);
+		List<String> words = new ArrayList<>();
+		for (int i = 0; i < 2000; i++)
+			words.add(RandomString(rand, 2 + rand.nextInt(5)));
+		tree = TestDictionary.CreateTree(alphabet, words.toArray(new String[words.size()]));
+		instance = new WordIdSolver(tree);
+	}
+
+	/**
+	 * Test of Solve method, of class WordIdSolver, against SolveBoard.
+	 */
+	@Test
+	public void testSolve() {
+		System.out.println("Solve");
+		Random rand = new Random(7);
+		int found = 0;
+		for (int i = 0; i < 300; i++)
+		{
+			final char[] letters = RandomString(rand, 16).toCharArray();
+			GameBoard board = new GameBoard();
+			board.Init(alphabet, tree, new IBoardGenerator() {
+				@Override
+				public char[] GenerateBoard(int size) {
+					return letters;
+				}
+			});
+			List<String> expected = board.SolveBoard();
+			Collections.sort(expected);
+
+			int[] ids = instance.Solve(board);
+			assertArrayEquals(ids, instance.Solve(letters, 4));
+			List<String> words = new ArrayList<>(ids.length);
+			for (int j = 0; j < ids.length; j++)
+			{
+				if (j > 0)
+					assertTrue("IDs are not sorted and unique", ids[j - 1] < ids[j]);
+				words.add(tree.GetWord(ids[j]));
+				assertEquals(ids[j], tree.GetWordId(words.get(j)));
+			}
+			Collections.sort(words);
+			assertEquals(expected, words);
+			found += ids.length;
+		}
+		assertTrue(found > 0);
+	}
+
+	/**
+	 * Test of Solve method, of class WordIdSolver, with an empty word tree.
+	 */
+	@Test
+	public void testSolveEmpty() {
+		System.out.println("SolveEmpty");
+		WordIdSolver empty = new WordIdSolver(TestDictionary.CreateTree(alphabet));
+		assertEquals(0, empty.Solve("hamrdayucheuymrb".toCharArray(), 4).length);
+	}
+
+	/** @return A random string of letters of LETTERS */
+	private static String RandomString(Random rand, int length)
+	{
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+			sb.append(LETTERS.charAt(rand.nextInt(LETTERS.length())));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package name.fis.hrdina;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of WordPattern
+ * @author Filip Simek <filip@fis.name>
+ */
+public class WordPatternTest {
+
+	private WordTree tree;
+
+	@Before
+	public void setUp()
+	{
+		Alphabet alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "hamre", "had", "cay", "duch", "ruch");
+	}
+
+	private List<String> Match(WordPattern pattern)
+	{
+		List<String> words = new ArrayList<>();
+		for (String w: pattern.Matches(tree))
+			words.add(w);
+		return words;
+	}
+
+	/**
+	 * Test of Matches method, of class WordPattern.
+	 */
+	@Test
+	public void testMatches() {
+		System.out.println("Matches");
+		assertEquals(Arrays.asList("hamr"), Match(new WordPattern("hamr")));
+		assertEquals(Arrays.asList("had", "hamr", "hamre", "hamru", "hamry"), Match(new WordPattern("h*")));
+		assertEquals(Arrays.asList("duch", "ruch"), Match(new WordPattern("?uch")));
+		assertEquals(Arrays.asList("duch", "ruch"), Match(new WordPattern("*ch")));
+		assertEquals(Arrays.asList("hamre", "hamry"), Match(new WordPattern("ham*[ey]")));
+		assertEquals(Arrays.asList("hamre", "hamru"), Match(new WordPattern("hamr[^y]")));
+		assertEquals(Arrays.asList("cay", "hamry"), Match(new WordPattern("*a*y")));
+		assertEquals(Arrays.asList(), Match(new WordPattern("ham")));
+		assertEquals(Arrays.asList(), Match(new WordPattern("x*")));
+		assertEquals(8, new WordPattern("*").Count(tree));
+	}
+
+	/**
+	 * Test of the length limits of WordPattern.
+	 */
+	@Test
+	public void testLength() {
+		System.out.println("Length");
+		assertEquals(Arrays.asList("hamre", "hamru", "hamry"), Match(new WordPattern("h*", 5, 5)));
+		assertEquals(Arrays.asList("cay", "had"), Match(new WordPattern("*", 0, 3)));
+		assertEquals(Arrays.asList("duch", "hamr", "ruch"), Match(new WordPattern("*", 4, 4)));
+	}
+
+	/**
+	 * Test of patterns with a multi-letter tile
+	 */
+	@Test
+	public void testTiles() {
+		System.out.println("Tiles");
+		Alphabet alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new String[] { "ch" }, new Random(1));
+		tree = TestDictionary.CreateTree(alphabet, "chyba", "duch", "ruch", "hamr", "cay");
+		String ch = alphabet.Tokenize("ch");
+		assertEquals(1, ch.length());
+		assertEquals(Arrays.asList(ch + "yba"), Match(new WordPattern("ch*")));
+		assertEquals(Arrays.asList("du" + ch, "ru" + ch, ch + "yba"), Match(new WordPattern("*[ch]*")));
+		assertEquals(Arrays.asList("du" + ch, "ru" + ch), Match(new WordPattern("?u[ch]")));
+		assertEquals(Arrays.asList("cay", "hamr"), Match(new WordPattern("[^ch]a*")));
+		assertEquals(Arrays.asList("cay"), Match(new WordPattern("c*")));
+		// The tile is one letter
+		assertEquals(Arrays.asList("cay", "du" + ch, "ru" + ch), Match(new WordPattern("*", 3, 3)));
+	}
+
+	/**
+	 * Test of invalid patterns.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalid() {
+		System.out.println("Invalid");
+		new WordPattern("ha[mr");
+	}
+}
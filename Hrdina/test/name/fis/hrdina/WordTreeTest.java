@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of WordTree and WordTreeBuilder
+ * @author Filip Simek <filip@fis.name>
+ */
+public class WordTreeTest {
+	
+	private Alphabet alphabet;
+	private WordTree instance;
+	
+	@Before
+	public void setUp()
+	{
+		alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		instance = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "hamre", "had", "cay", "duch");
+	}
+
+	/**
+	 * Test of CheckWord method, of class WordTree.
+	 */
+	@Test
+	public void testCheckWord() {
+		System.out.println("CheckWord");
+		WordTree.WordSearchResult r;
+		r = instance.CheckWord("hamr");
+		assertTrue(r.IsValidWord);
+		assertTrue(r.IsPerspectivePrefix);
+		r = instance.CheckWord("hamry");
+		assertTrue(r.IsValidWord);
+		assertFalse(r.IsPerspectivePrefix);
+		r = instance.CheckWord("ham");
+		assertFalse(r.IsValidWord);
+		assertTrue(r.IsPerspectivePrefix);
+		r = instance.CheckWord("hamrd");
+		assertFalse(r.IsValidWord);
+		assertFalse(r.IsPerspectivePrefix);
+		r = instance.CheckWord("hade");
+		assertFalse(r.IsValidWord);
+		assertFalse(r.IsPerspectivePrefix);
+	}
+
+	/**
+	 * Test of Words method, of class WordTree.
+	 */
+	@Test
+	public void testWords() {
+		System.out.println("Words");
+		List<String> words = new ArrayList<>();
+		for (String w: instance.Words())
+			words.add(w);
+		assertEquals(Arrays.asList("cay", "duch", "had", "hamr", "hamre", "hamru", "hamry"), words);
+	}
+
+	/**
+	 * Loading the builder's image through the binary format gives the same tree
+	 */
+	@Test
+	public void testLoadBuiltImage() throws IOException {
+		System.out.println("Load");
+		WordTreeBuilder builder = new WordTreeBuilder(alphabet);
+		builder.AddWord("hamr");
+		builder.AddWord("had");
+		WordTree tree = new WordTree();
+		assertTrue(tree.Load(new ByteArrayInputStream(TestDictionary.ImageToBytes(builder.BuildImage())), alphabet));
+		assertTrue(tree.CheckWord("had").IsValidWord);
+		assertTrue(tree.CheckWord("hamr").IsValidWord);
+		assertFalse(tree.CheckWord("ham").IsValidWord);
+		assertEquals(2, builder.GetWordCount());
+	}
+
+	/**
+	 * Test of the word IDs of class WordTree.
+	 */
+	@Test
+	public void testWordIds() {
+		System.out.println("WordIds");
+		assertEquals(7, instance.GetWordCount());
+		int id = 0;
+		for (String w: instance.Words())
+		{
+			assertEquals(id, instance.GetWordId(w));
+			assertEquals(w, instance.GetWord(id));
+			id++;
+		}
+		assertEquals(WordTree.NO_WORD_ID, instance.GetWordId("ham"));
+		assertEquals(WordTree.NO_WORD_ID, instance.GetWordId("hamryy"));
+		assertEquals(WordTree.NO_WORD_ID, instance.GetWordId("xyz"));
+		assertNull(instance.GetWord(7));
+
+		int ham = instance.GetChild(instance.GetChild(instance.GetChild(
+			instance.GetRoot(), alphabet.GetIndexOfLetter('h')), alphabet.GetIndexOfLetter('a')), alphabet.GetIndexOfLetter('m'));
+		assertEquals(instance.GetWordId("hamr"), instance.GetChildWordId(ham, alphabet.GetIndexOfLetter('r')));
+		assertEquals(WordTree.NO_WORD_ID, instance.GetChildWordId(ham, alphabet.GetIndexOfLetter('y')));
+
+		// The fingerprint changes with any word, even if the number of words stays
+		WordTree same = TestDictionary.CreateTree(alphabet, "duch", "cay", "had", "hamre", "hamru", "hamry", "hamr");
+		WordTree other = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "hamre", "had", "cay", "ruch");
+		assertEquals(instance.GetFingerprint(), same.GetFingerprint());
+		assertEquals(instance.GetWordCount(), other.GetWordCount());
+		assertTrue(instance.GetFingerprint() != other.GetFingerprint());
+	}
+
+	/**
+	 * Test of WordTreeLayout.
+	 */
+	@Test
+	public void testLayout() {
+		System.out.println("Layout");
+		char[] board = "hamrdayucheuymrb".toCharArray();
+		long[] weights = WordTreeLayout.MeasureAccesses(instance, Arrays.asList(board), 4);
+		assertEquals(instance.GetNodeCount(), weights.length);
+		assertEquals(1, weights[instance.GetRoot()]);
+		int[] expectedIds = new WordIdSolver(instance).Solve(board, 4);
+
+		for (int levels = 1; levels <= 4; levels++)
+		{
+			for (long[] w: Arrays.asList(null, weights))
+			{
+				WordTree tree = new WordTree();
+				tree.LoadImage(WordTreeLayout.Relayout(instance, levels, w), alphabet);
+				assertEquals(instance.GetNodeCount(), tree.GetNodeCount());
+				List<String> words = new ArrayList<>();
+				for (String word: tree.Words())
+					words.add(word);
+				List<String> expected = new ArrayList<>();
+				for (String word: instance.Words())
+					expected.add(word);
+				assertEquals(expected, words);
+				for (String word: expected)
+					assertEquals(instance.GetWordId(word), tree.GetWordId(word));
+				assertTrue(tree.CheckWord("ham").IsPerspectivePrefix);
+				assertFalse(tree.CheckWord("hamy").IsPerspectivePrefix);
+				assertArrayEquals(expectedIds, new WordIdSolver(tree).Solve(board, 4));
+				assertEquals(instance.GetFingerprint(), tree.GetFingerprint());
+			}
+		}
+
+		// Depth-first from the root: the most visited child of the root comes right after it
+		WordTree tree = new WordTree();
+		tree.LoadImage(WordTreeLayout.Relayout(instance, 1, weights), alphabet);
+		int hottest = 0;
+		for (int i = 0; i < instance.GetChildCount(0); i++)
+		{
+			int child = instance.GetChildNode(0, i);
+			if (hottest == 0 || weights[child] > weights[hottest])
+				hottest = child;
+		}
+		int hottestLetter = -1;
+		for (int i = 0; i < instance.GetChildCount(0); i++)
+		{
+			if (instance.GetChildNode(0, i) == hottest)
+				hottestLetter = instance.GetChildLetter(0, i);
+		}
+		assertEquals(1, tree.GetChild(tree.GetRoot(), hottestLetter));
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.corpus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.TestDictionary;
+import name.fis.hrdina.WordIdSolver;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.dictionary.DictionarySnapshot;
+import name.fis.hrdina.generators.GeneratorType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of BoardCorpusBuilder and BoardCorpus
+ * @author Filip Simek <filip@fis.name>
+ */
+public class BoardCorpusTest {
+
+	private DictionarySnapshot dictionary;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		Alphabet alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		WordTree tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "had", "cay", "duch", "ruch",
+			"dub", "bud", "buy", "car", "mac", "ham", "hay", "ray", "yard", "dram", "drum", "much", "herd");
+		dictionary = new DictionarySnapshot(alphabet, tree, TestDictionary.CreateDigraphs(alphabet), 1);
+		file = File.createTempFile("corpus", ".bin");
+	}
+
+	@After
+	public void tearDown()
+	{
+		file.delete();
+	}
+
+	/**
+	 * Test of building a corpus and reading it back.
+	 */
+	@Test
+	public void testBuildAndRead() throws Exception {
+		System.out.println("BuildAndRead");
+		int[] limits = {1, 3, 6};
+		BoardCorpusBuilder builder = new BoardCorpusBuilder(dictionary, 4, limits, GeneratorType.values());
+		int kept = builder.Build(file, 1000, 42, 3);
+		assertTrue(kept > 0);
+		assertTrue(kept < 1000);
+
+		// The result doesn't depend on the number of threads
+		File other = File.createTempFile("corpus", ".bin");
+		try
+		{
+			assertEquals(kept, builder.Build(other, 1000, 42, 1));
+			assertTrue(Arrays.equals(Files.readAllBytes(file.toPath()), Files.readAllBytes(other.toPath())));
+		}
+		finally
+		{
+			other.delete();
+		}
+
+		WordTree tree = dictionary.GetWordTree();
+		BoardCorpus corpus = new BoardCorpus(file, tree);
+		assertEquals(kept, corpus.GetBoardCount());
+		assertEquals(4, corpus.GetEdgeSize());
+		assertEquals(limits.length, corpus.GetBucketCount());
+		WordIdSolver solver = new WordIdSolver(tree);
+		Alphabet alphabet = dictionary.GetAlphabet();
+		int board = 0;
+		for (int b = 0; b < corpus.GetBucketCount(); b++)
+		{
+			assertEquals(limits[b], corpus.GetBucketLimit(b));
+			for (int i = 0; i < corpus.GetBucketSize(b); i++)
+			{
+				assertEquals(board, corpus.GetBoardInBucket(b, i));
+				int words = corpus.GetWordCount(board);
+				assertTrue(words >= limits[b]);
+				assertTrue(b + 1 == limits.length || words < limits[b + 1]);
+
+				int[] solution = corpus.GetSolution(board);
+				assertArrayEquals(solver.Solve(corpus.GetLetters(board), 4), solution);
+				int score = 0;
+				for (int id: solution)
+					score += alphabet.GetWordValue(tree.GetWord(id));
+				assertEquals(score, corpus.GetScore(board));
+				assertNotNull(corpus.GetGeneratorType(board));
+				board++;
+			}
+		}
+		assertEquals(kept, board);
+		int random = corpus.GetRandomBoard(2, new Random(1));
+		assertTrue(corpus.GetBucketSize(2) == 0 || corpus.GetWordCount(random) >= limits[2]);
+
+		WordTree otherTree = TestDictionary.CreateTree(alphabet, "hamr");
+		try
+		{
+			new BoardCorpus(file, otherTree);
+			fail("Corpus opened with another dictionary");
+		}
+		catch (IOException e)
+		{
+		}
+
+		// A dictionary of as many words, one of them different
+		List<String> words = new ArrayList<>();
+		for (String word: tree.Words())
+			words.add(word);
+		words.set(words.size() - 1, words.get(words.size() - 1) + "a");
+		WordTree editedTree = TestDictionary.CreateTree(alphabet, words.toArray(new String[words.size()]));
+		assertEquals(tree.GetWordCount(), editedTree.GetWordCount());
+		try
+		{
+			new BoardCorpus(file, editedTree);
+			fail("Corpus opened with an edited dictionary");
+		}
+		catch (IOException e)
+		{
+		}
+	}
+}
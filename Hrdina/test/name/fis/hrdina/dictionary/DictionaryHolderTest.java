@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.dictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.TestDictionary;
+import name.fis.hrdina.WordTreeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of DictionaryHolder
+ * @author Filip Simek <filip@fis.name>
+ */
+public class DictionaryHolderTest {
+
+	private static final String LETTERS = "abcdehmruy";
+
+	private Alphabet alphabet;
+	private DictionaryHolder instance;
+
+	@Before
+	public void setUp()
+	{
+		alphabet = TestDictionary.CreateAlphabet(LETTERS, new Random(1));
+		instance = new DictionaryHolder("hamr");
+	}
+
+	@After
+	public void tearDown()
+	{
+		instance.Shutdown();
+	}
+
+	private DictionarySnapshot CreateSnapshot(long version, String... words)
+	{
+		return new DictionarySnapshot(alphabet, TestDictionary.CreateTree(alphabet, words),
+			TestDictionary.CreateDigraphs(alphabet), version);
+	}
+
+	/**
+	 * Test of the version check of Publish method, of class DictionaryHolder.
+	 */
+	@Test
+	public void testPublish() throws Exception {
+		System.out.println("Publish");
+		assertFalse(instance.IsLoaded());
+		assertNull(instance.Peek());
+		try
+		{
+			instance.Get();
+			fail("Snapshot returned before any was published");
+		}
+		catch (IllegalStateException e)
+		{
+		}
+
+		DictionarySnapshot v2 = CreateSnapshot(2, "hamr");
+		assertSame(v2, instance.Publish(v2));
+		assertSame(v2, instance.Get());
+		// An older or the same version never replaces the current one
+		for (long version: new long[] {1, 2})
+		{
+			try
+			{
+				instance.Publish(CreateSnapshot(version, "hamr", "had"));
+				fail("Snapshot of version " + version + " replaced version 2");
+			}
+			catch (WordTreeException e)
+			{
+			}
+			assertSame(v2, instance.Get());
+		}
+		DictionarySnapshot v5 = CreateSnapshot(5, "hamr", "had");
+		assertSame(v5, instance.Publish(v5));
+		assertSame(v5, instance.Get());
+
+		instance.Unload();
+		assertFalse(instance.IsLoaded());
+		assertSame(v2, instance.Publish(v2));
+		long version = instance.NextVersion();
+		assertTrue(instance.NextVersion() > version);
+	}
+
+	/**
+	 * Test of concurrent Publish calls: only newer snapshots win, and the
+	 * newest one is published in the end.
+	 */
+	@Test
+	public void testPublishConcurrent() throws Exception {
+		System.out.println("PublishConcurrent");
+		final List<DictionarySnapshot> snapshots = new ArrayList<>();
+		for (int i = 1; i <= 200; i++)
+			snapshots.add(CreateSnapshot(i, "hamr"));
+		Collections.shuffle(snapshots, new Random(3));
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicInteger published = new AtomicInteger();
+		final AtomicInteger failed = new AtomicInteger();
+		// Publications that replaced a newer snapshot; must stay 0
+		final AtomicInteger downgrades = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++)
+		{
+			final int first = t;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try
+					{
+						start.await();
+					}
+					catch (InterruptedException e)
+					{
+						return;
+					}
+					for (int i = first; i < snapshots.size(); i += 4)
+					{
+						DictionarySnapshot snapshot = snapshots.get(i);
+						try
+						{
+							DictionarySnapshot current = instance.Peek();
+							instance.Publish(snapshot);
+							published.incrementAndGet();
+							if (current != null && current.GetVersion() >= snapshot.GetVersion())
+								downgrades.incrementAndGet();
+						}
+						catch (WordTreeException e)
+						{
+							failed.incrementAndGet();
+						}
+					}
+				}
+			});
+		}
+		for (Thread t: threads)
+			t.start();
+		start.countDown();
+		for (Thread t: threads)
+			t.join();
+		assertEquals(200, published.get() + failed.get());
+		assertTrue(published.get() > 0);
+		assertEquals(0, downgrades.get());
+		assertEquals(200, instance.Get().GetVersion());
+	}
+
+	/**
+	 * Test of rejecting snapshots that fail the validation.
+	 */
+	@Test
+	public void testValidation() throws Exception {
+		System.out.println("Validation");
+		try
+		{
+			instance.Publish(CreateSnapshot(1, "had"));
+			fail("Snapshot without the probe word published");
+		}
+		catch (WordTreeException e)
+		{
+		}
+		assertFalse(instance.IsLoaded());
+
+		DictionarySnapshot valid = instance.Publish(CreateSnapshot(2, "hamr", "had"));
+		try
+		{
+			instance.Publish(CreateSnapshot(3));
+			fail("Empty snapshot published");
+		}
+		catch (WordTreeException e)
+		{
+		}
+		assertSame(valid, instance.Get());
+	}
+
+	/**
+	 * Test of validating probe words that contain a multi-letter tile
+	 */
+	@Test
+	public void testValidationTiles() throws Exception {
+		System.out.println("Validation with tiles");
+		alphabet = TestDictionary.CreateAlphabet(LETTERS, new String[] { "ch" }, new Random(1));
+		DictionaryHolder holder = new DictionaryHolder("chyba");
+		try
+		{
+			DictionarySnapshot snapshot = holder.Publish(CreateSnapshot(1, "chyba"));
+			assertSame(snapshot, holder.Get());
+		}
+		finally
+		{
+			holder.Shutdown();
+		}
+	}
+
+	/**
+	 * Test of Reload and ReloadAsync methods, of class DictionaryHolder.
+	 */
+	@Test
+	public void testReload() throws Exception {
+		System.out.println("Reload");
+		File dir = Files.createTempDirectory("dictionary").toFile();
+		try
+		{
+			IDictionarySource source = new FileDictionarySource(dir);
+			TestDictionary.WriteDictionary(dir, LETTERS, "hamr", "had");
+			DictionarySnapshot first = instance.Reload(source);
+			assertSame(first, instance.Get());
+			assertTrue(first.GetWordTree().CheckWord("had").IsValidWord);
+
+			// A broken word list is rejected and the previous version stays
+			TestDictionary.WriteDictionary(dir, LETTERS, "had");
+			try
+			{
+				instance.ReloadAsync(source).get();
+				fail("Snapshot without the probe word published");
+			}
+			catch (ExecutionException e)
+			{
+				assertTrue(e.getCause() instanceof WordTreeException);
+			}
+			assertSame(first, instance.Get());
+
+			TestDictionary.WriteDictionary(dir, LETTERS, "hamr", "cay");
+			DictionarySnapshot second = instance.ReloadAsync(source).get();
+			assertSame(second, instance.Get());
+			assertTrue(second.GetVersion() > first.GetVersion());
+
+			try
+			{
+				instance.Reload(new FileDictionarySource(new File(dir, "missing")));
+				fail("Missing dictionary loaded");
+			}
+			catch (IOException e)
+			{
+			}
+			assertSame(second, instance.Get());
+		}
+		finally
+		{
+			for (File f: dir.listFiles())
+				f.delete();
+			dir.delete();
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.dictionary;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+import name.fis.hrdina.TestDictionary;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of DictionaryRegistry
+ * @author Filip Simek <filip@fis.name>
+ */
+public class DictionaryRegistryTest {
+
+	private static final String LETTERS = "aácčeěhkmrsšyý";
+
+	private File dir;
+	private DictionaryRegistry instance;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		dir = Files.createTempDirectory("dictionaries").toFile();
+		instance = new DictionaryRegistry(2);
+	}
+
+	@After
+	public void tearDown()
+	{
+		Delete(dir);
+	}
+
+	/**
+	 * Test of a variant without diacritics defined by a fold: location.
+	 */
+	@Test
+	public void testFolded() throws Exception {
+		System.out.println("Folded");
+		File cs = new File(dir, "cs");
+		TestDictionary.WriteDictionary(cs, LETTERS, "máma", "mama", "šek", "seker", "čas");
+		Properties props = new Properties();
+		props.setProperty("dictionary.cs", cs.getPath());
+		props.setProperty("dictionary.cs-ascii", DictionaryRegistry.FOLDED_LOCATION_PREFIX + "cs");
+		props.setProperty("other.property", "ignored");
+		instance.Configure(props);
+		assertEquals(Arrays.asList("cs", "cs-ascii"), Arrays.asList(instance.GetNames().toArray()));
+		assertEquals(0, instance.GetLoadedCount());
+
+		// The first use of the variant loads the base dictionary too
+		DictionarySnapshot folded = instance.Get("cs-ascii");
+		assertEquals(2, instance.GetLoadedCount());
+		assertNotNull(folded.GetFolded());
+		assertNull(instance.Get("cs").GetFolded());
+		assertTrue(folded.GetWordTree().CheckWord("cas").IsValidWord);
+		assertTrue(folded.GetWordTree().CheckWord("sek").IsValidWord);
+		assertFalse(folded.GetWordTree().CheckWord("čas").IsValidWord);
+		assertEquals(Arrays.asList("mama", "máma"), folded.GetFolded().GetAccentedForms("mama"));
+		assertSame(folded, instance.Get("cs-ascii"));
+
+		// A new version of the base dictionary is folded again on the next use
+		TestDictionary.WriteDictionary(cs, LETTERS, "máma", "mama", "šek", "seker", "čas", "sýr");
+		instance.Reload("cs").get();
+		DictionarySnapshot refolded = instance.Get("cs-ascii");
+		assertNotSame(folded, refolded);
+		assertTrue(refolded.GetVersion() > folded.GetVersion());
+		assertTrue(refolded.GetWordTree().CheckWord("syr").IsValidWord);
+		assertFalse(folded.GetWordTree().CheckWord("syr").IsValidWord);
+
+		try
+		{
+			instance.Reload("cs-ascii");
+			fail("Folded variant reloaded by itself");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+		try
+		{
+			instance.Get("de");
+			fail("Unknown dictionary returned");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+
+	/**
+	 * Test of sharing one load between dictionaries with identical data files.
+	 */
+	@Test
+	public void testSharing() throws Exception {
+		System.out.println("Sharing");
+		File a = new File(dir, "a"), b = new File(dir, "b"), c = new File(dir, "c");
+		TestDictionary.WriteDictionary(a, LETTERS, "máma", "šek", "čas");
+		TestDictionary.WriteDictionary(b, LETTERS, "máma", "šek", "čas");
+		TestDictionary.WriteDictionary(c, LETTERS, "máma", "šek", "čas", "sýr");
+		DictionaryRegistry registry = new DictionaryRegistry(3);
+		registry.Register("a", new FileDictionarySource(a));
+		registry.Register("b", new FileDictionarySource(b));
+		registry.Register("c", new FileDictionarySource(c));
+
+		DictionarySnapshot snapshotA = registry.Get("a");
+		DictionarySnapshot snapshotB = registry.Get("b");
+		assertNotSame(snapshotA, snapshotB);
+		assertSame(snapshotA.GetAlphabet(), snapshotB.GetAlphabet());
+		assertSame(snapshotA.GetWordTree(), snapshotB.GetWordTree());
+		assertSame(snapshotA.GetDigraphs(), snapshotB.GetDigraphs());
+		// Alphabet, tree image, word tree and digraphs
+		assertEquals(4, registry.GetCache().GetSize());
+
+		// Only the files that differ are loaded again
+		DictionarySnapshot snapshotC = registry.Get("c");
+		assertSame(snapshotA.GetAlphabet(), snapshotC.GetAlphabet());
+		assertSame(snapshotA.GetDigraphs(), snapshotC.GetDigraphs());
+		assertNotSame(snapshotA.GetWordTree(), snapshotC.GetWordTree());
+		assertTrue(snapshotC.GetWordTree().CheckWord("sýr").IsValidWord);
+		assertEquals(6, registry.GetCache().GetSize());
+	}
+
+	/**
+	 * Test of evicting the least recently used dictionary.
+	 */
+	@Test
+	public void testEviction() throws Exception {
+		System.out.println("Eviction");
+		File a = new File(dir, "a"), b = new File(dir, "b"), c = new File(dir, "c");
+		TestDictionary.WriteDictionary(a, LETTERS, "máma", "šek");
+		TestDictionary.WriteDictionary(b, LETTERS, "máma", "šek");
+		TestDictionary.WriteDictionary(c, LETTERS, "čas", "sýr");
+		instance.Register("a", new FileDictionarySource(a));
+		instance.Register("b", new FileDictionarySource(b));
+		instance.Register("c", new FileDictionarySource(c));
+
+		DictionarySnapshot snapshotA = instance.Get("a");
+		DictionarySnapshot snapshotB = instance.Get("b");
+		assertSame(snapshotA, instance.Get("a"));
+		assertEquals(2, instance.GetLoadedCount());
+
+		// b is the least recently used, so loading c evicts it
+		DictionarySnapshot snapshotC = instance.Get("c");
+		assertEquals(2, instance.GetLoadedCount());
+		assertSame(snapshotA, instance.Get("a"));
+		assertSame(snapshotC, instance.Get("c"));
+
+		// b is loaded again, and c is evicted instead of a, which was used later
+		assertSame(snapshotC, instance.Get("c"));
+		assertSame(snapshotA, instance.Get("a"));
+		DictionarySnapshot reloadedB = instance.Get("b");
+		assertNotSame(snapshotB, reloadedB);
+		assertTrue(reloadedB.GetVersion() > snapshotB.GetVersion());
+		// The evicted snapshot still works, and the reload shares the data still used by a
+		assertTrue(snapshotB.GetWordTree().CheckWord("šek").IsValidWord);
+		assertSame(snapshotA.GetWordTree(), reloadedB.GetWordTree());
+		assertEquals(2, instance.GetLoadedCount());
+		assertNotSame(snapshotC, instance.Get("c"));
+		assertSame(reloadedB, instance.Get("b"));
+
+		try
+		{
+			new DictionaryRegistry(0);
+			fail("Registry that can't load anything created");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+
+	/** Deletes a file or a directory with all its content */
+	private static void Delete(File file)
+	{
+		File[] children = file.listFiles();
+		if (children != null)
+		{
+			for (File child: children)
+				Delete(child);
+		}
+		file.delete();
+	}
+}
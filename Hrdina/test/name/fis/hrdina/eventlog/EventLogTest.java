@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.eventlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.TestDictionary;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.dictionary.DictionaryHolder;
+import name.fis.hrdina.dictionary.DictionarySnapshot;
+import name.fis.hrdina.game.GameEngine;
+import name.fis.hrdina.game.GameRoom;
+import name.fis.hrdina.generators.IBoardGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of EventLog, EventLogReader and GameReplay
+ * @author Filip Simek <filip@fis.name>
+ */
+public class EventLogTest {
+
+	private File dir;
+	private WordTree tree;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		dir = Files.createTempDirectory("eventlog").toFile();
+		Alphabet alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "had", "cay", "duch", "ruch");
+	}
+
+	@After
+	public void tearDown()
+	{
+		for (File f: dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	/** Counts the records of each type */
+	private static class Counter implements IEventVisitor
+	{
+		int started, joined, submitted, ended;
+
+		@Override
+		public void GameStarted(long gameId, long time, long dictionaryFingerprint, int durationMillis, int edgeSize, byte[] letters) {
+			started++;
+		}
+
+		@Override
+		public void PlayerJoined(long gameId, long time, int player, String name) {
+			joined++;
+		}
+
+		@Override
+		public void WordSubmitted(long gameId, long time, int player, int result, int wordId, byte[] letters, int length) {
+			submitted++;
+		}
+
+		@Override
+		public void GameEnded(long gameId, long time, int[] scores, int playerCount) {
+			ended++;
+		}
+	}
+
+	/**
+	 * Test of writing a game over several segments and replaying it.
+	 */
+	@Test
+	public void testReplay() throws Exception {
+		System.out.println("Replay");
+		Alphabet alphabet = tree.GetAlphabet();
+		long gameId;
+		try (EventLog log = new EventLog(dir, 100))
+		{
+			gameId = log.NextGameId();
+			long other = log.NextGameId();
+			assertTrue(other > gameId);
+			byte[] board = new byte[4];
+			for (int i = 0; i < 4; i++)
+				board[i] = (byte)alphabet.GetIndexOfLetter("hamr".charAt(i));
+			log.GameStarted(gameId, tree.GetFingerprint(), 60000, 2, board);
+			log.GameStarted(other, tree.GetFingerprint(), 60000, 2, board);
+			log.PlayerJoined(gameId, 0, "alice");
+			log.PlayerJoined(other, 0, "carol");
+			log.PlayerJoined(gameId, 1, "bob");
+			log.WordSubmitted(gameId, 0, 0, tree.GetWordId("hamr"), new byte[0], 0);
+			log.WordSubmitted(gameId, 1, 2, WordTree.NO_WORD_ID, new byte[] {board[1], EventLog.UNKNOWN_LETTER}, 2);
+			log.WordSubmitted(other, 0, 0, tree.GetWordId("had"), new byte[0], 0);
+			log.GameEnded(gameId, new int[] {alphabet.GetWordValue("hamr"), 0}, 2);
+		}
+		assertTrue(EventLog.ListSegments(dir).length > 1);
+
+		Counter counter = new Counter();
+		assertEquals(9, new EventLogReader(dir).Scan(counter));
+		assertEquals(2, counter.started);
+		assertEquals(3, counter.joined);
+		assertEquals(3, counter.submitted);
+		assertEquals(1, counter.ended);
+
+		GameReplay replay = new GameReplay(gameId, tree);
+		new EventLogReader(dir).Scan(replay);
+		assertTrue(replay.IsStarted());
+		assertTrue(replay.IsEnded());
+		assertEquals(tree.GetFingerprint(), replay.GetDictionaryFingerprint());
+		assertArrayEquals("hamr".toCharArray(), replay.GetBoard());
+		assertEquals(Arrays.asList("alice", "bob"), replay.GetPlayers());
+		assertEquals(Arrays.asList("hamr"), replay.GetWords(0));
+		assertTrue(replay.GetWords(1).isEmpty());
+		assertEquals(2, replay.GetSubmissionCount());
+		assertArrayEquals(new int[] {alphabet.GetWordValue("hamr"), 0}, replay.GetScores());
+
+		// The word IDs of the log don't fit another dictionary of as many words
+		WordTree otherTree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "had", "cay", "duch", "ruce");
+		try
+		{
+			new EventLogReader(dir).Scan(new GameReplay(gameId, otherTree));
+			fail("Game replayed with another dictionary");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+
+	/**
+	 * Test of appending to a log after a crash in the middle of a record.
+	 */
+	@Test
+	public void testRecovery() throws Exception {
+		System.out.println("Recovery");
+		long gameId;
+		try (EventLog log = new EventLog(dir, 4096))
+		{
+			gameId = log.NextGameId();
+			log.PlayerJoined(gameId, 0, "alice");
+			log.PlayerJoined(gameId, 1, "bob");
+		}
+		// A record whose body was written, but not its length
+		long end = 2 * (EventLog.HEADER_SIZE + 4) + "alice".length() + "bob".length();
+		try (RandomAccessFile file = new RandomAccessFile(EventLog.SegmentFile(dir, 1), "rw"))
+		{
+			file.seek(end + 4);
+			file.write(new byte[] {EventLog.PLAYER_JOINED, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18});
+		}
+		try (EventLog log = new EventLog(dir, 4096))
+		{
+			assertTrue(log.NextGameId() > gameId);
+			log.PlayerJoined(gameId, 2, "c");
+		}
+		// Every opening of a log with records continues in a new segment, which
+		// is reused if nothing was logged into it
+		assertEquals(2, EventLog.ListSegments(dir).length);
+		for (int i = 0; i < 2; i++)
+		{
+			try (EventLog log = new EventLog(dir, 4096))
+			{
+				assertTrue(log.NextGameId() > gameId);
+			}
+			assertEquals(3, EventLog.ListSegments(dir).length);
+		}
+		GameReplay replay = new GameReplay(gameId, tree);
+		assertEquals(3, new EventLogReader(dir).Scan(replay));
+		assertEquals(Arrays.asList("alice", "bob", "c"), replay.GetPlayers());
+	}
+
+	/**
+	 * Test of several threads appending at once, over many segments.
+	 */
+	@Test
+	public void testConcurrentAppends() throws Exception {
+		System.out.println("ConcurrentAppends");
+		final int threads = 4;
+		final int games = 50;
+		try (final EventLog log = new EventLog(dir, 1024))
+		{
+			Thread[] workers = new Thread[threads];
+			final IOException[] failure = new IOException[1];
+			for (int t = 0; t < threads; t++)
+			{
+				workers[t] = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						try
+						{
+							for (int i = 0; i < games; i++)
+							{
+								long gameId = log.NextGameId();
+								log.PlayerJoined(gameId, 0, "alice");
+								log.WordSubmitted(gameId, 0, 0, tree.GetWordId("hamr"), new byte[0], 0);
+								log.GameEnded(gameId, new int[] {1}, 1);
+							}
+						}
+						catch (IOException e)
+						{
+							failure[0] = e;
+						}
+					}
+				});
+				workers[t].start();
+			}
+			for (Thread worker: workers)
+				worker.join();
+			assertNull(failure[0]);
+		}
+		Counter counter = new Counter();
+		assertEquals(3 * threads * games, new EventLogReader(dir).Scan(counter));
+		assertEquals(threads * games, counter.joined);
+		assertEquals(threads * games, counter.submitted);
+		assertEquals(threads * games, counter.ended);
+	}
+
+	/**
+	 * Test of a game of the engine written to the log.
+	 */
+	@Test
+	public void testEngine() throws Exception {
+		System.out.println("Engine");
+		DictionaryHolder holder = new DictionaryHolder();
+		DictionarySnapshot dictionary = holder.Publish(new DictionarySnapshot(tree.GetAlphabet(), tree,
+			TestDictionary.CreateDigraphs(tree.GetAlphabet()), 3));
+		IBoardGenerator fixedBoard = new IBoardGenerator() {
+			@Override
+			public char[] GenerateBoard(int size) {
+				return "hamrdayucheuymrb".toCharArray();
+			}
+		};
+		GameRoom room;
+		try (EventLog log = new EventLog(dir, EventLog.DEFAULT_SEGMENT_SIZE))
+		{
+			GameEngine engine = new GameEngine(holder, 2, log);
+			room = engine.CreateRoom("r", 200, 0, dictionary, fixedBoard);
+			assertTrue(room.Join("alice").get());
+			assertTrue(room.Join("bob").get());
+			assertEquals(GameRoom.SubmitResult.ACCEPTED, room.Submit("bob", "hamry").get());
+			assertEquals(GameRoom.SubmitResult.NOT_A_WORD, room.Submit("alice", "duch").get());
+			assertEquals(GameRoom.SubmitResult.ACCEPTED, room.Submit("alice", "cay").get());
+			Thread.sleep(400);
+			// Wait for the end of the game to be logged
+			room.GetScores().get();
+			engine.Shutdown();
+		}
+
+		GameReplay replay = new GameReplay(room.GetGameId(), tree);
+		assertEquals(7, new EventLogReader(dir).Scan(replay));
+		assertEquals(tree.GetFingerprint(), replay.GetDictionaryFingerprint());
+		assertArrayEquals("hamrdayucheuymrb".toCharArray(), replay.GetBoard());
+		assertEquals(Arrays.asList("alice", "bob"), replay.GetPlayers());
+		assertEquals(Arrays.asList("cay"), replay.GetWords(0));
+		assertEquals(Arrays.asList("hamry"), replay.GetWords(1));
+		assertArrayEquals(new int[] {tree.GetAlphabet().GetWordValue("cay"), tree.GetAlphabet().GetWordValue("hamry")},
+			replay.GetScores());
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.TestDictionary;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.dictionary.DictionaryHolder;
+import name.fis.hrdina.dictionary.DictionarySnapshot;
+import name.fis.hrdina.generators.IBoardGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of GameEngine, GameRoom and GameServer
+ * @author Filip Simek <filip@fis.name>
+ */
+public class GameEngineTest {
+
+	private DictionarySnapshot dictionary;
+	private GameEngine engine;
+	private final IBoardGenerator fixedBoard = new IBoardGenerator() {
+		@Override
+		public char[] GenerateBoard(int size) {
+			return "hamrdayucheuymrb".toCharArray();
+		}
+	};
+
+	@Before
+	public void setUp() throws Exception
+	{
+		Alphabet alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		WordTree tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "had", "cay", "duch", "ruch");
+		DictionaryHolder holder = new DictionaryHolder();
+		dictionary = holder.Publish(new DictionarySnapshot(alphabet, tree, TestDictionary.CreateDigraphs(alphabet), 1));
+		engine = new GameEngine(holder, 2);
+	}
+
+	@After
+	public void tearDown()
+	{
+		engine.Shutdown();
+	}
+
+	/**
+	 * Test of a game played through GameRoom.
+	 */
+	@Test
+	public void testRoom() throws Exception {
+		System.out.println("Room");
+		GameRoom room = engine.CreateRoom("r1", 60000, 0, dictionary, fixedBoard);
+		assertSame(room, engine.GetRoom("r1"));
+		assertEquals(5, room.GetSolutions().GetWordCount());
+		try
+		{
+			engine.CreateRoom("r1", 60000, 0, dictionary, fixedBoard);
+			fail("Duplicate room created");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+
+		assertTrue(room.Join("alice").get());
+		assertTrue(room.Join("bob").get());
+		assertFalse(room.Join("bob").get());
+		assertEquals(GameRoom.SubmitResult.NOT_JOINED, room.Submit("carol", "hamr").get());
+		assertEquals(GameRoom.SubmitResult.ACCEPTED, room.Submit("alice", "hamry").get());
+		assertEquals(GameRoom.SubmitResult.ALREADY_FOUND, room.Submit("alice", "hamry").get());
+		assertEquals(GameRoom.SubmitResult.NOT_A_WORD, room.Submit("alice", "duch").get());
+		assertEquals(GameRoom.SubmitResult.ACCEPTED, room.Submit("bob", "had").get());
+		assertEquals("hamru", room.Hint("bob", 0).get());
+		assertEquals("cay", room.Hint("alice", 3).get());
+		assertEquals(GameRoom.SubmitResult.ACCEPTED, room.Submit("alice", "cay").get());
+		assertEquals("had", room.Hint("alice", 3).get());
+
+		Map<String, Integer> scores = room.GetScores().get();
+		assertArrayEquals(new String[] {"alice", "bob"}, scores.keySet().toArray());
+
+		GameRoom shortRoom = engine.CreateRoom("r2", 50, 0, dictionary, fixedBoard);
+		assertTrue(shortRoom.Join("alice").get());
+		Thread.sleep(100);
+		assertEquals(GameRoom.SubmitResult.GAME_OVER, shortRoom.Submit("alice", "hamr").get());
+		assertEquals(0, shortRoom.GetTimeLeft());
+
+		assertTrue(engine.CloseRoom("r2"));
+		assertNull(engine.GetRoom("r2"));
+	}
+
+	/**
+	 * Test of removing the rooms after their game ended.
+	 */
+	@Test
+	public void testRetention() throws Exception {
+		System.out.println("Retention");
+		GameEngine retaining = new GameEngine(new DictionaryHolder(), 1, null, 100);
+		try
+		{
+			GameRoom room = retaining.CreateRoom("r1", 50, 0, dictionary, fixedBoard);
+			assertTrue(room.Join("alice").get());
+			Thread.sleep(100);
+			// Ended, but still there for the final scores
+			assertEquals(GameRoom.SubmitResult.GAME_OVER, room.Submit("alice", "hamr").get());
+			assertSame(room, retaining.GetRoom("r1"));
+
+			// A room closed by hand and created again is not removed by the old timer
+			retaining.CreateRoom("r2", 50, 0, dictionary, fixedBoard);
+			assertTrue(retaining.CloseRoom("r2"));
+			GameRoom reused = retaining.CreateRoom("r2", 60000, 0, dictionary, fixedBoard);
+
+			Thread.sleep(300);
+			assertNull(retaining.GetRoom("r1"));
+			assertFalse(retaining.CloseRoom("r1"));
+			assertSame(reused, retaining.GetRoom("r2"));
+			assertEquals(1, retaining.GetRoomNames().size());
+		}
+		finally
+		{
+			retaining.Shutdown();
+		}
+	}
+
+	/**
+	 * Test of a tournament of rooms sharing a leaderboard.
+	 */
+	@Test
+	public void testTournament() throws Exception {
+		System.out.println("Tournament");
+		GameBoard board = dictionary.NewBoard(fixedBoard);
+		BoardSolutions solutions = new BoardSolutions(board);
+		Leaderboard leaderboard = new Leaderboard(10, solutions.GetTotalValue());
+		GameRoom room1 = engine.CreateRoom("t1", 60000, dictionary, board, solutions, leaderboard);
+		GameRoom room2 = engine.CreateRoom("t2", 60000, dictionary, board, solutions, leaderboard);
+		assertSame(leaderboard, room1.GetLeaderboard());
+		assertNull(engine.CreateRoom("r1", 60000, 0, dictionary, fixedBoard).GetLeaderboard());
+
+		assertTrue(room1.Join("alice").get());
+		assertTrue(room2.Join("bob").get());
+		assertEquals(GameRoom.SubmitResult.ACCEPTED, room1.Submit("alice", "had").get());
+		assertEquals(GameRoom.SubmitResult.ACCEPTED, room2.Submit("bob", "hamry").get());
+		assertEquals(GameRoom.SubmitResult.NOT_A_WORD, room2.Submit("bob", "duch").get());
+		int alice = leaderboard.GetIndex(room1.LeaderboardName("alice"));
+		int bob = leaderboard.GetIndex(room2.LeaderboardName("bob"));
+		assertEquals(room1.GetScores().get().get("alice").intValue(), leaderboard.GetScore(alice));
+		assertEquals(room2.GetScores().get().get("bob").intValue(), leaderboard.GetScore(bob));
+		int hadValue = solutions.GetValue(solutions.GetNumber("had"));
+		int hamryValue = solutions.GetValue(solutions.GetNumber("hamry"));
+		assertEquals(hamryValue > hadValue? 2: 1, leaderboard.GetRank(alice));
+		assertEquals(2, leaderboard.GetTop(5).size());
+
+		// A player of the same name in two rooms has an entry for each room
+		assertTrue(room2.Join("alice").get());
+		for (String word: solutions.GetWords())
+		{
+			room1.Submit("alice", word).get();
+			assertEquals(GameRoom.SubmitResult.ACCEPTED, room2.Submit("alice", word).get());
+		}
+		assertEquals(solutions.GetTotalValue(), leaderboard.GetScore(alice));
+		assertEquals(solutions.GetTotalValue(), leaderboard.GetScore(leaderboard.GetIndex(room2.LeaderboardName("alice"))));
+		assertEquals(3, leaderboard.GetPlayerCount());
+
+		try
+		{
+			engine.CreateRoom("t3", 60000, dictionary, board, solutions, new Leaderboard(10, solutions.GetTotalValue() - 1));
+			fail("Leaderboard with a too low maximal score accepted");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+
+	/**
+	 * Test of a tournament whose leaderboard is full.
+	 */
+	@Test
+	public void testTournamentFull() throws Exception {
+		System.out.println("TournamentFull");
+		GameBoard board = dictionary.NewBoard(fixedBoard);
+		BoardSolutions solutions = new BoardSolutions(board);
+		Leaderboard leaderboard = new Leaderboard(1, solutions.GetTotalValue());
+		GameRoom room = engine.CreateRoom("t1", 60000, dictionary, board, solutions, leaderboard);
+		assertTrue(room.Join("alice").get());
+		try
+		{
+			room.Join("bob").get();
+			fail("Player joined a full leaderboard");
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		// The player is not in the room, and the room goes on
+		assertEquals(GameRoom.SubmitResult.NOT_JOINED, room.Submit("bob", "had").get());
+		assertArrayEquals(new String[] {"alice"}, room.GetScores().get().keySet().toArray());
+		assertEquals(GameRoom.SubmitResult.ACCEPTED, room.Submit("alice", "had").get());
+		assertEquals(room.GetScores().get().get("alice").intValue(), leaderboard.GetScore(0));
+	}
+
+	/**
+	 * Test of a game played through GameServer.
+	 */
+	@Test
+	public void testServer() throws Exception {
+		System.out.println("Server");
+		try (GameServer server = new GameServer(engine, 0);
+			Socket s = new Socket(InetAddress.getLoopbackAddress(), server.GetPort());
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+			Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))
+		{
+			assertEquals("OK", Request(in, out, "CREATE game 60"));
+			assertEquals("OK game", Request(in, out, "ROOMS"));
+			assertEquals(18, Request(in, out, "BOARD game").split(" ").length);
+			assertEquals("OK", Request(in, out, "JOIN game alice"));
+			assertTrue(Request(in, out, "JOIN game alice").startsWith("ERR"));
+			assertEquals("OK NOT_A_WORD", Request(in, out, "SUBMIT game alice xyz"));
+			BoardSolutions solutions = engine.GetRoom("game").GetSolutions();
+			if (solutions.GetWordCount() > 0)
+			{
+				String word = solutions.GetWord(0);
+				assertEquals("OK " + word, Request(in, out, "HINT game alice"));
+				assertEquals("OK ACCEPTED", Request(in, out, "SUBMIT game alice " + word));
+				assertEquals("OK alice=" + solutions.GetValue(0), Request(in, out, "SCORES game"));
+			}
+			assertTrue(Request(in, out, "BOARD nothing").startsWith("ERR"));
+			assertTrue(Request(in, out, "FOO").startsWith("ERR"));
+			assertEquals("OK", Request(in, out, "CLOSE game"));
+		}
+	}
+
+	/**
+	 * Test of the warm-up and of the READY request of GameServer.
+	 */
+	@Test
+	public void testWarmup() throws Exception {
+		System.out.println("Warmup");
+		try (GameServer server = new GameServer(engine, 0, false);
+			Socket s = new Socket(InetAddress.getLoopbackAddress(), server.GetPort());
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+			Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))
+		{
+			assertEquals("ERR warming up", Request(in, out, "READY"));
+			assertEquals("OK", Request(in, out, "ROOMS"));
+
+			Warmup.Report report = new Warmup(dictionary).Run(100);
+			assertEquals(6, report.GetRounds());
+			assertEquals(96, report.GetBoards());
+			assertTrue(report.GetFirstRoundMicros() > 0);
+			assertFalse(report.IsSteady());
+			assertEquals(0, new Warmup(dictionary).Run(0).GetRounds());
+
+			server.SetReady(true);
+			assertEquals("OK", Request(in, out, "READY"));
+			assertTrue(Request(in, out, "READY now").startsWith("ERR"));
+		}
+	}
+
+	/**
+	 * Sends one request line and reads the response
+	 */
+	private static String Request(BufferedReader in, Writer out, String request) throws IOException
+	{
+		out.write(request + "\n");
+		out.flush();
+		return in.readLine();
+	}
+}
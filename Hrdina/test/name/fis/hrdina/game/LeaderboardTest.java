@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of Leaderboard
+ * @author Filip Simek <filip@fis.name>
+ */
+public class LeaderboardTest {
+
+	/**
+	 * Test of the ranks and the top of Leaderboard.
+	 */
+	@Test
+	public void testRanks() {
+		System.out.println("Ranks");
+		Leaderboard instance = new Leaderboard(10, 100);
+		assertEquals(0, instance.Join("alice"));
+		assertEquals(1, instance.Join("bob"));
+		assertEquals(2, instance.Join("carol"));
+		assertEquals(3, instance.Join("dave"));
+		assertEquals(1, instance.Join("bob"));
+		assertEquals(4, instance.GetPlayerCount());
+		assertEquals(Leaderboard.NO_PLAYER, instance.GetIndex("eve"));
+		assertEquals(1, instance.GetRank(0));
+		assertEquals(1, instance.GetRank(3));
+
+		instance.AddScore(1, 30);
+		instance.AddScore(2, 10);
+		instance.AddScore(3, 30);
+		instance.AddScore(2, 15);
+		assertEquals(25, instance.GetScore(2));
+		assertEquals(1, instance.GetRank(1));
+		assertEquals(1, instance.GetRank(3));
+		assertEquals(3, instance.GetRank(2));
+		assertEquals(4, instance.GetRank(0));
+		assertEquals(0, instance.CountAbove(100));
+		assertEquals(2, instance.CountAbove(25));
+		assertEquals(4, instance.CountAbove(-1));
+
+		Map<String, Integer> top = instance.GetTop(3);
+		assertArrayEquals(new String[] {"bob", "dave", "carol"}, top.keySet().toArray());
+		assertArrayEquals(new Integer[] {30, 30, 25}, top.values().toArray());
+		assertEquals(4, instance.GetTop(10).size());
+
+		instance.AddScore(0, 100);
+		assertEquals(1, instance.GetRank(0));
+		assertEquals("alice", instance.GetTop(1).keySet().iterator().next());
+		try
+		{
+			instance.AddScore(1, 71);
+			fail("Score out of range added");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+
+	/**
+	 * Test of Leaderboard updated from several threads.
+	 */
+	@Test
+	public void testConcurrentUpdates() throws Exception {
+		System.out.println("ConcurrentUpdates");
+		final int players = 1000, threads = 4;
+		final Leaderboard instance = new Leaderboard(players, 1000);
+		for (int i = 0; i < players; i++)
+			instance.Join("p" + i);
+		// Every thread updates its own players, as the rooms of a tournament do
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++)
+		{
+			final int first = t;
+			workers.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Random rand = new Random(first);
+					for (int i = 0; i < 20000; i++)
+					{
+						int player = first + threads * rand.nextInt(players / threads);
+						if (instance.GetScore(player) < 990)
+							instance.AddScore(player, 1 + rand.nextInt(10));
+					}
+				}
+			}));
+		}
+		for (Thread w: workers)
+			w.start();
+		for (Thread w: workers)
+			w.join();
+
+		int[] scores = new int[players];
+		for (int i = 0; i < players; i++)
+			scores[i] = instance.GetScore(i);
+		for (int i = 0; i < players; i++)
+		{
+			int above = 0;
+			for (int s: scores)
+			{
+				if (s > scores[i])
+					above++;
+			}
+			assertEquals(above + 1, instance.GetRank(i));
+		}
+		Map<String, Integer> top = instance.GetTop(players);
+		assertEquals(players, top.size());
+		int previous = Integer.MAX_VALUE;
+		for (Map.Entry<String, Integer> e: top.entrySet())
+		{
+			assertTrue(e.getValue() <= previous);
+			assertEquals(scores[instance.GetIndex(e.getKey())], (int)e.getValue());
+			previous = e.getValue();
+		}
+	}
+}
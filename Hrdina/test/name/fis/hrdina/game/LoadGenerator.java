@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.game;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.Main;
+import name.fis.hrdina.dictionary.DictionaryHolder;
+import name.fis.hrdina.dictionary.FileDictionarySource;
+import name.fis.hrdina.dictionary.IDictionarySource;
+import name.fis.hrdina.dictionary.ResourceDictionarySource;
+
+/**
+ * Load generator for the game engine. It is not a unit test; run it by hand
+ * to find out how many rooms and submissions one machine can handle:
+ * <pre>
+ * java -cp build/classes:build/test/classes name.fis.hrdina.game.LoadGenerator rooms=200 players=20 seconds=30
+ * </pre>
+ * Every simulated player is a thread that submits words on a fixed schedule:
+ * the send times are a random think time apart, drawn in advance. The words
+ * are a mix of solutions of the room's board and made up strings. At the end
+ * the throughput and the latency percentiles of the submissions are printed.
+ *
+ * A player has at most one submission in flight, so when the engine stalls
+ * the player sends late. To keep the stall out of the next submissions'
+ * latencies (coordinated omission), the latency of a submission is measured
+ * from its scheduled send time, not from the time it was actually sent.
+ * While the engine is behind, the submissions are sent back to back until
+ * the player catches up with its schedule.
+ *
+ * Options (name=value):
+ * <ul>
+ * <li>rooms: number of rooms (100)</li>
+ * <li>players: players per room (10)</li>
+ * <li>seconds: duration of the measurement (20)</li>
+ * <li>warmup: seconds of load before the measurement starts (5)</li>
+ * <li>think: mean time between the scheduled submissions of a player in
+ * milliseconds (200); with 0 the player submits back to back and the
+ * measurement is closed-loop</li>
+ * <li>invalid: fraction of submissions that are not words (0.3)</li>
+ * <li>threads: worker threads of the engine (number of processors)</li>
+ * <li>minwords: minimal number of words of a board (30)</li>
+ * <li>data: directory with the data files (the built-in dictionary)</li>
+ * </ul>
+ * @author Filip Simek <filip@fis.name>
+ */
+public class LoadGenerator
+{
+	/** How late after its scheduled time a submission counts as sent late */
+	private static final long LATE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final int m_Rooms;
+	private final int m_Players;
+	private final int m_Seconds;
+	private final int m_Warmup;
+	private final int m_ThinkMillis;
+	private final double m_InvalidRatio;
+	private final int m_Threads;
+	private final int m_MinWords;
+	private final String m_DataDir;
+
+	/** True once the warm-up is over and the players record latencies */
+	private volatile boolean m_Measuring = false;
+	/** True when the players should stop */
+	private volatile boolean m_Stopped = false;
+	private final AtomicLong m_Errors = new AtomicLong();
+
+	/**
+	 * @param options Options by name
+	 */
+	public LoadGenerator(Map<String, String> options)
+	{
+		m_Rooms = GetInt(options, "rooms", 100);
+		m_Players = GetInt(options, "players", 10);
+		m_Seconds = GetInt(options, "seconds", 20);
+		m_Warmup = GetInt(options, "warmup", 5);
+		m_ThinkMillis = GetInt(options, "think", 200);
+		m_InvalidRatio = options.containsKey("invalid")? Double.parseDouble(options.get("invalid")): 0.3;
+		m_Threads = GetInt(options, "threads", Runtime.getRuntime().availableProcessors());
+		m_MinWords = GetInt(options, "minwords", 30);
+		m_DataDir = options.get("data");
+	}
+
+	private static int GetInt(Map<String, String> options, String name, int defaultValue)
+	{
+		return options.containsKey(name)? Integer.parseInt(options.get(name)): defaultValue;
+	}
+
+	/** One simulated player */
+	private class Player implements Runnable
+	{
+		private final GameRoom m_Room;
+		private final String m_Name;
+		private final Random m_Rand;
+		/** Latencies of the measured submissions in nanoseconds */
+		long[] Latencies = new long[256];
+		int LatencyCount = 0;
+		long Submissions = 0;
+		long Accepted = 0;
+		/** Number of measured submissions sent more than LATE_NANOS after their scheduled time */
+		long Late = 0;
+
+		Player(GameRoom room, String name, long seed)
+		{
+			m_Room = room;
+			m_Name = name;
+			m_Rand = new Random(seed);
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				m_Room.Join(m_Name).get();
+				BoardSolutions solutions = m_Room.GetSolutions();
+				Alphabet alphabet = m_Room.GetDictionary().GetAlphabet();
+				long scheduled = System.nanoTime();
+				while (!m_Stopped)
+				{
+					if (m_ThinkMillis > 0)
+						scheduled += TimeUnit.MILLISECONDS.toNanos(m_Rand.nextInt(2 * m_ThinkMillis + 1));
+					else
+						scheduled = System.nanoTime();
+					long delay = scheduled - System.nanoTime();
+					if (delay > 0)
+						TimeUnit.NANOSECONDS.sleep(delay);
+					String word;
+					if (solutions.GetWordCount() == 0 || m_Rand.nextDouble() < m_InvalidRatio)
+						word = RandomString(alphabet);
+					else
+						word = alphabet.Detokenize(solutions.GetWord(m_Rand.nextInt(solutions.GetWordCount())));
+
+					boolean measured = m_Measuring;
+					long start = System.nanoTime();
+					GameRoom.SubmitResult result = m_Room.Submit(m_Name, word).get();
+					long latency = System.nanoTime() - scheduled;
+					if (!measured || m_Stopped)
+						continue;
+					if (start - scheduled > LATE_NANOS)
+						Late++;
+					if (LatencyCount == Latencies.length)
+						Latencies = Arrays.copyOf(Latencies, LatencyCount * 2);
+					Latencies[LatencyCount++] = latency;
+					Submissions++;
+					if (result == GameRoom.SubmitResult.ACCEPTED)
+						Accepted++;
+				}
+			}
+			catch (Exception e)
+			{
+				m_Errors.incrementAndGet();
+				System.err.println(String.format("Player %s failed: %s", m_Name, e));
+			}
+		}
+
+		/** @return A random string of letters of the alphabet, most likely not a word */
+		private String RandomString(Alphabet alphabet)
+		{
+			int length = 3 + m_Rand.nextInt(5);
+			StringBuilder sb = new StringBuilder(length);
+			for (int i = 0; i < length; i++)
+				sb.append(alphabet.GetLetterText(alphabet.GetLetterByIndex(m_Rand.nextInt(alphabet.GetSize()))));
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Runs the test and prints the report
+	 * @throws Exception if the dictionary can't be loaded
+	 */
+	public void Run() throws Exception
+	{
+		IDictionarySource source = m_DataDir == null?
+			new ResourceDictionarySource(Main.DATA_RESOURCE_PATH): new FileDictionarySource(new File(m_DataDir));
+		DictionaryHolder dictionary = new DictionaryHolder();
+		dictionary.Reload(source);
+		GameEngine engine = new GameEngine(dictionary, m_Threads);
+
+		long gameMillis = TimeUnit.SECONDS.toMillis(m_Warmup + m_Seconds + 60);
+		long createStart = System.nanoTime();
+		List<GameRoom> rooms = new ArrayList<>(m_Rooms);
+		for (int i = 0; i < m_Rooms; i++)
+			rooms.add(engine.CreateRoom("room" + i, gameMillis, m_MinWords));
+		double createSeconds = (System.nanoTime() - createStart) / 1e9;
+		System.out.println(String.format("Created %d rooms in %.2f s (%.1f rooms/s on one thread)",
+			m_Rooms, createSeconds, m_Rooms / createSeconds));
+
+		List<Player> players = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (GameRoom room: rooms)
+		{
+			for (int p = 0; p < m_Players; p++)
+			{
+				Player player = new Player(room, "player" + p, players.size());
+				players.add(player);
+				Thread t = new Thread(player, room.GetName() + "-" + p);
+				t.setDaemon(true);
+				threads.add(t);
+			}
+		}
+		System.out.println(String.format("Starting %d players", players.size()));
+		for (Thread t: threads)
+			t.start();
+
+		Thread.sleep(TimeUnit.SECONDS.toMillis(m_Warmup));
+		m_Measuring = true;
+		long measureStart = System.nanoTime();
+		Thread.sleep(TimeUnit.SECONDS.toMillis(m_Seconds));
+		m_Stopped = true;
+		double measuredSeconds = (System.nanoTime() - measureStart) / 1e9;
+		for (Thread t: threads)
+			t.join();
+		engine.Shutdown();
+
+		Report(players, measuredSeconds);
+	}
+
+	/**
+	 * Prints throughput and latency percentiles
+	 * @param players All players
+	 * @param seconds Length of the measurement
+	 */
+	private void Report(List<Player> players, double seconds)
+	{
+		long submissions = 0, accepted = 0, late = 0;
+		int count = 0;
+		for (Player p: players)
+		{
+			submissions += p.Submissions;
+			accepted += p.Accepted;
+			late += p.Late;
+			count += p.LatencyCount;
+		}
+		long[] latencies = new long[count];
+		int pos = 0;
+		for (Player p: players)
+		{
+			System.arraycopy(p.Latencies, 0, latencies, pos, p.LatencyCount);
+			pos += p.LatencyCount;
+		}
+		Arrays.sort(latencies);
+
+		System.out.println(String.format("Rooms %d, players %d, engine threads %d, think time %d ms, invalid %.0f%%",
+			m_Rooms, players.size(), m_Threads, m_ThinkMillis, m_InvalidRatio * 100));
+		System.out.println(String.format("Submissions %d in %.1f s: %.0f/s (%d accepted), %d errors",
+			submissions, seconds, submissions / seconds, accepted, m_Errors.get()));
+		if (count > 0)
+		{
+			System.out.println(String.format("Latency us from the scheduled send time: p50 %.1f  p99 %.1f  p99.9 %.1f  max %.1f",
+				Percentile(latencies, 0.5) / 1e3, Percentile(latencies, 0.99) / 1e3,
+				Percentile(latencies, 0.999) / 1e3, latencies[count - 1] / 1e3));
+			System.out.println(String.format("Sent late (more than %d ms behind the schedule): %d (%.1f%%)",
+				TimeUnit.NANOSECONDS.toMillis(LATE_NANOS), late, 100.0 * late / count));
+		}
+	}
+
+	/**
+	 * @param sorted Sorted values
+	 * @param p Percentile between 0 and 1
+	 * @return The value below which the given fraction of the values is
+	 */
+	private static long Percentile(long[] sorted, double p)
+	{
+		int index = (int)Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+
+	/**
+	 * @param args Options in the form name=value
+	 * @throws Exception if the test can't be started
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		Map<String, String> options = new HashMap<>();
+		for (String arg: args)
+		{
+			int eq = arg.indexOf('=');
+			if (eq < 0)
+				throw new IllegalArgumentException("Options must have the form name=value: " + arg);
+			options.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+		new LoadGenerator(options).Run();
+	}
+}
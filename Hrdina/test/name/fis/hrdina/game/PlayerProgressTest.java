@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.TestDictionary;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of BoardSolutions and PlayerProgress
+ * @author Filip Simek <filip@fis.name>
+ */
+public class PlayerProgressTest {
+
+	private BoardSolutions solutions;
+
+	@Before
+	public void setUp()
+	{
+		Alphabet alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		// Enough words to span more than one long of the bit sets
+		List<String> words = new ArrayList<>();
+		for (char a: "abcde".toCharArray())
+			for (char b: "hmruy".toCharArray())
+				for (char c: "abcd".toCharArray())
+					words.add("" + a + b + c);
+		words.addAll(Arrays.asList("hamr", "hamry", "had", "cay"));
+		solutions = new BoardSolutions(words, alphabet);
+	}
+
+	/**
+	 * Test of the numbering of BoardSolutions
+	 */
+	@Test
+	public void testNumbering() {
+		System.out.println("Numbering");
+		assertEquals(104, solutions.GetWordCount());
+		assertEquals(5, solutions.GetMaxLength());
+		for (int i = 0; i < solutions.GetWordCount(); i++)
+		{
+			assertEquals(i, solutions.GetNumber(solutions.GetWord(i)));
+			if (i > 0)
+				assertTrue(solutions.GetValue(i - 1) >= solutions.GetValue(i));
+		}
+		assertEquals(BoardSolutions.NO_WORD, solutions.GetNumber("xyz"));
+	}
+
+	/**
+	 * Test of MarkFound and the hints of PlayerProgress
+	 */
+	@Test
+	public void testHints() {
+		System.out.println("Hints");
+		PlayerProgress p = solutions.NewProgress();
+		assertEquals(0, solutions.GetNumber("hamry"));
+		assertEquals(0, p.GetBestUnfound());
+		assertEquals(PlayerProgress.FindResult.NEW, p.MarkFound("hamry"));
+		assertEquals(PlayerProgress.FindResult.ALREADY_FOUND, p.MarkFound("hamry"));
+		assertEquals(PlayerProgress.FindResult.NOT_A_SOLUTION, p.MarkFound("ham"));
+		assertEquals(1, p.GetFoundCount());
+		assertEquals(solutions.GetNumber("hamr"), p.GetBestUnfound());
+		assertEquals(BoardSolutions.NO_WORD, p.GetBestUnfound(5));
+		assertEquals(0, p.GetRemainingCount(5));
+		assertEquals(1, p.GetRemainingCount(4));
+		assertEquals(102, p.GetRemainingCount(3));
+
+		for (int i = 0; i < solutions.GetWordCount(); i++)
+		{
+			if (solutions.GetLength(i) == 3 && !solutions.GetWord(i).equals("cay"))
+				assertEquals(PlayerProgress.FindResult.NEW, p.MarkFound(solutions.GetWord(i)));
+		}
+		assertEquals(1, p.GetRemainingCount(3));
+		assertEquals(solutions.GetNumber("cay"), p.GetBestUnfound(3));
+		p.MarkFound("cay");
+		p.MarkFound("hamr");
+		assertEquals(0, p.GetRemainingCount());
+		assertEquals(BoardSolutions.NO_WORD, p.GetBestUnfound());
+		assertEquals(BoardSolutions.NO_WORD, p.GetBestUnfound(3));
+	}
+}
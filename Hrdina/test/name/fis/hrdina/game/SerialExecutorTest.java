@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of SerialExecutor
+ * @author Filip Simek <filip@fis.name>
+ */
+public class SerialExecutorTest {
+
+	private ExecutorService workers;
+
+	@Before
+	public void setUp()
+	{
+		workers = Executors.newFixedThreadPool(2, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setDaemon(true);
+				// The errors thrown by the tasks of the tests are expected
+				t.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+					@Override
+					public void uncaughtException(Thread t, Throwable e) {
+					}
+				});
+				return t;
+			}
+		});
+	}
+
+	@After
+	public void tearDown()
+	{
+		workers.shutdownNow();
+	}
+
+	/**
+	 * Test of running the tasks in order, also past failing tasks.
+	 */
+	@Test
+	public void testExecute() throws Exception {
+		System.out.println("Execute");
+		final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		SerialExecutor instance = new SerialExecutor(workers, new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread thread, Throwable e) {
+				failures.add(e);
+			}
+		});
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final CountDownLatch done = new CountDownLatch(1);
+		for (int i = 0; i < 200; i++)
+		{
+			final int n = i;
+			instance.execute(new Runnable() {
+				@Override
+				public void run() {
+					order.add(n);
+					if (n == 10)
+						throw new IllegalStateException("Broken task");
+					if (n == 100)
+						throw new AssertionError("Broken task");
+					if (n == 199)
+						done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(200, order.size());
+		for (int i = 0; i < 200; i++)
+			assertEquals(i, order.get(i).intValue());
+		// The handler got the runtime exception; the Error went on to the worker thread
+		assertEquals(1, failures.size());
+		assertEquals("Broken task", failures.get(0).getMessage());
+		assertTrue(failures.get(0) instanceof IllegalStateException);
+	}
+
+	/**
+	 * Test of submitting tasks after a task threw an Error with an empty queue.
+	 */
+	@Test
+	public void testExecuteAfterError() throws Exception {
+		System.out.println("ExecuteAfterError");
+		SerialExecutor instance = new SerialExecutor(workers);
+		final CountDownLatch failed = new CountDownLatch(1);
+		instance.execute(new Runnable() {
+			@Override
+			public void run() {
+				failed.countDown();
+				throw new StackOverflowError();
+			}
+		});
+		assertTrue(failed.await(10, TimeUnit.SECONDS));
+		final CountDownLatch done = new CountDownLatch(1);
+		instance.execute(new Runnable() {
+			@Override
+			public void run() {
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import name.fis.hrdina.Alphabet;
+import name.fis.hrdina.GameBoard;
+import name.fis.hrdina.TestDictionary;
+import name.fis.hrdina.WordTree;
+import name.fis.hrdina.generators.IBoardGenerator;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of SolutionWriter and SolutionReader
+ * @author Filip Simek <filip@fis.name>
+ */
+public class SolutionCodecTest {
+
+	private Alphabet alphabet;
+	private WordTree tree;
+
+	@Before
+	public void setUp()
+	{
+		alphabet = TestDictionary.CreateAlphabet("abcdehmruy", new Random(1));
+		tree = TestDictionary.CreateTree(alphabet, "hamr", "hamry", "hamru", "had", "cay", "duch", "ruch");
+	}
+
+	/**
+	 * Test of encoding and decoding words without paths.
+	 */
+	@Test
+	public void testWords() throws IOException {
+		System.out.println("Words");
+		List<String> words = Arrays.asList("hamry", "cay", "hamr", "ruch", "had", "hamru", "a", "yeah");
+		byte[] data = SolutionWriter.Encode(words, alphabet);
+		List<String> sorted = SolutionWriter.Sort(words, alphabet);
+		assertEquals(sorted, SolutionReader.Decode(data, alphabet));
+		// A word comes after all words it is a prefix of
+		assertTrue(sorted.indexOf("hamr") < sorted.indexOf("hamry"));
+
+		SolutionReader reader = new SolutionReader(new ByteArrayInputStream(data), alphabet);
+		assertFalse(reader.HasPaths());
+		assertEquals(words.size(), reader.GetRemainingCount());
+		assertEquals(0, SolutionReader.Decode(SolutionWriter.Encode(Arrays.<String>asList(), alphabet), alphabet).size());
+	}
+
+	/**
+	 * Test of encoding and decoding the solutions of a board with their paths.
+	 */
+	@Test
+	public void testPaths() throws IOException {
+		System.out.println("Paths");
+		GameBoard board = new GameBoard();
+		board.Init(alphabet, tree, new IBoardGenerator() {
+			@Override
+			public char[] GenerateBoard(int size) {
+				return "hamrdayucheuymrb".toCharArray();
+			}
+		});
+		byte[] data = SolutionWriter.EncodeWithPaths(board);
+		SolutionReader reader = new SolutionReader(new ByteArrayInputStream(data), alphabet);
+		assertTrue(reader.HasPaths());
+		assertEquals(4, reader.GetEdgeSize());
+		int[][] neighbors = GameBoard.GetNeighborTable(4);
+		int count = 0;
+		while (reader.Next())
+		{
+			count++;
+			for (int i = 0; i < reader.GetLength(); i++)
+			{
+				assertEquals(reader.GetLetter(i), board.GetLetters()[reader.GetPosition(i)]);
+				if (i > 0)
+					assertTrue(IsNeighbor(neighbors[reader.GetPosition(i - 1)], reader.GetPosition(i)));
+			}
+		}
+		assertEquals(5, count);
+		assertEquals(SolutionWriter.Sort(board.SolveBoard(), alphabet), SolutionReader.Decode(data, alphabet));
+	}
+
+	private static boolean IsNeighbor(int[] neighbors, int position)
+	{
+		for (int n: neighbors)
+		{
+			if (n == position)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Test of invalid input of SolutionWriter and SolutionReader.
+	 */
+	@Test
+	public void testInvalid() throws IOException {
+		System.out.println("Invalid");
+		SolutionWriter writer = new SolutionWriter(new ByteArrayOutputStream(), alphabet, 0, 3);
+		writer.Write("hamr");
+		try
+		{
+			writer.Write("had");
+			fail("Word out of order written");
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+		try
+		{
+			writer.Finish();
+			fail("Fewer words written than announced");
+		}
+		catch (IllegalStateException e)
+		{
+		}
+
+		byte[] data = SolutionWriter.Encode(Arrays.asList("hamr", "hamry", "cay"), alphabet);
+		try
+		{
+			SolutionReader.Decode(Arrays.copyOf(data, data.length - 1), alphabet);
+			fail("Truncated solutions read");
+		}
+		catch (IOException e)
+		{
+		}
+		try
+		{
+			SolutionReader.Decode(data, TestDictionary.CreateAlphabet("abcdehmr", new Random(1)));
+			fail("Solutions of another alphabet read");
+		}
+		catch (IOException e)
+		{
+		}
+	}
+}
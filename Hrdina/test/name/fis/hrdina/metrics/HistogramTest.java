@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2013 Filip Simek <filip@fis.name>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package name.fis.hrdina.metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of Histogram and MetricsMBean
+ * @author Filip Simek <filip@fis.name>
+ */
+public class HistogramTest {
+
+	/**
+	 * Test of the bucket boundaries of class Histogram.
+	 */
+	@Test
+	public void testBuckets() {
+		System.out.println("Buckets");
+		long[] values = {0, 1, 3, 4, 7, 8, 9, 15, 16, 1000, 123456789L, Long.MAX_VALUE};
+		for (long v: values)
+		{
+			int bucket = Histogram.BucketOf(v);
+			assertTrue(v <= Histogram.BucketLimit(bucket));
+			if (bucket > 0)
+				assertTrue(v > Histogram.BucketLimit(bucket - 1));
+			// Buckets are at most 25 % wide
+			assertTrue(Histogram.BucketLimit(bucket) - v <= v / 4);
+		}
+		assertEquals(Long.MAX_VALUE, Histogram.BucketLimit(Histogram.BucketOf(Long.MAX_VALUE)));
+	}
+
+	/**
+	 * Test of the statistics of class Histogram.
+	 */
+	@Test
+	public void testPercentiles() {
+		System.out.println("Percentiles");
+		Histogram h = new Histogram("Test");
+		assertEquals(0, h.GetPercentile(0.5));
+		for (int i = 1; i <= 1000; i++)
+			h.Record(i);
+		assertEquals(1000, h.GetCount());
+		assertEquals(500.5, h.GetMean(), 1e-9);
+		assertEquals(1000, h.GetMax());
+		long p50 = h.GetPercentile(0.5);
+		assertTrue(p50 >= 500 && p50 <= 625);
+		long p99 = h.GetPercentile(0.99);
+		assertTrue(p99 >= 990 && p99 <= 1000);
+		h.Reset();
+		assertEquals(0, h.GetCount());
+	}
+
+	/**
+	 * Test of the attributes of class MetricsMBean.
+	 */
+	@Test
+	public void testMBean() throws Exception {
+		System.out.println("MBean");
+		Histogram h = new Histogram("Time");
+		Counter c = new Counter("Calls");
+		MetricsMBean bean = new MetricsMBean(Arrays.<IMetric>asList(h, c));
+		h.Record(10);
+		c.Add(3);
+		Map<String, Object> values = bean.Snapshot();
+		assertEquals(3L, values.get("Calls.Count"));
+		assertEquals(1L, values.get("Time.Count"));
+		assertEquals(10L, bean.getAttribute("Time.Max"));
+		assertEquals(values.size(), bean.getMBeanInfo().getAttributes().length);
+		bean.invoke("Reset", new Object[0], new String[0]);
+		assertEquals(0L, bean.getAttribute("Calls.Count"));
+	}
+}
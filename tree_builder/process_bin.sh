@@ -1,3 +1,3 @@
 sdir=../data
 odir=../Hrdina/src/name/fis/data
-./tree_builder.py "$sdir"/wordlist.txt "$odir"/alphabet.bin "$odir"/wordtree.bin "$odir"/digraph.bin
+./tree_builder.py -t "$sdir"/tiles.txt -s "$sdir"/splits.txt "$sdir"/wordlist.txt "$odir"/alphabet.bin "$odir"/wordtree.bin "$odir"/digraph.bin "$odir"/trigram.bin
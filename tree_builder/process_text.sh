@@ -1 +1 @@
-./tree_builder.py -T ../data/wordlist.txt o/t_alp.txt o/t_word.txt o/t_dig.txt
+./tree_builder.py -T -t ../data/tiles.txt -s ../data/splits.txt ../data/wordlist.txt o/t_alp.txt o/t_word.txt o/t_dig.txt o/t_tri.txt
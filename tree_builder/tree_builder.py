@@ -9,6 +9,75 @@ NEXT = 1
 COMPLETE = 1
 NOT_COMPLETE = 0
 
+# Multi-letter tiles are represented by single characters from the Unicode
+# private use area, so that the rest of the builder can keep working with
+# strings where one character is one tile
+FIRST_TILE_CODE = 0xE000
+
+#### Tiles ###############################
+def load_tiles(name):
+	"""Loads the tile set (one tile per line) and assigns a code to each
+	multi-letter tile. Returns a dictionary mapping tile text to its code."""
+	tiles = {}
+	for line in open(name):
+		tile = line.strip()
+		if len(tile) > 1 and tile not in tiles:
+			tiles[tile] = chr(FIRST_TILE_CODE + len(tiles))
+	return tiles
+
+def load_splits(name):
+	"""Loads the split patterns (one per line, # starts a comment). A pattern is
+	a piece of a word with | where the letters of a multi-letter tile belong to
+	different parts of the word, e.g. tisíc|h. Returns a list of the patterns."""
+	splits = []
+	for line in open(name):
+		pattern = line.split('#')[0].strip()
+		if pattern:
+			if '|' not in pattern:
+				raise ValueError("Split pattern without a split: {}".format(pattern))
+			splits.append(pattern)
+	return splits
+
+def split_positions(word, splits):
+	"""Returns the set of positions in the word (index of the letter after the
+	split) where a split pattern forbids joining the letters into a tile"""
+	positions = set()
+	for pattern in splits:
+		text = pattern.replace('|', '')
+		start = word.find(text)
+		while start >= 0:
+			offset = 0
+			for c in pattern:
+				if c == '|':
+					positions.add(start + offset)
+				else:
+					offset += 1
+			start = word.find(text, start + 1)
+	return positions
+
+def tokenize(word, tiles, splits):
+	"""Splits the word into tiles, preferring the longest tile at each position,
+	but never across a split of a split pattern. Returns a string where each
+	multi-letter tile is replaced by its code. Alphabet.Tokenize does the same
+	with the tiles and the patterns stored in alphabet.bin."""
+	if not tiles:
+		return word
+	lengths = sorted(set(len(t) for t in tiles), reverse=True)
+	no_join = split_positions(word, splits)
+	result = []
+	i = 0
+	while i < len(word):
+		for length in lengths:
+			code = tiles.get(word[i:i+length])
+			if code is not None and not any(i < k < i + length for k in no_join):
+				result.append(code)
+				i += length
+				break
+		else:
+			result.append(word[i])
+			i += 1
+	return ''.join(result)
+
 #### Word tree ###########################
 def add_word(tree, frequencies, word):
 	"""Adds a single word to the tree and increments letter counters in the
@@ -100,10 +169,19 @@ def add_digraph(digraphs, c1, c2):
 			digraphs[c1][c2] += 1
 
 
+### Trigrams #################################
+def add_trigram(trigrams, c1, c2, c3):
+	key = (c1, c2, c3)
+	trigrams[key] = trigrams.get(key, 0) + 1
+
+
 ### Text Output ##############################
-def dump_text_alphabet(total_letters, frequencies, f):
+def dump_text_alphabet(total_letters, frequencies, tiles, splits, f):
 	print(str(total_letters), file=f)
 	print(str(frequencies), file=f)
+	if tiles:
+		print(str(tiles), file=f)
+		print(str(splits), file=f)
 
 def dump_text_tree(tree, f):
 	print(str(tree), file=f)
@@ -111,20 +189,37 @@ def dump_text_tree(tree, f):
 def dump_text_digraphs(digraphs, f):
 	print(str(digraphs), file=f)
 
+def dump_text_trigrams(trigrams, f):
+	print(str(trigrams), file=f)
+
 
 ### Binary Output ############################
-def dump_binary_alphabet(total_letters, frequencies, f):
+def dump_binary_alphabet(total_letters, frequencies, tiles, splits, f):
 	distinct_letters = len(frequencies)
 	if distinct_letters > 128:
 		raise ValueError("Too many distinct letters ({}). At most 128 are supported".format(distinct_letters))
 
-	# File version and statistics
-	array('I', [1]).tofile(f)
+	# File version and statistics. Version 2 adds the tile table, version 3
+	# the split patterns.
+	array('I', [3 if tiles else 1]).tofile(f)
 	array('I', [total_letters, distinct_letters]).tofile(f)
 
 	# Alphabet and letter frequencies
 	array('u', list(frequencies.keys())).tofile(f)
 	array('I', list(frequencies.values())).tofile(f)
+
+	# Tile table: code of the tile, number of letters, letters
+	if tiles:
+		used_tiles = [(code, text) for text, code in tiles.items() if code in frequencies]
+		array('I', [len(used_tiles)]).tofile(f)
+		for code, text in used_tiles:
+			array('I', [ord(code), len(text)]).tofile(f)
+			array('u', text).tofile(f)
+		# Split patterns: number of characters (including the |), characters
+		array('I', [len(splits)]).tofile(f)
+		for pattern in splits:
+			array('I', [len(pattern)]).tofile(f)
+			array('u', pattern).tofile(f)
 	letter_map = {}
 	i = 0
 	for letter in frequencies.keys():
@@ -171,6 +266,18 @@ def dump_binary_digraphs(digraphs, letter_map, f):
 			else:
 				triangle += [digraphs[first[1]][second[1]]]
 	array('I', triangle).tofile(f)
+
+def dump_binary_trigrams(trigrams, letter_map, f):
+	# Most of the NxNxN trigrams never occur, so only the occurring ones are
+	# stored, sorted: the three letter indices packed into one number
+	# (first | second << 8 | third << 16) followed by the frequency
+	entries = sorted((letter_map[c1], letter_map[c2], letter_map[c3], count)
+		for (c1, c2, c3), count in trigrams.items())
+	array('I', [1, len(entries)]).tofile(f)
+	packed = []
+	for e in entries:
+		packed += [e[0] | (e[1] << 8) | (e[2] << 16), e[3]]
+	array('I', packed).tofile(f)
 	
 
 ##############################################
@@ -190,28 +297,43 @@ def close_file(name, f):
 	f.close()
 
 def main():
-	if len(sys.argv) < 5:
-		print("Usage: {} [-T] <dict_file> <alphabet_file> <wordtree_file> <digraph_file>".format(sys.argv[0]), file=sys.stderr)
+	text_output = False
+	tiles = {}
+	splits = []
+	args = sys.argv[1:]
+	while len(args) > 0 and args[0] in ('-T', '-t', '-s'):
+		if args[0] == '-T':
+			text_output = True
+			args = args[1:]
+		elif args[0] == '-t' and len(args) > 1:
+			tiles = load_tiles(args[1])
+			args = args[2:]
+		elif args[0] == '-s' and len(args) > 1:
+			splits = load_splits(args[1])
+			args = args[2:]
+		else:
+			break
+
+	if len(args) < 4:
+		print("Usage: {} [-T] [-t <tile_file>] [-s <split_file>] <dict_file> <alphabet_file> <wordtree_file> <digraph_file> [<trigram_file>]".format(sys.argv[0]), file=sys.stderr)
 		print("   -T [optional]          Produce text output instead of binary", file=sys.stderr)
+		print("   -t [optional]          File with multi-letter tiles (one per line) to treat as single letters", file=sys.stderr)
+		print("   -s [optional]          File with split patterns (one per line, e.g. tisíc|h) where letters must not form a tile", file=sys.stderr)
 		print("   <dict_file> [in]       Dictionary of words (one per line) to be processed", file=sys.stderr)
 		print("   <alphabet_file> [out]  Output file for alphabet statistics", file=sys.stderr)
 		print("   <wordtree_file> [out]  Output file for wordtree", file=sys.stderr)
 		print("   <digraph_file> [out]   Output file for digraph statistics", file=sys.stderr)
+		print("   <trigram_file> [out]   Output file for trigram statistics [optional]", file=sys.stderr)
 		return
-	
-	text_output = False
-	if (sys.argv[1] == '-T'):
-		text_output = True
-		file_args = sys.argv[2:6]
-	else:
-		file_args = sys.argv[1:5]
 
-	input_file, alphabet_file, wordtree_file, digraph_file = file_args
+	input_file, alphabet_file, wordtree_file, digraph_file = args[0:4]
+	trigram_file = args[4] if len(args) > 4 else None
 	
 	source = open(input_file)
 	tree = [[NOT_COMPLETE]]
 	frequencies = {}
 	digraphs = {}
+	trigrams = {}
 	counter = 0
 	for line in source:
 		if counter % 1000 == 0:
@@ -221,6 +343,7 @@ def main():
 		line = line.strip()
 		if len(line) < 3:
 			continue
+		line = tokenize(line, tiles, splits)
 
 		# add word to word tree
 		add_word(tree, frequencies, line)
@@ -232,6 +355,12 @@ def main():
 			add_digraph(digraphs, c1, c2)
 			add_digraph(digraphs, c2, c1)
 
+		# add word to trigram counter; a path on the board can be read both ways
+		for i in range(len(line) - 2):
+			c1, c2, c3 = line[i:i+3]
+			add_trigram(trigrams, c1, c2, c3)
+			add_trigram(trigrams, c3, c2, c1)
+
 	total_letters = sum(frequencies.values())
 	print("\rWords processed:", counter, file=sys.stderr)
 	print("Tree nodes:", len(tree), file=sys.stderr)
@@ -242,7 +371,7 @@ def main():
 
 	if text_output:
 		f = open_file(alphabet_file, text_output)
-		dump_text_alphabet(total_letters, frequencies, f)
+		dump_text_alphabet(total_letters, frequencies, tiles, splits, f)
 		close_file(alphabet_file, f)
 		
 		f = open_file(wordtree_file, text_output)
@@ -252,9 +381,14 @@ def main():
 		f = open_file(digraph_file, text_output)
 		dump_text_digraphs(digraphs, f)
 		close_file(digraph_file, f)
+
+		if trigram_file:
+			f = open_file(trigram_file, text_output)
+			dump_text_trigrams(trigrams, f)
+			close_file(trigram_file, f)
 	else:
 		f = open_file(alphabet_file, text_output)
-		letter_map = dump_binary_alphabet(total_letters, frequencies, f)
+		letter_map = dump_binary_alphabet(total_letters, frequencies, tiles, splits, f)
 		close_file(alphabet_file, f)
 
 		f = open_file(wordtree_file, text_output)
@@ -265,6 +399,11 @@ def main():
 		dump_binary_digraphs(digraphs, letter_map, f)
 		close_file(digraph_file, f)
 
+		if trigram_file:
+			f = open_file(trigram_file, text_output)
+			dump_binary_trigrams(trigrams, letter_map, f)
+			close_file(trigram_file, f)
+
 
 if __name__=='__main__':
 	main()